@@ -3,9 +3,11 @@ package com.scoding.metro;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.scoding.metro.mapper")
+@EnableScheduling
 public class MetroApplication {
 
     public static void main(String[] args) {
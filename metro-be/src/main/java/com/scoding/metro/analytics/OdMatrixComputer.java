@@ -0,0 +1,118 @@
+package com.scoding.metro.analytics;
+
+import com.scoding.metro.job.Job;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.RaptorEngine;
+import com.scoding.metro.planner.SearchPool;
+import com.scoding.metro.planner.TimetableHolder;
+import com.scoding.metro.planner.TimetableSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * OD 旅行时间矩阵计算
+ * 对每个时间片、每个出发站点执行一次一对多搜索，出发站点按批次分发到 {@link SearchPool} 并行计算，
+ * 每批结束后由任务线程写入内存映射的矩阵文件、更新进度并检查取消标记。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OdMatrixComputer {
+
+    /**
+     * 每批并行计算的出发站点数
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final TimetableHolder timetableHolder;
+    private final SearchPool searchPool;
+    private final OdMatrixStore matrixStore;
+
+    @Value("${app.planner.transfer-seconds:60}")
+    private int transferSeconds;
+
+    @Value("${app.planner.max-transfers:5}")
+    private int maxTransfers;
+
+    @Value("${app.analytics.horizon-minutes:240}")
+    private int horizonMinutes;
+
+    /**
+     * 计算并发布矩阵
+     *
+     * @param job          当前任务，任务ID即矩阵ID
+     * @param runDate      运行日期
+     * @param sliceSeconds 各时间片的出发时刻（秒）
+     * @return 已发布的矩阵
+     */
+    public OdMatrixFile compute(Job job, LocalDate runDate, int[] sliceSeconds) throws IOException {
+        job.startPhase("加载时刻表", -1);
+        TimetableSnapshot timetable = timetableHolder.get(runDate);
+        TransitNetworkSnapshot network = timetable.getNetwork();
+
+        int stations = timetable.stationCount();
+        long[] stationIds = new long[stations];
+        for (int s = 0; s < stations; s++) {
+            stationIds[s] = network.stationId(s);
+        }
+
+        Path temp = matrixStore.createTempFile();
+        try {
+            OdMatrixFile matrix = OdMatrixFile.create(temp, network.getVersion(), runDate, stationIds, sliceSeconds);
+            job.startPhase("计算旅行时间", (long) sliceSeconds.length * stations);
+            for (int slice = 0; slice < sliceSeconds.length; slice++) {
+                int departAt = sliceSeconds[slice];
+                for (int from = 0; from < stations; from += BATCH_SIZE) {
+                    job.checkCancelled();
+                    int batchStart = from;
+                    int batchSize = Math.min(BATCH_SIZE, stations - from);
+                    List<RaptorEngine.Reachability> rows = searchPool.map(batchSize,
+                            i -> RaptorEngine.reachable(timetable, batchStart + i, departAt,
+                                    departAt + horizonMinutes * 60, maxTransfers + 1, transferSeconds));
+                    int[] minutes = new int[stations];
+                    int[] transfers = new int[stations];
+                    for (int i = 0; i < batchSize; i++) {
+                        toRow(rows.get(i), departAt, minutes, transfers);
+                        matrix.writeRow(slice, batchStart + i, minutes, transfers);
+                    }
+                    job.advance(batchSize);
+                }
+            }
+            job.checkCancelled();
+            matrix.force();
+            matrixStore.publish(temp, job.getId());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        job.count("stations", stations);
+        job.count("slices", sliceSeconds.length);
+        log.info("OD矩阵 {} 计算完成: {} 个站点, {} 个时间片", job.getId(), stations, sliceSeconds.length);
+        return matrixStore.open(job.getId());
+    }
+
+    private static void toRow(RaptorEngine.Reachability reachability, int departAt, int[] minutes, int[] transfers) {
+        int[] arrivals = reachability.getArrivals();
+        for (int d = 0; d < arrivals.length; d++) {
+            if (arrivals[d] == UNREACHED) {
+                minutes[d] = OdMatrixFile.UNREACHABLE_MINUTES;
+                transfers[d] = OdMatrixFile.UNREACHABLE_TRANSFERS;
+            } else {
+                minutes[d] = (arrivals[d] - departAt + 59) / 60;
+                transfers[d] = reachability.getTransfers()[d];
+            }
+        }
+    }
+}
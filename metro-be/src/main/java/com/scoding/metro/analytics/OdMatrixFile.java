@@ -0,0 +1,233 @@
+package com.scoding.metro.analytics;
+
+import com.scoding.metro.exception.BusinessException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 起讫点（OD）旅行时间矩阵文件
+ * 以内存映射方式读写，定长头部之后依次为站点ID、各时间片的出发时刻、旅行时间矩阵和换乘次数矩阵，均为大端序：
+ * <pre>
+ * int    magic "MTOD"
+ * int    格式版本
+ * int    站点数 n
+ * int    时间片数 s
+ * long   路网快照版本
+ * int    运行日期（epochDay）
+ * int    保留
+ * long[n]  站点ID，升序
+ * int[s]   各时间片的出发时刻（自当日零点起的秒数）
+ * u16[s*n*n] 旅行时间（分钟），按 [时间片][出发站][到达站] 排列，不可达为 0xFFFF
+ * u8[s*n*n]  以最早时间到达时的最少换乘次数，不可达为 0xFF
+ * </pre>
+ * 查询单元格只需按偏移量读取，无需把整个矩阵载入堆内存。
+ *
+ * @author scoheart
+ */
+public final class OdMatrixFile {
+
+    public static final int MAGIC = 0x4D544F44;
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int UNREACHABLE_MINUTES = 0xFFFF;
+    public static final int UNREACHABLE_TRANSFERS = 0xFF;
+
+    private static final int HEADER_BYTES = 32;
+
+    private final MappedByteBuffer buffer;
+    private final int stationCount;
+    private final int sliceCount;
+    private final long networkVersion;
+    private final LocalDate runDate;
+    private final long[] stationIds;
+    private final int[] sliceSeconds;
+    private final int minutesOffset;
+    private final int transfersOffset;
+
+    private OdMatrixFile(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new BusinessException("不是有效的OD矩阵文件");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new BusinessException("不支持的OD矩阵文件版本: " + buffer.getInt(4));
+        }
+        this.stationCount = buffer.getInt(8);
+        this.sliceCount = buffer.getInt(12);
+        this.networkVersion = buffer.getLong(16);
+        this.runDate = LocalDate.ofEpochDay(buffer.getInt(24));
+        if (buffer.capacity() != sizeOf(stationCount, sliceCount)) {
+            throw new BusinessException("OD矩阵文件不完整");
+        }
+
+        this.stationIds = new long[stationCount];
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < stationCount; i++, offset += Long.BYTES) {
+            stationIds[i] = buffer.getLong(offset);
+        }
+        this.sliceSeconds = new int[sliceCount];
+        for (int i = 0; i < sliceCount; i++, offset += Integer.BYTES) {
+            sliceSeconds[i] = buffer.getInt(offset);
+        }
+        this.minutesOffset = offset;
+        this.transfersOffset = offset + sliceCount * stationCount * stationCount * Short.BYTES;
+    }
+
+    /**
+     * 矩阵文件的字节数
+     */
+    public static long sizeOf(int stationCount, int sliceCount) {
+        long cells = (long) sliceCount * stationCount * stationCount;
+        return HEADER_BYTES + (long) stationCount * Long.BYTES + (long) sliceCount * Integer.BYTES
+                + cells * Short.BYTES + cells;
+    }
+
+    /**
+     * 创建矩阵文件并写入头部，矩阵内容由 {@link #writeRow} 逐行写入
+     *
+     * @param file           文件路径，已存在时覆盖
+     * @param networkVersion 路网快照版本
+     * @param runDate        运行日期
+     * @param stationIds     站点ID，升序
+     * @param sliceSeconds   各时间片的出发时刻（秒）
+     * @return 可写的矩阵文件
+     */
+    public static OdMatrixFile create(Path file, long networkVersion, LocalDate runDate,
+                                      long[] stationIds, int[] sliceSeconds) throws IOException {
+        long size = sizeOf(stationIds.length, sliceSeconds.length);
+        if (size > Integer.MAX_VALUE) {
+            throw new BusinessException("OD矩阵过大，请减少时间片数");
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, stationIds.length);
+        buffer.putInt(12, sliceSeconds.length);
+        buffer.putLong(16, networkVersion);
+        buffer.putInt(24, (int) runDate.toEpochDay());
+        buffer.putInt(28, 0);
+        int offset = HEADER_BYTES;
+        for (long stationId : stationIds) {
+            buffer.putLong(offset, stationId);
+            offset += Long.BYTES;
+        }
+        for (int seconds : sliceSeconds) {
+            buffer.putInt(offset, seconds);
+            offset += Integer.BYTES;
+        }
+        return new OdMatrixFile(buffer);
+    }
+
+    /**
+     * 以只读方式映射已有的矩阵文件
+     */
+    public static OdMatrixFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new BusinessException("不是有效的OD矩阵文件");
+            }
+            return new OdMatrixFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 写入一个出发站点在某时间片的整行结果
+     *
+     * @param slice     时间片下标
+     * @param origin    出发站点下标
+     * @param minutes   到各站点的旅行时间（分钟），不可达为 {@link #UNREACHABLE_MINUTES}
+     * @param transfers 到各站点的换乘次数，不可达为 {@link #UNREACHABLE_TRANSFERS}
+     */
+    public void writeRow(int slice, int origin, int[] minutes, int[] transfers) {
+        int cell = cellIndex(slice, origin, 0);
+        for (int d = 0; d < stationCount; d++, cell++) {
+            buffer.putShort(minutesOffset + cell * Short.BYTES, (short) Math.min(minutes[d], UNREACHABLE_MINUTES));
+            buffer.put(transfersOffset + cell, (byte) Math.min(transfers[d], UNREACHABLE_TRANSFERS));
+        }
+    }
+
+    /**
+     * 将已写入的内容刷到磁盘
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * 旅行时间（分钟），不可达时返回-1
+     */
+    public int travelMinutes(int slice, int origin, int destination) {
+        int value = Short.toUnsignedInt(buffer.getShort(minutesOffset + cellIndex(slice, origin, destination) * Short.BYTES));
+        return value == UNREACHABLE_MINUTES ? -1 : value;
+    }
+
+    /**
+     * 换乘次数，不可达时返回-1
+     */
+    public int transfers(int slice, int origin, int destination) {
+        int value = Byte.toUnsignedInt(buffer.get(transfersOffset + cellIndex(slice, origin, destination)));
+        return value == UNREACHABLE_TRANSFERS ? -1 : value;
+    }
+
+    /**
+     * 站点ID对应的下标，不存在时返回-1
+     */
+    public int stationIndex(long stationId) {
+        int index = Arrays.binarySearch(stationIds, stationId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * 出发时刻（秒）对应的时间片下标，不存在时返回-1
+     */
+    public int sliceIndex(int seconds) {
+        for (int i = 0; i < sliceCount; i++) {
+            if (sliceSeconds[i] == seconds) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int cellIndex(int slice, int origin, int destination) {
+        return (slice * stationCount + origin) * stationCount + destination;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    public long getNetworkVersion() {
+        return networkVersion;
+    }
+
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+
+    public long stationId(int index) {
+        return stationIds[index];
+    }
+
+    public int sliceSeconds(int index) {
+        return sliceSeconds[index];
+    }
+
+    public long getSizeInBytes() {
+        return buffer.capacity();
+    }
+}
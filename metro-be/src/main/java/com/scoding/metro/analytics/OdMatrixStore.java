@@ -0,0 +1,118 @@
+package com.scoding.metro.analytics;
+
+import com.scoding.metro.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OD 矩阵文件存储
+ * 矩阵以生成它的任务ID命名保存在本地目录中，读取时映射后缓存，超过保留期限的文件定期删除。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class OdMatrixStore {
+
+    private static final String SUFFIX = ".odm";
+
+    private final Path directory;
+    private final Duration retention;
+    private final Map<String, OdMatrixFile> opened = new ConcurrentHashMap<>();
+
+    public OdMatrixStore(@Value("${app.analytics.od-matrix-dir:data/od-matrices}") String directory,
+                         @Value("${app.analytics.retention-hours:72}") long retentionHours) {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * 为新矩阵创建临时文件，写完后通过 {@link #publish} 发布
+     */
+    public Path createTempFile() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "od-matrix", ".tmp");
+    }
+
+    /**
+     * 将写完的临时文件替换为正式文件
+     */
+    public void publish(Path temp, String id) throws IOException {
+        Files.move(temp, pathOf(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        opened.remove(id);
+    }
+
+    /**
+     * 获取已发布的矩阵
+     *
+     * @param id 矩阵ID（即生成任务的ID）
+     * @return 只读映射的矩阵文件
+     */
+    public OdMatrixFile open(String id) {
+        Path path = pathOf(id);
+        return opened.computeIfAbsent(id, key -> {
+            if (!Files.isRegularFile(path)) {
+                throw new BusinessException("OD矩阵不存在或已过期");
+            }
+            try {
+                return OdMatrixFile.open(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 矩阵文件路径
+     */
+    public Path pathOf(String id) {
+        try {
+            // 只接受任务ID格式，防止路径穿越
+            return directory.resolve(UUID.fromString(id) + SUFFIX);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("OD矩阵不存在或已过期");
+        }
+    }
+
+    /**
+     * 删除超过保留期限的矩阵文件和遗留的临时文件
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        FileTime threshold = FileTime.from(Instant.now().minus(retention));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(threshold) >= 0) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    opened.remove(name.substring(0, name.length() - SUFFIX.length()));
+                }
+                Files.deleteIfExists(file);
+                log.info("删除过期的OD矩阵文件 {}", name);
+            }
+        } catch (IOException e) {
+            log.warn("清理OD矩阵文件失败", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.scoding.metro.bundle;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 离线数据包的列缓冲
+ * 一列数据连续写入同一个缓冲，整数使用 LEB128 变长编码，有符号数先做 zigzag 变换
+ *
+ * @author scoheart
+ */
+final class ColumnWriter {
+
+    private final ByteArrayOutputStream buffer;
+
+    ColumnWriter() {
+        this(64);
+    }
+
+    ColumnWriter(int initialSize) {
+        this.buffer = new ByteArrayOutputStream(initialSize);
+    }
+
+    /**
+     * 无符号变长整数
+     */
+    ColumnWriter writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+        return this;
+    }
+
+    /**
+     * 有符号变长整数
+     */
+    ColumnWriter writeZigzag(long value) {
+        return writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 字符串：UTF-8 字节数加一后的变长整数，再跟字节；null 写作 0
+     */
+    ColumnWriter writeString(String value) {
+        if (value == null) {
+            return writeVarint(0);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1L);
+        buffer.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    ColumnWriter writeByte(int value) {
+        buffer.write(value);
+        return this;
+    }
+
+    /**
+     * 追加另一列的全部内容
+     */
+    ColumnWriter append(ColumnWriter column) {
+        buffer.writeBytes(column.buffer.toByteArray());
+        return this;
+    }
+
+    ColumnWriter append(byte[] bytes) {
+        buffer.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    int size() {
+        return buffer.size();
+    }
+
+    byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.scoding.metro.bundle;
+
+import java.time.LocalDate;
+
+/**
+ * 离线数据包
+ * 包含线路、站点、路线及有序停靠点，以及有效期内的运营日历、列车行程和到站时刻，客户端下载后即可离线规划行程。
+ * <p>
+ * 格式（整数均为 LEB128 变长编码，"有符号"表示先做 zigzag 变换；"下标+1"中 0 表示不存在）：
+ * <pre>
+ * 文件头    "MTRB" | 格式版本(1字节) | 生成时间(秒) | 有效期起始日(epoch day) | 有效天数
+ * 分段      标记(1字节) | 长度 | 内容，依次排列，以标记 0 结束；客户端应跳过不认识的分段
+ * 1 线路    数量 | ID列(与前一个ID之差) | 名称列 | 编码列 | 颜色列 | 运营商列
+ * 2 站点    数量 | ID列(差) | 名称列 | 编码列
+ * 3 路线    数量 | ID列(差) | 线路下标+1列 | 名称列 | 起点站下标+1列 | 终点站下标+1列 | 停靠点数列
+ *           | 停靠点ID列(有符号差，按路线和顺序排列) | 停靠点站点下标+1列
+ * 4 运营日历 数量 | ID列(差) | 星期掩码列(第0位为周一) | 起始日列(有符号，相对有效期起始日) | 天数列(结束日-起始日)
+ *           | 例外日期数列 | 例外日期列(有符号，相对有效期起始日) | 例外类型列(1增加 2停止)
+ * 5 列车行程 数量 | ID列(差) | 路线下标列 | 车次号字典(数量 | 字符串) | 车次号字典下标列
+ *           | 运营日历下标+1列(0 表示单日行程) | 运行日期列(有符号，相对有效期起始日，按日历运行时为0) | 到站时刻数列
+ * 6 到站时刻 数量 | 站点下标+1列 | 到达时刻列 | 发车时刻列
+ * </pre>
+ * 字符串为 UTF-8 字节数+1 再跟字节，null 写作 0。列中的"下标"指同一数据包内该类数据按ID升序排列后的位置。
+ * 到站时刻按行程顺序排列，每个行程的到达、发车时刻交替构成一条单调递增的时钟（跨零点时补足24小时），
+ * 每个时刻写作与本行程上一个时刻（首个时刻与0）之差加一，0 表示缺失。
+ *
+ * @param content             完整的数据包
+ * @param etag                数据内容摘要（不含生成时间），用作 ETag 和 If-Range 校验
+ * @param networkVersion      路网快照版本
+ * @param timetableGeneration 时刻表变更代数
+ * @param validFrom           有效期起始日期
+ * @param network             路网分段（增量重建时复用）
+ * @param timetable           时刻表分段（增量重建时复用）
+ * @param builtAt             生成时间（毫秒）
+ * @author scoheart
+ */
+public record NetworkBundle(byte[] content, String etag, long networkVersion, long timetableGeneration,
+                            LocalDate validFrom, byte[] network, byte[] timetable, long builtAt) {
+
+    static final byte[] MAGIC = {'M', 'T', 'R', 'B'};
+    static final int FORMAT_VERSION = 1;
+
+    static final int SECTION_END = 0;
+    static final int SECTION_LINES = 1;
+    static final int SECTION_STATIONS = 2;
+    static final int SECTION_ROUTES = 3;
+    static final int SECTION_CALENDARS = 4;
+    static final int SECTION_TRIPS = 5;
+    static final int SECTION_STOP_TIMES = 6;
+}
@@ -0,0 +1,328 @@
+package com.scoding.metro.bundle;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.StopTimeExportDO;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线数据包各分段的编码器
+ * 路网分段直接由路网快照编码；时刻表分段通过游标逐行读取列车行程和到站时刻，先按列写入缓冲再整体输出。
+ * 分段格式见 {@link NetworkBundle}。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class NetworkBundleBuilder {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
+
+    /**
+     * 编码路网分段：线路、站点、路线及其有序停靠点
+     */
+    public byte[] encodeNetwork(TransitNetworkSnapshot snapshot) {
+        ColumnWriter out = new ColumnWriter(16 * 1024);
+        writeSection(out, NetworkBundle.SECTION_LINES, encodeLines(snapshot));
+        writeSection(out, NetworkBundle.SECTION_STATIONS, encodeStations(snapshot));
+        writeSection(out, NetworkBundle.SECTION_ROUTES, encodeRoutes(snapshot));
+        return out.toByteArray();
+    }
+
+    /**
+     * 编码时刻表分段：运营日历、列车行程和到站时刻
+     * 两个游标依次打开，运营日历在打开游标前查出
+     *
+     * @param snapshot 路网快照，行程引用的路线、站点按快照中的下标编码
+     * @param from     有效期起始日期（含）
+     * @param to       有效期结束日期（含）
+     */
+    @Transactional(readOnly = true)
+    public byte[] encodeTimetable(TransitNetworkSnapshot snapshot, LocalDate from, LocalDate to) throws IOException {
+        List<ServiceCalendar> calendars = serviceCalendarMapper.selectOverlapping(from, to);
+        List<ServiceCalendarDate> exceptions = serviceCalendarMapper.selectDatesBetween(from, to);
+        Map<Long, Integer> calendarIndex = new HashMap<>();
+        for (int i = 0; i < calendars.size(); i++) {
+            calendarIndex.put(calendars.get(i).getId(), i);
+        }
+
+        ColumnWriter out = new ColumnWriter(256 * 1024);
+        writeSection(out, NetworkBundle.SECTION_CALENDARS, encodeCalendars(calendars, exceptions, calendarIndex, from));
+
+        Map<Long, Integer> tripIndex = new HashMap<>();
+        List<Long> tripIds = new ArrayList<>();
+        ColumnWriter trips = encodeTrips(snapshot, from, to, calendarIndex, tripIndex, tripIds);
+        int[] stopCounts = new int[tripIds.size()];
+        ColumnWriter stopTimes = encodeStopTimes(snapshot, from, to, tripIndex, stopCounts);
+
+        ColumnWriter counts = new ColumnWriter();
+        for (int count : stopCounts) {
+            counts.writeVarint(count);
+        }
+        writeSection(out, NetworkBundle.SECTION_TRIPS, trips.append(counts));
+        writeSection(out, NetworkBundle.SECTION_STOP_TIMES, stopTimes);
+        return out.toByteArray();
+    }
+
+    private static ColumnWriter encodeLines(TransitNetworkSnapshot snapshot) {
+        List<Line> lines = snapshot.getLines();
+        ColumnWriter section = new ColumnWriter().writeVarint(lines.size());
+        long previous = 0;
+        for (Line line : lines) {
+            section.writeVarint(line.getId() - previous);
+            previous = line.getId();
+        }
+        for (Line line : lines) {
+            section.writeString(line.getName());
+        }
+        for (Line line : lines) {
+            section.writeString(line.getCode());
+        }
+        for (Line line : lines) {
+            section.writeString(line.getColor());
+        }
+        for (Line line : lines) {
+            section.writeString(line.getOperator());
+        }
+        return section;
+    }
+
+    private static ColumnWriter encodeStations(TransitNetworkSnapshot snapshot) {
+        List<Station> stations = snapshot.getStations();
+        ColumnWriter section = new ColumnWriter().writeVarint(stations.size());
+        long previous = 0;
+        for (Station station : stations) {
+            section.writeVarint(station.getId() - previous);
+            previous = station.getId();
+        }
+        for (Station station : stations) {
+            section.writeString(station.getName());
+        }
+        for (Station station : stations) {
+            section.writeString(station.getCode());
+        }
+        return section;
+    }
+
+    private static ColumnWriter encodeRoutes(TransitNetworkSnapshot snapshot) {
+        List<Route> routes = snapshot.getRoutes();
+        ColumnWriter section = new ColumnWriter().writeVarint(routes.size());
+        long previous = 0;
+        for (Route route : routes) {
+            section.writeVarint(route.getId() - previous);
+            previous = route.getId();
+        }
+        for (int r = 0; r < routes.size(); r++) {
+            section.writeVarint(snapshot.routeLineAt(r) + 1L);
+        }
+        for (Route route : routes) {
+            section.writeString(route.getName());
+        }
+        for (Route route : routes) {
+            section.writeVarint(snapshot.stationIndex(route.getStartStationId()) + 1L);
+        }
+        for (Route route : routes) {
+            section.writeVarint(snapshot.stationIndex(route.getEndStationId()) + 1L);
+        }
+
+        // 有序停靠点：先写每条路线的停靠点数，再按路线依次写停靠点ID（与前一个的差）和站点下标
+        ColumnWriter stopIds = new ColumnWriter();
+        ColumnWriter stopStations = new ColumnWriter();
+        long previousStop = 0;
+        for (int r = 0; r < routes.size(); r++) {
+            int[] stops = snapshot.routeStopsAt(r);
+            section.writeVarint(stops.length);
+            for (int stopIdx : stops) {
+                long stopId = snapshot.stopId(stopIdx);
+                stopIds.writeZigzag(stopId - previousStop);
+                previousStop = stopId;
+                stopStations.writeVarint(snapshot.stopStationAt(stopIdx) + 1L);
+            }
+        }
+        return section.append(stopIds).append(stopStations);
+    }
+
+    private static ColumnWriter encodeCalendars(List<ServiceCalendar> calendars, List<ServiceCalendarDate> exceptions,
+                                                Map<Long, Integer> calendarIndex, LocalDate from) {
+        List<List<ServiceCalendarDate>> byCalendar = new ArrayList<>(calendars.size());
+        for (int i = 0; i < calendars.size(); i++) {
+            byCalendar.add(new ArrayList<>());
+        }
+        for (ServiceCalendarDate exception : exceptions) {
+            Integer idx = calendarIndex.get(exception.getCalendarId());
+            if (idx != null) {
+                byCalendar.get(idx).add(exception);
+            }
+        }
+
+        ColumnWriter section = new ColumnWriter().writeVarint(calendars.size());
+        long previous = 0;
+        for (ServiceCalendar calendar : calendars) {
+            section.writeVarint(calendar.getId() - previous);
+            previous = calendar.getId();
+        }
+        for (ServiceCalendar calendar : calendars) {
+            section.writeVarint(calendar.getWeekdays());
+        }
+        for (ServiceCalendar calendar : calendars) {
+            section.writeZigzag(calendar.getStartDate().toEpochDay() - from.toEpochDay());
+        }
+        for (ServiceCalendar calendar : calendars) {
+            section.writeVarint(calendar.getEndDate().toEpochDay() - calendar.getStartDate().toEpochDay());
+        }
+        for (List<ServiceCalendarDate> dates : byCalendar) {
+            section.writeVarint(dates.size());
+        }
+        // 例外日期按日历依次写出，日期为与有效期起始日期的差
+        for (List<ServiceCalendarDate> dates : byCalendar) {
+            for (ServiceCalendarDate date : dates) {
+                section.writeZigzag(date.getServiceDate().toEpochDay() - from.toEpochDay());
+            }
+        }
+        for (List<ServiceCalendarDate> dates : byCalendar) {
+            for (ServiceCalendarDate date : dates) {
+                section.writeVarint(date.getExceptionType());
+            }
+        }
+        return section;
+    }
+
+    /**
+     * 编码列车行程，路线不存在或运营日历不在有效期内的行程跳过；停靠点数列由调用方在读完到站时刻后追加
+     */
+    private ColumnWriter encodeTrips(TransitNetworkSnapshot snapshot, LocalDate from, LocalDate to,
+                                     Map<Long, Integer> calendarIndex, Map<Long, Integer> tripIndex, List<Long> tripIds)
+            throws IOException {
+        ColumnWriter routes = new ColumnWriter(64 * 1024);
+        ColumnWriter trainNumbers = new ColumnWriter(64 * 1024);
+        ColumnWriter services = new ColumnWriter(64 * 1024);
+        ColumnWriter runDates = new ColumnWriter(64 * 1024);
+        // 车次号字典：同一车次号在不同日期重复出现
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> dictionaryValues = new ArrayList<>();
+
+        try (Cursor<TrainTrip> cursor = trainTripMapper.streamByRunDate(from, to)) {
+            for (TrainTrip trip : cursor) {
+                int routeIdx = snapshot.routeIndex(trip.getRouteId());
+                Integer calendarIdx = trip.getServiceId() != null ? calendarIndex.get(trip.getServiceId()) : null;
+                if (routeIdx < 0 || (trip.getRunDate() == null && calendarIdx == null)) {
+                    continue;
+                }
+                tripIndex.put(trip.getId(), tripIds.size());
+                tripIds.add(trip.getId());
+                routes.writeVarint(routeIdx);
+                Integer word = dictionary.get(trip.getTrainNumber());
+                if (word == null) {
+                    word = dictionaryValues.size();
+                    dictionary.put(trip.getTrainNumber(), word);
+                    dictionaryValues.add(trip.getTrainNumber());
+                }
+                trainNumbers.writeVarint(word);
+                if (trip.getRunDate() != null) {
+                    services.writeVarint(0);
+                    runDates.writeZigzag(trip.getRunDate().toEpochDay() - from.toEpochDay());
+                } else {
+                    services.writeVarint(calendarIdx + 1L);
+                    runDates.writeZigzag(0);
+                }
+            }
+        }
+
+        ColumnWriter section = new ColumnWriter(tripIds.size() * 8 + 1024).writeVarint(tripIds.size());
+        long previous = 0;
+        for (Long id : tripIds) {
+            section.writeVarint(id - previous);
+            previous = id;
+        }
+        section.append(routes);
+        section.writeVarint(dictionaryValues.size());
+        for (String value : dictionaryValues) {
+            section.writeString(value);
+        }
+        return section.append(trainNumbers).append(services).append(runDates);
+    }
+
+    /**
+     * 编码到站时刻
+     * 时刻在行程内单调递增（跨零点时补足24小时），每个时刻写作与本行程上一个时刻之差加一，首个时刻与0比较，0 表示缺失
+     */
+    private ColumnWriter encodeStopTimes(TransitNetworkSnapshot snapshot, LocalDate from, LocalDate to,
+                                         Map<Long, Integer> tripIndex, int[] stopCounts)
+            throws IOException {
+        ColumnWriter stations = new ColumnWriter(256 * 1024);
+        ColumnWriter arrivals = new ColumnWriter(256 * 1024);
+        ColumnWriter departures = new ColumnWriter(256 * 1024);
+        long total = 0;
+        Long currentTrip = null;
+        Integer currentIdx = null;
+        int[] clock = new int[2];
+
+        try (Cursor<StopTimeExportDO> cursor = stopTimeMapper.streamForExport(from, to)) {
+            for (StopTimeExportDO stopTime : cursor) {
+                if (!stopTime.getTrainTripId().equals(currentTrip)) {
+                    currentTrip = stopTime.getTrainTripId();
+                    currentIdx = tripIndex.get(currentTrip);
+                    // clock[0]: 行程内上一个时刻（秒），clock[1]: 跨零点补足的秒数
+                    clock[0] = 0;
+                    clock[1] = 0;
+                }
+                if (currentIdx == null) {
+                    continue;
+                }
+                stopCounts[currentIdx]++;
+                total++;
+                stations.writeVarint(snapshot.stationIndex(stopTime.getStationId()) + 1L);
+                writeTime(arrivals, stopTime.getArrivalTime(), clock);
+                writeTime(departures, stopTime.getDepartureTime(), clock);
+            }
+        }
+
+        return new ColumnWriter(stations.size() + arrivals.size() + departures.size() + 16)
+                .writeVarint(total)
+                .append(stations)
+                .append(arrivals)
+                .append(departures);
+    }
+
+    private static void writeTime(ColumnWriter column, LocalTime time, int[] clock) {
+        if (time == null) {
+            column.writeVarint(0);
+            return;
+        }
+        int seconds = time.toSecondOfDay() + clock[1];
+        if (seconds < clock[0]) {
+            // 时刻回绕说明跨过了零点
+            clock[1] += SECONDS_PER_DAY;
+            seconds += SECONDS_PER_DAY;
+        }
+        column.writeVarint(seconds - clock[0] + 1L);
+        clock[0] = seconds;
+    }
+
+    private static void writeSection(ColumnWriter out, int tag, ColumnWriter payload) {
+        out.writeByte(tag).writeVarint(payload.size()).append(payload);
+    }
+}
@@ -0,0 +1,158 @@
+package com.scoding.metro.bundle;
+
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线数据包持有者
+ * 数据包分为路网和时刻表两部分分别缓存：线路、站点、路线、停靠点变更后路网快照版本变化，两部分都重新编码
+ * （时刻表按快照下标引用路线和站点）；仅列车行程、到站时刻或运营日历变更时只重新编码时刻表部分。
+ * 写操作提交后由定时任务在后台重建，下载时若仍未重建则当场重建，保证下载到的总是最新数据。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NetworkBundleHolder {
+
+    private final TransitNetworkHolder networkHolder;
+    private final NetworkBundleBuilder builder;
+
+    private final AtomicLong timetableGeneration = new AtomicLong();
+    private final Object rebuildLock = new Object();
+    private volatile NetworkBundle current;
+
+    /**
+     * 时刻表部分包含的天数（从当天起）
+     */
+    @Value("${app.bundle.days:7}")
+    private int days;
+
+    /**
+     * 获取最新的数据包，过期时先重建
+     */
+    public NetworkBundle get() {
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        LocalDate today = LocalDate.now();
+        NetworkBundle bundle = current;
+        if (isFresh(bundle, snapshot, today)) {
+            return bundle;
+        }
+        synchronized (rebuildLock) {
+            bundle = current;
+            if (isFresh(bundle, snapshot, today)) {
+                return bundle;
+            }
+            bundle = rebuild(bundle, snapshot, today);
+            current = bundle;
+            return bundle;
+        }
+    }
+
+    /**
+     * 定时在后台重建过期的数据包，下载请求无需等待
+     */
+    @Scheduled(fixedDelayString = "${app.bundle.refresh-interval-ms:10000}",
+            initialDelayString = "${app.bundle.refresh-interval-ms:10000}")
+    public void refresh() {
+        try {
+            get();
+        } catch (RuntimeException e) {
+            log.error("离线数据包重建失败", e);
+        }
+    }
+
+    /**
+     * 时刻表数据变更（事务提交后）时使时刻表部分过期，路网变更由快照版本体现
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        MetroAggregate aggregate = event.getAggregate();
+        if (!aggregate.isTopology() && !aggregate.isRealtime()) {
+            timetableGeneration.incrementAndGet();
+        }
+    }
+
+    private boolean isFresh(NetworkBundle bundle, TransitNetworkSnapshot snapshot, LocalDate today) {
+        return bundle != null
+                && bundle.networkVersion() == snapshot.getVersion()
+                && bundle.timetableGeneration() == timetableGeneration.get()
+                && bundle.validFrom().equals(today);
+    }
+
+    private NetworkBundle rebuild(NetworkBundle previous, TransitNetworkSnapshot snapshot, LocalDate today) {
+        long start = System.currentTimeMillis();
+        // 先取代数再读数据：读取期间若有新的变更，代数不一致，下次会再次重建
+        long generation = timetableGeneration.get();
+        boolean sameNetwork = previous != null && previous.networkVersion() == snapshot.getVersion();
+
+        byte[] network = sameNetwork ? previous.network() : builder.encodeNetwork(snapshot);
+        byte[] timetable;
+        if (sameNetwork && previous.timetableGeneration() == generation && previous.validFrom().equals(today)) {
+            timetable = previous.timetable();
+        } else {
+            try {
+                timetable = builder.encodeTimetable(snapshot, today, today.plusDays(days - 1L));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // 摘要只覆盖数据内容，不含生成时间：数据未变时 ETag 不变，并沿用上一版的字节，保证同一 ETag 对应同一内容
+        String etag = etag(today, network, timetable);
+        if (previous != null && previous.etag().equals(etag)) {
+            return new NetworkBundle(previous.content(), etag, snapshot.getVersion(), generation,
+                    today, network, timetable, previous.builtAt());
+        }
+
+        long builtAt = System.currentTimeMillis();
+        ColumnWriter out = new ColumnWriter(network.length + timetable.length + 32)
+                .append(NetworkBundle.MAGIC)
+                .writeByte(NetworkBundle.FORMAT_VERSION)
+                .writeVarint(builtAt / 1000)
+                .writeVarint(today.toEpochDay())
+                .writeVarint(days)
+                .append(network)
+                .append(timetable)
+                .writeByte(NetworkBundle.SECTION_END);
+        byte[] content = out.toByteArray();
+        NetworkBundle bundle = new NetworkBundle(content, etag, snapshot.getVersion(), generation,
+                today, network, timetable, builtAt);
+        log.info("离线数据包已重建: {} 字节, 路网{}, 耗时 {}ms", content.length,
+                sameNetwork ? "复用" : "重新编码", builtAt - start);
+        return bundle;
+    }
+
+    private String etag(LocalDate today, byte[] network, byte[] timetable) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(new ColumnWriter(16)
+                    .writeByte(NetworkBundle.FORMAT_VERSION)
+                    .writeVarint(today.toEpochDay())
+                    .writeVarint(days)
+                    .toByteArray());
+            digest.update(network);
+            digest.update(timetable);
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.scoding.metro.cache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 条件请求拦截器
+ * 对标注了 {@link DataVersioned} 的接口设置 ETag，客户端携带的 If-None-Match 与当前版本一致时返回 304，
+ * 不再执行查询和序列化。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class DataVersionInterceptor implements HandlerInterceptor {
+
+    /**
+     * 请求属性：接口依赖的聚合，供响应缓存记录失效条件
+     */
+    public static final String AGGREGATES_ATTRIBUTE = DataVersionInterceptor.class.getName() + ".aggregates";
+
+    /**
+     * 请求属性：执行查询前计算出的 ETag
+     */
+    public static final String ETAG_ATTRIBUTE = DataVersionInterceptor.class.getName() + ".etag";
+
+    private final DataVersionRegistry dataVersionRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        DataVersioned dataVersioned = handlerMethod.getMethodAnnotation(DataVersioned.class);
+        if (dataVersioned == null) {
+            return true;
+        }
+
+        // 允许浏览器缓存，但每次使用前须重新验证
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        String etag = dataVersionRegistry.etag(dataVersioned.value());
+        request.setAttribute(AGGREGATES_ATTRIBUTE, dataVersioned.value());
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        // 命中时 checkNotModified 会设置 304 状态和 ETag 响应头
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
@@ -0,0 +1,64 @@
+package com.scoding.metro.cache;
+
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 地铁数据版本登记表
+ * 每类聚合维护一个单调递增的版本号，数据变更事务提交后递增，用于生成强 ETag。
+ * 版本号前附加本次启动的标识，重启后旧的 ETag 不会与新数据误匹配。
+ *
+ * @author scoheart
+ */
+@Component
+public class DataVersionRegistry {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<MetroAggregate, AtomicLong> versions = new EnumMap<>(MetroAggregate.class);
+
+    public DataVersionRegistry() {
+        for (MetroAggregate aggregate : MetroAggregate.values()) {
+            versions.put(aggregate, new AtomicLong());
+        }
+    }
+
+    /**
+     * 获取聚合的当前版本
+     */
+    public long getVersion(MetroAggregate aggregate) {
+        return versions.get(aggregate).get();
+    }
+
+    /**
+     * 根据若干聚合的当前版本生成强 ETag
+     *
+     * @param aggregates 响应数据依赖的聚合
+     * @return 带引号的 ETag
+     */
+    public String etag(MetroAggregate... aggregates) {
+        StringBuilder etag = new StringBuilder(32).append('"').append(bootId);
+        for (MetroAggregate aggregate : aggregates) {
+            etag.append('-').append(getVersion(aggregate));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * 数据变更（事务提交后）时递增版本
+     * 排在其他监听器之后执行，保证版本可见时快照缓存已被标记失效，新版本号不会对应到旧数据
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        versions.get(event.getAggregate()).incrementAndGet();
+    }
+}
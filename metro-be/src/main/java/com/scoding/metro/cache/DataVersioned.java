@@ -0,0 +1,29 @@
+package com.scoding.metro.cache;
+
+import com.scoding.metro.event.MetroAggregate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记响应只取决于指定聚合数据的 GET 接口
+ * 由 {@link DataVersionInterceptor} 根据聚合版本生成 ETag，并对 If-None-Match 命中的请求直接返回 304。
+ * 响应还依赖当前时间等其他因素的接口不能使用。
+ *
+ * @author scoheart
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DataVersioned {
+
+    /**
+     * 响应数据依赖的聚合，默认是全部路网拓扑数据
+     */
+    MetroAggregate[] value() default {
+            MetroAggregate.LINE, MetroAggregate.STATION, MetroAggregate.ROUTE, MetroAggregate.STOP
+    };
+}
@@ -0,0 +1,165 @@
+package com.scoding.metro.cache;
+
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 匿名 GET 响应的序列化结果缓存
+ * 以"路径 + 查询串"为键，保存已序列化的响应体及其 gzip 压缩结果，命中时直接写出字节，跳过查询、包装和 JSON 序列化。
+ * 每个条目记录生成时的 ETag，读取时与 {@link DataVersionRegistry} 的当前 ETag 比较，版本变化即视为失效；
+ * 数据变更事件到达时同时移除受影响的条目，及时释放内存。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class ResponseBodyCache {
+
+    /**
+     * 小于该大小的响应体不做压缩
+     */
+    private static final int MIN_COMPRESS_BYTES = 1024;
+
+    private final DataVersionRegistry dataVersionRegistry;
+
+    @Getter
+    private final boolean enabled;
+
+    @Getter
+    private final int maxEntryBytes;
+
+    private final Map<String, Entry> entries;
+
+    public ResponseBodyCache(DataVersionRegistry dataVersionRegistry,
+                             @Value("${app.response-cache.enabled:true}") boolean enabled,
+                             @Value("${app.response-cache.max-entries:256}") int maxEntries,
+                             @Value("${app.response-cache.max-entry-bytes:2097152}") int maxEntryBytes) {
+        this.dataVersionRegistry = dataVersionRegistry;
+        this.enabled = enabled;
+        this.maxEntryBytes = maxEntryBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取仍与当前数据版本一致的缓存条目
+     *
+     * @param key 路径 + 查询串
+     * @return 缓存条目，不存在或已过期时返回null
+     */
+    public Entry get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.getEtag().equals(dataVersionRegistry.etag(entry.aggregates))) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存一次响应
+     * etag 必须是执行查询之前计算的值：查询期间若发生数据变更，条目会因版本不一致在下次读取时失效
+     *
+     * @param key         路径 + 查询串
+     * @param aggregates  响应数据依赖的聚合
+     * @param etag        查询前的 ETag
+     * @param contentType 响应内容类型
+     * @param body        序列化后的响应体
+     */
+    public void put(String key, MetroAggregate[] aggregates, String etag, String contentType, byte[] body) {
+        if (body.length > maxEntryBytes) {
+            return;
+        }
+        byte[] gzipped = body.length >= MIN_COMPRESS_BYTES ? gzip(body) : null;
+        if (gzipped != null && gzipped.length >= body.length) {
+            gzipped = null;
+        }
+        Entry entry = new Entry(aggregates, etag, contentType, body, gzipped);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 数据变更（事务提交后）时移除依赖该聚合的条目
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        MetroAggregate aggregate = event.getAggregate();
+        int removed = 0;
+        synchronized (entries) {
+            var iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().dependsOn.contains(aggregate)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.debug("{} 数据变更，移除 {} 条响应缓存", aggregate, removed);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 缓存条目
+     */
+    @Getter
+    public static final class Entry {
+
+        private final MetroAggregate[] aggregates;
+        private final Set<MetroAggregate> dependsOn;
+        private final String etag;
+        private final String contentType;
+        private final byte[] body;
+        /**
+         * gzip 压缩后的响应体，响应体过小或压缩无收益时为null
+         */
+        private final byte[] gzipped;
+
+        private Entry(MetroAggregate[] aggregates, String etag, String contentType, byte[] body, byte[] gzipped) {
+            this.aggregates = aggregates.clone();
+            this.dependsOn = aggregates.length == 0 ? EnumSet.noneOf(MetroAggregate.class) : EnumSet.of(aggregates[0], aggregates);
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+            this.gzipped = gzipped;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.scoding.metro.calendar;
+
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.StopTimeExportDO;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 单日列车行程合并器
+ * 把路线、车次号和停靠时刻完全相同、仅运行日期不同的单日行程合并为一条按运营日历运行的行程：
+ * <ol>
+ *     <li>流式读取所有单日行程，再按行程顺序流式读取到站时刻，为每个行程计算停靠时刻的摘要</li>
+ *     <li>路线、车次号、摘要相同的行程为一组，组内出现两个及以上运行日期时才合并</li>
+ *     <li>根据组内的运行日期推断星期规律：某个星期在日期范围内过半数出现即视为规律运行，其余差异记为例外日期；
+ *         运行日期完全相同的组共用一个运营日历</li>
+ *     <li>每组保留ID最小的行程并改为按日历运行，其余行程及其到站时刻删除</li>
+ * </ol>
+ * 整个合并在一个事务内完成，失败或取消时全部回滚。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceCalendarFolder {
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 每读取多少行更新一次进度并检查取消标记
+     */
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private static final String WEEKDAY_NAMES = "一二三四五六日";
+
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 合并单日列车行程
+     *
+     * @param job 所属任务，用于汇报进度和检查取消
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void fold(Job job) throws IOException {
+        Map<Long, DatedTrip> trips = loadDatedTrips(job);
+        computeSignatures(job, trips);
+
+        // 按路线、车次号、停靠时刻分组，行程按ID升序读取，组内第一个即ID最小的行程
+        Map<String, List<DatedTrip>> groups = new LinkedHashMap<>();
+        for (DatedTrip trip : trips.values()) {
+            String key = trip.routeId + "|" + trip.trainNumber + "|" + trip.signature();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(trip);
+        }
+
+        job.startPhase("合并列车行程", groups.size());
+        Map<List<LocalDate>, Long> calendars = new HashMap<>();
+        Map<Long, List<Long>> keptByCalendar = new LinkedHashMap<>();
+        List<Long> removed = new ArrayList<>();
+        for (List<DatedTrip> group : groups.values()) {
+            job.advance(1);
+            List<LocalDate> dates = new ArrayList<>(new TreeSet<>(group.stream().map(trip -> trip.runDate).toList()));
+            if (dates.size() < 2) {
+                continue;
+            }
+            Long calendarId = calendars.computeIfAbsent(dates, this::createCalendar);
+            keptByCalendar.computeIfAbsent(calendarId, k -> new ArrayList<>()).add(group.get(0).id);
+            for (int i = 1; i < group.size(); i++) {
+                removed.add(group.get(i).id);
+            }
+            job.count("foldedGroups", 1);
+        }
+        job.checkCancelled();
+
+        job.startPhase("写入", keptByCalendar.size() + (removed.size() + BATCH_SIZE - 1) / BATCH_SIZE);
+        for (Map.Entry<Long, List<Long>> entry : keptByCalendar.entrySet()) {
+            List<Long> ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                trainTripMapper.assignServiceCalendar(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())),
+                        entry.getKey());
+            }
+            job.advance(1);
+        }
+        for (int from = 0; from < removed.size(); from += BATCH_SIZE) {
+            List<Long> batch = removed.subList(from, Math.min(from + BATCH_SIZE, removed.size()));
+            stopTimeMapper.deleteByTrainTripIds(batch);
+            trainTripMapper.deleteByIds(batch);
+            job.advance(1);
+        }
+        job.count("calendars", calendars.size());
+        job.count("deletedTrips", removed.size());
+
+        if (!calendars.isEmpty()) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.SERVICE_CALENDAR, MetroDataChangedEvent.ChangeType.CREATE, null));
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.UPDATE, null));
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.STOP_TIME, MetroDataChangedEvent.ChangeType.DELETE, null));
+        }
+        log.info("单日列车行程合并完成: 单日行程 {} 个, 新建运营日历 {} 个, 删除重复行程 {} 个",
+                trips.size(), calendars.size(), removed.size());
+    }
+
+    private Map<Long, DatedTrip> loadDatedTrips(Job job) throws IOException {
+        job.startPhase("读取列车行程", -1);
+        Map<Long, DatedTrip> trips = new LinkedHashMap<>();
+        try (Cursor<TrainTrip> cursor = trainTripMapper.streamByRunDate(null, null)) {
+            for (TrainTrip trip : cursor) {
+                if (trip.getRunDate() != null) {
+                    trips.put(trip.getId(), new DatedTrip(trip.getId(), trip.getRouteId(), trip.getTrainNumber(),
+                            trip.getRunDate()));
+                }
+                job.advance(1);
+            }
+        }
+        return trips;
+    }
+
+    private void computeSignatures(Job job, Map<Long, DatedTrip> trips) throws IOException {
+        job.startPhase("读取到站时刻", -1);
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 3 * Integer.BYTES);
+        DatedTrip current = null;
+        long rows = 0;
+        try (Cursor<StopTimeExportDO> cursor = stopTimeMapper.streamForExport(null, null)) {
+            for (StopTimeExportDO stopTime : cursor) {
+                if (current == null || !current.id.equals(stopTime.getTrainTripId())) {
+                    if (current != null) {
+                        current.digest = digest.digest();
+                    }
+                    current = trips.get(stopTime.getTrainTripId());
+                    digest.reset();
+                }
+                if (current != null) {
+                    buffer.clear();
+                    buffer.putLong(stopTime.getStationId())
+                            .putInt(secondsOf(stopTime.getArrivalTime()))
+                            .putInt(secondsOf(stopTime.getDepartureTime()))
+                            .putInt(stopTime.getStopSeq() != null ? stopTime.getStopSeq() : -1);
+                    digest.update(buffer.array());
+                }
+                if (++rows % PROGRESS_INTERVAL == 0) {
+                    job.setProcessed(rows);
+                    job.checkCancelled();
+                }
+            }
+        }
+        if (current != null) {
+            current.digest = digest.digest();
+        }
+        job.setProcessed(rows);
+    }
+
+    private Long createCalendar(List<LocalDate> dates) {
+        LocalDate start = dates.get(0);
+        LocalDate end = dates.get(dates.size() - 1);
+        Set<LocalDate> dateSet = new HashSet<>(dates);
+
+        int[] total = new int[7];
+        int[] present = new int[7];
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            total[date.getDayOfWeek().ordinal()]++;
+        }
+        for (LocalDate date : dates) {
+            present[date.getDayOfWeek().ordinal()]++;
+        }
+        int weekdays = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (present[day.ordinal()] * 2 > total[day.ordinal()]) {
+                weekdays |= ServiceCalendar.weekdayBit(day);
+            }
+        }
+
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.setName(calendarName(weekdays, start, end));
+        calendar.setWeekdays(weekdays);
+        calendar.setStartDate(start);
+        calendar.setEndDate(end);
+        serviceCalendarMapper.insert(calendar);
+
+        List<ServiceCalendarDate> exceptions = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            boolean running = dateSet.contains(date);
+            if (running != calendar.matchesPattern(date)) {
+                ServiceCalendarDate exception = new ServiceCalendarDate();
+                exception.setCalendarId(calendar.getId());
+                exception.setServiceDate(date);
+                exception.setExceptionType(running ? ServiceCalendarDate.ADDED : ServiceCalendarDate.REMOVED);
+                exceptions.add(exception);
+            }
+        }
+        for (int from = 0; from < exceptions.size(); from += BATCH_SIZE) {
+            serviceCalendarMapper.insertDates(exceptions.subList(from, Math.min(from + BATCH_SIZE, exceptions.size())));
+        }
+        return calendar.getId();
+    }
+
+    /**
+     * 生成日历名称，如"周一二三四五 2025-01-01~2025-12-31"
+     */
+    static String calendarName(int weekdays, LocalDate start, LocalDate end) {
+        StringBuilder name = new StringBuilder();
+        if (weekdays == 0) {
+            name.append("指定日期");
+        } else if (weekdays == 0x7F) {
+            name.append("每日");
+        } else {
+            name.append('周');
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((weekdays & ServiceCalendar.weekdayBit(day)) != 0) {
+                    name.append(WEEKDAY_NAMES.charAt(day.ordinal()));
+                }
+            }
+        }
+        return name.append(' ').append(start).append('~').append(end).toString();
+    }
+
+    private static int secondsOf(LocalTime time) {
+        return time != null ? time.toSecondOfDay() : -1;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 单日列车行程及其停靠时刻摘要
+     */
+    private static final class DatedTrip {
+        private final Long id;
+        private final Long routeId;
+        private final String trainNumber;
+        private final LocalDate runDate;
+        private byte[] digest;
+
+        private DatedTrip(Long id, Long routeId, String trainNumber, LocalDate runDate) {
+            this.id = id;
+            this.routeId = routeId;
+            this.trainNumber = trainNumber;
+            this.runDate = runDate;
+        }
+
+        /**
+         * 没有到站时刻的行程摘要为空串
+         */
+        private String signature() {
+            return digest != null ? HexFormat.of().formatHex(digest) : "";
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.scoding.metro.common;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 基于主键的键集分页：客户端把上一页返回的 {@code nextCursor} 作为下一次请求的 {@code cursor}，
+ * 数据库只需沿主键索引定位，不会像 OFFSET 那样随页码增大而变慢。
+ *
+ * @param <T> 数据类型
+ * @author scoheart
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 未指定时的默认每页条数
+     */
+    public static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * 每页最多条数
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * 本页数据
+     */
+    private List<T> items;
+
+    /**
+     * 下一页的游标（本页最后一条记录的ID），没有更多数据时为null
+     */
+    private Long nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 将请求的每页条数规范到 [1, MAX_LIMIT] 区间
+     */
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * 由多查询一条的结果构造分页
+     * 查询时应取 {@code limit + 1} 条，多出的一条只用于判断是否还有下一页
+     *
+     * @param rows     查询结果（最多 limit + 1 条）
+     * @param limit    每页条数
+     * @param idGetter 主键获取方法
+     * @return 分页结果
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> idGetter) {
+        CursorPage<T> page = new CursorPage<>();
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        page.setNextCursor(hasMore ? idGetter.apply(items.get(items.size() - 1)) : null);
+        return page;
+    }
+
+    /**
+     * 转换分页中的数据类型，游标保持不变
+     */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return mapAll(list -> {
+            List<R> mapped = new ArrayList<>(list.size());
+            for (T item : list) {
+                mapped.add(mapper.apply(item));
+            }
+            return mapped;
+        });
+    }
+
+    /**
+     * 整页转换数据类型（便于批量加载关联数据），游标保持不变
+     */
+    public <R> CursorPage<R> mapAll(Function<List<T>, List<R>> mapper) {
+        CursorPage<R> page = new CursorPage<>();
+        page.setItems(mapper.apply(items));
+        page.setNextCursor(nextCursor);
+        page.setHasMore(hasMore);
+        return page;
+    }
+}
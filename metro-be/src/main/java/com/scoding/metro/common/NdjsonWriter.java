@@ -0,0 +1,55 @@
+package com.scoding.metro.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * NDJSON 输出工具
+ * 每条记录序列化为一行 JSON，配合 StreamingResponseBody 边查边写，内存占用与数据总量无关。
+ * 不会关闭底层输出流，由容器负责。
+ *
+ * @author scoheart
+ */
+public class NdjsonWriter {
+
+    /**
+     * 每写出多少行刷新一次，让客户端尽早收到数据
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private static final int NEWLINE = '\n';
+
+    private final ObjectWriter writer;
+    private final OutputStream out;
+    private long count;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.writer = objectMapper.writer();
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    /**
+     * 写出一行记录
+     */
+    public void write(Object value) throws IOException {
+        out.write(writer.writeValueAsBytes(value));
+        out.write(NEWLINE);
+        if (++count % FLUSH_INTERVAL == 0) {
+            out.flush();
+        }
+    }
+
+    /**
+     * 刷新剩余数据
+     *
+     * @return 写出的总行数
+     */
+    public long finish() throws IOException {
+        out.flush();
+        return count;
+    }
+}
@@ -0,0 +1,44 @@
+package com.scoding.metro.common;
+
+import com.scoding.metro.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 流式导出并发限制
+ * 全表流式导出在客户端读完之前一直占用一个数据库连接，同时进行的导出数超过上限时直接拒绝（503），
+ * 避免慢速下载耗尽连接池。许可在返回响应前获取，响应体写完（含异常）后释放。
+ *
+ * @author scoheart
+ */
+@Component
+public class StreamLimiter {
+
+    private final Semaphore permits;
+
+    public StreamLimiter(@Value("${app.stream.max-concurrent:4}") int maxConcurrent) {
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 占用一个导出许可并包装响应体
+     *
+     * @param body 响应体
+     * @return 写完后释放许可的响应体
+     */
+    public StreamingResponseBody limit(StreamingResponseBody body) {
+        if (!permits.tryAcquire()) {
+            throw new BusinessException(RCode.SERVICE_UNAVAILABLE, "同时进行的导出数已达上限，请稍后重试");
+        }
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                permits.release();
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.scoding.metro.common;
+
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列车行程批量写入工具
+ * 缓冲携带到站时刻的列车行程，凑满一批后先用多行 INSERT 写入行程并回填ID，再分批写入到站时刻。
+ * 写出后即释放引用，内存占用只与批大小有关。应在调用方的事务内使用，结束时须调用 {@link #flush()}。
+ *
+ * @author scoheart
+ */
+public class TrainTripBatchWriter {
+
+    /**
+     * 单条多行 INSERT 包含的最多行数
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * 缓冲的到站时刻达到该数量时写出
+     */
+    private static final int MAX_PENDING_STOP_TIMES = BATCH_SIZE * 20;
+
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+
+    private final List<TrainTrip> pending = new ArrayList<>(BATCH_SIZE);
+    private int pendingStopTimes;
+    private int tripCount;
+    private int stopTimeCount;
+
+    public TrainTripBatchWriter(TrainTripMapper trainTripMapper, StopTimeMapper stopTimeMapper) {
+        this.trainTripMapper = trainTripMapper;
+        this.stopTimeMapper = stopTimeMapper;
+    }
+
+    /**
+     * 写入一个列车行程及其 {@link TrainTrip#getStopTimes()}
+     */
+    public void write(TrainTrip trip) {
+        pending.add(trip);
+        pendingStopTimes += trip.getStopTimes() != null ? trip.getStopTimes().size() : 0;
+        if (pending.size() >= BATCH_SIZE || pendingStopTimes >= MAX_PENDING_STOP_TIMES) {
+            flush();
+        }
+    }
+
+    /**
+     * 写出缓冲中的全部数据
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+            trainTripMapper.insertBatch(pending.subList(from, Math.min(from + BATCH_SIZE, pending.size())));
+        }
+        tripCount += pending.size();
+
+        List<StopTime> batch = new ArrayList<>(BATCH_SIZE);
+        for (TrainTrip trip : pending) {
+            if (trip.getStopTimes() == null) {
+                continue;
+            }
+            for (StopTime stopTime : trip.getStopTimes()) {
+                stopTime.setTrainTripId(trip.getId());
+                batch.add(stopTime);
+                if (batch.size() == BATCH_SIZE) {
+                    stopTimeCount += stopTimeMapper.insertBatch(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            stopTimeCount += stopTimeMapper.insertBatch(batch);
+        }
+        pending.clear();
+        pendingStopTimes = 0;
+    }
+
+    /**
+     * 已写入的列车行程数
+     */
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * 已写入的到站时刻数
+     */
+    public int getStopTimeCount() {
+        return stopTimeCount;
+    }
+}
@@ -1,6 +1,7 @@
 package com.scoding.metro.config;
 
 import com.scoding.metro.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -68,6 +69,7 @@ public class SecurityConfig {
                 "X-Requested-With", 
                 "Accept", 
                 "Origin",
+                "If-None-Match",
                 "Access-Control-Allow-Origin",
                 "Access-Control-Allow-Headers",
                 "Access-Control-Allow-Methods",
@@ -76,6 +78,7 @@ public class SecurityConfig {
         configuration.setExposedHeaders(Arrays.asList(
                 "Authorization", 
                 "Content-Disposition",
+                "ETag",
                 "Access-Control-Allow-Origin",
                 "Access-Control-Allow-Headers",
                 "Access-Control-Allow-Methods",
@@ -98,6 +101,8 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // 流式响应完成后的异步分派，原始请求已经过鉴权
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/metro/**").permitAll()
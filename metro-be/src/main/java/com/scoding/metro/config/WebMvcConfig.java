@@ -1,19 +1,31 @@
 package com.scoding.metro.config;
 
+import com.scoding.metro.cache.DataVersionInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final DataVersionInterceptor dataVersionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(dataVersionInterceptor)
+                .addPathPatterns("/metro/**");
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
                 .allowedOrigins("http://localhost:5173", "http://8.130.172.82:3333")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
-                .allowedHeaders("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin")
-                .exposedHeaders("Authorization", "Content-Disposition")
+                .allowedHeaders("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "If-None-Match")
+                .exposedHeaders("Authorization", "Content-Disposition", "ETag")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
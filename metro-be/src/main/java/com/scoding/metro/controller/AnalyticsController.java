@@ -0,0 +1,113 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.common.R;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.OdMatrixDto;
+import com.scoding.metro.dto.OdMatrixRequest;
+import com.scoding.metro.dto.OdMatrixRowDto;
+import com.scoding.metro.service.OdMatrixService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalTime;
+
+/**
+ * 客流分析控制器
+ * 批量计算全站点之间的旅行时间矩阵，供分析团队离线使用
+ */
+@Tag(name = "客流分析", description = "OD 旅行时间矩阵计算与读取接口（需要管理员权限）")
+@RestController
+@RequestMapping("/metro")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+public class AnalyticsController {
+
+    private final OdMatrixService odMatrixService;
+
+    /**
+     * 提交 OD 矩阵计算任务
+     *
+     * @param request 运行日期和各时间片的出发时刻
+     * @return 已提交的任务，任务ID即矩阵ID，进度通过 /jobs/{id} 查询
+     */
+    @Operation(summary = "计算 OD 矩阵", description = "后台计算指定日期各出发时刻下全部站点之间的旅行时间和换乘次数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "任务已提交"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @PostMapping("/analytics/od-matrices")
+    public R<JobDto> computeOdMatrix(@RequestBody OdMatrixRequest request) {
+        return R.ok(odMatrixService.submitCompute(request));
+    }
+
+    /**
+     * 获取 OD 矩阵信息
+     *
+     * @param id 矩阵ID
+     * @return 矩阵信息
+     */
+    @Operation(summary = "获取 OD 矩阵信息", description = "获取已计算完成的矩阵的日期、时间片和站点数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "400", description = "矩阵不存在或已过期"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @GetMapping("/analytics/od-matrices/{id}")
+    public R<OdMatrixDto> getOdMatrix(@PathVariable String id) {
+        return R.ok(odMatrixService.getMatrix(id));
+    }
+
+    /**
+     * 读取 OD 矩阵中的一行
+     *
+     * @param id 矩阵ID
+     * @param fromStationId 出发站点ID
+     * @param departAt 时间片的出发时刻（HH:mm）
+     * @return 从该站出发到各站点的旅行时间
+     */
+    @Operation(summary = "读取 OD 矩阵的一行", description = "读取某出发站点在某时间片到各站点的旅行时间和换乘次数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "400", description = "矩阵、站点或时间片不存在"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @GetMapping("/analytics/od-matrices/{id}/rows")
+    public R<OdMatrixRowDto> getOdMatrixRow(
+            @PathVariable String id,
+            @RequestParam Long fromStationId,
+            @RequestParam @DateTimeFormat(pattern = "HH:mm") LocalTime departAt) {
+        return R.ok(odMatrixService.getRow(id, fromStationId, departAt));
+    }
+
+    /**
+     * 下载 OD 矩阵文件
+     *
+     * @param id 矩阵ID
+     * @return 二进制矩阵文件，格式见 OdMatrixFile
+     */
+    @Operation(summary = "下载 OD 矩阵文件", description = "下载紧凑二进制格式的完整矩阵，支持 Range 断点续传")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "下载成功"),
+            @ApiResponse(responseCode = "400", description = "矩阵不存在或已过期"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @GetMapping(value = "/analytics/od-matrices/{id}/file", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Resource> downloadOdMatrix(@PathVariable String id) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=od-matrix-" + id + ".odm")
+                .body(new FileSystemResource(odMatrixService.getMatrixFile(id)));
+    }
+}
@@ -0,0 +1,60 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.bundle.NetworkBundle;
+import com.scoding.metro.bundle.NetworkBundleHolder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 离线数据包控制器
+ * 客户端下载一次即可离线查询线路、站点和时刻表并规划行程
+ */
+@Tag(name = "离线数据包", description = "路网与时刻表离线数据包下载接口")
+@RestController
+@RequestMapping("/metro")
+@RequiredArgsConstructor
+public class BundleController {
+
+    private final NetworkBundleHolder bundleHolder;
+
+    /**
+     * 下载离线数据包
+     * 支持 If-None-Match 和 Range 断点续传；If-Range 与当前版本不一致时返回完整数据包
+     *
+     * @param ifRange 断点续传时客户端已下载部分的 ETag
+     * @return 数据包
+     */
+    @Operation(summary = "下载离线数据包", description = "二进制列式编码的线路、站点、路线、停靠点和近期时刻表，格式见 NetworkBundle")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "下载成功"),
+            @ApiResponse(responseCode = "206", description = "返回请求的范围"),
+            @ApiResponse(responseCode = "304", description = "数据包未变化")
+    })
+    @GetMapping(value = "/bundle", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> downloadBundle(
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        NetworkBundle bundle = bundleHolder.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .eTag(bundle.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=metro-bundle.bin");
+        if (ifRange != null && !ifRange.equals(bundle.etag())) {
+            // 已下载的部分属于旧版本，忽略 Range 返回完整内容
+            return response.body(bundle.content());
+        }
+        // Resource 类型的响应体由 Spring MVC 处理 Range 请求
+        return response.body(new ByteArrayResource(bundle.content()));
+    }
+}
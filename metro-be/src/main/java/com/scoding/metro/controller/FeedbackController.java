@@ -1,6 +1,8 @@
 package com.scoding.metro.controller;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.common.R;
+import com.scoding.metro.common.StreamLimiter;
 import com.scoding.metro.dto.FeedbackDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.FeedbackDO;
@@ -12,9 +14,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -29,10 +34,12 @@ import java.util.List;
 public class FeedbackController {
 
     private final FeedbackService feedbackService;
+    private final StreamLimiter streamLimiter;
 
     /**
      * 获取所有反馈
      *
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
      * @return 反馈列表
      */
     @Operation(summary = "获取所有反馈", description = "获取系统中所有的用户反馈")
@@ -41,8 +48,47 @@ public class FeedbackController {
     })
     @GetMapping
     @PreAuthorize("permitAll()")
-    public R<List<FeedbackDO>> getAllFeedbacks() {
-        return R.ok(feedbackService.listFeedbacks());
+    public R<List<FeedbackDO>> getAllFeedbacks(@RequestParam(required = false) Integer latestReplies) {
+        return R.ok(feedbackService.listFeedbacks(latestReplies));
+    }
+
+    /**
+     * 游标分页获取反馈
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时获取第一页
+     * @param limit 每页条数
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
+     * @return 反馈分页，按ID降序（新的在前）
+     */
+    @Operation(summary = "分页获取反馈", description = "按ID降序游标分页获取反馈，使用上一页返回的 nextCursor 获取下一页")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/page")
+    @PreAuthorize("permitAll()")
+    public R<CursorPage<FeedbackDO>> getFeedbacksPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer latestReplies) {
+        return R.ok(feedbackService.listFeedbacksPage(cursor, limit, latestReplies));
+    }
+
+    /**
+     * 流式导出所有反馈
+     *
+     * @return NDJSON 格式的反馈流，每行一条，不含回复
+     */
+    @Operation(summary = "流式导出反馈", description = "以 NDJSON 格式逐行输出所有反馈（不含回复）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "503", description = "同时进行的导出数已达上限")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamFeedbacks() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(feedbackService::streamFeedbacks));
     }
 
     /**
@@ -66,6 +112,7 @@ public class FeedbackController {
      * 获取用户的所有反馈
      *
      * @param authentication 当前认证信息
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
      * @return 用户反馈列表
      */
     @Operation(summary = "获取用户反馈", description = "获取当前登录用户的所有反馈")
@@ -75,9 +122,10 @@ public class FeedbackController {
     })
     @GetMapping("/user")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN', 'SUPER_ADMIN')")
-    public R<List<FeedbackDO>> getUserFeedbacks(Authentication authentication) {
+    public R<List<FeedbackDO>> getUserFeedbacks(Authentication authentication,
+                                             @RequestParam(required = false) Integer latestReplies) {
         SecurityUser securityUser = (SecurityUser) authentication.getPrincipal();
-        return R.ok(feedbackService.listUserFeedbacks(securityUser.getUser().getId()));
+        return R.ok(feedbackService.listUserFeedbacks(securityUser.getUser().getId(), latestReplies));
     }
 
     /**
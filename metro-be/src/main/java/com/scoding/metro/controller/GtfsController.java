@@ -0,0 +1,77 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.common.R;
+import com.scoding.metro.common.StreamLimiter;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.service.GtfsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * GTFS 数据交换控制器
+ * 以 GTFS 格式导入、导出时刻表数据
+ */
+@Tag(name = "GTFS 数据交换", description = "GTFS 格式时刻表导入导出接口")
+@RestController
+@RequestMapping("/metro")
+@RequiredArgsConstructor
+public class GtfsController {
+
+    private final GtfsService gtfsService;
+    private final StreamLimiter streamLimiter;
+
+    /**
+     * 导入 GTFS 数据
+     *
+     * @param file GTFS 压缩包
+     * @return 导入任务，进度通过 /jobs/{id} 查询
+     */
+    @Operation(summary = "导入 GTFS 数据", description = "上传 GTFS 压缩包，后台导入线路、站点、路线、停靠点、运营日历、列车行程和到站时刻（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "任务已提交"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @PostMapping(value = "/import/gtfs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<JobDto> importGtfs(@RequestParam("file") MultipartFile file) {
+        return R.ok(gtfsService.submitImport(file));
+    }
+
+    /**
+     * 导出 GTFS 数据
+     *
+     * @param startDate 起始运行日期（含），为空时不限
+     * @param endDate   结束运行日期（含），为空时不限
+     * @return GTFS 压缩包
+     */
+    @Operation(summary = "导出 GTFS 数据", description = "以 GTFS 压缩包流式导出线路、站点和指定运行日期范围内的时刻表")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "503", description = "同时进行的导出数已达上限")
+    })
+    @GetMapping(value = "/export/gtfs", produces = "application/zip")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> exportGtfs(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=gtfs.zip")
+                .body(streamLimiter.limit(gtfsService.exportFeed(startDate, endDate)));
+    }
+}
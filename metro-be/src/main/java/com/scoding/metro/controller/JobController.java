@@ -0,0 +1,72 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.common.R;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.job.JobRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 后台任务控制器
+ * 查询导入、批量计算等后台任务的进度，或请求取消
+ */
+@Tag(name = "后台任务", description = "后台任务进度查询与取消接口")
+@RestController
+@RequestMapping("/jobs")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+public class JobController {
+
+    private final JobRegistry jobRegistry;
+
+    /**
+     * 获取所有任务
+     */
+    @Operation(summary = "获取所有任务", description = "获取本节点上的后台任务，按创建时间倒序")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @GetMapping
+    public R<List<JobDto>> listJobs() {
+        return R.ok(jobRegistry.list().stream()
+                .map(JobDto::fromJob)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 获取任务进度
+     */
+    @Operation(summary = "获取任务进度", description = "根据任务ID获取状态、当前阶段进度和计数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "400", description = "任务不存在"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @GetMapping("/{id}")
+    public R<JobDto> getJob(@PathVariable String id) {
+        return R.ok(JobDto.fromJob(jobRegistry.get(id)));
+    }
+
+    /**
+     * 取消任务
+     */
+    @Operation(summary = "取消任务", description = "请求取消排队中或执行中的任务，执行中的任务在下一个检查点结束")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "已请求取消"),
+            @ApiResponse(responseCode = "400", description = "任务不存在"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @DeleteMapping("/{id}")
+    public R<JobDto> cancelJob(@PathVariable String id) {
+        return R.ok(JobDto.fromJob(jobRegistry.cancel(id)));
+    }
+}
@@ -1,27 +1,50 @@
 package com.scoding.metro.controller;
 
+import com.scoding.metro.cache.DataVersioned;
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.common.R;
+import com.scoding.metro.common.StreamLimiter;
+import com.scoding.metro.dto.DelayReportDto;
+import com.scoding.metro.dto.DepartureBoardDto;
+import com.scoding.metro.dto.FareDto;
+import com.scoding.metro.dto.JourneyDto;
 import com.scoding.metro.dto.LineDto;
+import com.scoding.metro.dto.ReachabilityDto;
 import com.scoding.metro.dto.RouteDto;
 import com.scoding.metro.dto.StationDto;
 import com.scoding.metro.dto.StopDto;
+import com.scoding.metro.dto.TimetableGenerateRequest;
+import com.scoding.metro.dto.TimetableGenerateResultDto;
 import com.scoding.metro.dto.TrainTripDto;
 import com.scoding.metro.dto.StopTimeDto;
+import com.scoding.metro.dto.SyncDto;
 import com.scoding.metro.dto.UpdateStopSequencesRequest;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.service.FareService;
+import com.scoding.metro.service.JourneyService;
 import com.scoding.metro.service.LineService;
 import com.scoding.metro.service.RouteService;
 import com.scoding.metro.service.StationService;
 import com.scoding.metro.service.StopService;
+import com.scoding.metro.service.TimetableGeneratorService;
 import com.scoding.metro.service.TrainTripService;
 import com.scoding.metro.service.StopTimeService;
+import com.scoding.metro.service.SyncService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 /**
@@ -40,6 +63,31 @@ public class MetroController {
     private final StopService stopService;
     private final TrainTripService trainTripService;
     private final StopTimeService stopTimeService;
+    private final JourneyService journeyService;
+    private final TimetableGeneratorService timetableGeneratorService;
+    private final SyncService syncService;
+    private final FareService fareService;
+    private final StreamLimiter streamLimiter;
+    
+    //********************* 路网数据同步接口 *********************//
+    
+    /**
+     * 增量同步路网数据
+     *
+     * @param since 客户端已同步到的版本，首次同步不传
+     * @return 同步结果
+     */
+    @Operation(summary = "增量同步路网数据", description = "返回指定版本之后新增、修改和删除的线路、站点、路线和停靠点；"
+            + "未指定版本或变更日志已压缩时返回全量数据")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/sync")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.LINE, MetroAggregate.STATION, MetroAggregate.ROUTE, MetroAggregate.STOP})
+    public R<SyncDto> sync(@RequestParam(required = false) Long since) {
+        return R.ok(syncService.sync(since));
+    }
     
     //********************* 线路相关接口 *********************//
     
@@ -54,6 +102,7 @@ public class MetroController {
     })
     @GetMapping("/lines")
     @PreAuthorize("permitAll()")
+    @DataVersioned(MetroAggregate.LINE)
     public R<List<LineDto>> getAllLines() {
         return R.ok(lineService.getAllLines());
     }
@@ -71,6 +120,7 @@ public class MetroController {
     })
     @GetMapping("/lines/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned(MetroAggregate.LINE)
     public R<LineDto> getLineById(@PathVariable Long id) {
         return R.ok(lineService.getLineById(id));
     }
@@ -88,6 +138,7 @@ public class MetroController {
     })
     @GetMapping("/lines/code/{code}")
     @PreAuthorize("permitAll()")
+    @DataVersioned(MetroAggregate.LINE)
     public R<LineDto> getLineByCode(@PathVariable String code) {
         return R.ok(lineService.getLineByCode(code));
     }
@@ -105,6 +156,7 @@ public class MetroController {
     })
     @GetMapping("/lines/{id}/routes")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<LineDto> getLineWithRoutes(@PathVariable Long id) {
         return R.ok(lineService.getLineWithRoutes(id));
     }
@@ -178,6 +230,7 @@ public class MetroController {
     })
     @GetMapping("/stations")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<StationDto>> getAllStations() {
         return R.ok(stationService.getAllStations());
     }
@@ -195,6 +248,7 @@ public class MetroController {
     })
     @GetMapping("/stations/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<StationDto> getStationById(@PathVariable Long id) {
         return R.ok(stationService.getStationById(id));
     }
@@ -212,6 +266,7 @@ public class MetroController {
     })
     @GetMapping("/stations/code/{code}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<StationDto> getStationByCode(@PathVariable String code) {
         return R.ok(stationService.getStationByCode(code));
     }
@@ -229,6 +284,7 @@ public class MetroController {
     })
     @GetMapping("/stations/line/{lineId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<StationDto>> getStationsByLineId(@PathVariable Long lineId) {
         return R.ok(stationService.getStationsByLineId(lineId));
     }
@@ -246,10 +302,85 @@ public class MetroController {
     })
     @GetMapping("/stations/route/{routeId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<StationDto>> getStationsByRouteId(@PathVariable Long routeId) {
         return R.ok(stationService.getStationsByRouteId(routeId));
     }
     
+    /**
+     * 获取站点的后续发车信息
+     *
+     * @param id 站点ID
+     * @param after 起始时间（HH:mm），默认当前时间
+     * @param limit 每条路线返回的班次数
+     * @param date 运行日期，默认当天
+     * @return 按路线分组的发车信息
+     */
+    @Operation(summary = "获取站点发车信息", description = "获取指定时间之后经过该站的各路线的下几班列车")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "404", description = "站点不存在")
+    })
+    @GetMapping("/stations/{id}/departures")
+    @PreAuthorize("permitAll()")
+    public R<DepartureBoardDto> getStationDepartures(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return R.ok(stationService.getStationDepartures(id, date, after, limit));
+    }
+    
+    /**
+     * 查询从站点出发在时限内可到达的站点
+     *
+     * @param id 出发站点ID
+     * @param departAt 出发时间（HH:mm），默认当前时间
+     * @param maxMinutes 最长出行时间（分钟），默认30
+     * @param date 运行日期，默认当天
+     * @return 可到达站点及其最早到达时间和换乘次数
+     */
+    @Operation(summary = "查询站点可达范围", description = "基于当日时刻表计算从该站出发在时限内可到达的全部站点")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "404", description = "站点不存在")
+    })
+    @GetMapping("/stations/{id}/reachable")
+    @PreAuthorize("permitAll()")
+    public R<ReachabilityDto> getReachableStations(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departAt,
+            @RequestParam(required = false) Integer maxMinutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return R.ok(journeyService.getReachableStations(id, date, departAt, maxMinutes));
+    }
+    
+    /**
+     * 批量查询多个出发站点在时限内可到达的站点
+     *
+     * @param stationIds 出发站点ID列表
+     * @param departAt 出发时间（HH:mm），默认当前时间
+     * @param maxMinutes 最长出行时间（分钟），默认30
+     * @param date 运行日期，默认当天
+     * @return 各出发站点的可达范围
+     */
+    @Operation(summary = "批量查询站点可达范围", description = "多个出发站点并行计算，结果顺序与请求一致")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "404", description = "站点不存在")
+    })
+    @GetMapping("/stations/reachable")
+    @PreAuthorize("permitAll()")
+    public R<List<ReachabilityDto>> getReachableStationsBatch(
+            @RequestParam List<Long> stationIds,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departAt,
+            @RequestParam(required = false) Integer maxMinutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return R.ok(journeyService.getReachableStations(stationIds, date, departAt, maxMinutes));
+    }
+    
     /**
      * 创建站点
      *
@@ -319,6 +450,7 @@ public class MetroController {
     })
     @GetMapping("/routes")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<RouteDto>> getAllRoutes() {
         return R.ok(routeService.getAllRoutes());
     }
@@ -336,6 +468,7 @@ public class MetroController {
     })
     @GetMapping("/routes/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<RouteDto> getRouteById(@PathVariable Long id) {
         return R.ok(routeService.getRouteById(id));
     }
@@ -353,6 +486,7 @@ public class MetroController {
     })
     @GetMapping("/routes/line/{lineId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<RouteDto>> getRoutesByLineId(@PathVariable Long lineId) {
         return R.ok(routeService.getRoutesByLineId(lineId));
     }
@@ -370,6 +504,7 @@ public class MetroController {
     })
     @GetMapping("/routes/{id}/stations")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<RouteDto> getRouteWithStations(@PathVariable Long id) {
         return R.ok(routeService.getRouteWithStations(id));
     }
@@ -388,6 +523,7 @@ public class MetroController {
     })
     @GetMapping("/routes/path")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<RouteDto>> findRoutesBetweenStations(
             @RequestParam Long fromStationId, @RequestParam Long toStationId) {
         return R.ok(routeService.findRoutesBetweenStations(fromStationId, toStationId));
@@ -462,10 +598,49 @@ public class MetroController {
     })
     @GetMapping("/train-trips")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.ROUTE, MetroAggregate.LINE})
     public R<List<TrainTripDto>> getAllTrainTrips() {
         return R.ok(trainTripService.getAllTrainTrips());
     }
     
+    /**
+     * 游标分页获取列车行程
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时获取第一页
+     * @param limit 每页条数
+     * @return 列车行程分页，按ID升序
+     */
+    @Operation(summary = "分页获取列车行程", description = "按ID升序游标分页获取列车行程，使用上一页返回的 nextCursor 获取下一页")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/train-trips/page")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.ROUTE, MetroAggregate.LINE})
+    public R<CursorPage<TrainTripDto>> getTrainTripsPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit) {
+        return R.ok(trainTripService.getTrainTripsPage(cursor, limit));
+    }
+    
+    /**
+     * 流式导出所有列车行程
+     *
+     * @return NDJSON 格式的列车行程流，每行一条
+     */
+    @Operation(summary = "流式导出列车行程", description = "以 NDJSON 格式逐行输出所有列车行程")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功")
+    })
+    @GetMapping(value = "/train-trips/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.ROUTE, MetroAggregate.LINE})
+    public ResponseEntity<StreamingResponseBody> streamAllTrainTrips() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(trainTripService::streamAllTrainTrips));
+    }
+    
     /**
      * 根据ID获取列车行程
      *
@@ -479,6 +654,7 @@ public class MetroController {
     })
     @GetMapping("/train-trips/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.ROUTE, MetroAggregate.LINE})
     public R<TrainTripDto> getTrainTripById(@PathVariable Long id) {
         return R.ok(trainTripService.getTrainTripById(id));
     }
@@ -496,10 +672,29 @@ public class MetroController {
     })
     @GetMapping("/train-trips/route/{routeId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.ROUTE, MetroAggregate.LINE})
     public R<List<TrainTripDto>> getTrainTripsByRouteId(@PathVariable Long routeId) {
         return R.ok(trainTripService.getTrainTripsByRouteId(routeId));
     }
     
+    /**
+     * 获取某运行日期的列车行程
+     *
+     * @param date 运行日期
+     * @return 当天运行的列车行程，包括按运营日历运行的行程
+     */
+    @Operation(summary = "获取某日列车行程", description = "获取指定日期运行的列车行程，按运营日历运行的行程展开到该日期")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/train-trips/date/{date}")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.SERVICE_CALENDAR, MetroAggregate.ROUTE, MetroAggregate.LINE})
+    public R<List<TrainTripDto>> getTrainTripsByDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return R.ok(trainTripService.getTrainTripsByDate(date));
+    }
+    
     /**
      * 获取列车行程及其到站时刻信息
      *
@@ -513,6 +708,7 @@ public class MetroController {
     })
     @GetMapping("/train-trips/{id}/stop-times")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.TRAIN_TRIP, MetroAggregate.STOP_TIME, MetroAggregate.ROUTE, MetroAggregate.LINE})
     public R<TrainTripDto> getTrainTripWithStopTimes(@PathVariable Long id) {
         return R.ok(trainTripService.getTrainTripWithStopTimes(id));
     }
@@ -535,6 +731,24 @@ public class MetroController {
         return R.ok(trainTripService.createTrainTrip(trainTripDto));
     }
     
+    /**
+     * 按发车间隔批量生成时刻表
+     *
+     * @param request 路线、日期范围、首末班车时间、发车间隔及区间运行和停站时间
+     * @return 生成的行程、到站时刻数量及写入吞吐量
+     */
+    @Operation(summary = "批量生成时刻表", description = "按发车间隔为路线生成一段日期内的列车行程和到站时刻（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "生成成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @PostMapping("/train-trips/generate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<TimetableGenerateResultDto> generateTimetable(@RequestBody TimetableGenerateRequest request) {
+        return R.ok(timetableGeneratorService.generate(request));
+    }
+    
     /**
      * 更新列车行程
      *
@@ -573,23 +787,142 @@ public class MetroController {
         return R.ok(trainTripService.deleteTrainTrip(id));
     }
     
+    //********************* 出行规划相关接口 *********************//
+    
+    /**
+     * 规划两站之间的出行方案
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId 到达站点ID
+     * @param date 运行日期，默认当天
+     * @param departAt 最早出发时间（HH:mm），默认当前时间
+     * @param maxTransfers 最多换乘次数
+     * @param pareto 是否返回到达时间、换乘次数和票价的帕累托最优方案
+     * @return 出行方案
+     */
+    @Operation(summary = "规划出行方案", description = "基于当日时刻表规划两站之间可换乘的最早到达方案；"
+            + "pareto=true 时返回在到达时间、换乘次数和票价之间互不支配的全部方案")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "404", description = "站点不存在")
+    })
+    @GetMapping("/journeys")
+    @PreAuthorize("permitAll()")
+    public R<List<JourneyDto>> planJourneys(
+            @RequestParam Long fromStationId,
+            @RequestParam Long toStationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departAt,
+            @RequestParam(required = false) Integer maxTransfers,
+            @RequestParam(defaultValue = "false") boolean pareto) {
+        return R.ok(journeyService.planJourneys(fromStationId, toStationId, date, departAt, maxTransfers, pareto));
+    }
+    
+    /**
+     * 查询出发时间窗口内两站之间的全部出行方案
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId 到达站点ID
+     * @param date 运行日期，默认当天
+     * @param departFrom 窗口开始时间（HH:mm），默认当前时间
+     * @param departTo 窗口结束时间（HH:mm），默认开始后一小时
+     * @return 出发越晚到达越晚的出行方案
+     */
+    @Operation(summary = "查询时间窗口内的出行方案", description = "列出在时间窗口内出发、且没有更晚出发更早到达替代方案的全部出行方案")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "404", description = "站点不存在")
+    })
+    @GetMapping("/journeys/profile")
+    @PreAuthorize("permitAll()")
+    public R<List<JourneyDto>> planJourneyProfile(
+            @RequestParam Long fromStationId,
+            @RequestParam Long toStationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departFrom,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departTo) {
+        return R.ok(journeyService.planJourneyProfile(fromStationId, toStationId, date, departFrom, departTo));
+    }
+    
+    //********************* 票价相关接口 *********************//
+    
+    /**
+     * 查询两站之间的票价
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId 到达站点ID
+     * @return 票价
+     */
+    @Operation(summary = "查询两站票价", description = "从预先计算的站点间票价矩阵中读取，按计费里程最少的乘车路径计价")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "站点不存在或两站不连通")
+    })
+    @GetMapping("/fares")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STATION, MetroAggregate.ROUTE, MetroAggregate.STOP})
+    public R<FareDto> getFare(@RequestParam Long fromStationId, @RequestParam Long toStationId) {
+        return R.ok(fareService.getFare(fromStationId, toStationId));
+    }
+    
+    /**
+     * 查询从某站出发到其余各站的票价
+     *
+     * @param id 出发站点ID
+     * @return 各可达站点的票价
+     */
+    @Operation(summary = "查询站点票价表", description = "返回从该站出发到其余各可达站点的票价")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查询成功"),
+            @ApiResponse(responseCode = "400", description = "站点不存在")
+    })
+    @GetMapping("/fares/stations/{id}")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STATION, MetroAggregate.ROUTE, MetroAggregate.STOP})
+    public R<List<FareDto>> getFaresFrom(@PathVariable Long id) {
+        return R.ok(fareService.getFaresFrom(id));
+    }
+    
     //********************* 其他接口 *********************//
     
     // 停靠点接口
     @GetMapping("/stops")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<StopDto>> getAllStops() {
         return R.ok(stopService.getAllStops());
     }
     
+    @GetMapping("/stops/page")
+    @PreAuthorize("permitAll()")
+    @DataVersioned
+    public R<CursorPage<StopDto>> getStopsPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit) {
+        return R.ok(stopService.getStopsPage(cursor, limit));
+    }
+    
+    @GetMapping(value = "/stops/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    @DataVersioned
+    public ResponseEntity<StreamingResponseBody> streamAllStops() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(stopService::streamAllStops));
+    }
+    
     @GetMapping("/stops/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<StopDto> getStopById(@PathVariable Long id) {
         return R.ok(stopService.getStopById(id));
     }
     
     @GetMapping("/stops/route/{routeId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned
     public R<List<StopDto>> getStopsByRouteId(@PathVariable Long routeId) {
         return R.ok(stopService.getStopsByRouteId(routeId));
     }
@@ -616,35 +949,57 @@ public class MetroController {
      * 批量更新经停站序号
      *
      * @param request 包含路线ID和经停站序号的请求
-     * @return 操作结果
+     * @return 按新顺序排列的经停站
      */
     @PutMapping("/stops/sequences")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
-    public R<Boolean> updateStopSequences(@RequestBody UpdateStopSequencesRequest request) {
+    public R<List<StopDto>> updateStopSequences(@RequestBody UpdateStopSequencesRequest request) {
         return R.ok(stopService.updateStopSequences(request));
     }
     
     // 到站时刻接口
     @GetMapping("/stop-times")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
     public R<List<StopTimeDto>> getAllStopTimes() {
         return R.ok(stopTimeService.getAllStopTimes());
     }
     
+    @GetMapping("/stop-times/page")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
+    public R<CursorPage<StopTimeDto>> getStopTimesPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit) {
+        return R.ok(stopTimeService.getStopTimesPage(cursor, limit));
+    }
+    
+    @GetMapping(value = "/stop-times/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
+    public ResponseEntity<StreamingResponseBody> streamAllStopTimes() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(stopTimeService::streamAllStopTimes));
+    }
+    
     @GetMapping("/stop-times/{id}")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
     public R<StopTimeDto> getStopTimeById(@PathVariable Long id) {
         return R.ok(stopTimeService.getStopTimeById(id));
     }
     
     @GetMapping("/stop-times/train-trip/{trainTripId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
     public R<List<StopTimeDto>> getStopTimesByTrainTripId(@PathVariable Long trainTripId) {
         return R.ok(stopTimeService.getStopTimesByTrainTripId(trainTripId));
     }
     
     @GetMapping("/stop-times/stop/{stopId}")
     @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.STOP_TIME, MetroAggregate.DELAY})
     public R<List<StopTimeDto>> getStopTimesByStopId(@PathVariable Long stopId) {
         return R.ok(stopTimeService.getStopTimesByStopId(stopId));
     }
@@ -666,4 +1021,18 @@ public class MetroController {
     public R<Boolean> deleteStopTime(@PathVariable Long id) {
         return R.ok(stopTimeService.deleteStopTime(id));
     }
+    
+    @Operation(summary = "上报实时延误", description = "在某个到站时刻上报延误，延误向下游传播并由停站时间部分吸收；只保存在内存中，不写数据库")
+    @PostMapping("/stop-times/{id}/delay")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<List<StopTimeDto>> reportDelay(@PathVariable Long id, @Valid @RequestBody DelayReportDto delayReportDto) {
+        return R.ok(stopTimeService.reportDelay(id, delayReportDto.getDelaySeconds()));
+    }
+    
+    @Operation(summary = "清除实时延误", description = "清除列车行程的全部实时延误，恢复计划时刻")
+    @DeleteMapping("/stop-times/train-trip/{trainTripId}/delay")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<Boolean> clearDelay(@PathVariable Long trainTripId) {
+        return R.ok(stopTimeService.clearDelay(trainTripId));
+    }
 } 
\ No newline at end of file
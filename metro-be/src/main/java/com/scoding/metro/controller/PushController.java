@@ -0,0 +1,47 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.push.PushBroadcaster;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * 变更推送控制器
+ * 以 Server-Sent Events 推送公告和时刻表变更，客户端无需轮询
+ */
+@Tag(name = "变更推送", description = "公告与时刻表变更的 SSE 推送接口")
+@RestController
+@RequestMapping("/metro")
+@RequiredArgsConstructor
+public class PushController {
+
+    private final PushBroadcaster pushBroadcaster;
+
+    /**
+     * 订阅变更通知
+     *
+     * @param lineIds     关注的线路ID，不传时接收全部线路
+     * @param lastEventId 断线重连时浏览器自动携带的最后一条通知ID
+     * @return SSE 连接
+     */
+    @Operation(summary = "订阅变更通知", description = "事件名为 announcement、timetable 或 network，数据为 JSON；"
+            + "时刻表和路网变更可按线路过滤，无法确定线路的变更推送给所有订阅者")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "连接建立"),
+            @ApiResponse(responseCode = "503", description = "订阅连接数已达上限")
+    })
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("permitAll()")
+    public SseEmitter subscribe(@RequestParam(required = false) List<Long> lineIds,
+                                @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return pushBroadcaster.subscribe(lineIds, lastEventId);
+    }
+}
@@ -1,6 +1,8 @@
 package com.scoding.metro.controller;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.common.R;
+import com.scoding.metro.common.StreamLimiter;
 import com.scoding.metro.dto.RequestDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.RequestDO;
@@ -12,9 +14,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -29,10 +34,12 @@ import java.util.List;
 public class RequestController {
 
     private final RequestService requestService;
+    private final StreamLimiter streamLimiter;
 
     /**
      * 获取所有需求
      *
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
      * @return 需求列表
      */
     @Operation(summary = "获取所有需求", description = "获取系统中所有的用户需求")
@@ -41,8 +48,47 @@ public class RequestController {
     })
     @GetMapping
     @PreAuthorize("permitAll()")
-    public R<List<RequestDO>> getAllRequests() {
-        return R.ok(requestService.listRequests());
+    public R<List<RequestDO>> getAllRequests(@RequestParam(required = false) Integer latestReplies) {
+        return R.ok(requestService.listRequests(latestReplies));
+    }
+
+    /**
+     * 游标分页获取需求
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时获取第一页
+     * @param limit 每页条数
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
+     * @return 需求分页，按ID降序（新的在前）
+     */
+    @Operation(summary = "分页获取需求", description = "按ID降序游标分页获取需求，使用上一页返回的 nextCursor 获取下一页")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/page")
+    @PreAuthorize("permitAll()")
+    public R<CursorPage<RequestDO>> getRequestsPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer latestReplies) {
+        return R.ok(requestService.listRequestsPage(cursor, limit, latestReplies));
+    }
+
+    /**
+     * 流式导出所有需求
+     *
+     * @return NDJSON 格式的需求流，每行一条，不含回复
+     */
+    @Operation(summary = "流式导出需求", description = "以 NDJSON 格式逐行输出所有需求（不含回复）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "503", description = "同时进行的导出数已达上限")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamRequests() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(requestService::streamRequests));
     }
 
     /**
@@ -66,6 +112,7 @@ public class RequestController {
      * 获取用户的所有需求
      *
      * @param authentication 当前认证信息
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
      * @return 用户需求列表
      */
     @Operation(summary = "获取用户需求", description = "获取当前登录用户的所有需求")
@@ -75,9 +122,10 @@ public class RequestController {
     })
     @GetMapping("/user")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN', 'SUPER_ADMIN')")
-    public R<List<RequestDO>> getUserRequests(Authentication authentication) {
+    public R<List<RequestDO>> getUserRequests(Authentication authentication,
+                                             @RequestParam(required = false) Integer latestReplies) {
         SecurityUser securityUser = (SecurityUser) authentication.getPrincipal();
-        return R.ok(requestService.listUserRequests(securityUser.getUser().getId()));
+        return R.ok(requestService.listUserRequests(securityUser.getUser().getId(), latestReplies));
     }
 
     /**
@@ -0,0 +1,163 @@
+package com.scoding.metro.controller;
+
+import com.scoding.metro.cache.DataVersioned;
+import com.scoding.metro.common.R;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.ServiceCalendarDto;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.service.ServiceCalendarService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 运营日历控制器
+ * 管理列车行程的运行日期规律（星期规律加例外日期）
+ */
+@Tag(name = "运营日历", description = "运营日历的查询与管理接口")
+@RestController
+@RequestMapping("/metro")
+@RequiredArgsConstructor
+public class ServiceCalendarController {
+
+    private final ServiceCalendarService serviceCalendarService;
+
+    /**
+     * 获取所有运营日历
+     *
+     * @return 运营日历列表
+     */
+    @Operation(summary = "获取所有运营日历", description = "获取所有运营日历及其例外日期")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功")
+    })
+    @GetMapping("/service-calendars")
+    @PreAuthorize("permitAll()")
+    @DataVersioned(MetroAggregate.SERVICE_CALENDAR)
+    public R<List<ServiceCalendarDto>> getAllCalendars() {
+        return R.ok(serviceCalendarService.getAllCalendars());
+    }
+
+    /**
+     * 根据ID获取运营日历
+     *
+     * @param id 运营日历ID
+     * @return 运营日历信息，包含使用该日历的列车行程数
+     */
+    @Operation(summary = "获取运营日历详情", description = "根据ID获取运营日历及使用该日历的列车行程数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "404", description = "运营日历不存在")
+    })
+    @GetMapping("/service-calendars/{id}")
+    @PreAuthorize("permitAll()")
+    @DataVersioned({MetroAggregate.SERVICE_CALENDAR, MetroAggregate.TRAIN_TRIP})
+    public R<ServiceCalendarDto> getCalendarById(@PathVariable Long id) {
+        return R.ok(serviceCalendarService.getCalendarById(id));
+    }
+
+    /**
+     * 展开运营日历的运行日期
+     *
+     * @param id 运营日历ID
+     * @param startDate 起始日期，默认日历生效起始日期
+     * @param endDate 结束日期（含），默认日历生效结束日期
+     * @return 运行日期列表
+     */
+    @Operation(summary = "展开运行日期", description = "按星期规律和例外日期展开运营日历在日期范围内的运行日期")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "404", description = "运营日历不存在")
+    })
+    @GetMapping("/service-calendars/{id}/dates")
+    @PreAuthorize("permitAll()")
+    @DataVersioned(MetroAggregate.SERVICE_CALENDAR)
+    public R<List<LocalDate>> getServiceDates(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return R.ok(serviceCalendarService.getServiceDates(id, startDate, endDate));
+    }
+
+    /**
+     * 创建运营日历
+     *
+     * @param calendarDto 运营日历信息
+     * @return 创建后的运营日历
+     */
+    @Operation(summary = "创建运营日历", description = "创建新的运营日历（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "创建成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @PostMapping("/service-calendars")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<ServiceCalendarDto> createCalendar(@RequestBody ServiceCalendarDto calendarDto) {
+        return R.ok(serviceCalendarService.createCalendar(calendarDto));
+    }
+
+    /**
+     * 更新运营日历
+     *
+     * @param id 运营日历ID
+     * @param calendarDto 运营日历信息，例外日期整体替换
+     * @return 更新后的运营日历
+     */
+    @Operation(summary = "更新运营日历", description = "更新运营日历，例外日期整体替换（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "更新成功"),
+            @ApiResponse(responseCode = "400", description = "请求参数错误"),
+            @ApiResponse(responseCode = "403", description = "权限不足"),
+            @ApiResponse(responseCode = "404", description = "运营日历不存在")
+    })
+    @PutMapping("/service-calendars/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<ServiceCalendarDto> updateCalendar(@PathVariable Long id, @RequestBody ServiceCalendarDto calendarDto) {
+        return R.ok(serviceCalendarService.updateCalendar(id, calendarDto));
+    }
+
+    /**
+     * 删除运营日历
+     *
+     * @param id 运营日历ID
+     * @return 操作结果
+     */
+    @Operation(summary = "删除运营日历", description = "删除未被列车行程使用的运营日历（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "删除成功"),
+            @ApiResponse(responseCode = "400", description = "仍有列车行程使用"),
+            @ApiResponse(responseCode = "403", description = "权限不足"),
+            @ApiResponse(responseCode = "404", description = "运营日历不存在")
+    })
+    @DeleteMapping("/service-calendars/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<Boolean> deleteCalendar(@PathVariable Long id) {
+        return R.ok(serviceCalendarService.deleteCalendar(id));
+    }
+
+    /**
+     * 合并重复的单日列车行程
+     *
+     * @return 合并任务，进度通过 /jobs/{id} 查询
+     */
+    @Operation(summary = "合并单日列车行程", description = "把停靠时刻相同、仅运行日期不同的列车行程合并为按运营日历运行的行程（需要管理员权限）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "任务已提交"),
+            @ApiResponse(responseCode = "403", description = "权限不足")
+    })
+    @PostMapping("/service-calendars/fold")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public R<JobDto> foldTrainTrips() {
+        return R.ok(serviceCalendarService.submitFold());
+    }
+}
@@ -1,6 +1,8 @@
 package com.scoding.metro.controller;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.common.R;
+import com.scoding.metro.common.StreamLimiter;
 import com.scoding.metro.dto.UserCreateDto;
 import com.scoding.metro.dto.UserResponseDto;
 import com.scoding.metro.entity.User;
@@ -11,8 +13,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,6 +34,7 @@ import java.util.stream.Collectors;
 public class SuperAdminController {
 
     private final SuperAdminService superAdminService;
+    private final StreamLimiter streamLimiter;
 
     /**
      * 获取所有用户
@@ -47,6 +53,37 @@ public class SuperAdminController {
         return R.ok(userDtos);
     }
 
+    /**
+     * 游标分页获取用户
+     */
+    @Operation(summary = "分页获取用户", description = "按ID升序游标分页获取用户，使用上一页返回的 nextCursor 获取下一页")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "403", description = "没有权限")
+    })
+    @GetMapping("/users/page")
+    public R<CursorPage<UserResponseDto>> getUsersPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit) {
+        return R.ok(superAdminService.listUsersPage(cursor, limit).map(UserResponseDto::fromEntity));
+    }
+
+    /**
+     * 流式导出所有用户
+     */
+    @Operation(summary = "流式导出用户", description = "以 NDJSON 格式逐行输出所有用户信息")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "403", description = "没有权限"),
+            @ApiResponse(responseCode = "503", description = "同时进行的导出数已达上限")
+    })
+    @GetMapping(value = "/users/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamLimiter.limit(superAdminService::streamAllUsers));
+    }
+
     /**
      * 获取用户详情
      */
@@ -0,0 +1,15 @@
+package com.scoding.metro.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class DelayReportDto {
+    /**
+     * 延误秒数，0 表示恢复正点
+     */
+    @NotNull(message = "延误时间不能为空")
+    @Min(value = 0, message = "延误时间不能为负数")
+    private Integer delaySeconds;
+}
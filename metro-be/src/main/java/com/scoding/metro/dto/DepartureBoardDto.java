@@ -0,0 +1,113 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 站点发车信息数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class DepartureBoardDto {
+
+    /**
+     * 站点ID
+     */
+    private Long stationId;
+
+    /**
+     * 站点名称
+     */
+    private String stationName;
+
+    /**
+     * 运行日期
+     */
+    private LocalDate runDate;
+
+    /**
+     * 查询的起始时间
+     */
+    private LocalTime after;
+
+    /**
+     * 按路线（运行方向）分组的发车信息
+     */
+    private List<RouteDepartures> routes;
+
+    /**
+     * 某一路线在该站的发车信息
+     */
+    @Data
+    public static class RouteDepartures {
+        /**
+         * 路线ID
+         */
+        private Long routeId;
+
+        /**
+         * 路线名称
+         */
+        private String routeName;
+
+        /**
+         * 线路ID
+         */
+        private Long lineId;
+
+        /**
+         * 线路名称
+         */
+        private String lineName;
+
+        /**
+         * 线路颜色
+         */
+        private String lineColor;
+
+        /**
+         * 之后的发车列表
+         */
+        private List<Departure> departures;
+    }
+
+    /**
+     * 一班列车的发车信息
+     */
+    @Data
+    public static class Departure {
+        /**
+         * 列车行程ID
+         */
+        private Long trainTripId;
+
+        /**
+         * 列车车次号
+         */
+        private String trainNumber;
+
+        /**
+         * 停靠点ID
+         */
+        private Long stopId;
+
+        /**
+         * 发车时间
+         */
+        private LocalTime departureTime;
+
+        /**
+         * 终点站ID
+         */
+        private Long terminalStationId;
+
+        /**
+         * 终点站名称
+         */
+        private String terminalStationName;
+    }
+}
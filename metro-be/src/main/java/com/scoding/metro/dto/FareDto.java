@@ -0,0 +1,37 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+/**
+ * 站点间票价数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class FareDto {
+
+    /**
+     * 出发站点ID
+     */
+    private Long fromStationId;
+
+    /**
+     * 出发站点名称
+     */
+    private String fromStationName;
+
+    /**
+     * 到达站点ID
+     */
+    private Long toStationId;
+
+    /**
+     * 到达站点名称
+     */
+    private String toStationName;
+
+    /**
+     * 票价（元），按两站之间计费里程最少的乘车路径计算
+     */
+    private Double fare;
+}
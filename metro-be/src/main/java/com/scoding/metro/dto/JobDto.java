@@ -0,0 +1,89 @@
+package com.scoding.metro.dto;
+
+import com.scoding.metro.job.Job;
+import com.scoding.metro.job.JobStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 后台任务状态数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class JobDto {
+
+    private String id;
+
+    private String type;
+
+    private JobStatus status;
+
+    /**
+     * 当前阶段
+     */
+    private String phase;
+
+    /**
+     * 当前阶段已完成的工作量
+     */
+    private Long processed;
+
+    /**
+     * 当前阶段的工作总量，未知时为-1
+     */
+    private Long total;
+
+    /**
+     * 当前阶段的完成百分比，总量未知时为空
+     */
+    private Double percent;
+
+    /**
+     * 各项计数
+     */
+    private Map<String, Long> counters;
+
+    /**
+     * 失败或取消原因
+     */
+    private String message;
+
+    /**
+     * 任务结果
+     */
+    private Object result;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    /**
+     * 从任务转换为DTO
+     */
+    public static JobDto fromJob(Job job) {
+        JobDto dto = new JobDto();
+        dto.setId(job.getId());
+        dto.setType(job.getType());
+        dto.setStatus(job.getStatus());
+        dto.setPhase(job.getPhase());
+        long total = job.getTotal();
+        long processed = job.getProcessed();
+        dto.setProcessed(processed);
+        dto.setTotal(total);
+        if (total > 0) {
+            dto.setPercent(Math.min(100.0, Math.round(processed * 1000.0 / total) / 10.0));
+        }
+        dto.setCounters(job.getCounters());
+        dto.setMessage(job.getMessage());
+        dto.setResult(job.getResult());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+}
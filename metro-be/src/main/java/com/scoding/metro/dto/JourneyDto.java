@@ -0,0 +1,55 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 出行方案数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class JourneyDto {
+    /**
+     * 运行日期
+     */
+    private LocalDate runDate;
+
+    /**
+     * 出发时间（第一段乘车的发车时间）
+     */
+    private LocalTime departureTime;
+
+    /**
+     * 到达时间
+     */
+    private LocalTime arrivalTime;
+
+    /**
+     * 到达时间是否已跨入次日
+     */
+    private Boolean arrivesNextDay;
+
+    /**
+     * 全程耗时（分钟），自查询的出发时间起算
+     */
+    private Integer durationMinutes;
+
+    /**
+     * 换乘次数
+     */
+    private Integer transfers;
+
+    /**
+     * 票价（元）
+     */
+    private Double fare;
+
+    /**
+     * 各段乘车
+     */
+    private List<JourneyLegDto> legs;
+}
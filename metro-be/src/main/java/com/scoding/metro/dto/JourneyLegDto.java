@@ -0,0 +1,83 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+
+/**
+ * 行程中的一段乘车数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class JourneyLegDto {
+    /**
+     * 列车行程ID
+     */
+    private Long trainTripId;
+
+    /**
+     * 列车车次号
+     */
+    private String trainNumber;
+
+    /**
+     * 路线ID
+     */
+    private Long routeId;
+
+    /**
+     * 路线名称
+     */
+    private String routeName;
+
+    /**
+     * 线路ID
+     */
+    private Long lineId;
+
+    /**
+     * 线路名称
+     */
+    private String lineName;
+
+    /**
+     * 线路颜色
+     */
+    private String lineColor;
+
+    /**
+     * 上车站点ID
+     */
+    private Long fromStationId;
+
+    /**
+     * 上车站点名称
+     */
+    private String fromStationName;
+
+    /**
+     * 下车站点ID
+     */
+    private Long toStationId;
+
+    /**
+     * 下车站点名称
+     */
+    private String toStationName;
+
+    /**
+     * 发车时间
+     */
+    private LocalTime departureTime;
+
+    /**
+     * 到达时间
+     */
+    private LocalTime arrivalTime;
+
+    /**
+     * 乘坐的站数
+     */
+    private Integer stopCount;
+}
@@ -0,0 +1,46 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * OD 旅行时间矩阵数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class OdMatrixDto {
+
+    /**
+     * 矩阵ID，即生成任务的ID
+     */
+    private String id;
+
+    /**
+     * 运行日期
+     */
+    private LocalDate runDate;
+
+    /**
+     * 计算时使用的路网快照版本
+     */
+    private Long networkVersion;
+
+    /**
+     * 站点数
+     */
+    private Integer stationCount;
+
+    /**
+     * 各时间片的出发时刻
+     */
+    private List<LocalTime> departureTimes;
+
+    /**
+     * 矩阵文件大小（字节）
+     */
+    private Long fileSize;
+}
@@ -0,0 +1,26 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 计算 OD 旅行时间矩阵的请求DTO
+ *
+ * @author scoheart
+ */
+@Data
+public class OdMatrixRequest {
+
+    /**
+     * 运行日期，为空时取当天
+     */
+    private LocalDate date;
+
+    /**
+     * 各时间片的出发时刻，每个时刻计算一张全站点矩阵
+     */
+    private List<LocalTime> departureTimes;
+}
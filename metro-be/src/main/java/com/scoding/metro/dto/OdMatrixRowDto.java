@@ -0,0 +1,51 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * OD 矩阵中一个出发站点在某时间片的旅行时间数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class OdMatrixRowDto {
+
+    /**
+     * 出发站点ID
+     */
+    private Long fromStationId;
+
+    /**
+     * 出发时刻
+     */
+    private LocalTime departAt;
+
+    /**
+     * 到各站点的旅行时间，不含出发站点和不可达站点
+     */
+    private List<Cell> cells;
+
+    /**
+     * 到一个站点的旅行时间
+     */
+    @Data
+    public static class Cell {
+        /**
+         * 到达站点ID
+         */
+        private Long toStationId;
+
+        /**
+         * 旅行时间（分钟）
+         */
+        private Integer travelMinutes;
+
+        /**
+         * 换乘次数
+         */
+        private Integer transfers;
+    }
+}
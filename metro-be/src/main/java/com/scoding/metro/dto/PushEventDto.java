@@ -0,0 +1,29 @@
+package com.scoding.metro.dto;
+
+import com.scoding.metro.entity.Announcement;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import lombok.Data;
+
+/**
+ * 推送给客户端的变更通知
+ */
+@Data
+public class PushEventDto {
+    /**
+     * 通知类型：announcement（公告）、timetable（时刻表、运营日历、实时延误）、network（线路、站点、路线、停靠点）
+     */
+    private String type;
+    private MetroDataChangedEvent.ChangeType changeType;
+    private MetroAggregate aggregate;
+    private Long entityId;
+    /**
+     * 受影响的线路ID，无法确定或影响全部线路时为null
+     */
+    private Long lineId;
+    /**
+     * 变更后的公告，仅公告创建、更新时返回
+     */
+    private Announcement announcement;
+    private Long timestamp;
+}
@@ -0,0 +1,82 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 站点可达范围数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class ReachabilityDto {
+
+    /**
+     * 出发站点ID
+     */
+    private Long stationId;
+
+    /**
+     * 出发站点名称
+     */
+    private String stationName;
+
+    /**
+     * 运行日期
+     */
+    private LocalDate runDate;
+
+    /**
+     * 出发时间
+     */
+    private LocalTime departAt;
+
+    /**
+     * 最长出行时间（分钟）
+     */
+    private Integer maxMinutes;
+
+    /**
+     * 时限内可到达的站点，按到达时间升序，不含出发站点
+     */
+    private List<ReachableStation> stations;
+
+    /**
+     * 一个可到达的站点
+     */
+    @Data
+    public static class ReachableStation {
+        /**
+         * 站点ID
+         */
+        private Long stationId;
+
+        /**
+         * 站点名称
+         */
+        private String stationName;
+
+        /**
+         * 最早到达时间
+         */
+        private LocalTime arrivalTime;
+
+        /**
+         * 到达时间是否已跨入次日
+         */
+        private Boolean arrivesNextDay;
+
+        /**
+         * 出行时间（分钟），自出发时间起算
+         */
+        private Integer travelMinutes;
+
+        /**
+         * 以最早时间到达所需的最少换乘次数
+         */
+        private Integer transfers;
+    }
+}
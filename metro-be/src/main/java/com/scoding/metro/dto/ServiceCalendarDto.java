@@ -0,0 +1,50 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 运营日历数据传输对象
+ *
+ * @author scoheart
+ */
+@Data
+public class ServiceCalendarDto {
+
+    private Long id;
+
+    private String name;
+
+    /**
+     * 在生效日期范围内按规律运行的星期
+     */
+    private List<DayOfWeek> daysOfWeek;
+
+    /**
+     * 生效起始日期
+     */
+    private LocalDate startDate;
+
+    /**
+     * 生效结束日期（含）
+     */
+    private LocalDate endDate;
+
+    /**
+     * 额外运行的日期
+     */
+    private List<LocalDate> addedDates;
+
+    /**
+     * 停止运行的日期
+     */
+    private List<LocalDate> removedDates;
+
+    /**
+     * 使用该日历的列车行程数，仅查询详情时返回
+     */
+    private Integer tripCount;
+}
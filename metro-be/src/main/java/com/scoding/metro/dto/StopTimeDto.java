@@ -12,4 +12,12 @@ public class StopTimeDto {
     private LocalTime arrivalTime;
     private LocalTime departureTime;
     private Integer stopSeq;
+
+    /**
+     * 以下字段仅在存在实时延误时返回，此时 arrivalTime / departureTime 为预计时刻
+     */
+    private LocalTime scheduledArrivalTime;
+    private LocalTime scheduledDepartureTime;
+    private Integer arrivalDelay;
+    private Integer departureDelay;
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.scoding.metro.dto;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路网数据同步结果
+ * full 为 true 时各列表是全部数据，客户端应替换本地数据；否则只包含 since 之后新增或修改的记录和已删除的ID
+ */
+@Data
+public class SyncDto {
+    /**
+     * 本次同步到的版本，下次请求作为 since 传回
+     */
+    private Long version;
+    private Boolean full;
+    private List<Line> lines = new ArrayList<>();
+    private List<Station> stations = new ArrayList<>();
+    private List<Route> routes = new ArrayList<>();
+    private List<Stop> stops = new ArrayList<>();
+    private List<Long> deletedLineIds = new ArrayList<>();
+    private List<Long> deletedStationIds = new ArrayList<>();
+    private List<Long> deletedRouteIds = new ArrayList<>();
+    private List<Long> deletedStopIds = new ArrayList<>();
+}
@@ -0,0 +1,83 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 批量生成时刻表的请求DTO
+ * 按发车间隔展开为一段日期内每天的列车行程及其到站时刻
+ *
+ * @author scoheart
+ */
+@Data
+public class TimetableGenerateRequest {
+
+    /**
+     * 路线ID
+     */
+    private Long routeId;
+
+    /**
+     * 起始运行日期
+     */
+    private LocalDate startDate;
+
+    /**
+     * 结束运行日期（含）
+     */
+    private LocalDate endDate;
+
+    /**
+     * 首班车从起始站发车的时间
+     */
+    private LocalTime firstDeparture;
+
+    /**
+     * 末班车从起始站发车的时间，不早于首班车
+     */
+    private LocalTime lastDeparture;
+
+    /**
+     * 发车间隔时段，每个时段从其开始时间起生效，直到下一个时段开始
+     */
+    private List<HeadwayBand> headways;
+
+    /**
+     * 相邻两站之间的运行时间（秒），长度为停靠点数减一
+     */
+    private List<Integer> runningSeconds;
+
+    /**
+     * 各停靠点的停站时间（秒），长度与停靠点数相同，首末站忽略；为空时统一使用 defaultDwellSeconds
+     */
+    private List<Integer> dwellSeconds;
+
+    /**
+     * 默认停站时间（秒）
+     */
+    private Integer defaultDwellSeconds;
+
+    /**
+     * 车次号前缀，车次号为前缀加当天的三位序号，为空时使用路线ID
+     */
+    private String trainNumberPrefix;
+
+    /**
+     * 发车间隔时段
+     */
+    @Data
+    public static class HeadwayBand {
+        /**
+         * 时段开始时间
+         */
+        private LocalTime startTime;
+
+        /**
+         * 发车间隔（秒）
+         */
+        private Integer headwaySeconds;
+    }
+}
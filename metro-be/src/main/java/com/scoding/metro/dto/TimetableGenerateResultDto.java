@@ -0,0 +1,64 @@
+package com.scoding.metro.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 批量生成时刻表的结果
+ *
+ * @author scoheart
+ */
+@Data
+public class TimetableGenerateResultDto {
+
+    /**
+     * 路线ID
+     */
+    private Long routeId;
+
+    /**
+     * 起始运行日期
+     */
+    private LocalDate startDate;
+
+    /**
+     * 结束运行日期
+     */
+    private LocalDate endDate;
+
+    /**
+     * 生成的天数
+     */
+    private Integer dayCount;
+
+    /**
+     * 每天的车次数
+     */
+    private Integer tripsPerDay;
+
+    /**
+     * 生成的列车行程总数
+     */
+    private Integer trainTripCount;
+
+    /**
+     * 生成的到站时刻总数
+     */
+    private Integer stopTimeCount;
+
+    /**
+     * 在内存中展开时刻表的耗时（毫秒）
+     */
+    private Long generateMillis;
+
+    /**
+     * 写入数据库的耗时（毫秒）
+     */
+    private Long insertMillis;
+
+    /**
+     * 写入吞吐量（行/秒）
+     */
+    private Long rowsPerSecond;
+}
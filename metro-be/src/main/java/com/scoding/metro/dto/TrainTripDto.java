@@ -11,6 +11,10 @@ public class TrainTripDto {
     private Long routeId;
     private String trainNumber;
     private LocalDate runDate;
+    /**
+     * 运营日历ID，与运行日期二选一
+     */
+    private Long serviceId;
     private List<Long> stopTimeIds;
     
     // 非数据库字段，仅用于前端展示
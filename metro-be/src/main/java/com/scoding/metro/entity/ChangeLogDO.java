@@ -0,0 +1,19 @@
+package com.scoding.metro.entity;
+
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ChangeLogDO {
+    private Long version;
+    private MetroAggregate aggregate;
+    /**
+     * 为空表示批量变更
+     */
+    private Long entityId;
+    private MetroDataChangedEvent.ChangeType changeType;
+    private LocalDateTime changedAt;
+}
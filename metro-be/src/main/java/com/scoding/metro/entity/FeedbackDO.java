@@ -16,4 +16,5 @@ public class FeedbackDO {
     // 关联字段，用于显示
     private String username;
     private List<ReplyDO> replies;
+    private Integer replyCount;
 } 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.scoding.metro.entity;
+
+import lombok.Data;
+
+/**
+ * 按父记录分组的回复数
+ */
+@Data
+public class ReplyCountDO {
+    private Long parentId;
+    private Integer replyCount;
+}
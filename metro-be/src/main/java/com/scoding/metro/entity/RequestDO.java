@@ -17,4 +17,5 @@ public class RequestDO {
     // 关联字段，用于显示
     private String username;
     private List<ReplyDO> replies;
+    private Integer replyCount;
 } 
\ No newline at end of file
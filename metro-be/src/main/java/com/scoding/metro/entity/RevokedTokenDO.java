@@ -0,0 +1,13 @@
+package com.scoding.metro.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class RevokedTokenDO {
+    private String jti;
+    private Long userId;
+    private LocalDateTime expiresAt;
+    private LocalDateTime revokedAt;
+}
@@ -0,0 +1,41 @@
+package com.scoding.metro.entity;
+
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 运营日历
+ * 在 [startDate, endDate] 内按星期规律运行，例外日期可额外增加或取消某天的运行
+ */
+@Data
+public class ServiceCalendar {
+    private Long id;
+    private String name;
+    /**
+     * 运行的星期，第0位为周一，第6位为周日
+     */
+    private Integer weekdays;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // 非数据库字段
+    private List<ServiceCalendarDate> exceptions;
+
+    /**
+     * 星期对应的位
+     */
+    public static int weekdayBit(DayOfWeek dayOfWeek) {
+        return 1 << (dayOfWeek.getValue() - 1);
+    }
+
+    /**
+     * 按星期规律判断某天是否运行，不考虑例外日期
+     */
+    public boolean matchesPattern(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate)
+                && (weekdays & weekdayBit(date.getDayOfWeek())) != 0;
+    }
+}
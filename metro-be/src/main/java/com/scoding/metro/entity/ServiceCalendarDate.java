@@ -0,0 +1,26 @@
+package com.scoding.metro.entity;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 运营日历例外日期
+ */
+@Data
+public class ServiceCalendarDate {
+
+    /**
+     * 例外类型：增加运行
+     */
+    public static final int ADDED = 1;
+
+    /**
+     * 例外类型：停止运行
+     */
+    public static final int REMOVED = 2;
+
+    private Long calendarId;
+    private LocalDate serviceDate;
+    private Integer exceptionType;
+}
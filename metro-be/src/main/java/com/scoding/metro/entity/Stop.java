@@ -10,6 +10,12 @@ import lombok.Data;
  */
 @Data
 public class Stop {
+    /**
+     * 序号的默认间隔
+     * 序号是稀疏的，只表示先后顺序，新建路线时按该间隔编号，便于之后在两站之间插入
+     */
+    public static final int SEQ_GAP = 1024;
+    
     /**
      * 停靠点ID
      */
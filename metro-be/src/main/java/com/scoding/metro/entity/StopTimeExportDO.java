@@ -0,0 +1,17 @@
+package com.scoding.metro.entity;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+
+/**
+ * 导出用的到站时刻，停靠点已换算为车站
+ */
+@Data
+public class StopTimeExportDO {
+    private Long trainTripId;
+    private Long stationId;
+    private LocalTime arrivalTime;
+    private LocalTime departureTime;
+    private Integer stopSeq;
+}
@@ -10,7 +10,14 @@ public class TrainTrip {
     private Long id;
     private Long routeId;
     private String trainNumber;
+    /**
+     * 运行日期；按运营日历运行的行程为空，按日期展开查询时为查询的日期
+     */
     private LocalDate runDate;
+    /**
+     * 运营日历ID，单日行程为空
+     */
+    private Long serviceId;
     
     // Non-database fields
     private Route route;
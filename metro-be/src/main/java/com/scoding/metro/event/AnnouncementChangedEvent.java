@@ -0,0 +1,33 @@
+package com.scoding.metro.event;
+
+import com.scoding.metro.entity.Announcement;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 公告变更事件
+ * 由公告的写操作发布，推送通道在事务提交后转发给订阅的客户端
+ *
+ * @author scoheart
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class AnnouncementChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    private final MetroDataChangedEvent.ChangeType changeType;
+
+    /**
+     * 公告ID
+     */
+    private final Long announcementId;
+
+    /**
+     * 变更后的公告，删除时为null
+     */
+    private final Announcement announcement;
+}
@@ -0,0 +1,63 @@
+package com.scoding.metro.event;
+
+/**
+ * 地铁基础数据的聚合类型
+ * 用于标识一次数据变更影响的是哪一类数据
+ *
+ * @author scoheart
+ */
+public enum MetroAggregate {
+    /**
+     * 线路
+     */
+    LINE,
+
+    /**
+     * 站点
+     */
+    STATION,
+
+    /**
+     * 路线（单一运行方向）
+     */
+    ROUTE,
+
+    /**
+     * 路线停靠点
+     */
+    STOP,
+
+    /**
+     * 列车行程
+     */
+    TRAIN_TRIP,
+
+    /**
+     * 停靠时刻
+     */
+    STOP_TIME,
+
+    /**
+     * 运营日历
+     */
+    SERVICE_CALENDAR,
+
+    /**
+     * 实时延误（仅保存在内存中，不影响计划时刻表）
+     */
+    DELAY;
+
+    /**
+     * 是否属于路网拓扑数据（线路、站点、路线、停靠点）
+     */
+    public boolean isTopology() {
+        return this == LINE || this == STATION || this == ROUTE || this == STOP;
+    }
+
+    /**
+     * 是否属于实时数据（不改变数据库中的计划数据）
+     */
+    public boolean isRealtime() {
+        return this == DELAY;
+    }
+}
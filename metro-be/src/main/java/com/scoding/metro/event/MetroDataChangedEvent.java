@@ -0,0 +1,50 @@
+package com.scoding.metro.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 地铁基础数据变更事件
+ * 由各写操作发布，内存快照、缓存等在事务提交后据此刷新
+ *
+ * @author scoheart
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MetroDataChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * 变更的数据类型
+     */
+    private final MetroAggregate aggregate;
+
+    /**
+     * 变更类型
+     */
+    private final ChangeType changeType;
+
+    /**
+     * 变更记录ID
+     */
+    private final Long entityId;
+
+    /**
+     * 列车行程、到站时刻等变更所属的路线ID，供推送确定受影响的线路；发布方不掌握时为null
+     */
+    private final Long routeId;
+
+    public MetroDataChangedEvent(MetroAggregate aggregate, ChangeType changeType, Long entityId) {
+        this(aggregate, changeType, entityId, null);
+    }
+}
@@ -0,0 +1,354 @@
+package com.scoding.metro.fare;
+
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.FareModel;
+import com.scoding.metro.planner.SearchPool;
+import com.scoding.metro.planner.TimetableSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * 站点间票价矩阵
+ * 由 {@link TransitNetworkSnapshot} 派生的不可变结构：按路线停靠点序列把相邻两站连成有向边，边权为两站之间的计费里程，
+ * 每个出发站点做一次 0-1 广度优先搜索求出到各站的最少计费里程，再按 {@link FareRules} 换算为票价，
+ * 结果存放在按 [出发站][到达站] 排列的稠密 int 数组中，查询任意两站票价只需一次数组访问。
+ * <p>
+ * 路网变更后基于上一版矩阵增量重建：只有在旧图中能到达"出边发生变化的站点"的出发站点需要重新搜索，其余行按站点ID原样复制。
+ *
+ * @author scoheart
+ */
+public final class FareMatrix implements FareModel {
+
+    /**
+     * 两站之间不连通
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final TransitNetworkSnapshot network;
+    private final FareRules rules;
+    private final long[] stationIds;
+    private final int stationCount;
+    private final int[] cents;
+
+    // 停靠点ID（升序）及其在所属路线上的累计计费里程
+    private final long[] stopIds;
+    private final int[] stopUnits;
+
+    // 站点间的区间边（CSR）：站点 s 的出边为 [edgeOffsets[s], edgeOffsets[s+1])，目标按下标升序
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final int[] edgeUnits;
+
+    private final int recomputedRows;
+
+    private FareMatrix(TransitNetworkSnapshot network, FareRules rules, long[] stationIds, long[] stopIds,
+                       int[] stopUnits, int[] edgeOffsets, int[] edgeTargets, int[] edgeUnits,
+                       FareMatrix previous, SearchPool pool) {
+        this.network = network;
+        this.rules = rules;
+        this.stationIds = stationIds;
+        this.stationCount = stationIds.length;
+        this.stopIds = stopIds;
+        this.stopUnits = stopUnits;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeUnits = edgeUnits;
+        this.cents = new int[stationCount * stationCount];
+
+        int[] toPrevious = previous != null && previous.rules == rules ? mapStations(previous) : null;
+        boolean[] affected = toPrevious != null ? affectedOrigins(previous, toPrevious) : null;
+
+        int[] origins = new int[stationCount];
+        int count = 0;
+        for (int origin = 0; origin < stationCount; origin++) {
+            if (affected == null || affected[origin]) {
+                origins[count++] = origin;
+            } else {
+                copyRow(previous, toPrevious, origin);
+            }
+        }
+        int[] pending = origins;
+        pool.map(count, i -> {
+            computeRow(pending[i]);
+            return null;
+        });
+        this.recomputedRows = count;
+    }
+
+    /**
+     * 根据路网快照构建票价矩阵
+     *
+     * @param network  路网快照
+     * @param rules    票价规则
+     * @param previous 上一版矩阵，为空时全量计算
+     * @param pool     并行计算各行使用的线程池
+     * @return 票价矩阵
+     */
+    public static FareMatrix build(TransitNetworkSnapshot network, FareRules rules, FareMatrix previous,
+                                   SearchPool pool) {
+        int stations = network.stationCount();
+        long[] stationIds = new long[stations];
+        for (int s = 0; s < stations; s++) {
+            stationIds[s] = network.stationId(s);
+        }
+
+        int stops = network.stopCount();
+        long[] stopIds = new long[stops];
+        int[] stopUnits = new int[stops];
+        for (int i = 0; i < stops; i++) {
+            stopIds[i] = network.stopId(i);
+        }
+
+        // 边编码为 起点<<32 | 终点<<1 | 里程，排序后同一对站点里程较小的在前
+        long[] keys = new long[Math.max(stops, 1)];
+        int edgeCount = 0;
+        for (int r = 0; r < network.routeCount(); r++) {
+            int units = 0;
+            int previousStation = -1;
+            for (int stop : network.routeStopsAt(r)) {
+                int station = network.stopStationAt(stop);
+                if (station >= 0 && previousStation >= 0 && station != previousStation) {
+                    int segment = rules.segmentUnits(network.stationCodeAt(previousStation),
+                            network.stationCodeAt(station));
+                    units += segment;
+                    if (edgeCount == keys.length) {
+                        keys = Arrays.copyOf(keys, edgeCount * 2);
+                    }
+                    keys[edgeCount++] = ((long) previousStation << 32) | ((long) station << 1) | segment;
+                }
+                stopUnits[stop] = units;
+                if (station >= 0) {
+                    previousStation = station;
+                }
+            }
+        }
+        Arrays.sort(keys, 0, edgeCount);
+
+        int[] edgeOffsets = new int[stations + 1];
+        int[] edgeTargets = new int[edgeCount];
+        int[] edgeUnits = new int[edgeCount];
+        int edges = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            int from = (int) (keys[i] >>> 32);
+            int to = (int) (keys[i] & 0xFFFFFFFFL) >>> 1;
+            if (edges > 0 && (int) (keys[i - 1] >>> 32) == from && edgeTargets[edges - 1] == to) {
+                continue;
+            }
+            edgeTargets[edges] = to;
+            edgeUnits[edges] = (int) (keys[i] & 1);
+            edgeOffsets[from + 1]++;
+            edges++;
+        }
+        for (int s = 0; s < stations; s++) {
+            edgeOffsets[s + 1] += edgeOffsets[s];
+        }
+
+        return new FareMatrix(network, rules, stationIds, stopIds, stopUnits, edgeOffsets,
+                Arrays.copyOf(edgeTargets, edges), Arrays.copyOf(edgeUnits, edges), previous, pool);
+    }
+
+    /**
+     * 两站之间的票价（分）
+     *
+     * @param from 出发站点下标
+     * @param to   到达站点下标
+     * @return 票价，不连通时返回 {@link #UNREACHABLE}
+     */
+    public int fareCents(int from, int to) {
+        return cents[from * stationCount + to];
+    }
+
+    /**
+     * 站点ID对应的下标，不存在时返回-1
+     */
+    public int stationIndex(long stationId) {
+        int index = Arrays.binarySearch(stationIds, stationId);
+        return index >= 0 ? index : -1;
+    }
+
+    public long stationId(int index) {
+        return stationIds[index];
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public long getNetworkVersion() {
+        return network.getVersion();
+    }
+
+    /**
+     * 构建时使用的路网快照，站点下标与之一致
+     */
+    public TransitNetworkSnapshot getNetwork() {
+        return network;
+    }
+
+    /**
+     * 本次构建中重新搜索的行数，其余行复用自上一版矩阵
+     */
+    public int getRecomputedRows() {
+        return recomputedRows;
+    }
+
+    @Override
+    public int legUnits(TimetableSnapshot timetable, int pattern, int boardPos, int alightPos) {
+        int board = Arrays.binarySearch(stopIds, timetable.patternStopId(pattern, boardPos));
+        int alight = Arrays.binarySearch(stopIds, timetable.patternStopId(pattern, alightPos));
+        if (board < 0 || alight < 0) {
+            return 0;
+        }
+        return Math.max(0, stopUnits[alight] - stopUnits[board]);
+    }
+
+    @Override
+    public int fare(int units) {
+        return rules.fare(units);
+    }
+
+    /**
+     * 当前各站点在上一版矩阵中的下标，新增站点为-1
+     */
+    private int[] mapStations(FareMatrix previous) {
+        int[] toPrevious = new int[stationCount];
+        for (int s = 0; s < stationCount; s++) {
+            toPrevious[s] = previous.stationIndex(stationIds[s]);
+        }
+        return toPrevious;
+    }
+
+    /**
+     * 需要重新搜索的出发站点：新增站点，以及在旧图中能到达已删除站点或出边发生变化的站点的出发站点。
+     * 其余出发站点搜索过程中经过的出边与旧图完全相同，结果不变。
+     */
+    private boolean[] affectedOrigins(FareMatrix previous, int[] toPrevious) {
+        boolean[] changed = new boolean[previous.stationCount];
+        Arrays.fill(changed, true);
+        for (int s = 0; s < stationCount; s++) {
+            int p = toPrevious[s];
+            if (p >= 0) {
+                changed[p] = !sameEdges(previous, s, p);
+            }
+        }
+
+        boolean[] reachesChange = previous.reverseReachable(changed);
+        boolean[] affected = new boolean[stationCount];
+        for (int s = 0; s < stationCount; s++) {
+            affected[s] = toPrevious[s] < 0 || reachesChange[toPrevious[s]];
+        }
+        return affected;
+    }
+
+    private boolean sameEdges(FareMatrix previous, int station, int previousStation) {
+        int start = edgeOffsets[station];
+        int end = edgeOffsets[station + 1];
+        int previousStart = previous.edgeOffsets[previousStation];
+        if (end - start != previous.edgeOffsets[previousStation + 1] - previousStart) {
+            return false;
+        }
+        for (int e = start, pe = previousStart; e < end; e++, pe++) {
+            if (stationIds[edgeTargets[e]] != previous.stationIds[previous.edgeTargets[pe]]
+                    || edgeUnits[e] != previous.edgeUnits[pe]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 能到达任一种子站点的站点集合（含种子本身）
+     */
+    private boolean[] reverseReachable(boolean[] seeds) {
+        int[] inOffsets = new int[stationCount + 1];
+        for (int target : edgeTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int s = 0; s < stationCount; s++) {
+            inOffsets[s + 1] += inOffsets[s];
+        }
+        int[] inSources = new int[edgeTargets.length];
+        int[] fill = Arrays.copyOf(inOffsets, stationCount);
+        for (int s = 0; s < stationCount; s++) {
+            for (int e = edgeOffsets[s]; e < edgeOffsets[s + 1]; e++) {
+                inSources[fill[edgeTargets[e]]++] = s;
+            }
+        }
+
+        boolean[] reached = Arrays.copyOf(seeds, stationCount);
+        int[] queue = new int[stationCount];
+        int size = 0;
+        for (int s = 0; s < stationCount; s++) {
+            if (reached[s]) {
+                queue[size++] = s;
+            }
+        }
+        for (int head = 0; head < size; head++) {
+            int s = queue[head];
+            for (int e = inOffsets[s]; e < inOffsets[s + 1]; e++) {
+                int source = inSources[e];
+                if (!reached[source]) {
+                    reached[source] = true;
+                    queue[size++] = source;
+                }
+            }
+        }
+        return reached;
+    }
+
+    private void copyRow(FareMatrix previous, int[] toPrevious, int origin) {
+        int row = origin * stationCount;
+        int previousRow = toPrevious[origin] * previous.stationCount;
+        for (int to = 0; to < stationCount; to++) {
+            int p = toPrevious[to];
+            cents[row + to] = p >= 0 ? previous.cents[previousRow + p] : UNREACHABLE;
+        }
+    }
+
+    /**
+     * 0-1 广度优先搜索：里程为 0 的边从队头入队，为 1 的边从队尾入队，每个站点出队一次
+     */
+    private void computeRow(int origin) {
+        int[] units = new int[stationCount];
+        boolean[] settled = new boolean[stationCount];
+        Arrays.fill(units, UNREACHED);
+        units[origin] = 0;
+
+        int capacity = edgeTargets.length + 1;
+        int[] deque = new int[capacity];
+        int head = 0;
+        int size = 1;
+        deque[0] = origin;
+        while (size > 0) {
+            int s = deque[head];
+            head = (head + 1) % capacity;
+            size--;
+            if (settled[s]) {
+                continue;
+            }
+            settled[s] = true;
+            for (int e = edgeOffsets[s]; e < edgeOffsets[s + 1]; e++) {
+                int t = edgeTargets[e];
+                int candidate = units[s] + edgeUnits[e];
+                if (candidate >= units[t]) {
+                    continue;
+                }
+                units[t] = candidate;
+                if (edgeUnits[e] == 0) {
+                    head = (head - 1 + capacity) % capacity;
+                    deque[head] = t;
+                } else {
+                    deque[(head + size) % capacity] = t;
+                }
+                size++;
+            }
+        }
+
+        int row = origin * stationCount;
+        for (int to = 0; to < stationCount; to++) {
+            cents[row + to] = units[to] == UNREACHED ? UNREACHABLE : rules.fare(units[to]);
+        }
+    }
+}
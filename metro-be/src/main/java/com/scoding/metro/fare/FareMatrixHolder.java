@@ -0,0 +1,53 @@
+package com.scoding.metro.fare;
+
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.SearchPool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 票价矩阵持有者
+ * 与路网快照版本绑定：读取时若路网快照已更新，则基于上一版矩阵增量重建后原子替换，同一版本只构建一次。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FareMatrixHolder {
+
+    private final TransitNetworkHolder networkHolder;
+    private final FareRules fareRules;
+    private final SearchPool searchPool;
+
+    private volatile FareMatrix current;
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 获取与当前路网快照对应的票价矩阵
+     *
+     * @return 票价矩阵
+     */
+    public FareMatrix get() {
+        TransitNetworkSnapshot network = networkHolder.get();
+        FareMatrix matrix = current;
+        if (matrix != null && matrix.getNetworkVersion() == network.getVersion()) {
+            return matrix;
+        }
+        synchronized (rebuildLock) {
+            matrix = current;
+            if (matrix != null && matrix.getNetworkVersion() == network.getVersion()) {
+                return matrix;
+            }
+            long start = System.nanoTime();
+            FareMatrix rebuilt = FareMatrix.build(network, fareRules, matrix, searchPool);
+            current = rebuilt;
+            log.info("票价矩阵已重建: version={}, 站点={}, 重算行数={}, 耗时={}ms",
+                    rebuilt.getNetworkVersion(), rebuilt.getStationCount(), rebuilt.getRecomputedRows(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return rebuilt;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.scoding.metro.fare;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 票价规则
+ * 票价由"计费里程"决定：按站数计价时为乘坐的站数，按区域计价时为沿途跨越的区域边界数。
+ * 计费里程沿路线的停靠点序列累加，票价按阶梯表查得，超出最后一档后每增加 extraUnits 加收 extraCents。
+ *
+ * @author scoheart
+ */
+@Getter
+@Component
+public class FareRules {
+
+    /**
+     * 计价方式
+     */
+    public enum Mode {
+        /**
+         * 按乘坐站数
+         */
+        STOPS,
+        /**
+         * 按跨越的票价区域数
+         */
+        ZONES
+    }
+
+    private final Mode mode;
+    private final int[] tierUnits;
+    private final int[] tierCents;
+    private final int extraUnits;
+    private final int extraCents;
+    private final Map<String, Integer> zones;
+    private final int defaultZone;
+
+    public FareRules(@Value("${app.fare.mode:STOPS}") Mode mode,
+                     @Value("${app.fare.tiers:4:300,8:400,14:500,20:600}") String tiers,
+                     @Value("${app.fare.extra-units:8}") int extraUnits,
+                     @Value("${app.fare.extra-cents:100}") int extraCents,
+                     @Value("${app.fare.zones:}") String zones,
+                     @Value("${app.fare.default-zone:1}") int defaultZone) {
+        this.mode = mode;
+        String[] entries = tiers.split(",");
+        this.tierUnits = new int[entries.length];
+        this.tierCents = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String[] pair = entries[i].trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("票价阶梯格式应为 里程上限:票价，实际为: " + entries[i]);
+            }
+            tierUnits[i] = Integer.parseInt(pair[0].trim());
+            tierCents[i] = Integer.parseInt(pair[1].trim());
+            if (i > 0 && (tierUnits[i] <= tierUnits[i - 1] || tierCents[i] < tierCents[i - 1])) {
+                throw new IllegalArgumentException("票价阶梯的里程上限须递增且票价不递减");
+            }
+        }
+        if (extraUnits < 1 || extraCents < 0) {
+            throw new IllegalArgumentException("超出阶梯后的加价规则无效");
+        }
+        this.extraUnits = extraUnits;
+        this.extraCents = extraCents;
+        this.zones = parseZones(zones);
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * 计费里程对应的票价（分），随里程单调不减
+     */
+    public int fare(int units) {
+        for (int i = 0; i < tierUnits.length; i++) {
+            if (units <= tierUnits[i]) {
+                return tierCents[i];
+            }
+        }
+        int last = tierUnits.length - 1;
+        int steps = (units - tierUnits[last] + extraUnits - 1) / extraUnits;
+        return tierCents[last] + steps * extraCents;
+    }
+
+    /**
+     * 相邻两站之间的计费里程
+     *
+     * @param fromCode 前一站编码
+     * @param toCode   后一站编码
+     */
+    public int segmentUnits(String fromCode, String toCode) {
+        if (mode == Mode.STOPS) {
+            return 1;
+        }
+        return zoneOf(fromCode) == zoneOf(toCode) ? 0 : 1;
+    }
+
+    private int zoneOf(String stationCode) {
+        return stationCode == null ? defaultZone : zones.getOrDefault(stationCode, defaultZone);
+    }
+
+    private static Map<String, Integer> parseZones(String zones) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String entry : zones.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("票价区域格式应为 站点编码=区域，实际为: " + entry);
+            }
+            result.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return result;
+    }
+}
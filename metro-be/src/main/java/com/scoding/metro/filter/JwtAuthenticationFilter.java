@@ -1,11 +1,15 @@
 package com.scoding.metro.filter;
 
+import com.scoding.metro.security.PrincipalCache;
+import com.scoding.metro.security.TokenRevocationService;
 import com.scoding.metro.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -22,6 +26,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -37,12 +43,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        final String username = jwtUtil.extractUsername(jwt);
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            // 令牌只验签、解析一次，无效、过期或已吊销的令牌按匿名请求处理
+            Claims claims = jwtUtil.parseToken(jwt);
+            if (claims != null && tokenRevocationService.isRevoked(claims.getId())) {
+                claims = null;
+            }
+            UserDetails userDetails = claims != null ? resolveUser(claims) : null;
 
-            if (jwtUtil.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null && userDetails.isEnabled() && userDetails.isAccountNonLocked()) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -57,4 +67,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * 根据令牌中的用户ID从缓存获取用户；不含用户ID的旧令牌按用户名加载
+     */
+    private UserDetails resolveUser(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null) {
+            return null;
+        }
+        Long userId = jwtUtil.extractUserId(claims);
+        if (userId == null) {
+            try {
+                return userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                return null;
+            }
+        }
+        UserDetails userDetails = principalCache.get(userId);
+        // 用户名不一致说明用户已被删除或改名，令牌不再有效
+        return userDetails != null && username.equals(userDetails.getUsername()) ? userDetails : null;
+    }
 }
\ No newline at end of file
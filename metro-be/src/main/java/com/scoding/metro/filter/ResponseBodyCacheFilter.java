@@ -0,0 +1,235 @@
+package com.scoding.metro.filter;
+
+import com.scoding.metro.cache.DataVersionInterceptor;
+import com.scoding.metro.cache.ResponseBodyCache;
+import com.scoding.metro.event.MetroAggregate;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 匿名 GET 响应缓存过滤器
+ * 仅处理不携带 Authorization 的 /metro 查询请求。命中缓存时直接把序列化好的字节写入输出流，
+ * 客户端支持 gzip 时写出预压缩的结果；未命中时照常执行，响应体直接写给客户端，
+ * 仅当接口标注了 {@link com.scoding.metro.cache.DataVersioned} 时另存一份副本，返回 200 JSON 时放入缓存。
+ * 流式导出等未标注的接口不做任何缓冲。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseBodyCacheFilter extends OncePerRequestFilter {
+
+    private static final String METRO_PATH = "/metro/";
+
+    private final ResponseBodyCache responseBodyCache;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!responseBodyCache.isEnabled() || !"GET".equals(request.getMethod())) {
+            return true;
+        }
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) != null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(METRO_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = cacheKey(request);
+        ResponseBodyCache.Entry entry = responseBodyCache.get(key);
+        if (entry != null) {
+            writeCached(request, response, entry);
+            return;
+        }
+
+        CapturingResponse capturing = new CapturingResponse(request, response, responseBodyCache.getMaxEntryBytes());
+        filterChain.doFilter(request, capturing);
+        if (!request.isAsyncStarted()) {
+            storeIfCacheable(request, capturing, key);
+        }
+    }
+
+    private void storeIfCacheable(HttpServletRequest request, CapturingResponse response, String key) {
+        byte[] body = response.getCapturedBody();
+        if (body == null
+                || !(request.getAttribute(DataVersionInterceptor.AGGREGATES_ATTRIBUTE) instanceof MetroAggregate[] aggregates)
+                || !(request.getAttribute(DataVersionInterceptor.ETAG_ATTRIBUTE) instanceof String etag)) {
+            return;
+        }
+        String contentType = response.getContentType();
+        if (response.getStatus() != HttpServletResponse.SC_OK || contentType == null
+                || !MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))
+                || response.getHeader(HttpHeaders.CONTENT_ENCODING) != null
+                || response.getHeader(HttpHeaders.SET_COOKIE) != null) {
+            return;
+        }
+        responseBodyCache.put(key, aggregates, etag, contentType, body);
+    }
+
+    private void writeCached(HttpServletRequest request, HttpServletResponse response, ResponseBodyCache.Entry entry)
+            throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.ETAG, entry.getEtag());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.getEtag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = entry.getBody();
+        if (entry.getGzipped() != null && acceptsGzip(request)) {
+            body = entry.getGzipped();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.getContentType());
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    private static String cacheKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + '?' + query;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip") && !acceptEncoding.contains("gzip;q=0");
+    }
+
+    /**
+     * 响应体照常写给客户端，同时在接口可缓存时另存副本
+     * 是否可缓存在首次获取输出流时判断，此时拦截器已执行，超过上限的响应放弃副本
+     */
+    private static final class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final int maxBytes;
+        private ServletOutputStream outputStream;
+        private ByteArrayOutputStream captured;
+        private boolean abandoned;
+
+        private CapturingResponse(HttpServletRequest request, HttpServletResponse response, int maxBytes) {
+            super(response);
+            this.request = request;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                if (!abandoned && request.getAttribute(DataVersionInterceptor.AGGREGATES_ATTRIBUTE) != null) {
+                    captured = new ByteArrayOutputStream(8192);
+                    outputStream = new TeeOutputStream(target);
+                } else {
+                    abandoned = true;
+                    outputStream = target;
+                }
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            // 通过 Writer 输出的响应不缓存
+            abandon();
+            return super.getWriter();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            abandon();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            abandon();
+        }
+
+        /**
+         * 完整的响应体副本，未捕获或已放弃时返回null
+         */
+        private byte[] getCapturedBody() {
+            return abandoned || captured == null ? null : captured.toByteArray();
+        }
+
+        private void abandon() {
+            abandoned = true;
+            captured = null;
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (captured == null) {
+                return;
+            }
+            if (captured.size() + len > maxBytes) {
+                abandon();
+                return;
+            }
+            captured.write(b, off, len);
+        }
+
+        private final class TeeOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream target;
+
+            private TeeOutputStream(ServletOutputStream target) {
+                this.target = target;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                target.write(b);
+                capture(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                target.write(b, off, len);
+                capture(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                target.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return target.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                target.setWriteListener(writeListener);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.exception.BusinessException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GTFS 文本文件读取器
+ * 逐行读取 RFC 4180 格式的 CSV（支持引号、转义引号和引号内换行），按首行表头定位列，不缓存整个文件。
+ *
+ * @author scoheart
+ */
+public class GtfsCsvReader implements Closeable {
+
+    private static final char BOM = '\uFEFF';
+
+    private final String fileName;
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private long rowNumber;
+
+    public GtfsCsvReader(String fileName, InputStream in) throws IOException {
+        this.fileName = fileName;
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        if (!readRow()) {
+            throw new BusinessException(fileName + " 为空");
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim();
+            if (i == 0 && !name.isEmpty() && name.charAt(0) == BOM) {
+                name = name.substring(1);
+            }
+            columns.put(name, i);
+        }
+        rowNumber = 0;
+    }
+
+    /**
+     * 读取下一行
+     *
+     * @return 是否还有数据
+     */
+    public boolean next() throws IOException {
+        while (readRow()) {
+            // 跳过空行
+            if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否包含指定列
+     */
+    public boolean hasColumn(String column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * 获取当前行指定列的值
+     *
+     * @return 去除首尾空白后的值，列不存在或值为空时返回null
+     */
+    public String get(String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 获取当前行指定列的值，值为空时抛出异常
+     */
+    public String require(String column) {
+        String value = get(column);
+        if (value == null) {
+            throw new BusinessException(fileName + " 第" + rowNumber + "行缺少 " + column);
+        }
+        return value;
+    }
+
+    /**
+     * 获取当前行指定列的整数值，值为空时返回默认值
+     */
+    public int getInt(String column, int defaultValue) {
+        String value = get(column);
+        return value == null ? defaultValue : parseInt(column, value);
+    }
+
+    /**
+     * 获取当前行指定列的整数值，值为空时抛出异常
+     */
+    public int requireInt(String column) {
+        return parseInt(column, require(column));
+    }
+
+    /**
+     * 获取当前行指定列的日期值（GTFS 日期格式 YYYYMMDD），值为空时抛出异常
+     */
+    public LocalDate requireDate(String column) {
+        String value = require(column);
+        try {
+            return LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(fileName + " 第" + rowNumber + "行的 " + column + " 不是有效日期: " + value);
+        }
+    }
+
+    /**
+     * 当前行号（不含表头，从1开始）
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int parseInt(String column, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BusinessException(fileName + " 第" + rowNumber + "行的 " + column + " 不是整数: " + value);
+        }
+    }
+
+    private boolean readRow() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        int c = reader.read();
+        if (c < 0) {
+            return false;
+        }
+        boolean quoted = false;
+        while (c >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        rowNumber++;
+        return true;
+    }
+}
@@ -0,0 +1,268 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.StopTimeExportDO;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * GTFS 数据导出器
+ * 线路、站点、路线取自路网快照；列车行程和到站时刻通过 MyBatis 游标逐行读取并直接写入压缩包，内存占用与时刻表规模无关：
+ * <ul>
+ *     <li>线路对应 GTFS 线路（route），运营商对应 agency</li>
+ *     <li>站点对应 stops.txt 中的停靠点（location_type=0），stop_times.txt 直接引用；本系统不保存坐标，stop_lat/stop_lon 不输出</li>
+ *     <li>每个列车行程对应一个 trip。单日行程以运行日期作为 service_id，并在 calendar_dates.txt 中登记；
+ *         按运营日历运行的行程以 "S" 加日历ID作为 service_id，日历写入 calendar.txt，例外日期写入 calendar_dates.txt，
+ *         生效范围截取到导出的日期范围内</li>
+ *     <li>到站时刻按停靠点所属站点输出，跨零点的时刻按回绕次数补足24小时</li>
+ * </ul>
+ * 两个游标依次打开，同一连接上不会同时存在两个流式结果集。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class GtfsFeedExporter {
+
+    private static final DateTimeFormatter SERVICE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * GTFS route_type：地铁
+     */
+    private static final String ROUTE_TYPE_SUBWAY = "1";
+
+    private static final String CALENDAR_SERVICE_PREFIX = "S";
+
+    private final TransitNetworkHolder networkHolder;
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
+    private final String agencyName;
+    private final String agencyUrl;
+    private final String timezone;
+
+    public GtfsFeedExporter(TransitNetworkHolder networkHolder,
+                            TrainTripMapper trainTripMapper,
+                            StopTimeMapper stopTimeMapper,
+                            ServiceCalendarMapper serviceCalendarMapper,
+                            @Value("${app.gtfs.agency-name:Metro}") String agencyName,
+                            @Value("${app.gtfs.agency-url:http://localhost}") String agencyUrl,
+                            @Value("${app.gtfs.timezone:Asia/Shanghai}") String timezone) {
+        this.networkHolder = networkHolder;
+        this.trainTripMapper = trainTripMapper;
+        this.stopTimeMapper = stopTimeMapper;
+        this.serviceCalendarMapper = serviceCalendarMapper;
+        this.agencyName = agencyName;
+        this.agencyUrl = agencyUrl;
+        this.timezone = timezone;
+    }
+
+    /**
+     * 导出 GTFS 压缩包
+     *
+     * @param out       输出流，不会被关闭
+     * @param startDate 起始运行日期（含），为空时不限
+     * @param endDate   结束运行日期（含），为空时不限
+     */
+    @Transactional(readOnly = true)
+    public void export(OutputStream out, LocalDate startDate, LocalDate endDate) throws IOException {
+        long start = System.currentTimeMillis();
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        // 运营日历须在打开游标前查出
+        List<ServiceCalendar> calendars = serviceCalendarMapper.selectOverlapping(startDate, endDate);
+        List<ServiceCalendarDate> exceptions = serviceCalendarMapper.selectDatesBetween(startDate, endDate);
+        GtfsZipWriter writer = new GtfsZipWriter(out);
+
+        writeAgencies(writer, snapshot);
+        writeRoutes(writer, snapshot);
+        writeStops(writer, snapshot);
+        Set<Long> skippedTrips = new HashSet<>();
+        Set<LocalDate> serviceDates = writeTrips(writer, snapshot, startDate, endDate, skippedTrips);
+        long tripCount = writer.getRowCount();
+        long stopTimeCount = writeStopTimes(writer, startDate, endDate, skippedTrips);
+        writeCalendars(writer, calendars, startDate, endDate);
+        writeCalendarDates(writer, serviceDates, calendars, exceptions);
+        writer.finish();
+
+        log.info("GTFS 导出完成, 运行日期: {} ~ {}, 列车行程 {} 个, 到站时刻 {} 条, 耗时 {}ms",
+                startDate, endDate, tripCount, stopTimeCount, System.currentTimeMillis() - start);
+        if (!skippedTrips.isEmpty()) {
+            log.warn("{} 个列车行程的路线不存在，已跳过", skippedTrips.size());
+        }
+    }
+
+    private void writeAgencies(GtfsZipWriter writer, TransitNetworkSnapshot snapshot) throws IOException {
+        writer.startFile("agency.txt", "agency_id", "agency_name", "agency_url", "agency_timezone");
+        Set<String> agencies = new LinkedHashSet<>();
+        for (Line line : snapshot.getLines()) {
+            agencies.add(agencyOf(line));
+        }
+        if (agencies.isEmpty()) {
+            agencies.add(agencyName);
+        }
+        for (String agency : agencies) {
+            writer.writeRow(agency, agency, agencyUrl, timezone);
+        }
+    }
+
+    private void writeRoutes(GtfsZipWriter writer, TransitNetworkSnapshot snapshot) throws IOException {
+        writer.startFile("routes.txt",
+                "route_id", "agency_id", "route_short_name", "route_long_name", "route_type", "route_color");
+        for (Line line : snapshot.getLines()) {
+            writer.writeRow(String.valueOf(line.getId()), agencyOf(line), line.getCode(), line.getName(),
+                    ROUTE_TYPE_SUBWAY, routeColor(line.getColor()));
+        }
+    }
+
+    private void writeStops(GtfsZipWriter writer, TransitNetworkSnapshot snapshot) throws IOException {
+        writer.startFile("stops.txt", "stop_id", "stop_code", "stop_name", "location_type");
+        for (Station station : snapshot.getStations()) {
+            writer.writeRow(String.valueOf(station.getId()), station.getCode(), station.getName(), "0");
+        }
+    }
+
+    private Set<LocalDate> writeTrips(GtfsZipWriter writer, TransitNetworkSnapshot snapshot,
+                                      LocalDate startDate, LocalDate endDate, Set<Long> skippedTrips) throws IOException {
+        writer.startFile("trips.txt", "route_id", "service_id", "trip_id", "trip_headsign", "trip_short_name");
+        Set<LocalDate> serviceDates = new TreeSet<>();
+        try (Cursor<TrainTrip> cursor = trainTripMapper.streamByRunDate(startDate, endDate)) {
+            for (TrainTrip trip : cursor) {
+                Route route = snapshot.getRoute(trip.getRouteId());
+                if (route == null || (trip.getRunDate() == null && trip.getServiceId() == null)) {
+                    skippedTrips.add(trip.getId());
+                    continue;
+                }
+                String serviceId;
+                if (trip.getRunDate() != null) {
+                    serviceDates.add(trip.getRunDate());
+                    serviceId = SERVICE_DATE.format(trip.getRunDate());
+                } else {
+                    serviceId = CALENDAR_SERVICE_PREFIX + trip.getServiceId();
+                }
+                writer.writeRow(String.valueOf(route.getLineId()), serviceId,
+                        String.valueOf(trip.getId()), route.getName(), trip.getTrainNumber());
+            }
+        }
+        return serviceDates;
+    }
+
+    private long writeStopTimes(GtfsZipWriter writer, LocalDate startDate, LocalDate endDate,
+                                Set<Long> skippedTrips) throws IOException {
+        writer.startFile("stop_times.txt", "trip_id", "arrival_time", "departure_time", "stop_id", "stop_sequence");
+        Long currentTrip = null;
+        String tripId = null;
+        int previous = 0;
+        int dayOffset = 0;
+        try (Cursor<StopTimeExportDO> cursor = stopTimeMapper.streamForExport(startDate, endDate)) {
+            for (StopTimeExportDO stopTime : cursor) {
+                if (skippedTrips.contains(stopTime.getTrainTripId())) {
+                    continue;
+                }
+                if (!stopTime.getTrainTripId().equals(currentTrip)) {
+                    currentTrip = stopTime.getTrainTripId();
+                    tripId = String.valueOf(currentTrip);
+                    previous = 0;
+                    dayOffset = 0;
+                }
+                // 首站只有发车时刻、末站只有到达时刻，缺失的一侧取另一侧
+                LocalTime arrival = stopTime.getArrivalTime() != null ? stopTime.getArrivalTime() : stopTime.getDepartureTime();
+                LocalTime departure = stopTime.getDepartureTime() != null ? stopTime.getDepartureTime() : arrival;
+                if (arrival == null) {
+                    continue;
+                }
+                // 时刻回绕说明跨过了零点
+                int arrivalSeconds = arrival.toSecondOfDay();
+                if (arrivalSeconds < previous) {
+                    dayOffset += GtfsTime.SECONDS_PER_DAY;
+                }
+                String arrivalTime = GtfsTime.format(arrivalSeconds + dayOffset);
+                int departureSeconds = departure.toSecondOfDay();
+                if (departureSeconds < arrivalSeconds) {
+                    dayOffset += GtfsTime.SECONDS_PER_DAY;
+                }
+                previous = departureSeconds;
+                writer.writeRow(tripId, arrivalTime, GtfsTime.format(departureSeconds + dayOffset),
+                        String.valueOf(stopTime.getStationId()), String.valueOf(stopTime.getStopSeq()));
+            }
+        }
+        return writer.getRowCount();
+    }
+
+    private void writeCalendars(GtfsZipWriter writer, List<ServiceCalendar> calendars,
+                                LocalDate startDate, LocalDate endDate) throws IOException {
+        writer.startFile("calendar.txt", "service_id", "monday", "tuesday", "wednesday", "thursday", "friday",
+                "saturday", "sunday", "start_date", "end_date");
+        String[] row = new String[10];
+        for (ServiceCalendar calendar : calendars) {
+            row[0] = CALENDAR_SERVICE_PREFIX + calendar.getId();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                row[day.ordinal() + 1] = (calendar.getWeekdays() & ServiceCalendar.weekdayBit(day)) != 0 ? "1" : "0";
+            }
+            LocalDate start = startDate != null && startDate.isAfter(calendar.getStartDate()) ? startDate : calendar.getStartDate();
+            LocalDate end = endDate != null && endDate.isBefore(calendar.getEndDate()) ? endDate : calendar.getEndDate();
+            row[8] = SERVICE_DATE.format(start);
+            row[9] = SERVICE_DATE.format(end);
+            writer.writeRow(row);
+        }
+    }
+
+    private void writeCalendarDates(GtfsZipWriter writer, Set<LocalDate> serviceDates,
+                                    List<ServiceCalendar> calendars, List<ServiceCalendarDate> exceptions) throws IOException {
+        writer.startFile("calendar_dates.txt", "service_id", "date", "exception_type");
+        for (LocalDate date : serviceDates) {
+            String serviceDate = SERVICE_DATE.format(date);
+            writer.writeRow(serviceDate, serviceDate, "1");
+        }
+        Set<Long> calendarIds = new HashSet<>();
+        for (ServiceCalendar calendar : calendars) {
+            calendarIds.add(calendar.getId());
+        }
+        for (ServiceCalendarDate exception : exceptions) {
+            if (calendarIds.contains(exception.getCalendarId())) {
+                writer.writeRow(CALENDAR_SERVICE_PREFIX + exception.getCalendarId(),
+                        SERVICE_DATE.format(exception.getServiceDate()), String.valueOf(exception.getExceptionType()));
+            }
+        }
+    }
+
+    private String agencyOf(Line line) {
+        return StringUtils.hasText(line.getOperator()) ? line.getOperator() : agencyName;
+    }
+
+    /**
+     * GTFS 颜色为不带 # 的六位十六进制
+     */
+    private static String routeColor(String color) {
+        if (color == null) {
+            return null;
+        }
+        String hex = color.startsWith("#") ? color.substring(1) : color;
+        return hex.length() == 6 && hex.chars().allMatch(c -> Character.digit(c, 16) >= 0) ? hex.toUpperCase() : null;
+    }
+}
@@ -0,0 +1,732 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.common.TrainTripBatchWriter;
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.mapper.LineMapper;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StationMapper;
+import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * GTFS 数据导入器
+ * 按 routes.txt → stops.txt → calendar.txt/calendar_dates.txt → trips.txt → stop_times.txt 的顺序逐个读取压缩包中的文件，
+ * 每个文件都是流式解析：
+ * <ul>
+ *     <li>GTFS 线路（route）对应线路，按编码与已有线路合并</li>
+ *     <li>站点（location_type=1）及没有上级站点的站台对应站点，站台、出入口等归并到所属站点，按编码与已有站点合并</li>
+ *     <li>同一线路且停靠站点序列相同的行程共用一条路线及其停靠点，已有路线按线路和站点序列匹配后复用</li>
+ *     <li>行程使用的每个 GTFS 服务（service_id）对应一个运营日历，calendar_dates 对应例外日期</li>
+ *     <li>每个行程对应一个按运营日历运行的列车行程，其 stop_times 对应到站时刻</li>
+ * </ul>
+ * stop_times.txt 须按 trip_id 分组排列（GTFS 数据通常如此），每读完一个行程即写入，内存占用与文件大小无关。
+ * 复用的路线在导入服务的运行日期上已有列车行程时拒绝导入，与时刻表生成的检查一致。
+ * 整个导入在一个事务内完成，失败或取消时全部回滚。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GtfsFeedImporter {
+
+    private static final int MAX_CODE_LENGTH = 20;
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final int MAX_TRAIN_NUMBER_LENGTH = 20;
+
+    /**
+     * 每读取多少行更新一次进度并检查取消标记
+     */
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final LineMapper lineMapper;
+    private final StationMapper stationMapper;
+    private final RouteMapper routeMapper;
+    private final StopMapper stopMapper;
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 导入 GTFS 压缩包
+     *
+     * @param job     当前任务，用于报告进度
+     * @param zipPath 压缩包路径
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void importFeed(Job job, Path zipPath) throws IOException {
+        long start = System.currentTimeMillis();
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            Map<String, String> agencies = readAgencies(zip);
+            Map<String, Line> lines = importLines(job, zip, agencies);
+            Map<String, Station> stations = importStations(job, zip);
+            Map<String, GtfsService> services = readServices(job, zip);
+            Map<String, GtfsTrip> trips = readTrips(job, zip, lines, services);
+            importStopTimes(job, zip, trips, stations);
+        }
+
+        for (MetroAggregate aggregate : MetroAggregate.values()) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    aggregate, MetroDataChangedEvent.ChangeType.CREATE, null));
+        }
+        log.info("GTFS 导入完成, 耗时 {} ms, {}", System.currentTimeMillis() - start, job.getCounters());
+    }
+
+    /**
+     * agency.txt 可选：运营商ID → 名称，空字符串对应默认运营商
+     */
+    private Map<String, String> readAgencies(ZipFile zip) throws IOException {
+        Map<String, String> agencies = new HashMap<>();
+        ZipEntry entry = findEntry(zip, "agency.txt", false);
+        if (entry == null) {
+            return agencies;
+        }
+        try (GtfsCsvReader reader = new GtfsCsvReader(entry.getName(), zip.getInputStream(entry))) {
+            while (reader.next()) {
+                String name = reader.get("agency_name");
+                String id = reader.get("agency_id");
+                agencies.put(id != null ? id : "", name);
+                agencies.putIfAbsent("", name);
+            }
+        }
+        return agencies;
+    }
+
+    /**
+     * routes.txt：GTFS 线路ID → 线路
+     */
+    private Map<String, Line> importLines(Job job, ZipFile zip, Map<String, String> agencies) throws IOException {
+        ZipEntry entry = findEntry(zip, "routes.txt", true);
+        job.startPhase("routes.txt", -1);
+
+        Map<String, Line> existing = new HashMap<>();
+        for (Line line : lineMapper.getAllLines()) {
+            existing.put(line.getCode(), line);
+        }
+
+        Map<String, Line> lines = new HashMap<>();
+        try (GtfsCsvReader reader = new GtfsCsvReader(entry.getName(), zip.getInputStream(entry))) {
+            while (reader.next()) {
+                String routeId = reader.require("route_id");
+                String shortName = reader.get("route_short_name");
+                String code = shortName != null ? shortName : routeId;
+                checkCode(reader, code);
+
+                Line line = existing.get(code);
+                if (line == null) {
+                    String longName = reader.get("route_long_name");
+                    String color = reader.get("route_color");
+                    String agencyId = reader.get("agency_id");
+                    line = new Line();
+                    line.setCode(code);
+                    line.setName(truncate(longName != null ? longName : code, MAX_NAME_LENGTH));
+                    line.setColor(color != null ? "#" + color.toUpperCase() : null);
+                    line.setOperator(truncate(agencies.get(agencyId != null ? agencyId : ""), MAX_NAME_LENGTH));
+                    lineMapper.insertLine(line);
+                    existing.put(code, line);
+                    job.count("lines", 1);
+                } else {
+                    job.count("linesMatched", 1);
+                }
+                lines.put(routeId, line);
+                job.advance(1);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * stops.txt：GTFS 站点ID → 站点（站台、出入口等对应其所属站点）
+     * 站点数量有限，先整体读入再处理上下级关系
+     */
+    private Map<String, Station> importStations(Job job, ZipFile zip) throws IOException {
+        ZipEntry entry = findEntry(zip, "stops.txt", true);
+        job.startPhase("stops.txt", -1);
+
+        Map<String, GtfsStop> stops = new HashMap<>();
+        try (GtfsCsvReader reader = new GtfsCsvReader(entry.getName(), zip.getInputStream(entry))) {
+            while (reader.next()) {
+                GtfsStop stop = new GtfsStop();
+                stop.id = reader.require("stop_id");
+                stop.code = reader.get("stop_code") != null ? reader.get("stop_code") : stop.id;
+                stop.name = reader.get("stop_name");
+                stop.locationType = reader.getInt("location_type", 0);
+                stop.parentId = reader.get("parent_station");
+                if (stop.isStation()) {
+                    checkCode(reader, stop.code);
+                }
+                stops.put(stop.id, stop);
+                job.advance(1);
+            }
+        }
+
+        Map<String, Station> existing = new HashMap<>();
+        for (Station station : stationMapper.getAllStations()) {
+            existing.put(station.getCode(), station);
+        }
+
+        // 先为所有站点级记录确定站点，新站点批量插入
+        List<Station> created = new ArrayList<>();
+        for (GtfsStop stop : stops.values()) {
+            if (!stop.isStation()) {
+                continue;
+            }
+            Station station = existing.get(stop.code);
+            if (station == null) {
+                station = new Station();
+                station.setCode(stop.code);
+                station.setName(truncate(stop.name != null ? stop.name : stop.code, MAX_NAME_LENGTH));
+                existing.put(stop.code, station);
+                created.add(station);
+            } else if (station.getId() != null) {
+                job.count("stationsMatched", 1);
+            }
+            stop.station = station;
+        }
+        for (int from = 0; from < created.size(); from += TrainTripBatchWriter.BATCH_SIZE) {
+            stationMapper.insertStations(created.subList(from, Math.min(from + TrainTripBatchWriter.BATCH_SIZE, created.size())));
+        }
+        job.count("stations", created.size());
+
+        Map<String, Station> result = new HashMap<>();
+        for (GtfsStop stop : stops.values()) {
+            Station station = resolveStation(stop, stops, 0);
+            if (station != null) {
+                result.put(stop.id, station);
+            }
+        }
+        return result;
+    }
+
+    private static Station resolveStation(GtfsStop stop, Map<String, GtfsStop> stops, int depth) {
+        if (stop.station != null) {
+            return stop.station;
+        }
+        GtfsStop parent = stop.parentId != null ? stops.get(stop.parentId) : null;
+        // 站台 → 站点，候车区 → 站台 → 站点，层级不会太深
+        return parent != null && depth < 4 ? resolveStation(parent, stops, depth + 1) : null;
+    }
+
+    /**
+     * calendar.txt 与 calendar_dates.txt：GTFS 服务ID → 运行规律，两个文件至少要有一个
+     * 运营日历在服务首次被行程使用时才创建
+     */
+    private Map<String, GtfsService> readServices(Job job, ZipFile zip) throws IOException {
+        ZipEntry calendarEntry = findEntry(zip, "calendar.txt", false);
+        ZipEntry datesEntry = findEntry(zip, "calendar_dates.txt", false);
+        if (calendarEntry == null && datesEntry == null) {
+            throw new BusinessException("GTFS 压缩包缺少 calendar.txt 或 calendar_dates.txt");
+        }
+
+        Map<String, GtfsService> services = new HashMap<>();
+        if (calendarEntry != null) {
+            job.startPhase("calendar.txt", -1);
+            try (GtfsCsvReader reader = new GtfsCsvReader(calendarEntry.getName(), zip.getInputStream(calendarEntry))) {
+                while (reader.next()) {
+                    GtfsService service = new GtfsService(reader.require("service_id"));
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        if (reader.getInt(day.name().toLowerCase(Locale.ROOT), 0) == 1) {
+                            service.weekdays |= ServiceCalendar.weekdayBit(day);
+                        }
+                    }
+                    service.startDate = reader.requireDate("start_date");
+                    service.endDate = reader.requireDate("end_date");
+                    if (service.startDate.isAfter(service.endDate)) {
+                        throw new BusinessException("calendar.txt 第" + reader.getRowNumber() + "行的结束日期早于起始日期");
+                    }
+                    services.put(service.id, service);
+                    job.advance(1);
+                }
+            }
+        }
+        if (datesEntry != null) {
+            job.startPhase("calendar_dates.txt", -1);
+            try (GtfsCsvReader reader = new GtfsCsvReader(datesEntry.getName(), zip.getInputStream(datesEntry))) {
+                while (reader.next()) {
+                    GtfsService service = services.computeIfAbsent(reader.require("service_id"), GtfsService::new);
+                    LocalDate date = reader.requireDate("date");
+                    int exceptionType = reader.requireInt("exception_type");
+                    if (exceptionType != ServiceCalendarDate.ADDED && exceptionType != ServiceCalendarDate.REMOVED) {
+                        throw new BusinessException("calendar_dates.txt 第" + reader.getRowNumber()
+                                + "行的 exception_type 无效: " + exceptionType);
+                    }
+                    service.exceptions.put(date, exceptionType);
+                    job.advance(1);
+                }
+            }
+        }
+        return services;
+    }
+
+    /**
+     * trips.txt：GTFS 行程ID → 行程信息
+     */
+    private Map<String, GtfsTrip> readTrips(Job job, ZipFile zip, Map<String, Line> lines,
+                                            Map<String, GtfsService> services) throws IOException {
+        ZipEntry entry = findEntry(zip, "trips.txt", true);
+        job.startPhase("trips.txt", -1);
+
+        Map<String, GtfsTrip> trips = new HashMap<>();
+        try (GtfsCsvReader reader = new GtfsCsvReader(entry.getName(), zip.getInputStream(entry))) {
+            while (reader.next()) {
+                String tripId = reader.require("trip_id");
+                String routeId = reader.require("route_id");
+                Line line = lines.get(routeId);
+                if (line == null) {
+                    throw new BusinessException("trips.txt 第" + reader.getRowNumber() + "行引用了不存在的线路: " + routeId);
+                }
+                String serviceId = reader.require("service_id");
+                GtfsService service = services.get(serviceId);
+                if (service == null) {
+                    throw new BusinessException("trips.txt 第" + reader.getRowNumber() + "行引用了不存在的服务: " + serviceId);
+                }
+                String shortName = reader.get("trip_short_name");
+                GtfsTrip trip = new GtfsTrip();
+                trip.line = line;
+                trip.service = service;
+                trip.headsign = reader.get("trip_headsign");
+                trip.trainNumber = truncate(shortName != null ? shortName : tripId, MAX_TRAIN_NUMBER_LENGTH);
+                trips.put(tripId, trip);
+                job.advance(1);
+            }
+        }
+        return trips;
+    }
+
+    /**
+     * stop_times.txt：逐个行程写入列车行程和到站时刻，进度按已读取的字节数计算
+     */
+    private void importStopTimes(Job job, ZipFile zip, Map<String, GtfsTrip> trips,
+                                 Map<String, Station> stations) throws IOException {
+        ZipEntry entry = findEntry(zip, "stop_times.txt", true);
+        job.startPhase("stop_times.txt", entry.getSize());
+
+        TrainTripBatchWriter writer = new TrainTripBatchWriter(trainTripMapper, stopTimeMapper);
+        Map<String, RoutePattern> patterns = loadRoutes(trips);
+        Set<String> seenTrips = new HashSet<>();
+        List<GtfsStopTime> buffer = new ArrayList<>();
+
+        try (CountingInputStream in = new CountingInputStream(zip.getInputStream(entry));
+             GtfsCsvReader reader = new GtfsCsvReader(entry.getName(), in)) {
+            String currentTripId = null;
+            while (reader.next()) {
+                String tripId = reader.require("trip_id");
+                if (!tripId.equals(currentTripId)) {
+                    if (currentTripId != null) {
+                        writeTrip(job, trips.get(currentTripId), buffer, stations, patterns, writer);
+                        buffer.clear();
+                    }
+                    if (!seenTrips.add(tripId)) {
+                        throw new BusinessException("stop_times.txt 须按 trip_id 分组排列，行程 " + tripId + " 的记录不连续");
+                    }
+                    currentTripId = tripId;
+                }
+
+                GtfsStopTime stopTime = new GtfsStopTime();
+                stopTime.sequence = reader.requireInt("stop_sequence");
+                stopTime.stopId = reader.require("stop_id");
+                stopTime.arrival = GtfsTime.parseSeconds(reader.get("arrival_time"));
+                stopTime.departure = GtfsTime.parseSeconds(reader.get("departure_time"));
+                buffer.add(stopTime);
+
+                if (reader.getRowNumber() % PROGRESS_INTERVAL == 0) {
+                    job.setProcessed(in.count);
+                    job.checkCancelled();
+                }
+            }
+            if (currentTripId != null) {
+                writeTrip(job, trips.get(currentTripId), buffer, stations, patterns, writer);
+            }
+            writer.flush();
+            job.setProcessed(in.count);
+        }
+    }
+
+    private void writeTrip(Job job, GtfsTrip trip, List<GtfsStopTime> stopTimes, Map<String, Station> stations,
+                           Map<String, RoutePattern> patterns, TrainTripBatchWriter writer) {
+        // 服务没有任何运行日期时行程不会运行
+        Long calendarId = trip != null ? resolveCalendar(job, trip.service) : null;
+        if (calendarId == null || stopTimes.size() < 2) {
+            job.count("tripsSkipped", 1);
+            return;
+        }
+        stopTimes.sort(Comparator.comparingInt(stopTime -> stopTime.sequence));
+
+        int count = stopTimes.size();
+        Station[] tripStations = new Station[count];
+        StringBuilder key = new StringBuilder().append(trip.line.getId());
+        for (int i = 0; i < count; i++) {
+            Station station = stations.get(stopTimes.get(i).stopId);
+            if (station == null) {
+                throw new BusinessException("stop_times.txt 引用了不存在的站点: " + stopTimes.get(i).stopId);
+            }
+            tripStations[i] = station;
+            key.append('|').append(station.getId());
+        }
+        RoutePattern pattern = patterns.computeIfAbsent(key.toString(), k -> createRoute(job, trip, tripStations));
+        if (pattern.existing && pattern.checkedServices.add(trip.service)) {
+            checkExistingTrips(pattern, trip.service);
+        }
+
+        TrainTrip trainTrip = new TrainTrip();
+        trainTrip.setRouteId(pattern.routeId);
+        trainTrip.setTrainNumber(trip.trainNumber);
+        trainTrip.setServiceId(calendarId);
+        List<StopTime> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GtfsStopTime source = stopTimes.get(i);
+            StopTime stopTime = new StopTime();
+            stopTime.setStopId(pattern.stopIds[i]);
+            stopTime.setStopSeq(i + 1);
+            stopTime.setArrivalTime(GtfsTime.toLocalTime(source.arrival));
+            stopTime.setDepartureTime(GtfsTime.toLocalTime(source.departure));
+            rows.add(stopTime);
+        }
+        trainTrip.setStopTimes(rows);
+        writer.write(trainTrip);
+        job.count("trainTrips", 1);
+        job.count("stopTimes", count);
+    }
+
+    /**
+     * 行程所属线路上的已有路线，按线路ID和停靠站点序列索引
+     */
+    private Map<String, RoutePattern> loadRoutes(Map<String, GtfsTrip> trips) {
+        Set<Long> lineIds = new HashSet<>();
+        for (GtfsTrip trip : trips.values()) {
+            lineIds.add(trip.line.getId());
+        }
+        Map<String, RoutePattern> patterns = new HashMap<>();
+        for (Long lineId : lineIds) {
+            for (Route route : routeMapper.getRoutesByLineId(lineId)) {
+                List<Stop> stops = stopMapper.getStopsByRouteId(route.getId());
+                StringBuilder key = new StringBuilder().append(lineId);
+                long[] stopIds = new long[stops.size()];
+                for (int i = 0; i < stops.size(); i++) {
+                    key.append('|').append(stops.get(i).getStationId());
+                    stopIds[i] = stops.get(i).getId();
+                }
+                patterns.putIfAbsent(key.toString(), new RoutePattern(route.getId(), stopIds, true));
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * 复用的路线在服务的运行日期上已有单日行程或按运营日历运行的行程时拒绝导入
+     * 本次导入创建的运营日历即该路线已检查过的服务，不参与比较
+     */
+    private void checkExistingTrips(RoutePattern pattern, GtfsService service) {
+        List<LocalDate> dates = service.activeDates();
+        if (dates.isEmpty()) {
+            return;
+        }
+        Set<Long> imported = new HashSet<>();
+        for (GtfsService checked : pattern.checkedServices) {
+            imported.add(checked.calendarId);
+        }
+
+        TreeSet<LocalDate> existingDates = new TreeSet<>(trainTripMapper.selectRunDatesByRoute(
+                pattern.routeId, dates.get(0), dates.get(dates.size() - 1)));
+        existingDates.retainAll(dates);
+        for (Long serviceId : trainTripMapper.selectServiceIdsByRoute(pattern.routeId)) {
+            ServiceCalendar calendar = imported.contains(serviceId) ? null : serviceCalendarMapper.selectById(serviceId);
+            if (calendar == null) {
+                continue;
+            }
+            Map<LocalDate, Integer> exceptions = new HashMap<>();
+            for (ServiceCalendarDate exception : serviceCalendarMapper.selectDatesByCalendarId(serviceId)) {
+                exceptions.put(exception.getServiceDate(), exception.getExceptionType());
+            }
+            for (LocalDate date : dates) {
+                Integer exceptionType = exceptions.get(date);
+                boolean running = exceptionType != null
+                        ? exceptionType == ServiceCalendarDate.ADDED
+                        : calendar.matchesPattern(date);
+                if (running) {
+                    existingDates.add(date);
+                }
+            }
+        }
+        if (!existingDates.isEmpty()) {
+            throw new BusinessException("路线 " + pattern.routeId + " 在服务 " + service.id
+                    + " 的以下运行日期已有列车行程: " + existingDates);
+        }
+    }
+
+    /**
+     * 为新的停靠序列创建路线及其停靠点
+     *
+     * @return 路线ID及各位置对应的停靠点ID
+     */
+    private RoutePattern createRoute(Job job, GtfsTrip trip, Station[] tripStations) {
+        Station first = tripStations[0];
+        Station last = tripStations[tripStations.length - 1];
+        Route route = new Route();
+        route.setLineId(trip.line.getId());
+        route.setName(truncate(trip.line.getName() + " " + (trip.headsign != null
+                ? trip.headsign : first.getName() + "-" + last.getName()), MAX_NAME_LENGTH));
+        route.setStartStationId(first.getId());
+        route.setEndStationId(last.getId());
+        routeMapper.insertRoute(route);
+
+        List<Stop> stops = new ArrayList<>(tripStations.length);
+        for (int i = 0; i < tripStations.length; i++) {
+            Stop stop = new Stop();
+            stop.setRouteId(route.getId());
+            stop.setStationId(tripStations[i].getId());
+            stop.setSeq((i + 1) * Stop.SEQ_GAP);
+            stops.add(stop);
+        }
+        for (int from = 0; from < stops.size(); from += TrainTripBatchWriter.BATCH_SIZE) {
+            stopMapper.insertStops(stops.subList(from, Math.min(from + TrainTripBatchWriter.BATCH_SIZE, stops.size())));
+        }
+        job.count("routes", 1);
+        job.count("stops", stops.size());
+
+        return new RoutePattern(route.getId(), stops.stream().mapToLong(Stop::getId).toArray(), false);
+    }
+
+    /**
+     * 首次使用时为 GTFS 服务创建运营日历及例外日期
+     * 只有 calendar_dates.txt 的服务按增加运行的日期确定有效期，星期规律为空
+     *
+     * @return 运营日历ID，服务没有任何运行日期时返回 null
+     */
+    private Long resolveCalendar(Job job, GtfsService service) {
+        if (service.resolved) {
+            return service.calendarId;
+        }
+        service.resolved = true;
+
+        LocalDate startDate = service.startDate;
+        LocalDate endDate = service.endDate;
+        if (startDate == null) {
+            for (Map.Entry<LocalDate, Integer> exception : service.exceptions.entrySet()) {
+                if (exception.getValue() == ServiceCalendarDate.ADDED) {
+                    startDate = startDate == null ? exception.getKey() : startDate;
+                    endDate = exception.getKey();
+                }
+            }
+        }
+        boolean added = service.exceptions.containsValue(ServiceCalendarDate.ADDED);
+        if (startDate == null || (service.weekdays == 0 && !added)) {
+            return null;
+        }
+
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.setName(truncate(service.id, MAX_NAME_LENGTH));
+        calendar.setWeekdays(service.weekdays);
+        calendar.setStartDate(startDate);
+        calendar.setEndDate(endDate);
+        serviceCalendarMapper.insert(calendar);
+
+        List<ServiceCalendarDate> dates = new ArrayList<>(service.exceptions.size());
+        for (Map.Entry<LocalDate, Integer> exception : service.exceptions.entrySet()) {
+            ServiceCalendarDate date = new ServiceCalendarDate();
+            date.setCalendarId(calendar.getId());
+            date.setServiceDate(exception.getKey());
+            date.setExceptionType(exception.getValue());
+            dates.add(date);
+        }
+        for (int from = 0; from < dates.size(); from += TrainTripBatchWriter.BATCH_SIZE) {
+            serviceCalendarMapper.insertDates(dates.subList(from, Math.min(from + TrainTripBatchWriter.BATCH_SIZE, dates.size())));
+        }
+        job.count("serviceCalendars", 1);
+        service.calendarId = calendar.getId();
+        return service.calendarId;
+    }
+
+    private static ZipEntry findEntry(ZipFile zip, String name, boolean required) {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            // 压缩包内可能多一层目录
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry candidate = entries.nextElement();
+                if (!candidate.isDirectory() && candidate.getName().endsWith("/" + name)) {
+                    entry = candidate;
+                    break;
+                }
+            }
+        }
+        if (entry == null && required) {
+            throw new BusinessException("GTFS 压缩包缺少 " + name);
+        }
+        return entry;
+    }
+
+    private static void checkCode(GtfsCsvReader reader, String code) {
+        if (code.length() > MAX_CODE_LENGTH) {
+            throw new BusinessException(reader.getFileName() + " 第" + reader.getRowNumber()
+                    + "行的编码超过" + MAX_CODE_LENGTH + "个字符: " + code);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static final class GtfsStop {
+        private String id;
+        private String code;
+        private String name;
+        private int locationType;
+        private String parentId;
+        private Station station;
+
+        /**
+         * 站点本身，或没有上级站点的站台
+         */
+        private boolean isStation() {
+            return locationType == 1 || (locationType == 0 && parentId == null);
+        }
+    }
+
+    private static final class GtfsService {
+        private final String id;
+        /**
+         * 运行的星期，第0位为周一，只有 calendar_dates.txt 时为0
+         */
+        private int weekdays;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        /**
+         * 例外日期 → 例外类型，按日期排序
+         */
+        private final TreeMap<LocalDate, Integer> exceptions = new TreeMap<>();
+        private boolean resolved;
+        private Long calendarId;
+
+        private GtfsService(String id) {
+            this.id = id;
+        }
+
+        /**
+         * 按日期顺序展开的运行日期，例外日期优先于星期规律
+         */
+        private List<LocalDate> activeDates() {
+            LocalDate first = startDate;
+            LocalDate last = endDate;
+            if (!exceptions.isEmpty()) {
+                LocalDate firstException = exceptions.firstKey();
+                LocalDate lastException = exceptions.lastKey();
+                first = first == null || firstException.isBefore(first) ? firstException : first;
+                last = last == null || lastException.isAfter(last) ? lastException : last;
+            }
+            List<LocalDate> dates = new ArrayList<>();
+            for (LocalDate date = first; date != null && !date.isAfter(last); date = date.plusDays(1)) {
+                Integer exceptionType = exceptions.get(date);
+                boolean running = exceptionType != null
+                        ? exceptionType == ServiceCalendarDate.ADDED
+                        : startDate != null && !date.isBefore(startDate) && !date.isAfter(endDate)
+                          && (weekdays & ServiceCalendar.weekdayBit(date.getDayOfWeek())) != 0;
+                if (running) {
+                    dates.add(date);
+                }
+            }
+            return dates;
+        }
+    }
+
+    private static final class GtfsTrip {
+        private Line line;
+        private GtfsService service;
+        private String headsign;
+        private String trainNumber;
+    }
+
+    private static final class RoutePattern {
+        private final Long routeId;
+        private final long[] stopIds;
+        /**
+         * 导入前已存在的路线
+         */
+        private final boolean existing;
+        /**
+         * 已检查过与已有行程冲突的服务
+         */
+        private final Set<GtfsService> checkedServices = new HashSet<>();
+
+        private RoutePattern(Long routeId, long[] stopIds, boolean existing) {
+            this.routeId = routeId;
+            this.stopIds = stopIds;
+            this.existing = existing;
+        }
+    }
+
+    private static final class GtfsStopTime {
+        private int sequence;
+        private String stopId;
+        private int arrival;
+        private int departure;
+    }
+
+    /**
+     * 统计已读取的解压后字节数，用于计算进度
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.exception.BusinessException;
+
+import java.time.LocalTime;
+
+/**
+ * GTFS 时刻转换
+ * GTFS 的时刻相对于服务日的中午减12小时计算，跨零点的车次会出现 25:10:00 这样的值；
+ * 本系统按当日时刻存储，由时刻表快照在时刻回绕时顺延一天，因此导入时取模，导出时按回绕次数补回。
+ *
+ * @author scoheart
+ */
+public final class GtfsTime {
+
+    public static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private GtfsTime() {
+    }
+
+    /**
+     * 解析 H:MM:SS 或 HH:MM:SS
+     *
+     * @return 自服务日开始的秒数，可能超过一天；值为空时返回-1
+     */
+    public static int parseSeconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        int first = value.indexOf(':');
+        int second = value.indexOf(':', first + 1);
+        if (first <= 0 || second < 0) {
+            throw new BusinessException("时刻格式错误: " + value);
+        }
+        try {
+            int hours = Integer.parseInt(value, 0, first, 10);
+            int minutes = Integer.parseInt(value, first + 1, second, 10);
+            int seconds = Integer.parseInt(value, second + 1, value.length(), 10);
+            return hours * 3600 + minutes * 60 + seconds;
+        } catch (NumberFormatException e) {
+            throw new BusinessException("时刻格式错误: " + value);
+        }
+    }
+
+    /**
+     * 转换为当日时刻
+     */
+    public static LocalTime toLocalTime(int seconds) {
+        return seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds % SECONDS_PER_DAY);
+    }
+
+    /**
+     * 格式化为 HH:MM:SS，小时数可以超过24
+     *
+     * @param seconds 自服务日开始的秒数
+     */
+    public static String format(int seconds) {
+        int hours = seconds / 3600;
+        int minutes = seconds / 60 % 60;
+        int secs = seconds % 60;
+        char[] chars = new char[hours >= 100 ? 9 : 8];
+        int pos = 0;
+        if (hours >= 100) {
+            chars[pos++] = (char) ('0' + hours / 100);
+        }
+        chars[pos++] = (char) ('0' + hours / 10 % 10);
+        chars[pos++] = (char) ('0' + hours % 10);
+        chars[pos++] = ':';
+        chars[pos++] = (char) ('0' + minutes / 10);
+        chars[pos++] = (char) ('0' + minutes % 10);
+        chars[pos++] = ':';
+        chars[pos++] = (char) ('0' + secs / 10);
+        chars[pos] = (char) ('0' + secs % 10);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,105 @@
+package com.scoding.metro.gtfs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * GTFS 压缩包写入器
+ * 依次写出压缩包中的各个 CSV 文件，每行写出后即进入压缩流，内存占用与数据总量无关。
+ * 字段按 RFC 4180 规则在需要时加引号。不会关闭底层输出流，由调用方负责。
+ *
+ * @author scoheart
+ */
+public class GtfsZipWriter {
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private boolean entryOpen;
+    private long rowCount;
+
+    public GtfsZipWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * 开始写一个文件，并写出表头
+     *
+     * @param fileName 文件名
+     * @param header   列名
+     */
+    public void startFile(String fileName, String... header) throws IOException {
+        closeEntry();
+        zip.putNextEntry(new ZipEntry(fileName));
+        entryOpen = true;
+        writeRow(header);
+        rowCount = 0;
+    }
+
+    /**
+     * 写出一行，null 写为空字段
+     */
+    public void writeRow(String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(values[i]);
+        }
+        writer.write("\r\n");
+        rowCount++;
+    }
+
+    /**
+     * 当前文件已写出的数据行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 结束最后一个文件并写出压缩包目录
+     */
+    public void finish() throws IOException {
+        closeEntry();
+        zip.finish();
+    }
+
+    private void closeEntry() throws IOException {
+        if (entryOpen) {
+            writer.flush();
+            zip.closeEntry();
+            entryOpen = false;
+        }
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -2,8 +2,11 @@ package com.scoding.metro.handler;
 
 import com.scoding.metro.common.R;
 import com.scoding.metro.common.RCode;
+import com.scoding.metro.exception.BusinessException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
@@ -27,6 +30,18 @@ public class GlobalExceptionHandler {
         return R.error(RCode.INTERNAL_SERVER_ERROR, e.getMessage());
     }
 
+    /**
+     * 服务繁忙时返回 503，其余业务异常与未捕获异常一致
+     * 显式指定 JSON 响应类型，流式导出接口被拒绝时也能输出错误信息
+     */
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<R<Void>> handleBusinessException(BusinessException e) {
+        boolean unavailable = e.getCode() == RCode.SERVICE_UNAVAILABLE.getCode();
+        return ResponseEntity.status(unavailable ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(handleException(e));
+    }
+
     @ExceptionHandler({
         BadCredentialsException.class,
         AuthenticationException.class
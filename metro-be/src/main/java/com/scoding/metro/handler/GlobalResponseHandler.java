@@ -2,6 +2,8 @@ package com.scoding.metro.handler;
 
 import com.scoding.metro.common.R;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
@@ -9,6 +11,8 @@ import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import java.util.Collection;
+
 @RestControllerAdvice
 public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
 
@@ -29,6 +33,11 @@ public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
             return body;
         }
 
+        // Binary downloads (including Range responses) are written as-is
+        if (isBinary(body)) {
+            return body;
+        }
+
         // Handle String type specially
         if (body instanceof String) {
             return R.ok(body);
@@ -43,6 +52,15 @@ public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
         return R.ok(body);
     }
 
+    private boolean isBinary(Object body) {
+        if (body instanceof byte[] || body instanceof Resource || body instanceof ResourceRegion) {
+            return true;
+        }
+        return body instanceof Collection<?> collection
+                && !collection.isEmpty()
+                && collection.iterator().next() instanceof ResourceRegion;
+    }
+
     private boolean shouldSkip(String path) {
         return path.contains("/actuator") ||
                path.startsWith("/swagger-ui") ||
@@ -0,0 +1,121 @@
+package com.scoding.metro.job;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台任务
+ * 由执行线程写入进度，查询线程读取，字段均保证可见性；进度只是近似值，不要求与计数器严格一致。
+ *
+ * @author scoheart
+ */
+@Getter
+public class Job {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile JobStatus status = JobStatus.PENDING;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * 当前阶段
+     */
+    private volatile String phase;
+
+    /**
+     * 当前阶段的工作总量，未知时为-1
+     */
+    private volatile long total = -1;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong processed = new AtomicLong();
+
+    private final Map<String, Long> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile String message;
+    private volatile Object result;
+    private volatile boolean cancelRequested;
+
+    @Getter(AccessLevel.NONE)
+    volatile Future<?> future;
+
+    Job(String type) {
+        this.type = type;
+    }
+
+    /**
+     * 进入新阶段并重置进度
+     *
+     * @param phase 阶段名称
+     * @param total 工作总量，未知时传-1
+     */
+    public void startPhase(String phase, long total) {
+        this.phase = phase;
+        this.total = total;
+        this.processed.set(0);
+    }
+
+    /**
+     * 当前阶段已完成的工作量
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public void setProcessed(long processed) {
+        this.processed.set(processed);
+    }
+
+    public void advance(long delta) {
+        processed.addAndGet(delta);
+    }
+
+    /**
+     * 累加命名计数器
+     */
+    public void count(String name, long delta) {
+        counters.merge(name, delta, Long::sum);
+    }
+
+    public Map<String, Long> getCounters() {
+        synchronized (counters) {
+            return new LinkedHashMap<>(counters);
+        }
+    }
+
+    /**
+     * 已请求取消时抛出 {@link JobCancelledException}
+     */
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new JobCancelledException(id);
+        }
+    }
+
+    void requestCancel() {
+        this.cancelRequested = true;
+    }
+
+    void markRunning() {
+        this.startedAt = LocalDateTime.now();
+        this.status = JobStatus.RUNNING;
+    }
+
+    void markFinished(JobStatus status, String message, Object result) {
+        this.message = message;
+        this.result = result;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+}
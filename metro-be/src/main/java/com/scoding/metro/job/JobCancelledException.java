@@ -0,0 +1,15 @@
+package com.scoding.metro.job;
+
+/**
+ * 任务被取消时由 {@link Job#checkCancelled()} 抛出，事务性任务据此回滚
+ *
+ * @author scoheart
+ */
+public class JobCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JobCancelledException(String jobId) {
+        super("任务已取消: " + jobId);
+    }
+}
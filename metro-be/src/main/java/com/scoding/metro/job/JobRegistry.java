@@ -0,0 +1,142 @@
+package com.scoding.metro.job;
+
+import com.scoding.metro.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台任务登记表
+ * 导入、批量计算等耗时操作提交到固定大小的线程池执行，客户端凭任务ID查询进度或请求取消。
+ * 任务只保存在本节点内存中，结束后保留一段时间供查询。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class JobRegistry {
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    @Value("${app.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    public JobRegistry(@Value("${app.jobs.pool-size:2}") int poolSize,
+                       @Value("${app.jobs.queue-capacity:16}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "metro-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 提交后台任务
+     *
+     * @param type 任务类型
+     * @param task 任务执行体
+     * @return 已登记的任务
+     */
+    public Job submit(String type, JobTask task) {
+        Job job = new Job(type);
+        jobs.put(job.getId(), job);
+        try {
+            job.future = executor.submit(() -> execute(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new BusinessException("后台任务过多，请稍后再试");
+        }
+        log.info("提交后台任务 {} ({})", job.getId(), type);
+        return job;
+    }
+
+    /**
+     * 获取任务
+     */
+    public Job get(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new BusinessException("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    /**
+     * 获取所有任务，按创建时间倒序
+     */
+    public List<Job> list() {
+        List<Job> result = new ArrayList<>(jobs.values());
+        result.sort(Comparator.comparing(Job::getCreatedAt).reversed());
+        return result;
+    }
+
+    /**
+     * 请求取消任务
+     * 排队中的任务直接取消；执行中的任务在下一次检查取消标记时结束
+     */
+    public Job cancel(String id) {
+        Job job = get(id);
+        if (job.getStatus().isFinished()) {
+            return job;
+        }
+        job.requestCancel();
+        if (job.getStatus() == JobStatus.PENDING && job.future != null && job.future.cancel(false)) {
+            job.markFinished(JobStatus.CANCELLED, "任务已取消", null);
+        }
+        return job;
+    }
+
+    /**
+     * 清理结束已久的任务
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.purge-interval-ms:600000}")
+    public void purgeFinished() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.getStatus().isFinished()
+                && job.getFinishedAt() != null && job.getFinishedAt().isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void execute(Job job, JobTask task) {
+        if (job.isCancelRequested()) {
+            job.markFinished(JobStatus.CANCELLED, "任务已取消", null);
+            return;
+        }
+        job.markRunning();
+        try {
+            Object result = task.run(job);
+            job.markFinished(JobStatus.SUCCEEDED, null, result);
+            log.info("后台任务 {} ({}) 完成", job.getId(), job.getType());
+        } catch (JobCancelledException e) {
+            job.markFinished(JobStatus.CANCELLED, "任务已取消", null);
+            log.info("后台任务 {} ({}) 已取消", job.getId(), job.getType());
+        } catch (BusinessException e) {
+            job.markFinished(JobStatus.FAILED, e.getMessage(), null);
+            log.warn("后台任务 {} ({}) 失败: {}", job.getId(), job.getType(), e.getMessage());
+        } catch (Exception e) {
+            job.markFinished(JobStatus.FAILED, "任务执行失败: " + e.getMessage(), null);
+            log.error("后台任务 {} ({}) 执行异常", job.getId(), job.getType(), e);
+        }
+    }
+}
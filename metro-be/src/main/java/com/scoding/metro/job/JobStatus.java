@@ -0,0 +1,40 @@
+package com.scoding.metro.job;
+
+/**
+ * 后台任务状态
+ *
+ * @author scoheart
+ */
+public enum JobStatus {
+    /**
+     * 排队中
+     */
+    PENDING,
+
+    /**
+     * 执行中
+     */
+    RUNNING,
+
+    /**
+     * 已完成
+     */
+    SUCCEEDED,
+
+    /**
+     * 执行失败
+     */
+    FAILED,
+
+    /**
+     * 已取消
+     */
+    CANCELLED;
+
+    /**
+     * 是否已结束
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
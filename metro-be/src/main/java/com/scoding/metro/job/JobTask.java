@@ -0,0 +1,18 @@
+package com.scoding.metro.job;
+
+/**
+ * 后台任务的执行体
+ *
+ * @author scoheart
+ */
+@FunctionalInterface
+public interface JobTask {
+
+    /**
+     * 执行任务，执行过程中通过 job 报告进度，并在适当位置调用 {@link Job#checkCancelled()}
+     *
+     * @param job 当前任务
+     * @return 任务结果，会随任务状态一起返回给客户端
+     */
+    Object run(Job job) throws Exception;
+}
@@ -0,0 +1,115 @@
+package com.scoding.metro.loader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 批量加载器
+ * 先通过 {@link #collect(Long)} 登记需要的ID，首次 {@link #get(Long)} 时把所有待加载的ID合并为一条
+ * {@code WHERE id IN (...)} 查询一次取回，结果在加载器生命周期内缓存，从而消除逐行查询的 N+1 问题。
+ * 可指定本地数据源（如路网快照），本地能命中的ID不会进入数据库查询。
+ * 加载器不是线程安全的，应在一次调用（一次请求或一次后台任务）内创建和使用。
+ *
+ * @param <V> 实体类型
+ * @author scoheart
+ */
+public class BatchLoader<V> {
+
+    /**
+     * 单条 IN 查询最多包含的ID数
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final Function<Collection<Long>, List<V>> batchQuery;
+    private final Function<V, Long> idGetter;
+    private final Function<Long, V> localSource;
+
+    private final Map<Long, V> loaded = new HashMap<>();
+    private final Set<Long> pending = new LinkedHashSet<>();
+    private int queryCount;
+
+    public BatchLoader(Function<Collection<Long>, List<V>> batchQuery, Function<V, Long> idGetter,
+                       Function<Long, V> localSource) {
+        this.batchQuery = batchQuery;
+        this.idGetter = idGetter;
+        this.localSource = localSource;
+    }
+
+    /**
+     * 登记一个需要加载的ID，空ID会被忽略
+     *
+     * @param id 实体ID
+     * @return 当前加载器
+     */
+    public BatchLoader<V> collect(Long id) {
+        if (id == null || loaded.containsKey(id) || pending.contains(id)) {
+            return this;
+        }
+        V local = localSource != null ? localSource.apply(id) : null;
+        if (local != null) {
+            loaded.put(id, local);
+        } else {
+            pending.add(id);
+        }
+        return this;
+    }
+
+    /**
+     * 登记多个需要加载的ID
+     *
+     * @param ids 实体ID集合
+     * @return 当前加载器
+     */
+    public BatchLoader<V> collectAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            collect(id);
+        }
+        return this;
+    }
+
+    /**
+     * 获取实体，未加载过的ID会与所有已登记的ID一起批量查询
+     *
+     * @param id 实体ID
+     * @return 实体，不存在时返回null
+     */
+    public V get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        collect(id);
+        if (!pending.isEmpty()) {
+            dispatch();
+        }
+        return loaded.get(id);
+    }
+
+    /**
+     * 已执行的数据库查询次数
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    private void dispatch() {
+        List<Long> ids = new ArrayList<>(pending);
+        pending.clear();
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size()));
+            for (V value : batchQuery.apply(batch)) {
+                loaded.put(idGetter.apply(value), value);
+            }
+            queryCount++;
+            // 数据库中不存在的ID同样记录下来，避免重复查询
+            for (Long id : batch) {
+                loaded.putIfAbsent(id, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.scoding.metro.loader;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.mapper.LineMapper;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.StationMapper;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 地铁基础数据批量加载器工厂
+ * 每次调用创建新的 {@link BatchLoader}，优先从路网快照取数，快照中不存在的ID（如本事务刚写入的数据）
+ * 再通过一条 IN 查询批量回源数据库。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class MetroBatchLoaders {
+
+    private final LineMapper lineMapper;
+    private final StationMapper stationMapper;
+    private final RouteMapper routeMapper;
+
+    public BatchLoader<Line> lines(TransitNetworkSnapshot snapshot) {
+        return new BatchLoader<>(lineMapper::getLinesByIds, Line::getId, snapshot::getLine);
+    }
+
+    public BatchLoader<Station> stations(TransitNetworkSnapshot snapshot) {
+        return new BatchLoader<>(stationMapper::getStationsByIds, Station::getId, snapshot::getStation);
+    }
+
+    /**
+     * 路线加载器，从快照中取到的路线已填充所属线路，从数据库取到的路线需要调用方自行填充
+     */
+    public BatchLoader<Route> routes(TransitNetworkSnapshot snapshot) {
+        return new BatchLoader<>(routeMapper::getRoutesByIds, Route::getId, snapshot::getRoute);
+    }
+}
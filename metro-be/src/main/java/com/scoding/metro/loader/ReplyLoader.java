@@ -0,0 +1,91 @@
+package com.scoding.metro.loader;
+
+import com.scoding.metro.entity.ReplyCountDO;
+import com.scoding.metro.entity.ReplyDO;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.mapper.ReplyMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回复批量加载器
+ * 一次 {@code parent_id IN (...)} 查询取回一批反馈或需求的全部回复，再在内存中按父ID分组，
+ * 代替逐条调用 {@link ReplyMapper#listRepliesByParent}。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class ReplyLoader {
+
+    /**
+     * 单条 IN 查询最多包含的父ID数
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final ReplyMapper replyMapper;
+
+    /**
+     * 批量加载回复并按父ID分组，每组内按创建时间升序
+     *
+     * @param parentIds    父ID集合
+     * @param parentType   父类型(FEEDBACK或REQUEST)
+     * @param latestReplies 每个父记录只取最新的若干条，为空时取全部，为0时不取回复
+     * @return 父ID → 回复列表，没有回复的父ID不在结果中
+     */
+    public Map<Long, List<ReplyDO>> loadReplies(Collection<Long> parentIds, String parentType, Integer latestReplies) {
+        validateLatestReplies(latestReplies);
+        Map<Long, List<ReplyDO>> result = new HashMap<>();
+        if (latestReplies != null && latestReplies == 0) {
+            return result;
+        }
+        for (List<Long> batch : partition(parentIds)) {
+            List<ReplyDO> replies = latestReplies == null
+                    ? replyMapper.listRepliesByParents(batch, parentType)
+                    : replyMapper.listLatestRepliesByParents(batch, parentType, latestReplies);
+            for (ReplyDO reply : replies) {
+                result.computeIfAbsent(reply.getParentId(), id -> new ArrayList<>()).add(reply);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量统计回复数
+     *
+     * @param parentIds  父ID集合
+     * @param parentType 父类型(FEEDBACK或REQUEST)
+     * @return 父ID → 回复数，没有回复的父ID不在结果中
+     */
+    public Map<Long, Integer> countReplies(Collection<Long> parentIds, String parentType) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (List<Long> batch : partition(parentIds)) {
+            for (ReplyCountDO count : replyMapper.countRepliesByParents(batch, parentType)) {
+                result.put(count.getParentId(), count.getReplyCount());
+            }
+        }
+        return result;
+    }
+
+    private static void validateLatestReplies(Integer latestReplies) {
+        if (latestReplies != null && latestReplies < 0) {
+            throw new BusinessException("回复条数不能为负数");
+        }
+    }
+
+    private static List<List<Long>> partition(Collection<Long> parentIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(parentIds));
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            batches.add(ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size())));
+        }
+        return batches;
+    }
+}
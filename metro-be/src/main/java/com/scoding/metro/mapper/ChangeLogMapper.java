@@ -0,0 +1,59 @@
+package com.scoding.metro.mapper;
+
+import com.scoding.metro.entity.ChangeLogDO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ChangeLogMapper {
+    /**
+     * 同步版本前进若干，行锁持有到事务提交，并发的写事务因此按提交顺序取得版本号
+     *
+     * @param count 前进的版本数
+     * @return 影响行数
+     */
+    int incrementVersion(@Param("count") int count);
+
+    /**
+     * 获取当前同步版本
+     *
+     * @return 当前版本
+     */
+    Long getVersion();
+
+    /**
+     * 批量保存变更记录
+     *
+     * @param changeLogs 变更记录列表
+     * @return 影响行数
+     */
+    int saveChangeLogs(@Param("changeLogs") List<ChangeLogDO> changeLogs);
+
+    /**
+     * 获取仍保留的最早版本
+     *
+     * @return 最早版本，日志为空时返回null
+     */
+    Long getOldestVersion();
+
+    /**
+     * 按版本顺序获取区间 (since, until] 内的变更记录
+     *
+     * @param since 起始版本（不含）
+     * @param until 截止版本（含）
+     * @param limit 最多返回条数
+     * @return 变更记录列表
+     */
+    List<ChangeLogDO> listChangeLogs(@Param("since") long since, @Param("until") long until, @Param("limit") int limit);
+
+    /**
+     * 压缩日志：删除早于指定时间的变更记录
+     *
+     * @param before 截止时间
+     * @return 影响行数
+     */
+    int removeChangeLogsBefore(@Param("before") LocalDateTime before);
+}
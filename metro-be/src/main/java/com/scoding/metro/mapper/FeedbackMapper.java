@@ -3,6 +3,7 @@ package com.scoding.metro.mapper;
 import com.scoding.metro.entity.FeedbackDO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 
@@ -15,6 +16,23 @@ public interface FeedbackMapper {
      */
     List<FeedbackDO> listFeedbacks();
 
+    /**
+     * 按ID降序游标分页获取反馈（新的在前）
+     *
+     * @param cursor 上一页最后一条记录的ID，为空时从最新一条开始
+     * @param limit 查询条数
+     * @return 反馈列表
+     */
+    List<FeedbackDO> listFeedbacksPage(@Param("cursor") Long cursor, @Param("limit") int limit);
+
+    /**
+     * 按ID降序流式读取所有反馈
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     *
+     * @return 反馈游标
+     */
+    Cursor<FeedbackDO> streamFeedbacks();
+
     /**
      * 根据ID获取反馈
      *
@@ -2,7 +2,9 @@ package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.Line;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -12,6 +14,8 @@ public interface LineMapper {
     
     Line getLineById(Long id);
     
+    List<Line> getLinesByIds(@Param("ids") Collection<Long> ids);
+    
     Line getLineByCode(String code);
     
     int insertLine(Line line);
@@ -1,9 +1,11 @@
 package com.scoding.metro.mapper;
 
+import com.scoding.metro.entity.ReplyCountDO;
 import com.scoding.metro.entity.ReplyDO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -17,6 +19,38 @@ public interface ReplyMapper {
      */
     List<ReplyDO> listRepliesByParent(@Param("parentId") Long parentId, @Param("parentType") String parentType);
     
+    /**
+     * 批量获取多个父记录的回复，结果按父ID、创建时间排序
+     *
+     * @param parentIds 父ID集合
+     * @param parentType 父类型(FEEDBACK或REQUEST)
+     * @return 回复列表
+     */
+    List<ReplyDO> listRepliesByParents(@Param("parentIds") Collection<Long> parentIds,
+                                       @Param("parentType") String parentType);
+    
+    /**
+     * 批量获取多个父记录各自最新的若干条回复，结果按父ID、创建时间排序
+     *
+     * @param parentIds 父ID集合
+     * @param parentType 父类型(FEEDBACK或REQUEST)
+     * @param limit 每个父记录最多返回的回复数
+     * @return 回复列表
+     */
+    List<ReplyDO> listLatestRepliesByParents(@Param("parentIds") Collection<Long> parentIds,
+                                             @Param("parentType") String parentType,
+                                             @Param("limit") int limit);
+    
+    /**
+     * 批量统计多个父记录的回复数，没有回复的父记录不出现在结果中
+     *
+     * @param parentIds 父ID集合
+     * @param parentType 父类型(FEEDBACK或REQUEST)
+     * @return 回复数列表
+     */
+    List<ReplyCountDO> countRepliesByParents(@Param("parentIds") Collection<Long> parentIds,
+                                             @Param("parentType") String parentType);
+    
     /**
      * 根据ID获取回复
      *
@@ -0,0 +1,35 @@
+package com.scoding.metro.mapper;
+
+import com.scoding.metro.entity.RevokedTokenDO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface RevokedTokenMapper {
+    /**
+     * 保存已吊销的令牌，同一令牌重复吊销时忽略
+     *
+     * @param revokedTokenDO 吊销记录
+     * @return 影响行数
+     */
+    int saveRevokedToken(RevokedTokenDO revokedTokenDO);
+
+    /**
+     * 获取尚未过期的吊销记录
+     *
+     * @param now 当前时间
+     * @return 吊销记录列表
+     */
+    List<RevokedTokenDO> listActiveRevokedTokens(@Param("now") LocalDateTime now);
+
+    /**
+     * 删除已过期的吊销记录（令牌本身已失效，无需再记录）
+     *
+     * @param now 当前时间
+     * @return 影响行数
+     */
+    int removeExpiredRevokedTokens(@Param("now") LocalDateTime now);
+}
@@ -2,7 +2,9 @@ package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.Route;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -12,6 +14,8 @@ public interface RouteMapper {
     
     Route getRouteById(Long id);
     
+    List<Route> getRoutesByIds(@Param("ids") Collection<Long> ids);
+    
     List<Route> getRoutesByLineId(Long lineId);
     
     Route getRouteByLineIdAndName(Long lineId, String name);
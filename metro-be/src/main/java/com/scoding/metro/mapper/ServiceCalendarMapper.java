@@ -0,0 +1,99 @@
+package com.scoding.metro.mapper;
+
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 运营日历数据访问接口
+ */
+@Mapper
+public interface ServiceCalendarMapper {
+
+    /**
+     * 查询所有运营日历，不含例外日期
+     *
+     * @return 运营日历列表
+     */
+    List<ServiceCalendar> selectAll();
+
+    /**
+     * 查询与日期范围有交集的运营日历，不含例外日期
+     *
+     * @param startDate 起始日期（含），为空时不限
+     * @param endDate 结束日期（含），为空时不限
+     * @return 运营日历列表
+     */
+    List<ServiceCalendar> selectOverlapping(@Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 根据ID查询运营日历，不含例外日期
+     *
+     * @param id 运营日历ID
+     * @return 运营日历
+     */
+    ServiceCalendar selectById(Long id);
+
+    /**
+     * 查询运营日历的例外日期
+     *
+     * @param calendarId 运营日历ID
+     * @return 按日期排序的例外日期
+     */
+    List<ServiceCalendarDate> selectDatesByCalendarId(Long calendarId);
+
+    /**
+     * 查询日期范围内的所有例外日期
+     *
+     * @param startDate 起始日期（含），为空时不限
+     * @param endDate 结束日期（含），为空时不限
+     * @return 按运营日历、日期排序的例外日期
+     */
+    List<ServiceCalendarDate> selectDatesBetween(@Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+
+    /**
+     * 插入运营日历
+     *
+     * @param calendar 运营日历
+     * @return 影响行数
+     */
+    int insert(ServiceCalendar calendar);
+
+    /**
+     * 更新运营日历
+     *
+     * @param calendar 运营日历
+     * @return 影响行数
+     */
+    int update(ServiceCalendar calendar);
+
+    /**
+     * 删除运营日历
+     *
+     * @param id 运营日历ID
+     * @return 影响行数
+     */
+    int delete(Long id);
+
+    /**
+     * 批量插入例外日期
+     *
+     * @param dates 例外日期，不能为空
+     * @return 影响行数
+     */
+    int insertDates(@Param("dates") List<ServiceCalendarDate> dates);
+
+    /**
+     * 删除运营日历的所有例外日期
+     *
+     * @param calendarId 运营日历ID
+     * @return 影响行数
+     */
+    int deleteDatesByCalendarId(Long calendarId);
+}
@@ -2,7 +2,9 @@ package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.Station;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -12,6 +14,8 @@ public interface StationMapper {
     
     Station getStationById(Long id);
     
+    List<Station> getStationsByIds(@Param("ids") Collection<Long> ids);
+    
     Station getStationByCode(String code);
     
     List<Station> getStationsByLineId(Long lineId);
@@ -20,6 +24,11 @@ public interface StationMapper {
     
     int insertStation(Station station);
     
+    /**
+     * 用一条多行 INSERT 批量插入站点，生成的ID回填到各对象
+     */
+    int insertStations(@Param("stations") List<Station> stations);
+    
     int updateStation(Station station);
     
     int deleteStation(Long id);
@@ -2,7 +2,9 @@ package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.Stop;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -12,15 +14,36 @@ public interface StopMapper {
     
     Stop getStopById(Long id);
     
+    List<Stop> getStopsByIds(@Param("ids") Collection<Long> ids);
+    
     List<Stop> getStopsByRouteId(Long routeId);
     
     List<Stop> getStopsByStationId(Long stationId);
     
     Stop getStopByRouteAndStation(Long routeId, Long stationId);
     
+    /**
+     * 按序号获取路线的停靠点并加行锁（不关联路线和站点）
+     */
+    List<Stop> getStopsByRouteIdForUpdate(Long routeId);
+    
     int insertStop(Stop stop);
     
+    /**
+     * 用一条多行 INSERT 批量插入停靠点，生成的ID回填到各对象
+     */
+    int insertStops(@Param("stops") List<Stop> stops);
+    
     int updateStop(Stop stop);
     
+    /**
+     * 批量更新同一路线下停靠点的序号
+     *
+     * @param routeId 路线ID
+     * @param stops   停靠点（仅使用ID和序号），不能为空
+     * @return 影响行数
+     */
+    int updateStopSeqs(@Param("routeId") Long routeId, @Param("stops") List<Stop> stops);
+    
     int deleteStop(Long id);
 } 
\ No newline at end of file
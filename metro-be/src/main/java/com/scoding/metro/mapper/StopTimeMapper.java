@@ -1,8 +1,12 @@
 package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.StopTimeExportDO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -19,6 +23,35 @@ public interface StopTimeMapper {
      */
     List<StopTime> selectAll();
     
+    /**
+     * 按ID升序游标分页查询到站时刻
+     * 
+     * @param cursor 上一页最后一条记录的ID，为空时从头开始
+     * @param limit 查询条数
+     * @return 到站时刻列表
+     */
+    List<StopTime> selectPage(@Param("cursor") Long cursor, @Param("limit") int limit);
+    
+    /**
+     * 按ID升序流式读取所有到站时刻
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     * 
+     * @return 到站时刻游标
+     */
+    Cursor<StopTime> streamAll();
+    
+    /**
+     * 按列车行程ID、行程内顺序流式读取到站时刻，停靠点换算为车站
+     * 运营日历与日期范围有交集的行程全部包含
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     * 
+     * @param startDate 起始运行日期（含），为空时不限
+     * @param endDate 结束运行日期（含），为空时不限
+     * @return 到站时刻游标
+     */
+    Cursor<StopTimeExportDO> streamForExport(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+    
     /**
      * 根据ID查询到站时刻
      * 
@@ -43,6 +76,15 @@ public interface StopTimeMapper {
      */
     List<StopTime> selectByStopId(Long stopId);
     
+    /**
+     * 查询某运行日期所有列车行程的到站时刻，包括当天按运营日历运行的行程
+     * 结果按列车行程ID、行程内顺序排序
+     * 
+     * @param runDate 运行日期
+     * @return 到站时刻列表
+     */
+    List<StopTime> selectByRunDate(LocalDate runDate);
+    
     /**
      * 插入到站时刻
      * 
@@ -51,6 +93,14 @@ public interface StopTimeMapper {
      */
     int insert(StopTime stopTime);
     
+    /**
+     * 用一条多行 INSERT 批量插入到站时刻
+     * 
+     * @param stopTimes 到站时刻列表，不能为空
+     * @return 影响行数
+     */
+    int insertBatch(@Param("stopTimes") List<StopTime> stopTimes);
+    
     /**
      * 更新到站时刻
      * 
@@ -66,4 +116,12 @@ public interface StopTimeMapper {
      * @return 影响行数
      */
     int delete(Long id);
+    
+    /**
+     * 删除多个列车行程的到站时刻
+     * 
+     * @param trainTripIds 列车行程ID，不能为空
+     * @return 影响行数
+     */
+    int deleteByTrainTripIds(@Param("trainTripIds") List<Long> trainTripIds);
 } 
\ No newline at end of file
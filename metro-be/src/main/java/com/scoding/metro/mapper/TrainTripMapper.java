@@ -2,7 +2,10 @@ package com.scoding.metro.mapper;
 
 import com.scoding.metro.entity.TrainTrip;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -19,6 +22,34 @@ public interface TrainTripMapper {
      */
     List<TrainTrip> selectAll();
     
+    /**
+     * 按ID升序游标分页查询列车行程
+     * 
+     * @param cursor 上一页最后一条记录的ID，为空时从头开始
+     * @param limit 查询条数
+     * @return 列车行程列表
+     */
+    List<TrainTrip> selectPage(@Param("cursor") Long cursor, @Param("limit") int limit);
+    
+    /**
+     * 按ID升序流式读取所有列车行程
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     * 
+     * @return 列车行程游标
+     */
+    Cursor<TrainTrip> streamAll();
+    
+    /**
+     * 按ID升序流式读取运行日期范围内的列车行程，运营日历与范围有交集的行程全部包含且不展开
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     * 
+     * @param startDate 起始运行日期（含），为空时不限
+     * @param endDate 结束运行日期（含），为空时不限
+     * @return 列车行程游标
+     */
+    Cursor<TrainTrip> streamByRunDate(@Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+    
     /**
      * 根据ID查询列车行程
      * 
@@ -35,6 +66,43 @@ public interface TrainTripMapper {
      */
     List<TrainTrip> selectByRouteId(Long routeId);
     
+    /**
+     * 根据运行日期查询列车行程
+     * 当天按运营日历运行的行程一并返回，其运行日期填为查询的日期
+     * 
+     * @param runDate 运行日期
+     * @return 列车行程列表
+     */
+    List<TrainTrip> selectByRunDate(LocalDate runDate);
+    
+    /**
+     * 统计使用某运营日历的列车行程数
+     * 
+     * @param serviceId 运营日历ID
+     * @return 列车行程数
+     */
+    int countByServiceId(Long serviceId);
+    
+    /**
+     * 查询路线在日期范围内已有列车行程的运行日期
+     * 
+     * @param routeId 路线ID
+     * @param startDate 起始日期
+     * @param endDate 结束日期（含）
+     * @return 去重后的运行日期
+     */
+    List<LocalDate> selectRunDatesByRoute(@Param("routeId") Long routeId,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
+    /**
+     * 查询路线上按运营日历运行的列车行程所使用的日历ID
+     * 
+     * @param routeId 路线ID
+     * @return 去重后的日历ID
+     */
+    List<Long> selectServiceIdsByRoute(Long routeId);
+    
     /**
      * 插入列车行程
      * 
@@ -43,6 +111,14 @@ public interface TrainTripMapper {
      */
     int insert(TrainTrip trainTrip);
     
+    /**
+     * 用一条多行 INSERT 批量插入列车行程，生成的ID回填到各对象
+     * 
+     * @param trainTrips 列车行程列表，不能为空
+     * @return 影响行数
+     */
+    int insertBatch(@Param("trainTrips") List<TrainTrip> trainTrips);
+    
     /**
      * 更新列车行程
      * 
@@ -58,4 +134,21 @@ public interface TrainTripMapper {
      * @return 影响行数
      */
     int delete(Long id);
+    
+    /**
+     * 把列车行程改为按运营日历运行，运行日期置空
+     * 
+     * @param ids 列车行程ID，不能为空
+     * @param serviceId 运营日历ID
+     * @return 影响行数
+     */
+    int assignServiceCalendar(@Param("ids") List<Long> ids, @Param("serviceId") Long serviceId);
+    
+    /**
+     * 批量删除列车行程
+     * 
+     * @param ids 列车行程ID，不能为空
+     * @return 影响行数
+     */
+    int deleteByIds(@Param("ids") List<Long> ids);
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.scoding.metro.mapper;
 import com.scoding.metro.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 
@@ -73,6 +74,24 @@ public interface UserMapper {
      */
     List<User> listAllWithRoles();
     
+    /**
+     * 按ID升序游标分页获取用户（包含角色信息）
+     * 先在用户表上分页再关联角色，保证每页的用户数不受角色数影响
+     *
+     * @param cursor 上一页最后一个用户的ID，为空时从头开始
+     * @param limit 查询的用户数
+     * @return 用户列表
+     */
+    List<User> listPageWithRoles(@Param("cursor") Long cursor, @Param("limit") int limit);
+    
+    /**
+     * 按ID升序流式读取所有用户（包含角色信息）
+     * 必须在事务内使用并读完，期间同一连接不能执行其他查询
+     *
+     * @return 用户游标
+     */
+    Cursor<User> streamAllWithRoles();
+    
     /**
      * 根据ID获取用户信息（包含角色信息）
      *
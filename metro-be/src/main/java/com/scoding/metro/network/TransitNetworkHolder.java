@@ -0,0 +1,127 @@
+package com.scoding.metro.network;
+
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.mapper.LineMapper;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.StationMapper;
+import com.scoding.metro.mapper.StopMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 路网快照持有者
+ * 通过原子引用发布当前的 {@link TransitNetworkSnapshot}，读请求直接从堆内快照取数。
+ * 任何线路、站点、路线、停靠点的写操作在事务提交后都会将快照标记为过期，
+ * 下一次读取时重新从数据库全量构建并原子替换；同一事务内的多次写操作只触发一次重建。
+ * 事务内的读取不触发重建：重建会读到本事务未提交的数据并发布给所有读请求，而事务回滚时不会再发出变更事件。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransitNetworkHolder {
+
+    private final LineMapper lineMapper;
+    private final StationMapper stationMapper;
+    private final RouteMapper routeMapper;
+    private final StopMapper stopMapper;
+
+    private final AtomicReference<TransitNetworkSnapshot> current = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 获取当前快照，过期时先重建；处于事务中时直接返回已发布的快照
+     *
+     * @return 当前快照
+     */
+    public TransitNetworkSnapshot get() {
+        TransitNetworkSnapshot snapshot = current.get();
+        if (snapshot != null && !stale.get()) {
+            return snapshot;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 尚无已发布的快照时临时构建一份，不发布、不占用版本号
+            return snapshot != null ? snapshot : load(0L);
+        }
+        return rebuild();
+    }
+
+    /**
+     * 重新构建快照
+     * 构建失败时若已有旧快照则继续使用旧快照，否则抛出异常
+     *
+     * @return 最新快照
+     */
+    public TransitNetworkSnapshot rebuild() {
+        synchronized (rebuildLock) {
+            TransitNetworkSnapshot previous = current.get();
+            if (previous != null && !stale.get()) {
+                return previous;
+            }
+            // 先清除过期标记，构建期间若有新的写操作提交会再次标记
+            stale.set(false);
+            try {
+                long start = System.nanoTime();
+                TransitNetworkSnapshot snapshot = load(versionSequence.incrementAndGet());
+                current.set(snapshot);
+                log.info("路网快照已重建: version={}, 线路={}, 站点={}, 路线={}, 停靠点={}, 耗时={}ms",
+                        snapshot.getVersion(), snapshot.lineCount(), snapshot.stationCount(),
+                        snapshot.routeCount(), snapshot.stopCount(), (System.nanoTime() - start) / 1_000_000);
+                return snapshot;
+            } catch (RuntimeException e) {
+                stale.set(true);
+                if (previous == null) {
+                    throw e;
+                }
+                log.warn("路网快照重建失败，继续使用旧快照 version={}", previous.getVersion(), e);
+                return previous;
+            }
+        }
+    }
+
+    private TransitNetworkSnapshot load(long version) {
+        return TransitNetworkSnapshot.build(
+                version,
+                lineMapper.getAllLines(),
+                stationMapper.getAllStations(),
+                routeMapper.getAllRoutes(),
+                stopMapper.getAllStops());
+    }
+
+    /**
+     * 应用启动后预热快照
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("路网快照预热失败，将在首次读取时重试", e);
+        }
+    }
+
+    /**
+     * 路网数据变更（事务提交后）时将快照标记为过期
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        if (event.getAggregate().isTopology()) {
+            stale.set(true);
+        }
+    }
+}
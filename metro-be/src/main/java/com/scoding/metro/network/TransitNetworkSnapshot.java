@@ -0,0 +1,630 @@
+package com.scoding.metro.network;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 路网不可变快照
+ * 一次性从 line、station、route、stop 表构建，所有数据按ID排序存放在基本类型数组中，
+ * 通过二分查找定位下标；路线→停靠点、站点→停靠点、线路→路线的关系使用CSR（offset + 下标）数组表示。
+ * 快照构建完成后不再修改，可被任意线程无锁并发读取。
+ * 对外返回的实体对象均为每次新建的副本，调用方修改它们不会影响快照本身。
+ *
+ * @author scoheart
+ */
+public final class TransitNetworkSnapshot {
+
+    /**
+     * 空ID占位（数据库自增ID从1开始）
+     */
+    private static final long NO_ID = 0L;
+
+    private final long version;
+    private final long builtAt;
+
+    // 线路
+    private final long[] lineIds;
+    private final String[] lineNames;
+    private final String[] lineCodes;
+    private final String[] lineColors;
+    private final String[] lineOperators;
+    private final int[] lineRouteOffsets;
+    private final int[] lineRoutes;
+
+    // 站点
+    private final long[] stationIds;
+    private final String[] stationNames;
+    private final String[] stationCodes;
+    private final int[] stationStopOffsets;
+    private final int[] stationStops;
+
+    // 路线
+    private final long[] routeIds;
+    private final String[] routeNames;
+    private final long[] routeLineIds;
+    private final long[] routeStartStationIds;
+    private final long[] routeEndStationIds;
+    private final int[] routeLine;
+    private final int[] routeStopOffsets;
+    private final int[] routeStops;
+
+    // 停靠点
+    private final long[] stopIds;
+    private final long[] stopRouteIds;
+    private final long[] stopStationIds;
+    private final int[] stopSeqs;
+    private final int[] stopOrdinals;
+    private final int[] stopRoute;
+    private final int[] stopStation;
+
+    private TransitNetworkSnapshot(long version, List<Line> lines, List<Station> stations,
+                                   List<Route> routes, List<Stop> stops) {
+        this.version = version;
+        this.builtAt = System.currentTimeMillis();
+
+        List<Line> sortedLines = sortedById(lines, Line::getId);
+        List<Station> sortedStations = sortedById(stations, Station::getId);
+        List<Route> sortedRoutes = sortedById(routes, Route::getId);
+        List<Stop> sortedStops = sortedById(stops, Stop::getId);
+
+        int lineCount = sortedLines.size();
+        lineIds = new long[lineCount];
+        lineNames = new String[lineCount];
+        lineCodes = new String[lineCount];
+        lineColors = new String[lineCount];
+        lineOperators = new String[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            Line line = sortedLines.get(i);
+            lineIds[i] = line.getId();
+            lineNames[i] = line.getName();
+            lineCodes[i] = line.getCode();
+            lineColors[i] = line.getColor();
+            lineOperators[i] = line.getOperator();
+        }
+
+        int stationCount = sortedStations.size();
+        stationIds = new long[stationCount];
+        stationNames = new String[stationCount];
+        stationCodes = new String[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            Station station = sortedStations.get(i);
+            stationIds[i] = station.getId();
+            stationNames[i] = station.getName();
+            stationCodes[i] = station.getCode();
+        }
+
+        int routeCount = sortedRoutes.size();
+        routeIds = new long[routeCount];
+        routeNames = new String[routeCount];
+        routeLineIds = new long[routeCount];
+        routeStartStationIds = new long[routeCount];
+        routeEndStationIds = new long[routeCount];
+        routeLine = new int[routeCount];
+        for (int i = 0; i < routeCount; i++) {
+            Route route = sortedRoutes.get(i);
+            routeIds[i] = route.getId();
+            routeNames[i] = route.getName();
+            routeLineIds[i] = toPrimitive(route.getLineId());
+            routeStartStationIds[i] = toPrimitive(route.getStartStationId());
+            routeEndStationIds[i] = toPrimitive(route.getEndStationId());
+            routeLine[i] = indexOf(lineIds, route.getLineId());
+        }
+
+        int stopCount = sortedStops.size();
+        stopIds = new long[stopCount];
+        stopRouteIds = new long[stopCount];
+        stopStationIds = new long[stopCount];
+        stopSeqs = new int[stopCount];
+        stopOrdinals = new int[stopCount];
+        stopRoute = new int[stopCount];
+        stopStation = new int[stopCount];
+        for (int i = 0; i < stopCount; i++) {
+            Stop stop = sortedStops.get(i);
+            stopIds[i] = stop.getId();
+            stopRouteIds[i] = toPrimitive(stop.getRouteId());
+            stopStationIds[i] = toPrimitive(stop.getStationId());
+            stopSeqs[i] = stop.getSeq() != null ? stop.getSeq() : 0;
+            stopRoute[i] = indexOf(routeIds, stop.getRouteId());
+            stopStation[i] = indexOf(stationIds, stop.getStationId());
+        }
+
+        // 线路 → 路线（按路线ID排序）
+        lineRouteOffsets = new int[lineCount + 1];
+        for (int r = 0; r < routeCount; r++) {
+            if (routeLine[r] >= 0) {
+                lineRouteOffsets[routeLine[r] + 1]++;
+            }
+        }
+        prefixSum(lineRouteOffsets);
+        lineRoutes = new int[lineRouteOffsets[lineCount]];
+        int[] lineFill = Arrays.copyOf(lineRouteOffsets, lineCount);
+        for (int r = 0; r < routeCount; r++) {
+            if (routeLine[r] >= 0) {
+                lineRoutes[lineFill[routeLine[r]]++] = r;
+            }
+        }
+
+        // 站点 → 停靠点（按停靠点ID排序）
+        stationStopOffsets = new int[stationCount + 1];
+        for (int s = 0; s < stopCount; s++) {
+            if (stopStation[s] >= 0) {
+                stationStopOffsets[stopStation[s] + 1]++;
+            }
+        }
+        prefixSum(stationStopOffsets);
+        stationStops = new int[stationStopOffsets[stationCount]];
+        int[] stationFill = Arrays.copyOf(stationStopOffsets, stationCount);
+        for (int s = 0; s < stopCount; s++) {
+            if (stopStation[s] >= 0) {
+                stationStops[stationFill[stopStation[s]]++] = s;
+            }
+        }
+
+        // 路线 → 停靠点（按序号排序，序号相同时按ID排序）
+        routeStopOffsets = new int[routeCount + 1];
+        for (int s = 0; s < stopCount; s++) {
+            if (stopRoute[s] >= 0) {
+                routeStopOffsets[stopRoute[s] + 1]++;
+            }
+        }
+        prefixSum(routeStopOffsets);
+        routeStops = new int[routeStopOffsets[routeCount]];
+        Integer[] bySeq = new Integer[stopCount];
+        for (int s = 0; s < stopCount; s++) {
+            bySeq[s] = s;
+        }
+        Arrays.sort(bySeq, Comparator.<Integer>comparingInt(s -> stopSeqs[s]).thenComparingInt(s -> s));
+        int[] routeFill = Arrays.copyOf(routeStopOffsets, routeCount);
+        for (int s : bySeq) {
+            if (stopRoute[s] >= 0) {
+                int pos = routeFill[stopRoute[s]]++;
+                routeStops[pos] = s;
+                stopOrdinals[s] = pos - routeStopOffsets[stopRoute[s]] + 1;
+            }
+        }
+    }
+
+    /**
+     * 根据数据库中的全量数据构建快照
+     *
+     * @param version  快照版本号
+     * @param lines    全部线路
+     * @param stations 全部站点
+     * @param routes   全部路线
+     * @param stops    全部停靠点
+     * @return 快照
+     */
+    public static TransitNetworkSnapshot build(long version, List<Line> lines, List<Station> stations,
+                                               List<Route> routes, List<Stop> stops) {
+        return new TransitNetworkSnapshot(version, lines, stations, routes, stops);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    //********************* 下标访问 *********************//
+
+    public int lineCount() {
+        return lineIds.length;
+    }
+
+    public int stationCount() {
+        return stationIds.length;
+    }
+
+    public int routeCount() {
+        return routeIds.length;
+    }
+
+    public int stopCount() {
+        return stopIds.length;
+    }
+
+    public int lineIndex(Long lineId) {
+        return indexOf(lineIds, lineId);
+    }
+
+    public int stationIndex(Long stationId) {
+        return indexOf(stationIds, stationId);
+    }
+
+    public int routeIndex(Long routeId) {
+        return indexOf(routeIds, routeId);
+    }
+
+    public int stopIndex(Long stopId) {
+        return indexOf(stopIds, stopId);
+    }
+
+    public long lineId(int lineIdx) {
+        return lineIds[lineIdx];
+    }
+
+    public long stationId(int stationIdx) {
+        return stationIds[stationIdx];
+    }
+
+    public long routeId(int routeIdx) {
+        return routeIds[routeIdx];
+    }
+
+    public long stopId(int stopIdx) {
+        return stopIds[stopIdx];
+    }
+
+    public String stationNameAt(int stationIdx) {
+        return stationNames[stationIdx];
+    }
+
+    public String stationCodeAt(int stationIdx) {
+        return stationCodes[stationIdx];
+    }
+
+    public String routeNameAt(int routeIdx) {
+        return routeNames[routeIdx];
+    }
+
+    /**
+     * 路线所属线路的下标，线路不存在时返回-1
+     */
+    public int routeLineAt(int routeIdx) {
+        return routeLine[routeIdx];
+    }
+
+    /**
+     * 停靠点所属路线的下标，路线不存在时返回-1
+     */
+    public int stopRouteAt(int stopIdx) {
+        return stopRoute[stopIdx];
+    }
+
+    /**
+     * 停靠点对应站点的下标，站点不存在时返回-1
+     */
+    public int stopStationAt(int stopIdx) {
+        return stopStation[stopIdx];
+    }
+
+    public int stopSeqAt(int stopIdx) {
+        return stopSeqs[stopIdx];
+    }
+
+    /**
+     * 路线的停靠点下标（按序号排列），返回的是内部数组的副本
+     */
+    public int[] routeStopsAt(int routeIdx) {
+        return Arrays.copyOfRange(routeStops, routeStopOffsets[routeIdx], routeStopOffsets[routeIdx + 1]);
+    }
+
+    /**
+     * 经过某站点的停靠点下标，返回的是内部数组的副本
+     */
+    public int[] stationStopsAt(int stationIdx) {
+        return Arrays.copyOfRange(stationStops, stationStopOffsets[stationIdx], stationStopOffsets[stationIdx + 1]);
+    }
+
+    //********************* 实体访问 *********************//
+
+    public List<Line> getLines() {
+        List<Line> result = new ArrayList<>(lineIds.length);
+        for (int i = 0; i < lineIds.length; i++) {
+            result.add(lineAt(i));
+        }
+        return result;
+    }
+
+    public Line getLine(Long id) {
+        int idx = indexOf(lineIds, id);
+        return idx < 0 ? null : lineAt(idx);
+    }
+
+    public Line getLineByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (int i = 0; i < lineCodes.length; i++) {
+            if (code.equals(lineCodes[i])) {
+                return lineAt(i);
+            }
+        }
+        return null;
+    }
+
+    public String getLineName(Long id) {
+        int idx = indexOf(lineIds, id);
+        return idx < 0 ? null : lineNames[idx];
+    }
+
+    public List<Station> getStations() {
+        List<Station> result = new ArrayList<>(stationIds.length);
+        for (int i = 0; i < stationIds.length; i++) {
+            result.add(stationAt(i));
+        }
+        return result;
+    }
+
+    public Station getStation(Long id) {
+        int idx = indexOf(stationIds, id);
+        return idx < 0 ? null : stationAt(idx);
+    }
+
+    public Station getStationByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (int i = 0; i < stationCodes.length; i++) {
+            if (code.equals(stationCodes[i])) {
+                return stationAt(i);
+            }
+        }
+        return null;
+    }
+
+    public String getStationName(Long id) {
+        int idx = indexOf(stationIds, id);
+        return idx < 0 ? null : stationNames[idx];
+    }
+
+    /**
+     * 获取路线沿线站点（按停靠顺序）
+     */
+    public List<Station> getStationsByRoute(Long routeId) {
+        int routeIdx = indexOf(routeIds, routeId);
+        if (routeIdx < 0) {
+            return Collections.emptyList();
+        }
+        List<Station> result = new ArrayList<>(routeStopOffsets[routeIdx + 1] - routeStopOffsets[routeIdx]);
+        for (int i = routeStopOffsets[routeIdx]; i < routeStopOffsets[routeIdx + 1]; i++) {
+            int stationIdx = stopStation[routeStops[i]];
+            if (stationIdx >= 0) {
+                result.add(stationAt(stationIdx));
+            }
+        }
+        return result;
+    }
+
+    public List<Route> getRoutes() {
+        List<Route> result = new ArrayList<>(routeIds.length);
+        for (int i = 0; i < routeIds.length; i++) {
+            result.add(routeAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * 获取路线，返回的路线已填充所属线路
+     */
+    public Route getRoute(Long id) {
+        int idx = indexOf(routeIds, id);
+        return idx < 0 ? null : routeAt(idx);
+    }
+
+    public String getRouteName(Long id) {
+        int idx = indexOf(routeIds, id);
+        return idx < 0 ? null : routeNames[idx];
+    }
+
+    public List<Route> getRoutesByLine(Long lineId) {
+        int lineIdx = indexOf(lineIds, lineId);
+        if (lineIdx < 0) {
+            return Collections.emptyList();
+        }
+        List<Route> result = new ArrayList<>(lineRouteOffsets[lineIdx + 1] - lineRouteOffsets[lineIdx]);
+        for (int i = lineRouteOffsets[lineIdx]; i < lineRouteOffsets[lineIdx + 1]; i++) {
+            result.add(routeAt(lineRoutes[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 查找先经过站点1、后经过站点2的路线
+     */
+    public List<Route> findRoutesConnecting(Long stationId1, Long stationId2) {
+        int from = indexOf(stationIds, stationId1);
+        int to = indexOf(stationIds, stationId2);
+        if (from < 0 || to < 0) {
+            return Collections.emptyList();
+        }
+        List<Route> result = new ArrayList<>();
+        for (int i = stationStopOffsets[from]; i < stationStopOffsets[from + 1]; i++) {
+            int fromStop = stationStops[i];
+            int routeIdx = stopRoute[fromStop];
+            if (routeIdx < 0) {
+                continue;
+            }
+            for (int j = stationStopOffsets[to]; j < stationStopOffsets[to + 1]; j++) {
+                int toStop = stationStops[j];
+                if (stopRoute[toStop] == routeIdx && stopSeqs[fromStop] < stopSeqs[toStop]) {
+                    result.add(routeAt(routeIdx));
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<Stop> getStops() {
+        List<Stop> result = new ArrayList<>(stopIds.length);
+        for (int i = 0; i < stopIds.length; i++) {
+            result.add(stopAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * 按ID升序获取ID大于游标的停靠点
+     *
+     * @param cursor 游标，为空时从第一条开始
+     * @param limit  最多返回条数
+     */
+    public List<Stop> getStopsAfter(Long cursor, int limit) {
+        int from = 0;
+        if (cursor != null) {
+            int idx = Arrays.binarySearch(stopIds, cursor);
+            from = idx >= 0 ? idx + 1 : -idx - 1;
+        }
+        int to = (int) Math.min(stopIds.length, (long) from + limit);
+        List<Stop> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(stopAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * 获取停靠点，返回的停靠点已填充路线与站点
+     */
+    public Stop getStop(Long id) {
+        int idx = indexOf(stopIds, id);
+        return idx < 0 ? null : stopAt(idx);
+    }
+
+    /**
+     * 获取路线的停靠点（按序号排列）
+     */
+    public List<Stop> getStopsByRoute(Long routeId) {
+        int routeIdx = indexOf(routeIds, routeId);
+        if (routeIdx < 0) {
+            return Collections.emptyList();
+        }
+        List<Stop> result = new ArrayList<>(routeStopOffsets[routeIdx + 1] - routeStopOffsets[routeIdx]);
+        for (int i = routeStopOffsets[routeIdx]; i < routeStopOffsets[routeIdx + 1]; i++) {
+            result.add(stopAt(routeStops[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 停靠点在所属路线中的位置（从1开始）
+     * 数据库中的序号是稀疏的，只表示先后顺序，对外展示和提交的都是这里的位置
+     *
+     * @return 位置，停靠点不存在或未关联路线时返回0
+     */
+    public int stopOrdinal(Long stopId) {
+        int idx = indexOf(stopIds, stopId);
+        return idx < 0 ? 0 : stopOrdinals[idx];
+    }
+
+    public List<Stop> getStopsByStation(Long stationId) {
+        int stationIdx = indexOf(stationIds, stationId);
+        if (stationIdx < 0) {
+            return Collections.emptyList();
+        }
+        List<Stop> result = new ArrayList<>(stationStopOffsets[stationIdx + 1] - stationStopOffsets[stationIdx]);
+        for (int i = stationStopOffsets[stationIdx]; i < stationStopOffsets[stationIdx + 1]; i++) {
+            result.add(stopAt(stationStops[i]));
+        }
+        return result;
+    }
+
+    public Stop getStopByRouteAndStation(Long routeId, Long stationId) {
+        int routeIdx = indexOf(routeIds, routeId);
+        int stationIdx = indexOf(stationIds, stationId);
+        if (routeIdx < 0 || stationIdx < 0) {
+            return null;
+        }
+        for (int i = stationStopOffsets[stationIdx]; i < stationStopOffsets[stationIdx + 1]; i++) {
+            if (stopRoute[stationStops[i]] == routeIdx) {
+                return stopAt(stationStops[i]);
+            }
+        }
+        return null;
+    }
+
+    //********************* 内部方法 *********************//
+
+    private Line lineAt(int idx) {
+        Line line = new Line();
+        line.setId(lineIds[idx]);
+        line.setName(lineNames[idx]);
+        line.setCode(lineCodes[idx]);
+        line.setColor(lineColors[idx]);
+        line.setOperator(lineOperators[idx]);
+        return line;
+    }
+
+    private Station stationAt(int idx) {
+        Station station = new Station();
+        station.setId(stationIds[idx]);
+        station.setName(stationNames[idx]);
+        station.setCode(stationCodes[idx]);
+        return station;
+    }
+
+    private Route routeAt(int idx) {
+        Route route = new Route();
+        route.setId(routeIds[idx]);
+        route.setName(routeNames[idx]);
+        route.setLineId(toObject(routeLineIds[idx]));
+        route.setStartStationId(toObject(routeStartStationIds[idx]));
+        route.setEndStationId(toObject(routeEndStationIds[idx]));
+        if (routeLine[idx] >= 0) {
+            route.setLine(lineAt(routeLine[idx]));
+        }
+        return route;
+    }
+
+    private Stop stopAt(int idx) {
+        Stop stop = new Stop();
+        stop.setId(stopIds[idx]);
+        stop.setRouteId(toObject(stopRouteIds[idx]));
+        stop.setStationId(toObject(stopStationIds[idx]));
+        stop.setSeq(stopSeqs[idx]);
+        if (stopRoute[idx] >= 0) {
+            Route route = new Route();
+            route.setId(routeIds[stopRoute[idx]]);
+            route.setName(routeNames[stopRoute[idx]]);
+            stop.setRoute(route);
+        }
+        if (stopStation[idx] >= 0) {
+            stop.setStation(stationAt(stopStation[idx]));
+        }
+        return stop;
+    }
+
+    private static <T> List<T> sortedById(List<T> items, Function<T, Long> idGetter) {
+        List<T> sorted = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (idGetter.apply(item) != null) {
+                sorted.add(item);
+            }
+        }
+        sorted.sort(Comparator.comparing(idGetter));
+        return sorted;
+    }
+
+    private static int indexOf(long[] ids, Long id) {
+        if (id == null) {
+            return -1;
+        }
+        int idx = Arrays.binarySearch(ids, id);
+        return idx < 0 ? -1 : idx;
+    }
+
+    private static void prefixSum(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+    }
+
+    private static long toPrimitive(Long id) {
+        return id == null ? NO_ID : id;
+    }
+
+    private static Long toObject(long id) {
+        return id == NO_ID ? null : id;
+    }
+}
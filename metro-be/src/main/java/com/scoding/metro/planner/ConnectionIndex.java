@@ -0,0 +1,115 @@
+package com.scoding.metro.planner;
+
+import java.util.Arrays;
+
+/**
+ * 连接（connection）数组
+ * 由 {@link TimetableSnapshot} 派生：每个车次相邻两个停靠位置之间的一段运行即一条连接，
+ * 全部连接按发车时间升序存放在一个扁平的 int 数组中，每条连接占 {@link #STRIDE} 个槽位。
+ * 发车时间相同的连接保持同一车次内的先后顺序，供连接扫描算法（CSA）顺序或逆序扫描。
+ *
+ * @author scoheart
+ */
+public final class ConnectionIndex {
+
+    static final int DEP_STATION = 0;
+    static final int ARR_STATION = 1;
+    static final int DEP_TIME = 2;
+    static final int ARR_TIME = 3;
+    /**
+     * 车次在整个快照中的下标
+     */
+    static final int TRIP = 4;
+    static final int PATTERN = 5;
+    /**
+     * 车次在模式内的下标
+     */
+    static final int PATTERN_TRIP = 6;
+    /**
+     * 出发停靠位置，到达位置为其后一个
+     */
+    static final int POSITION = 7;
+    static final int STRIDE = 8;
+
+    private final int[] connections;
+    private final int count;
+    private final int tripCount;
+
+    private ConnectionIndex(TimetableSnapshot timetable) {
+        int total = 0;
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            total += (timetable.patternStopCount(p) - 1) * timetable.patternTripCount(p);
+        }
+
+        int[] unsorted = new int[total * STRIDE];
+        long[] keys = new long[total];
+        int c = 0;
+        int tripBase = 0;
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            int trips = timetable.patternTripCount(p);
+            int lastPos = timetable.patternStopCount(p) - 1;
+            for (int t = 0; t < trips; t++) {
+                for (int pos = 0; pos < lastPos; pos++) {
+                    int o = c * STRIDE;
+                    unsorted[o + DEP_STATION] = timetable.patternStation(p, pos);
+                    unsorted[o + ARR_STATION] = timetable.patternStation(p, pos + 1);
+                    unsorted[o + DEP_TIME] = timetable.departure(p, t, pos);
+                    unsorted[o + ARR_TIME] = timetable.arrival(p, t, pos + 1);
+                    unsorted[o + TRIP] = tripBase + t;
+                    unsorted[o + PATTERN] = p;
+                    unsorted[o + PATTERN_TRIP] = t;
+                    unsorted[o + POSITION] = pos;
+                    // 高 32 位为发车时间，低 32 位为生成顺序，相同发车时间时保持车次内顺序
+                    keys[c] = ((long) unsorted[o + DEP_TIME] << 32) | c;
+                    c++;
+                }
+            }
+            tripBase += trips;
+        }
+        Arrays.sort(keys);
+
+        connections = new int[total * STRIDE];
+        for (int i = 0; i < total; i++) {
+            int from = (int) keys[i] * STRIDE;
+            System.arraycopy(unsorted, from, connections, i * STRIDE, STRIDE);
+        }
+        count = total;
+        tripCount = tripBase;
+    }
+
+    /**
+     * 根据时刻表快照构建连接数组
+     */
+    static ConnectionIndex build(TimetableSnapshot timetable) {
+        return new ConnectionIndex(timetable);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int tripCount() {
+        return tripCount;
+    }
+
+    /**
+     * 第一条发车时间不早于 time 的连接下标，可能等于 {@link #size()}
+     */
+    public int firstDepartingAt(int time) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (connections[mid * STRIDE + DEP_TIME] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    int get(int connection, int field) {
+        return connections[connection * STRIDE + field];
+    }
+}
@@ -0,0 +1,193 @@
+package com.scoding.metro.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 连接扫描算法（CSA）区间查询
+ * 对出发时间窗口内的全部出发时刻，一次逆序扫描连接数组求出两站之间的到达时间剖面（profile）：
+ * 每个站点维护按出发时间降序追加的（出发时间, 到达时间）帕累托序列，每个车次记录留在车上能到达目标的最早时间。
+ * 扫描范围为 [窗口开始, 窗口结束 + 最长行程时间] 内发车的连接。
+ *
+ * @author scoheart
+ */
+public final class CsaProfileEngine {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    // 剖面条目：出发时间、到达时间、上车连接、下车连接
+    private static final int DEP = 0;
+    private static final int ARR = 1;
+    private static final int ENTER = 2;
+    private static final int EXIT = 3;
+    private static final int ENTRY = 4;
+
+    /**
+     * 回溯行程时的最多乘车次数，防止数据异常时死循环
+     */
+    private static final int MAX_LEGS = 32;
+
+    private CsaProfileEngine() {
+    }
+
+    /**
+     * 查询出发时间窗口内的全部帕累托最优行程
+     *
+     * @param timetable       时刻表快照
+     * @param origin          出发站点下标
+     * @param target          到达站点下标
+     * @param windowStart     最早出发时间（秒）
+     * @param windowEnd       最晚出发时间（秒）
+     * @param horizonSeconds  最长行程时间（秒），超出窗口结束该时长后发车的连接不再扫描
+     * @param transferSeconds 换乘所需的最短时间（秒）
+     * @return 出发越晚到达越晚的行程序列，按出发时间升序
+     */
+    public static List<RaptorEngine.Journey> profile(TimetableSnapshot timetable, int origin, int target,
+                                                     int windowStart, int windowEnd,
+                                                     int horizonSeconds, int transferSeconds) {
+        int stations = timetable.stationCount();
+        if (origin < 0 || target < 0 || origin >= stations || target >= stations || origin == target
+                || windowEnd < windowStart) {
+            return Collections.emptyList();
+        }
+
+        ConnectionIndex connections = timetable.connectionIndex();
+        int[] tripArrival = new int[connections.tripCount()];
+        int[] tripExit = new int[connections.tripCount()];
+        Arrays.fill(tripArrival, UNREACHED);
+        int[][] profiles = new int[stations][];
+        int[] profileSizes = new int[stations];
+
+        int first = connections.firstDepartingAt(windowStart);
+        int last = connections.firstDepartingAt(windowEnd + horizonSeconds) - 1;
+        for (int c = last; c >= first; c--) {
+            int depStation = connections.get(c, ConnectionIndex.DEP_STATION);
+            if (depStation == target) {
+                continue;
+            }
+            int arrStation = connections.get(c, ConnectionIndex.ARR_STATION);
+            int arrTime = connections.get(c, ConnectionIndex.ARR_TIME);
+            int trip = connections.get(c, ConnectionIndex.TRIP);
+
+            // 在此下车到达目标 / 留在车上 / 在到达站换乘
+            int best = UNREACHED;
+            int exit = -1;
+            if (arrStation == target) {
+                best = arrTime;
+                exit = c;
+            }
+            if (tripArrival[trip] < best) {
+                best = tripArrival[trip];
+                exit = tripExit[trip];
+            }
+            int entry = find(profiles[arrStation], profileSizes[arrStation], arrTime + transferSeconds);
+            if (entry >= 0 && profiles[arrStation][entry + ARR] < best) {
+                best = profiles[arrStation][entry + ARR];
+                exit = c;
+            }
+            if (best == UNREACHED) {
+                continue;
+            }
+            if (best < tripArrival[trip]) {
+                tripArrival[trip] = best;
+                tripExit[trip] = exit;
+            }
+            append(profiles, profileSizes, depStation, connections.get(c, ConnectionIndex.DEP_TIME), best, c, exit);
+        }
+
+        int[] originProfile = profiles[origin];
+        List<RaptorEngine.Journey> journeys = new ArrayList<>();
+        for (int i = profileSizes[origin] - ENTRY; i >= 0; i -= ENTRY) {
+            if (originProfile[i + DEP] > windowEnd) {
+                break;
+            }
+            RaptorEngine.Journey journey = reconstruct(timetable, connections, profiles, profileSizes,
+                    originProfile, i, target, transferSeconds);
+            if (journey != null) {
+                journeys.add(journey);
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * 在按出发时间降序排列的剖面中查找出发时间不早于 time 的最后一个条目，即其中到达最早的条目
+     *
+     * @return 条目在数组中的起始槽位，不存在时返回-1
+     */
+    private static int find(int[] profile, int size, int time) {
+        if (profile == null) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = size / ENTRY;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (profile[mid * ENTRY + DEP] >= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? -1 : (lo - 1) * ENTRY;
+    }
+
+    /**
+     * 追加剖面条目，仅当到达时间严格早于已有的最后一个条目时才有意义；出发时间相同则覆盖
+     */
+    private static void append(int[][] profiles, int[] sizes, int station, int dep, int arr, int enter, int exit) {
+        int[] profile = profiles[station];
+        int size = sizes[station];
+        if (profile == null) {
+            profile = new int[ENTRY * 4];
+            profiles[station] = profile;
+        } else if (size > 0) {
+            int lastEntry = size - ENTRY;
+            if (arr >= profile[lastEntry + ARR]) {
+                return;
+            }
+            if (profile[lastEntry + DEP] == dep) {
+                size = lastEntry;
+            }
+        }
+        if (size == profile.length) {
+            profile = Arrays.copyOf(profile, size * 2);
+            profiles[station] = profile;
+        }
+        profile[size + DEP] = dep;
+        profile[size + ARR] = arr;
+        profile[size + ENTER] = enter;
+        profile[size + EXIT] = exit;
+        sizes[station] = size + ENTRY;
+    }
+
+    private static RaptorEngine.Journey reconstruct(TimetableSnapshot timetable, ConnectionIndex connections,
+                                                    int[][] profiles, int[] sizes, int[] profile, int entry,
+                                                    int target, int transferSeconds) {
+        List<RaptorEngine.Leg> legs = new ArrayList<>();
+        while (legs.size() < MAX_LEGS) {
+            int enter = profile[entry + ENTER];
+            int exit = profile[entry + EXIT];
+            int p = connections.get(enter, ConnectionIndex.PATTERN);
+            int trip = connections.get(enter, ConnectionIndex.PATTERN_TRIP);
+            int boardPos = connections.get(enter, ConnectionIndex.POSITION);
+            int alightPos = connections.get(exit, ConnectionIndex.POSITION) + 1;
+            legs.add(new RaptorEngine.Leg(p, trip, boardPos, alightPos,
+                    timetable.departure(p, trip, boardPos), timetable.arrival(p, trip, alightPos)));
+
+            int station = connections.get(exit, ConnectionIndex.ARR_STATION);
+            if (station == target) {
+                return new RaptorEngine.Journey(legs, legs.get(0).getDepartureTime(),
+                        legs.get(legs.size() - 1).getArrivalTime());
+            }
+            profile = profiles[station];
+            entry = find(profile, sizes[station], connections.get(exit, ConnectionIndex.ARR_TIME) + transferSeconds);
+            if (entry < 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
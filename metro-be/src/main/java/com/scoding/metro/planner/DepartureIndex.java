@@ -0,0 +1,161 @@
+package com.scoding.metro.planner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 站点发车索引
+ * 由 {@link TimetableSnapshot} 派生：每个站点按路线（即运行方向）分组，
+ * 每组内的发车时刻以秒存放在连续的 int 数组中并升序排列，查询"某时刻之后的下 N 班车"只需一次二分查找。
+ * 终点站（不再发车）的停靠不计入索引。
+ *
+ * @author scoheart
+ */
+public final class DepartureIndex {
+
+    private static final int STATION = 0;
+    private static final int ROUTE = 1;
+    private static final int DEPARTURE = 2;
+    private static final int PATTERN = 3;
+    private static final int TRIP = 4;
+    private static final int POSITION = 5;
+
+    private final int[] stationGroupOffsets;
+    private final int[] groupRoutes;
+    private final int[] groupOffsets;
+
+    private final int[] departures;
+    private final int[] patterns;
+    private final int[] trips;
+    private final int[] positions;
+
+    private DepartureIndex(TimetableSnapshot timetable) {
+        int stationCount = timetable.stationCount();
+
+        // 收集所有发车：{站点, 路线, 发车时刻, 模式, 车次, 位置}
+        List<int[]> entries = new ArrayList<>();
+        for (int p = 0; p < timetable.patternCount(); p++) {
+            int lastPos = timetable.patternStopCount(p) - 1;
+            for (int pos = 0; pos < lastPos; pos++) {
+                int station = timetable.patternStation(p, pos);
+                for (int t = 0; t < timetable.patternTripCount(p); t++) {
+                    entries.add(new int[]{station, timetable.patternRoute(p), timetable.departure(p, t, pos), p, t, pos});
+                }
+            }
+        }
+        entries.sort(Comparator.<int[]>comparingInt(e -> e[STATION])
+                .thenComparingInt(e -> e[ROUTE])
+                .thenComparingInt(e -> e[DEPARTURE]));
+
+        int total = entries.size();
+        departures = new int[total];
+        patterns = new int[total];
+        trips = new int[total];
+        positions = new int[total];
+
+        // 统计分组：同一站点同一路线为一组
+        int groupCount = 0;
+        for (int i = 0; i < total; i++) {
+            if (i == 0 || !sameGroup(entries.get(i - 1), entries.get(i))) {
+                groupCount++;
+            }
+        }
+        stationGroupOffsets = new int[stationCount + 1];
+        groupRoutes = new int[groupCount];
+        groupOffsets = new int[groupCount + 1];
+
+        int g = -1;
+        for (int i = 0; i < total; i++) {
+            int[] entry = entries.get(i);
+            if (i == 0 || !sameGroup(entries.get(i - 1), entry)) {
+                g++;
+                groupRoutes[g] = entry[ROUTE];
+                groupOffsets[g] = i;
+                stationGroupOffsets[entry[STATION] + 1]++;
+            }
+            departures[i] = entry[DEPARTURE];
+            patterns[i] = entry[PATTERN];
+            trips[i] = entry[TRIP];
+            positions[i] = entry[POSITION];
+        }
+        groupOffsets[groupCount] = total;
+        for (int s = 1; s <= stationCount; s++) {
+            stationGroupOffsets[s] += stationGroupOffsets[s - 1];
+        }
+    }
+
+    /**
+     * 根据时刻表快照构建发车索引
+     */
+    static DepartureIndex build(TimetableSnapshot timetable) {
+        return new DepartureIndex(timetable);
+    }
+
+    private static boolean sameGroup(int[] a, int[] b) {
+        return a[STATION] == b[STATION] && a[ROUTE] == b[ROUTE];
+    }
+
+    /**
+     * 站点分组范围的起始下标
+     */
+    public int groupStart(int station) {
+        return stationGroupOffsets[station];
+    }
+
+    /**
+     * 站点分组范围的结束下标（不含）
+     */
+    public int groupEnd(int station) {
+        return stationGroupOffsets[station + 1];
+    }
+
+    /**
+     * 分组对应的路线在路网快照中的下标
+     */
+    public int groupRoute(int group) {
+        return groupRoutes[group];
+    }
+
+    /**
+     * 在分组中查找发车时间不早于 time 的第一班车
+     *
+     * @return 发车记录下标，可能等于 {@link #groupLimit(int)} 表示之后已无车次
+     */
+    public int firstDepartureAfter(int group, int time) {
+        int lo = groupOffsets[group];
+        int hi = groupOffsets[group + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departures[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 分组发车记录范围的结束下标（不含）
+     */
+    public int groupLimit(int group) {
+        return groupOffsets[group + 1];
+    }
+
+    public int departureAt(int entry) {
+        return departures[entry];
+    }
+
+    public int patternAt(int entry) {
+        return patterns[entry];
+    }
+
+    public int tripAt(int entry) {
+        return trips[entry];
+    }
+
+    public int positionAt(int entry) {
+        return positions[entry];
+    }
+}
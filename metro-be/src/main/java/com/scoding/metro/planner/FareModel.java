@@ -0,0 +1,30 @@
+package com.scoding.metro.planner;
+
+/**
+ * 出行规划使用的票价模型
+ * 一次出行按全程的计费里程计价：各乘车段的计费里程相加，再由 {@link #fare(int)} 换算为票价。
+ * 实现必须满足：同一车次上被包含的区间计费里程不高于原区间，且票价随计费里程单调不减，多准则搜索依赖这两条性质剪枝。
+ *
+ * @author scoheart
+ */
+public interface FareModel {
+
+    /**
+     * 计算一段乘车的计费里程
+     *
+     * @param timetable 时刻表快照
+     * @param pattern   模式下标
+     * @param boardPos  上车位置
+     * @param alightPos 下车位置
+     * @return 计费里程
+     */
+    int legUnits(TimetableSnapshot timetable, int pattern, int boardPos, int alightPos);
+
+    /**
+     * 计费里程对应的票价
+     *
+     * @param units 全程计费里程
+     * @return 票价（分）
+     */
+    int fare(int units);
+}
@@ -0,0 +1,319 @@
+package com.scoding.metro.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多准则 RAPTOR（McRAPTOR）搜索
+ * 同时优化到达时间、换乘次数和票价，返回三者的帕累托最优行程集合。
+ * 票价随全程计费里程单调不减，搜索中以累加的计费里程作为票价准则，结束时再按换算后的票价去除被支配的行程。
+ * 每个站点保存一个标签袋（bag），只保留互不支配的（到达时间, 计费里程）标签；轮次即乘车次数，
+ * 第 k 轮只让第 k-1 轮新产生的标签上车，因此袋中已有的标签换乘次数总不多于新标签，支配判断只需比较到达时间和计费里程。
+ * 新标签同时受所在站点和目标站点的标签袋剪枝。
+ * <p>
+ * 标签存放在按线程复用的平行 int 数组池中，袋以单链表串联，稳定运行后查询过程不再分配对象。
+ *
+ * @author scoheart
+ */
+public final class McRaptorEngine {
+
+    private static final int NONE = -1;
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private McRaptorEngine() {
+    }
+
+    /**
+     * 搜索帕累托最优行程
+     *
+     * @param timetable       时刻表快照
+     * @param fareModel       票价模型
+     * @param origin          出发站点下标
+     * @param target          到达站点下标
+     * @param departAt        出发时间（秒）
+     * @param maxRounds       最多乘车次数
+     * @param transferSeconds 换乘所需的最短时间（秒）
+     * @return 帕累托最优行程，按到达时间、换乘次数升序
+     */
+    public static List<RaptorEngine.Journey> paretoJourneys(TimetableSnapshot timetable, FareModel fareModel,
+                                                            int origin, int target, int departAt,
+                                                            int maxRounds, int transferSeconds) {
+        int stations = timetable.stationCount();
+        if (origin < 0 || target < 0 || origin >= stations || target >= stations || origin == target || maxRounds < 1) {
+            return Collections.emptyList();
+        }
+
+        Workspace ws = WORKSPACE.get();
+        ws.reset(stations, timetable.patternCount());
+        int root = ws.newLabel(departAt, 0, 0, NONE, NONE, NONE, NONE, NONE);
+        ws.bagHead[origin] = root;
+        ws.marked[origin] = true;
+
+        for (int k = 1; k <= maxRounds; k++) {
+            int queued = ws.collectPatterns(timetable, stations);
+            if (queued == 0) {
+                break;
+            }
+
+            for (int q = 0; q < queued; q++) {
+                int p = ws.queue[q];
+                int stopCount = timetable.patternStopCount(p);
+                ws.routeSize = 0;
+                for (int pos = ws.queuedFrom[p]; pos < stopCount; pos++) {
+                    int s = timetable.patternStation(p, pos);
+
+                    // 路线袋中的每个标签在该站下车
+                    for (int r = 0; r < ws.routeSize; r++) {
+                        int trip = ws.routeTrip[r];
+                        int boardPos = ws.routeBoardPos[r];
+                        int arrival = timetable.arrival(p, trip, pos);
+                        int units = ws.routeUnits[r] + fareModel.legUnits(timetable, p, boardPos, pos);
+                        if (ws.isDominated(target, arrival, units) || ws.isDominated(s, arrival, units)) {
+                            continue;
+                        }
+                        int label = ws.newLabel(arrival, units, k, ws.routeParent[r], p, trip, boardPos, pos);
+                        ws.insert(s, label);
+                        ws.marked[s] = true;
+                    }
+
+                    // 上一轮到达该站的标签尝试上车
+                    for (int l = ws.bagHead[s]; l != NONE; l = ws.next[l]) {
+                        if (ws.round[l] != k - 1) {
+                            continue;
+                        }
+                        // 出发标签无需换乘时间
+                        int ready = ws.pattern[l] == NONE ? ws.arrival[l] : ws.arrival[l] + transferSeconds;
+                        int trip = timetable.earliestTrip(p, pos, ready, timetable.patternTripCount(p));
+                        if (trip >= 0) {
+                            ws.addRouteLabel(trip, pos, l, ws.units[l]);
+                        }
+                    }
+                }
+            }
+        }
+
+        // 不同的计费里程可能落在同一票价档，按票价去除到达时间、换乘次数和票价都不优的行程
+        List<Integer> labels = new ArrayList<>();
+        for (int l = ws.bagHead[target]; l != NONE; l = ws.next[l]) {
+            labels.add(l);
+        }
+        labels.sort((a, b) -> ws.arrival[a] != ws.arrival[b]
+                ? Integer.compare(ws.arrival[a], ws.arrival[b])
+                : Integer.compare(ws.round[a], ws.round[b]));
+        int[] fares = new int[labels.size()];
+        for (int i = 0; i < labels.size(); i++) {
+            fares[i] = fareModel.fare(ws.units[labels.get(i)]);
+        }
+        List<RaptorEngine.Journey> journeys = new ArrayList<>(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+            if (!isFareDominated(ws, labels, fares, i)) {
+                journeys.add(reconstruct(timetable, ws, labels.get(i)));
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * 是否存在到达不晚、换乘不多、票价不高且至少一项更优的其他行程
+     */
+    private static boolean isFareDominated(Workspace ws, List<Integer> labels, int[] fares, int i) {
+        int label = labels.get(i);
+        for (int j = 0; j < labels.size(); j++) {
+            int other = labels.get(j);
+            if (ws.arrival[other] <= ws.arrival[label] && ws.round[other] <= ws.round[label] && fares[j] <= fares[i]
+                    && (ws.arrival[other] < ws.arrival[label] || ws.round[other] < ws.round[label]
+                    || fares[j] < fares[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RaptorEngine.Journey reconstruct(TimetableSnapshot timetable, Workspace ws, int label) {
+        List<RaptorEngine.Leg> legs = new ArrayList<>(ws.round[label]);
+        for (int l = label; ws.pattern[l] != NONE; l = ws.parent[l]) {
+            int p = ws.pattern[l];
+            int trip = ws.trip[l];
+            legs.add(new RaptorEngine.Leg(p, trip, ws.boardPos[l], ws.alightPos[l],
+                    timetable.departure(p, trip, ws.boardPos[l]), timetable.arrival(p, trip, ws.alightPos[l])));
+        }
+        Collections.reverse(legs);
+        return new RaptorEngine.Journey(legs, legs.get(0).getDepartureTime(), legs.get(legs.size() - 1).getArrivalTime());
+    }
+
+    /**
+     * 按线程复用的搜索工作区
+     * 标签以下标引用，各字段存放在平行数组中；被支配的标签只从袋中摘除，仍可作为后续标签的父标签回溯。
+     */
+    private static final class Workspace {
+
+        private static final int INITIAL_LABELS = 1024;
+        private static final int INITIAL_ROUTE_LABELS = 16;
+
+        // 标签池
+        int[] arrival = new int[INITIAL_LABELS];
+        int[] units = new int[INITIAL_LABELS];
+        int[] round = new int[INITIAL_LABELS];
+        int[] parent = new int[INITIAL_LABELS];
+        int[] pattern = new int[INITIAL_LABELS];
+        int[] trip = new int[INITIAL_LABELS];
+        int[] boardPos = new int[INITIAL_LABELS];
+        int[] alightPos = new int[INITIAL_LABELS];
+        int[] next = new int[INITIAL_LABELS];
+        int labelCount;
+
+        // 各站点标签袋的链表头
+        int[] bagHead = new int[0];
+        boolean[] marked = new boolean[0];
+
+        // 本轮待扫描的模式及其最靠前的上车位置
+        int[] queuedFrom = new int[0];
+        int[] queue = new int[0];
+
+        // 当前模式的路线袋：车次、上车位置、父标签、上车前的计费里程
+        int[] routeTrip = new int[INITIAL_ROUTE_LABELS];
+        int[] routeBoardPos = new int[INITIAL_ROUTE_LABELS];
+        int[] routeParent = new int[INITIAL_ROUTE_LABELS];
+        int[] routeUnits = new int[INITIAL_ROUTE_LABELS];
+        int routeSize;
+
+        void reset(int stations, int patterns) {
+            if (bagHead.length < stations) {
+                bagHead = new int[stations];
+                marked = new boolean[stations];
+            }
+            if (queuedFrom.length < patterns) {
+                queuedFrom = new int[patterns];
+                queue = new int[patterns];
+            }
+            Arrays.fill(bagHead, 0, stations, NONE);
+            Arrays.fill(marked, 0, stations, false);
+            labelCount = 0;
+            routeSize = 0;
+        }
+
+        int newLabel(int arr, int u, int k, int parentLabel, int p, int t, int board, int alight) {
+            if (labelCount == arrival.length) {
+                int capacity = labelCount * 2;
+                arrival = Arrays.copyOf(arrival, capacity);
+                units = Arrays.copyOf(units, capacity);
+                round = Arrays.copyOf(round, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                pattern = Arrays.copyOf(pattern, capacity);
+                trip = Arrays.copyOf(trip, capacity);
+                boardPos = Arrays.copyOf(boardPos, capacity);
+                alightPos = Arrays.copyOf(alightPos, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            int label = labelCount++;
+            arrival[label] = arr;
+            units[label] = u;
+            round[label] = k;
+            parent[label] = parentLabel;
+            pattern[label] = p;
+            trip[label] = t;
+            boardPos[label] = board;
+            alightPos[label] = alight;
+            next[label] = NONE;
+            return label;
+        }
+
+        /**
+         * 站点袋中是否已有到达时间和计费里程都不差的标签
+         */
+        boolean isDominated(int station, int arr, int u) {
+            for (int l = bagHead[station]; l != NONE; l = next[l]) {
+                if (arrival[l] <= arr && units[l] <= u) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 将标签放入站点袋，并摘除同一轮中被它支配的标签
+         */
+        void insert(int station, int label) {
+            int previous = NONE;
+            for (int l = bagHead[station]; l != NONE; l = next[l]) {
+                if (round[l] == round[label] && arrival[label] <= arrival[l] && units[label] <= units[l]) {
+                    if (previous == NONE) {
+                        bagHead[station] = next[l];
+                    } else {
+                        next[previous] = next[l];
+                    }
+                } else {
+                    previous = l;
+                }
+            }
+            next[label] = bagHead[station];
+            bagHead[station] = label;
+        }
+
+        /**
+         * 收集经过被标记站点的模式，记录每个模式最靠前的上车位置，并清除标记
+         *
+         * @return 待扫描的模式数
+         */
+        int collectPatterns(TimetableSnapshot timetable, int stations) {
+            Arrays.fill(queuedFrom, 0, timetable.patternCount(), NONE);
+            int queued = 0;
+            for (int s = 0; s < stations; s++) {
+                if (!marked[s]) {
+                    continue;
+                }
+                marked[s] = false;
+                for (int i = timetable.stationPatternStart(s); i < timetable.stationPatternEnd(s); i++) {
+                    int p = timetable.stationPatternAt(i);
+                    int pos = timetable.stationPatternPositionAt(i);
+                    if (queuedFrom[p] < 0) {
+                        queue[queued++] = p;
+                        queuedFrom[p] = pos;
+                    } else if (pos < queuedFrom[p]) {
+                        queuedFrom[p] = pos;
+                    }
+                }
+            }
+            return queued;
+        }
+
+        /**
+         * 将上车机会加入路线袋
+         * 路线袋中车次不晚、上车位置不早、上车前计费里程不高的标签在后续每一站都不差于新标签；
+         * 反之新标签支配的旧标签被移除（新标签的上车位置总不早于已有标签）。
+         */
+        void addRouteLabel(int t, int board, int parentLabel, int u) {
+            int size = 0;
+            for (int r = 0; r < routeSize; r++) {
+                if (routeTrip[r] <= t && routeBoardPos[r] >= board && routeUnits[r] <= u) {
+                    return;
+                }
+            }
+            for (int r = 0; r < routeSize; r++) {
+                if (t <= routeTrip[r] && u <= routeUnits[r]) {
+                    continue;
+                }
+                routeTrip[size] = routeTrip[r];
+                routeBoardPos[size] = routeBoardPos[r];
+                routeParent[size] = routeParent[r];
+                routeUnits[size] = routeUnits[r];
+                size++;
+            }
+            if (size == routeTrip.length) {
+                int capacity = size * 2;
+                routeTrip = Arrays.copyOf(routeTrip, capacity);
+                routeBoardPos = Arrays.copyOf(routeBoardPos, capacity);
+                routeParent = Arrays.copyOf(routeParent, capacity);
+                routeUnits = Arrays.copyOf(routeUnits, capacity);
+            }
+            routeTrip[size] = t;
+            routeBoardPos[size] = board;
+            routeParent[size] = parentLabel;
+            routeUnits[size] = u;
+            routeSize = size + 1;
+        }
+    }
+}
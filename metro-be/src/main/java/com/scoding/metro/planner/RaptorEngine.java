@@ -0,0 +1,303 @@
+package com.scoding.metro.planner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RAPTOR（Round-bAsed Public Transit Optimized Router）最早到达算法
+ * 第 k 轮扫描得到最多乘坐 k 趟车（即换乘 k-1 次）时各站点的最早到达时间，
+ * 每一轮只扫描经过上一轮被改进站点的模式，并用目标站点的当前最优值剪枝。
+ * 返回各换乘次数下到达时间严格改进的行程，即（到达时间, 换乘次数）的帕累托最优集合。
+ *
+ * @author scoheart
+ */
+public final class RaptorEngine {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private RaptorEngine() {
+    }
+
+    /**
+     * 搜索最早到达行程
+     *
+     * @param timetable       时刻表快照
+     * @param origin          出发站点下标
+     * @param target          到达站点下标
+     * @param departAt        出发时间（秒）
+     * @param maxRounds       最多乘车次数
+     * @param transferSeconds 换乘所需的最短时间（秒）
+     * @return 帕累托最优行程，按换乘次数升序
+     */
+    public static List<Journey> earliestArrival(TimetableSnapshot timetable, int origin, int target,
+                                                int departAt, int maxRounds, int transferSeconds) {
+        int stations = timetable.stationCount();
+        if (origin < 0 || target < 0 || origin >= stations || target >= stations || maxRounds < 1) {
+            return Collections.emptyList();
+        }
+
+        Labels labels = scan(timetable, origin, target, departAt, UNREACHED, maxRounds, transferSeconds);
+
+        List<Journey> journeys = new ArrayList<>();
+        for (int k = 1; k <= labels.rounds; k++) {
+            if (labels.pattern[k][target] >= 0 && labels.arrival[k][target] < labels.arrival[k - 1][target]) {
+                journeys.add(reconstruct(timetable, labels, k, target));
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * 一对多搜索：从出发站点到其余各站点的最早到达时间
+     *
+     * @param timetable       时刻表快照
+     * @param origin          出发站点下标
+     * @param departAt        出发时间（秒）
+     * @param arriveBy        最晚到达时间（秒），更晚到达的站点视为不可达
+     * @param maxRounds       最多乘车次数
+     * @param transferSeconds 换乘所需的最短时间（秒）
+     * @return 各站点的最早到达时间及对应的最少换乘次数
+     */
+    public static Reachability reachable(TimetableSnapshot timetable, int origin, int departAt, int arriveBy,
+                                         int maxRounds, int transferSeconds) {
+        int stations = timetable.stationCount();
+        int[] arrivals = new int[stations];
+        int[] transfers = new int[stations];
+        Arrays.fill(arrivals, UNREACHED);
+        Arrays.fill(transfers, -1);
+        if (origin < 0 || origin >= stations || maxRounds < 1) {
+            return new Reachability(arrivals, transfers);
+        }
+
+        Labels labels = scan(timetable, origin, -1, departAt, arriveBy, maxRounds, transferSeconds);
+        int[] best = labels.bestArrivals();
+        for (int s = 0; s < stations; s++) {
+            if (s == origin || best[s] == UNREACHED) {
+                continue;
+            }
+            // 达到最早到达时间所需的最少乘车次数
+            int k = 1;
+            while (labels.arrival[k][s] != best[s]) {
+                k++;
+            }
+            arrivals[s] = best[s];
+            transfers[s] = k - 1;
+        }
+        arrivals[origin] = departAt;
+        transfers[origin] = 0;
+        return new Reachability(arrivals, transfers);
+    }
+
+    /**
+     * 执行 RAPTOR 扫描
+     *
+     * @param target   目标站点下标，小于0时表示不剪枝（一对多）
+     * @param arriveBy 最晚到达时间，更晚的到达不记录
+     */
+    static Labels scan(TimetableSnapshot timetable, int origin, int target,
+                       int departAt, int arriveBy, int maxRounds, int transferSeconds) {
+        int stations = timetable.stationCount();
+        int patterns = timetable.patternCount();
+        Labels labels = new Labels(maxRounds, stations);
+
+        int[] best = new int[stations];
+        Arrays.fill(best, UNREACHED);
+        best[origin] = departAt;
+        labels.arrival[0][origin] = departAt;
+
+        boolean[] marked = new boolean[stations];
+        marked[origin] = true;
+        int[] queuedFrom = new int[patterns];
+        int[] queue = new int[patterns];
+
+        int rounds = 0;
+        for (int k = 1; k <= maxRounds; k++) {
+            int[] previous = labels.arrival[k - 1];
+            int[] current = labels.arrival[k];
+            System.arraycopy(previous, 0, current, 0, stations);
+
+            // 收集经过被标记站点的模式，记录每个模式最靠前的上车位置
+            Arrays.fill(queuedFrom, -1);
+            int queued = 0;
+            for (int s = 0; s < stations; s++) {
+                if (!marked[s]) {
+                    continue;
+                }
+                marked[s] = false;
+                for (int i = timetable.stationPatternStart(s); i < timetable.stationPatternEnd(s); i++) {
+                    int p = timetable.stationPatternAt(i);
+                    int pos = timetable.stationPatternPositionAt(i);
+                    if (queuedFrom[p] < 0) {
+                        queue[queued++] = p;
+                        queuedFrom[p] = pos;
+                    } else if (pos < queuedFrom[p]) {
+                        queuedFrom[p] = pos;
+                    }
+                }
+            }
+            if (queued == 0) {
+                break;
+            }
+            rounds = k;
+
+            boolean improved = false;
+            for (int q = 0; q < queued; q++) {
+                int p = queue[q];
+                int stopCount = timetable.patternStopCount(p);
+                int trip = -1;
+                int boardPos = -1;
+                for (int pos = queuedFrom[p]; pos < stopCount; pos++) {
+                    int s = timetable.patternStation(p, pos);
+
+                    // 乘坐当前车次到达该站
+                    if (trip >= 0) {
+                        int arrival = timetable.arrival(p, trip, pos);
+                        int bound = target >= 0 ? Math.min(best[s], best[target]) : best[s];
+                        if (arrival < bound && arrival <= arriveBy) {
+                            current[s] = arrival;
+                            best[s] = arrival;
+                            labels.pattern[k][s] = p;
+                            labels.trip[k][s] = trip;
+                            labels.boardPos[k][s] = boardPos;
+                            labels.alightPos[k][s] = pos;
+                            marked[s] = true;
+                            improved = true;
+                        }
+                    }
+
+                    // 检查能否在该站赶上更早的车次
+                    int ready = previous[s];
+                    if (ready == UNREACHED) {
+                        continue;
+                    }
+                    if (s != origin) {
+                        ready += transferSeconds;
+                    }
+                    if (trip < 0 || ready <= timetable.departure(p, trip, pos)) {
+                        int limit = trip < 0 ? timetable.patternTripCount(p) : trip + 1;
+                        int earlier = timetable.earliestTrip(p, pos, ready, limit);
+                        if (earlier >= 0 && earlier != trip) {
+                            trip = earlier;
+                            boardPos = pos;
+                        }
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        labels.rounds = rounds;
+        return labels;
+    }
+
+    /**
+     * 从第 k 轮的标签回溯出到达 station 的完整行程
+     */
+    static Journey reconstruct(TimetableSnapshot timetable, Labels labels, int k, int station) {
+        List<Leg> legs = new ArrayList<>();
+        int s = station;
+        int round = k;
+        while (round > 0) {
+            if (labels.pattern[round][s] < 0) {
+                round--;
+                continue;
+            }
+            int p = labels.pattern[round][s];
+            int trip = labels.trip[round][s];
+            int boardPos = labels.boardPos[round][s];
+            int alightPos = labels.alightPos[round][s];
+            legs.add(new Leg(p, trip, boardPos, alightPos,
+                    timetable.departure(p, trip, boardPos), timetable.arrival(p, trip, alightPos)));
+            s = timetable.patternStation(p, boardPos);
+            round--;
+        }
+        Collections.reverse(legs);
+        return new Journey(legs, legs.get(0).getDepartureTime(), legs.get(legs.size() - 1).getArrivalTime());
+    }
+
+    /**
+     * 每轮每个站点的最早到达时间及回溯信息
+     */
+    static final class Labels {
+        final int[][] arrival;
+        final int[][] pattern;
+        final int[][] trip;
+        final int[][] boardPos;
+        final int[][] alightPos;
+        int rounds;
+
+        Labels(int maxRounds, int stations) {
+            arrival = new int[maxRounds + 1][stations];
+            pattern = new int[maxRounds + 1][stations];
+            trip = new int[maxRounds + 1][stations];
+            boardPos = new int[maxRounds + 1][stations];
+            alightPos = new int[maxRounds + 1][stations];
+            for (int k = 0; k <= maxRounds; k++) {
+                Arrays.fill(arrival[k], UNREACHED);
+                Arrays.fill(pattern[k], -1);
+            }
+        }
+
+        /**
+         * 各站点在全部轮次中的最早到达时间，未到达为 Integer.MAX_VALUE
+         */
+        int[] bestArrivals() {
+            return arrival[rounds];
+        }
+    }
+
+    /**
+     * 一对多搜索结果，数组下标为站点下标
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Reachability {
+        /**
+         * 最早到达时间（秒），不可达为 Integer.MAX_VALUE，出发站点为出发时间
+         */
+        private final int[] arrivals;
+        /**
+         * 以最早时间到达时的最少换乘次数，不可达为-1
+         */
+        private final int[] transfers;
+
+        public boolean isReachable(int station) {
+            return arrivals[station] != UNREACHED;
+        }
+    }
+
+    /**
+     * 一次乘车
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Leg {
+        private final int pattern;
+        private final int trip;
+        private final int boardPos;
+        private final int alightPos;
+        private final int departureTime;
+        private final int arrivalTime;
+    }
+
+    /**
+     * 一条完整行程
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Journey {
+        private final List<Leg> legs;
+        private final int departureTime;
+        private final int arrivalTime;
+
+        public int getTransfers() {
+            return legs.size() - 1;
+        }
+    }
+}
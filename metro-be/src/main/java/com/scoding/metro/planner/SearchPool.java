@@ -0,0 +1,60 @@
+package com.scoding.metro.planner;
+
+import com.scoding.metro.exception.BusinessException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 多出发站点搜索使用的 ForkJoin 线程池
+ * 每个出发站点的搜索相互独立，按站点拆分到各个核心并行执行。与公共池隔离，避免长时间的批量计算占满公共池。
+ *
+ * @author scoheart
+ */
+@Component
+public class SearchPool {
+
+    private final ForkJoinPool pool;
+
+    public SearchPool(@Value("${app.planner.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("metro-search-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 并行执行 count 个相互独立的搜索，结果顺序与下标一致
+     *
+     * @param count  搜索个数
+     * @param search 按下标执行一次搜索
+     * @return 各次搜索的结果
+     */
+    public <T> List<T> map(int count, IntFunction<T> search) {
+        try {
+            return pool.submit(() -> IntStream.range(0, count).parallel().mapToObj(search).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("查询被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,144 @@
+package com.scoding.metro.planner;
+
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 时刻表快照缓存
+ * 按运行日期缓存 {@link TimetableSnapshot}，最多保留最近使用的若干天。按运营日历运行的行程在查询时展开到对应日期。
+ * 任何地铁基础数据变更（事务提交后）都会使全部缓存失效，路网快照版本变化时也会重建；同一日期并发未命中时只构建一次。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimetableHolder {
+
+    /**
+     * 最多缓存的运行日期数
+     */
+    private static final int MAX_CACHED_DATES = 7;
+
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final TransitNetworkHolder networkHolder;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<LocalDate, CachedTimetable> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, CachedTimetable> eldest) {
+            return size() > MAX_CACHED_DATES;
+        }
+    };
+
+    /**
+     * 获取某运行日期的时刻表快照
+     * 同一日期并发未命中时只由一个线程查库构建，其余线程等待同一结果。
+     *
+     * @param runDate 运行日期
+     * @return 时刻表快照
+     */
+    public TimetableSnapshot get(LocalDate runDate) {
+        TransitNetworkSnapshot network = networkHolder.get();
+        long currentGeneration = generation.get();
+        CachedTimetable cached;
+        boolean owner = false;
+        synchronized (cache) {
+            cached = cache.get(runDate);
+            if (cached == null || cached.generation != currentGeneration
+                    || cached.networkVersion != network.getVersion()) {
+                cached = new CachedTimetable(currentGeneration, network.getVersion());
+                cache.put(runDate, cached);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            return await(cached.timetable);
+        }
+
+        try {
+            long start = System.nanoTime();
+            TimetableSnapshot timetable = TimetableSnapshot.build(runDate, network,
+                    trainTripMapper.selectByRunDate(runDate), stopTimeMapper.selectByRunDate(runDate));
+            log.info("时刻表快照已构建: runDate={}, 模式={}, 车次={}, 耗时={}ms", runDate,
+                    timetable.patternCount(), timetable.tripCount(), (System.nanoTime() - start) / 1_000_000);
+            cached.timetable.complete(timetable);
+            // 构建期间若数据已变更，则本次结果只交给已在等待的请求，不留在缓存中
+            if (generation.get() != currentGeneration) {
+                evict(runDate, cached);
+            }
+            return timetable;
+        } catch (RuntimeException | Error e) {
+            cached.timetable.completeExceptionally(e);
+            evict(runDate, cached);
+            throw e;
+        }
+    }
+
+    /**
+     * 地铁数据变更（事务提交后）时使全部时刻表缓存失效，实时延误不改变计划时刻，不影响缓存
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        if (event.getAggregate().isRealtime()) {
+            return;
+        }
+        generation.incrementAndGet();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private void evict(LocalDate runDate, CachedTimetable cached) {
+        synchronized (cache) {
+            cache.remove(runDate, cached);
+        }
+    }
+
+    private static TimetableSnapshot await(CompletableFuture<TimetableSnapshot> timetable) {
+        try {
+            return timetable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 缓存条目：构建完成前 timetable 尚未完成，等待者共享同一个构建结果
+     */
+    private static final class CachedTimetable {
+        private final long generation;
+        private final long networkVersion;
+        private final CompletableFuture<TimetableSnapshot> timetable = new CompletableFuture<>();
+
+        private CachedTimetable(long generation, long networkVersion) {
+            this.generation = generation;
+            this.networkVersion = networkVersion;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.scoding.metro.planner;
+
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某一运行日期的时刻表快照
+ * 将 train_trip / stop_time 按"停靠模式"（同一路线上经停完全相同的一组停靠点）分组，
+ * 每个模式内的车次按首站发车时间排序，到发时刻以秒（自当日零点起）按列存储：
+ * times[offset + pos * tripCount + trip]，同一停靠位置上所有车次的时刻连续存放且单调不减，可直接二分查找。
+ * 存在超车的车次会被拆分到不同模式中，以保证每一列都是有序的。
+ * 站点下标与构建时使用的 {@link TransitNetworkSnapshot} 一致，快照保留对它的引用，
+ * 调用方应通过 {@link #getNetwork()} 换算站点和路线，而不是另行读取可能已更新的路网快照。
+ *
+ * @author scoheart
+ */
+public final class TimetableSnapshot {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final LocalDate runDate;
+    private final TransitNetworkSnapshot network;
+    private final int stationCount;
+
+    private final int[] patternRoute;
+    private final int[] patternStopOffsets;
+    private final int[] patternStations;
+    private final long[] patternStopIds;
+    private final int[] patternTripOffsets;
+    private final int[] patternTimeOffsets;
+
+    private final long[] tripIds;
+    private final String[] tripNumbers;
+    private final int[] arrivals;
+    private final int[] departures;
+
+    private final int[] stationPatternOffsets;
+    private final int[] stationPatterns;
+    private final int[] stationPatternPositions;
+
+    private volatile DepartureIndex departureIndex;
+    private volatile ConnectionIndex connectionIndex;
+
+    private TimetableSnapshot(LocalDate runDate, TransitNetworkSnapshot network, int stationCount,
+                              List<Pattern> patterns) {
+        this.runDate = runDate;
+        this.network = network;
+        this.stationCount = stationCount;
+
+        int patternCount = patterns.size();
+        patternRoute = new int[patternCount];
+        patternStopOffsets = new int[patternCount + 1];
+        patternTripOffsets = new int[patternCount + 1];
+        patternTimeOffsets = new int[patternCount + 1];
+        for (int p = 0; p < patternCount; p++) {
+            Pattern pattern = patterns.get(p);
+            int stops = pattern.stations.length;
+            int trips = pattern.trips.size();
+            patternRoute[p] = pattern.routeIdx;
+            patternStopOffsets[p + 1] = patternStopOffsets[p] + stops;
+            patternTripOffsets[p + 1] = patternTripOffsets[p] + trips;
+            patternTimeOffsets[p + 1] = patternTimeOffsets[p] + stops * trips;
+        }
+
+        patternStations = new int[patternStopOffsets[patternCount]];
+        patternStopIds = new long[patternStopOffsets[patternCount]];
+        tripIds = new long[patternTripOffsets[patternCount]];
+        tripNumbers = new String[patternTripOffsets[patternCount]];
+        arrivals = new int[patternTimeOffsets[patternCount]];
+        departures = new int[patternTimeOffsets[patternCount]];
+
+        int[] stationPatternCounts = new int[stationCount + 1];
+        for (int p = 0; p < patternCount; p++) {
+            Pattern pattern = patterns.get(p);
+            int stops = pattern.stations.length;
+            int trips = pattern.trips.size();
+            System.arraycopy(pattern.stations, 0, patternStations, patternStopOffsets[p], stops);
+            System.arraycopy(pattern.stopIds, 0, patternStopIds, patternStopOffsets[p], stops);
+            for (int t = 0; t < trips; t++) {
+                TripTimes trip = pattern.trips.get(t);
+                tripIds[patternTripOffsets[p] + t] = trip.tripId;
+                tripNumbers[patternTripOffsets[p] + t] = trip.trainNumber;
+                for (int pos = 0; pos < stops; pos++) {
+                    int cell = patternTimeOffsets[p] + pos * trips + t;
+                    arrivals[cell] = trip.arrivals[pos];
+                    departures[cell] = trip.departures[pos];
+                }
+            }
+            for (int station : pattern.stations) {
+                stationPatternCounts[station + 1]++;
+            }
+        }
+
+        // 站点 → (模式, 位置)
+        stationPatternOffsets = stationPatternCounts;
+        for (int s = 1; s <= stationCount; s++) {
+            stationPatternOffsets[s] += stationPatternOffsets[s - 1];
+        }
+        stationPatterns = new int[stationPatternOffsets[stationCount]];
+        stationPatternPositions = new int[stationPatternOffsets[stationCount]];
+        int[] fill = Arrays.copyOf(stationPatternOffsets, stationCount);
+        for (int p = 0; p < patternCount; p++) {
+            for (int pos = patternStopOffsets[p]; pos < patternStopOffsets[p + 1]; pos++) {
+                int station = patternStations[pos];
+                stationPatterns[fill[station]] = p;
+                stationPatternPositions[fill[station]] = pos - patternStopOffsets[p];
+                fill[station]++;
+            }
+        }
+    }
+
+    /**
+     * 构建时刻表快照
+     *
+     * @param runDate   运行日期
+     * @param network   路网快照
+     * @param trips     当日运行的列车行程
+     * @param stopTimes 当日列车行程的到站时刻
+     * @return 时刻表快照
+     */
+    public static TimetableSnapshot build(LocalDate runDate, TransitNetworkSnapshot network,
+                                          List<TrainTrip> trips, List<StopTime> stopTimes) {
+        Map<Long, List<StopTime>> stopTimesByTrip = new HashMap<>();
+        for (StopTime stopTime : stopTimes) {
+            stopTimesByTrip.computeIfAbsent(stopTime.getTrainTripId(), k -> new ArrayList<>()).add(stopTime);
+        }
+
+        // 按"路线 + 停靠点序列"分组
+        Map<String, List<TripTimes>> groups = new LinkedHashMap<>();
+        Map<String, Integer> groupRoutes = new HashMap<>();
+        for (TrainTrip trip : trips) {
+            TripTimes tripTimes = toTripTimes(trip, stopTimesByTrip.get(trip.getId()), network);
+            if (tripTimes == null) {
+                continue;
+            }
+            String key = trip.getRouteId() + ":" + Arrays.toString(tripTimes.stopIds);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(tripTimes);
+            groupRoutes.putIfAbsent(key, network.routeIndex(trip.getRouteId()));
+        }
+
+        // 组内按首站发车排序，再拆分为无超车的模式
+        List<Pattern> patterns = new ArrayList<>();
+        for (Map.Entry<String, List<TripTimes>> entry : groups.entrySet()) {
+            List<TripTimes> group = entry.getValue();
+            group.sort(Comparator.comparingInt((TripTimes t) -> t.departures[0]).thenComparingLong(t -> t.tripId));
+            List<Pattern> lanes = new ArrayList<>();
+            for (TripTimes trip : group) {
+                Pattern lane = null;
+                for (Pattern candidate : lanes) {
+                    if (candidate.trips.get(candidate.trips.size() - 1).isDominatedBy(trip)) {
+                        lane = candidate;
+                        break;
+                    }
+                }
+                if (lane == null) {
+                    lane = new Pattern(groupRoutes.get(entry.getKey()), trip.stations, trip.stopIds);
+                    lanes.add(lane);
+                }
+                lane.trips.add(trip);
+            }
+            patterns.addAll(lanes);
+        }
+
+        return new TimetableSnapshot(runDate, network, network.stationCount(), patterns);
+    }
+
+    private static TripTimes toTripTimes(TrainTrip trip, List<StopTime> stopTimes, TransitNetworkSnapshot network) {
+        if (stopTimes == null || stopTimes.size() < 2) {
+            return null;
+        }
+        stopTimes.sort(Comparator.comparing(StopTime::getStopSeq, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(StopTime::getId));
+
+        int size = stopTimes.size();
+        int[] stations = new int[size];
+        long[] stopIds = new long[size];
+        int[] arr = new int[size];
+        int[] dep = new int[size];
+        int count = 0;
+        int dayOffset = 0;
+        int previous = -1;
+        for (StopTime stopTime : stopTimes) {
+            int stopIdx = network.stopIndex(stopTime.getStopId());
+            if (stopIdx < 0 || network.stopStationAt(stopIdx) < 0) {
+                continue;
+            }
+            LocalTime arrival = stopTime.getArrivalTime() != null ? stopTime.getArrivalTime() : stopTime.getDepartureTime();
+            LocalTime departure = stopTime.getDepartureTime() != null ? stopTime.getDepartureTime() : stopTime.getArrivalTime();
+            if (arrival == null) {
+                continue;
+            }
+            int a = arrival.toSecondOfDay() + dayOffset;
+            // 跨零点运行的车次，时刻回绕后顺延一天
+            if (a < previous) {
+                dayOffset += SECONDS_PER_DAY;
+                a += SECONDS_PER_DAY;
+            }
+            int d = departure.toSecondOfDay() + dayOffset;
+            if (d < a) {
+                dayOffset += SECONDS_PER_DAY;
+                d += SECONDS_PER_DAY;
+            }
+            stations[count] = network.stopStationAt(stopIdx);
+            stopIds[count] = stopTime.getStopId();
+            arr[count] = a;
+            dep[count] = d;
+            previous = d;
+            count++;
+        }
+        if (count < 2) {
+            return null;
+        }
+        return new TripTimes(trip.getId(), trip.getTrainNumber(),
+                Arrays.copyOf(stations, count), Arrays.copyOf(stopIds, count),
+                Arrays.copyOf(arr, count), Arrays.copyOf(dep, count));
+    }
+
+    //********************* 访问方法 *********************//
+
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+
+    public long getNetworkVersion() {
+        return network.getVersion();
+    }
+
+    /**
+     * 构建时使用的路网快照
+     */
+    public TransitNetworkSnapshot getNetwork() {
+        return network;
+    }
+
+    public int stationCount() {
+        return stationCount;
+    }
+
+    public int patternCount() {
+        return patternRoute.length;
+    }
+
+    public int tripCount() {
+        return tripIds.length;
+    }
+
+    /**
+     * 模式所属路线在路网快照中的下标
+     */
+    public int patternRoute(int pattern) {
+        return patternRoute[pattern];
+    }
+
+    public int patternStopCount(int pattern) {
+        return patternStopOffsets[pattern + 1] - patternStopOffsets[pattern];
+    }
+
+    public int patternTripCount(int pattern) {
+        return patternTripOffsets[pattern + 1] - patternTripOffsets[pattern];
+    }
+
+    /**
+     * 模式第 pos 个停靠位置对应的站点下标
+     */
+    public int patternStation(int pattern, int pos) {
+        return patternStations[patternStopOffsets[pattern] + pos];
+    }
+
+    public long patternStopId(int pattern, int pos) {
+        return patternStopIds[patternStopOffsets[pattern] + pos];
+    }
+
+    public long tripId(int pattern, int trip) {
+        return tripIds[patternTripOffsets[pattern] + trip];
+    }
+
+    public String tripNumber(int pattern, int trip) {
+        return tripNumbers[patternTripOffsets[pattern] + trip];
+    }
+
+    public int arrival(int pattern, int trip, int pos) {
+        return arrivals[patternTimeOffsets[pattern] + pos * patternTripCount(pattern) + trip];
+    }
+
+    public int departure(int pattern, int trip, int pos) {
+        return departures[patternTimeOffsets[pattern] + pos * patternTripCount(pattern) + trip];
+    }
+
+    /**
+     * 在模式的某停靠位置上，查找 [0, limit) 范围内发车时间不早于 time 的最早车次
+     *
+     * @return 车次下标，不存在时返回-1
+     */
+    public int earliestTrip(int pattern, int pos, int time, int limit) {
+        int trips = patternTripCount(pattern);
+        int base = patternTimeOffsets[pattern] + pos * trips;
+        int lo = 0;
+        int hi = Math.min(limit, trips);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departures[base + mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < Math.min(limit, trips) ? lo : -1;
+    }
+
+    public int stationPatternStart(int station) {
+        return stationPatternOffsets[station];
+    }
+
+    public int stationPatternEnd(int station) {
+        return stationPatternOffsets[station + 1];
+    }
+
+    /**
+     * 经过站点的第 i 个（模式, 位置）中的模式下标，i 取值于 [stationPatternStart, stationPatternEnd)
+     */
+    public int stationPatternAt(int i) {
+        return stationPatterns[i];
+    }
+
+    public int stationPatternPositionAt(int i) {
+        return stationPatternPositions[i];
+    }
+
+    /**
+     * 获取站点发车索引，首次访问时构建
+     */
+    public DepartureIndex departureIndex() {
+        DepartureIndex index = departureIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = departureIndex;
+                if (index == null) {
+                    index = DepartureIndex.build(this);
+                    departureIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 获取按发车时间排序的连接数组，首次访问时构建
+     */
+    public ConnectionIndex connectionIndex() {
+        ConnectionIndex index = connectionIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = connectionIndex;
+                if (index == null) {
+                    index = ConnectionIndex.build(this);
+                    connectionIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    //********************* 构建用内部结构 *********************//
+
+    private static final class TripTimes {
+        private final long tripId;
+        private final String trainNumber;
+        private final int[] stations;
+        private final long[] stopIds;
+        private final int[] arrivals;
+        private final int[] departures;
+
+        private TripTimes(long tripId, String trainNumber, int[] stations, long[] stopIds,
+                          int[] arrivals, int[] departures) {
+            this.tripId = tripId;
+            this.trainNumber = trainNumber;
+            this.stations = stations;
+            this.stopIds = stopIds;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+
+        private boolean isDominatedBy(TripTimes later) {
+            for (int i = 0; i < arrivals.length; i++) {
+                if (arrivals[i] > later.arrivals[i] || departures[i] > later.departures[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Pattern {
+        private final int routeIdx;
+        private final int[] stations;
+        private final long[] stopIds;
+        private final List<TripTimes> trips = new ArrayList<>();
+
+        private Pattern(int routeIdx, int[] stations, long[] stopIds) {
+            this.routeIdx = routeIdx;
+            this.stations = stations;
+            this.stopIds = stopIds;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.scoding.metro.push;
+
+import com.scoding.metro.common.RCode;
+import com.scoding.metro.dto.PushEventDto;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.event.AnnouncementChangedEvent;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 变更推送广播器
+ * 通过 SSE 把公告变更和按线路划分的时刻表、路网变更推送给订阅的客户端，替代轮询。
+ * 连接建立后由 Servlet 异步请求保持，空闲连接不占用线程。每个订阅者有独立的有界发送缓冲，
+ * 发布事件的业务线程只把通知放入各订阅者的缓冲，再由发送线程池逐个订阅者异步发送；
+ * 慢客户端只会积压自己的缓冲，缓冲溢出时断开该连接，不影响其他订阅者。
+ * 最近的通知保存在环形缓冲中，客户端断线重连时携带 Last-Event-ID 即可补发期间错过的通知。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class PushBroadcaster {
+
+    private static final String TYPE_ANNOUNCEMENT = "announcement";
+    private static final String TYPE_TIMETABLE = "timetable";
+    private static final String TYPE_NETWORK = "network";
+
+    private static final Message CONNECTED = new Message(0, null, "connected");
+    private static final Message PING = new Message(0, null, "ping");
+
+    private final TransitNetworkHolder networkHolder;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final int replaySize;
+    private final int bufferSize;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    /**
+     * 最近的通知及通知序号，读写都在其监视器内进行，保证重连补发与新通知之间不漏不重
+     */
+    private final Deque<Message> recent = new ArrayDeque<>();
+    private long eventSequence;
+    private final ExecutorService senders;
+
+    public PushBroadcaster(TransitNetworkHolder networkHolder,
+                           @Value("${app.push.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${app.push.max-subscribers:20000}") int maxSubscribers,
+                           @Value("${app.push.replay-size:256}") int replaySize,
+                           @Value("${app.push.buffer-size:64}") int bufferSize,
+                           @Value("${app.push.sender-threads:8}") int senderThreads) {
+        this.networkHolder = networkHolder;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.replaySize = replaySize;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "metro-push-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 建立订阅
+     *
+     * @param lineIds     关注的线路，为空时接收全部线路的通知；公告总是推送
+     * @param lastEventId 重连时客户端收到的最后一条通知ID，首次连接为null
+     * @return SSE 连接
+     */
+    public SseEmitter subscribe(Collection<Long> lineIds, Long lastEventId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new BusinessException(RCode.SERVICE_UNAVAILABLE, "订阅连接数已达上限，请稍后重试");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, lineIds == null ? Set.of() : Set.copyOf(lineIds),
+                new ArrayBlockingQueue<>(bufferSize + replaySize + 1));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // 补发和登记在同一监视器内完成，重连的客户端不会漏收或重复收到通知
+        synchronized (recent) {
+            subscriber.buffer.offer(CONNECTED);
+            if (lastEventId != null) {
+                for (Message message : recent) {
+                    if (message.id > lastEventId && subscriber.accepts(message.payload)) {
+                        subscriber.buffer.offer(message);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * 当前订阅数
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * 公告变更（事务提交后）时推送
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnnouncementChanged(AnnouncementChangedEvent event) {
+        PushEventDto payload = new PushEventDto();
+        payload.setType(TYPE_ANNOUNCEMENT);
+        payload.setChangeType(event.getChangeType());
+        payload.setEntityId(event.getAnnouncementId());
+        payload.setAnnouncement(event.getAnnouncement());
+        payload.setTimestamp(System.currentTimeMillis());
+        publish(payload);
+    }
+
+    /**
+     * 地铁数据变更（事务提交后）时推送，受影响的线路由事件携带的路线或路网快照确定
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        PushEventDto payload = new PushEventDto();
+        payload.setType(event.getAggregate().isTopology() ? TYPE_NETWORK : TYPE_TIMETABLE);
+        payload.setChangeType(event.getChangeType());
+        payload.setAggregate(event.getAggregate());
+        payload.setEntityId(event.getEntityId());
+        payload.setLineId(resolveLineId(event));
+        payload.setTimestamp(System.currentTimeMillis());
+        publish(payload);
+    }
+
+    /**
+     * 定时发送心跳，保持经过代理的连接并及时发现已断开的客户端
+     */
+    @Scheduled(fixedDelayString = "${app.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, PING);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 记录通知并放入每个关注它的订阅者的缓冲，只做入队，不在调用线程上发送
+     */
+    private void publish(PushEventDto payload) {
+        synchronized (recent) {
+            Message message = new Message(++eventSequence, payload, null);
+            recent.addLast(message);
+            while (recent.size() > replaySize) {
+                recent.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(payload)) {
+                    offer(subscriber, message);
+                }
+            }
+        }
+    }
+
+    /**
+     * 放入订阅者的发送缓冲，缓冲已满说明客户端长时间收不下，断开该连接
+     */
+    private void offer(Subscriber subscriber, Message message) {
+        if (!subscriber.buffer.offer(message)) {
+            log.warn("推送缓冲已满，断开订阅: lineIds={}", subscriber.lineIds);
+            subscriber.buffer.clear();
+            remove(subscriber);
+            // 正在发送的线程可能仍阻塞在该连接上，由发送线程在返回后关闭连接
+            schedule(subscriber);
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    /**
+     * 订阅者空闲时提交一次发送任务，同一订阅者同时最多只有一个发送任务
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Message message;
+            while ((message = subscriber.buffer.poll()) != null && !subscriber.removed.get()) {
+                try {
+                    send(subscriber, message);
+                } catch (IOException | IllegalStateException e) {
+                    remove(subscriber);
+                }
+            }
+            if (subscriber.removed.get()) {
+                subscriber.buffer.clear();
+                try {
+                    subscriber.emitter.complete();
+                } catch (IllegalStateException e) {
+                    // 连接已由容器关闭
+                }
+                return;
+            }
+            subscriber.draining.set(false);
+            // 释放标记后再检查一次，避免与并发入队的通知错过
+            if (subscriber.buffer.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private static void send(Subscriber subscriber, Message message) throws IOException {
+        if (message.comment != null) {
+            SseEmitter.SseEventBuilder event = SseEmitter.event().comment(message.comment);
+            subscriber.emitter.send(message == CONNECTED ? event.reconnectTime(3000) : event);
+            return;
+        }
+        subscriber.emitter.send(SseEmitter.event()
+                .id(Long.toString(message.id))
+                .name(message.payload.getType())
+                .data(message.payload, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * 解析变更影响的线路
+     * 站点（可能属于多条线路）、运营日历（可能被多条线路共用）以及已删除或批量变更的记录无法确定线路，返回null
+     */
+    private Long resolveLineId(MetroDataChangedEvent event) {
+        try {
+            TransitNetworkSnapshot snapshot = networkHolder.get();
+            if (event.getRouteId() != null) {
+                return routeLineId(snapshot, event.getRouteId());
+            }
+            Long entityId = event.getEntityId();
+            if (entityId == null) {
+                return null;
+            }
+            return switch (event.getAggregate()) {
+                case LINE -> entityId;
+                case ROUTE -> routeLineId(snapshot, entityId);
+                case STOP -> {
+                    int stopIdx = snapshot.stopIndex(entityId);
+                    int routeIdx = stopIdx >= 0 ? snapshot.stopRouteAt(stopIdx) : -1;
+                    yield routeIdx >= 0 ? routeLineId(snapshot, snapshot.routeId(routeIdx)) : null;
+                }
+                default -> null;
+            };
+        } catch (RuntimeException e) {
+            log.warn("解析变更所属线路失败: {}", event, e);
+            return null;
+        }
+    }
+
+    private static Long routeLineId(TransitNetworkSnapshot snapshot, Long routeId) {
+        Route route = snapshot.getRoute(routeId);
+        return route != null ? route.getLineId() : null;
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscriber.removed.compareAndSet(false, true)) {
+            subscribers.remove(subscriber);
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 待发送的内容：通知，或 comment 不为空的注释行（连接确认、心跳）
+     */
+    private record Message(long id, PushEventDto payload, String comment) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        /**
+         * 关注的线路，为空表示全部
+         */
+        private final Set<Long> lineIds;
+        /**
+         * 待发送的内容，容量为 bufferSize 加上重连时最多补发的通知数
+         */
+        private final BlockingQueue<Message> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<Long> lineIds, BlockingQueue<Message> buffer) {
+            this.emitter = emitter;
+            this.lineIds = lineIds;
+            this.buffer = buffer;
+        }
+
+        /**
+         * 公告和无法确定线路的变更推送给所有订阅者
+         */
+        private boolean accepts(PushEventDto payload) {
+            return lineIds.isEmpty() || payload.getLineId() == null || lineIds.contains(payload.getLineId());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.scoding.metro.realtime;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 实时延误覆盖层
+ * 在内存中按列车行程保存各到站时刻的到达、发车延误（秒），查询到站时刻时与数据库中的计划时刻合并，不写库。
+ * 在某站上报延误后，延误沿行程向下游传播：每站的停站时间超出最短停站时间的部分可以吸收延误，
+ * 区间运行时间不变。同一行程再次上报时，上报站之前的延误保持不变，只重新计算上报站及其下游。
+ * 延误只对上报当天有效；状态定时写入快照文件，重启后恢复当天的延误。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+public class DelayOverlay {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int minDwellSeconds;
+    private final Path snapshotFile;
+
+    private final Map<Long, TripDelay> trips = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public DelayOverlay(ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                        @Value("${app.realtime.min-dwell-seconds:20}") int minDwellSeconds,
+                        @Value("${app.realtime.snapshot-file:data/delay-overlay.json}") String snapshotFile) {
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.minDwellSeconds = minDwellSeconds;
+        this.snapshotFile = Paths.get(snapshotFile);
+    }
+
+    /**
+     * 在某站上报延误并向下游传播
+     *
+     * @param stopTimes    行程的全部到站时刻，按行程内顺序排列
+     * @param index        上报站在 stopTimes 中的位置
+     * @param delaySeconds 上报站的到达延误（首站为发车延误），0 表示已恢复正点
+     * @return 行程当前的延误
+     */
+    public TripDelay report(List<StopTime> stopTimes, int index, int delaySeconds) {
+        Long trainTripId = stopTimes.get(index).getTrainTripId();
+        LocalDate today = LocalDate.now();
+        TripDelay result = trips.compute(trainTripId, (id, previous) -> {
+            TripDelay next = propagate(previous != null && today.equals(previous.serviceDate()) ? previous : null,
+                    stopTimes, index, delaySeconds, today);
+            return next.isEmpty() ? null : next;
+        });
+        dirty.set(true);
+        return result;
+    }
+
+    /**
+     * 清除行程的全部延误
+     *
+     * @return 是否存在延误
+     */
+    public boolean clear(Long trainTripId) {
+        boolean removed = trips.remove(trainTripId) != null;
+        if (removed) {
+            dirty.set(true);
+        }
+        return removed;
+    }
+
+    /**
+     * 获取行程当天的延误
+     *
+     * @return 延误，没有时返回null
+     */
+    public TripDelay get(Long trainTripId) {
+        TripDelay delay = trainTripId != null ? trips.get(trainTripId) : null;
+        return delay != null && LocalDate.now().equals(delay.serviceDate()) ? delay : null;
+    }
+
+    /**
+     * 当前有延误的行程数
+     */
+    public int size() {
+        return trips.size();
+    }
+
+    private TripDelay propagate(TripDelay previous, List<StopTime> stopTimes, int index, int delaySeconds,
+                               LocalDate serviceDate) {
+        int n = stopTimes.size();
+        long[] stopTimeIds = new long[n];
+        int[] arrivalDelays = new int[n];
+        int[] departureDelays = new int[n];
+        for (int i = 0; i < n; i++) {
+            stopTimeIds[i] = stopTimes.get(i).getId();
+        }
+        // 上游保留之前上报的结果，行程的到站时刻已变化时不再沿用
+        if (previous != null && Arrays.equals(previous.stopTimeIds(), stopTimeIds)) {
+            System.arraycopy(previous.arrivalDelays(), 0, arrivalDelays, 0, index);
+            System.arraycopy(previous.departureDelays(), 0, departureDelays, 0, index);
+        }
+
+        int delay = Math.max(0, delaySeconds);
+        for (int i = index; i < n; i++) {
+            StopTime stopTime = stopTimes.get(i);
+            arrivalDelays[i] = delay;
+            if (stopTime.getArrivalTime() != null && stopTime.getDepartureTime() != null) {
+                int slack = dwellSeconds(stopTime.getArrivalTime(), stopTime.getDepartureTime()) - minDwellSeconds;
+                delay = Math.max(0, delay - Math.max(0, slack));
+            }
+            departureDelays[i] = delay;
+        }
+        return new TripDelay(stopTimes.get(index).getTrainTripId(), serviceDate, System.currentTimeMillis(),
+                stopTimeIds, arrivalDelays, departureDelays);
+    }
+
+    /**
+     * 合并后的到达时刻
+     */
+    public static LocalTime arrival(StopTime stopTime, TripDelay delay) {
+        int seconds = delay != null ? delay.arrivalDelay(stopTime.getId()) : 0;
+        return stopTime.getArrivalTime() != null ? stopTime.getArrivalTime().plusSeconds(seconds) : null;
+    }
+
+    /**
+     * 合并后的发车时刻
+     */
+    public static LocalTime departure(StopTime stopTime, TripDelay delay) {
+        int seconds = delay != null ? delay.departureDelay(stopTime.getId()) : 0;
+        return stopTime.getDepartureTime() != null ? stopTime.getDepartureTime().plusSeconds(seconds) : null;
+    }
+
+    private static int dwellSeconds(LocalTime arrival, LocalTime departure) {
+        int dwell = departure.toSecondOfDay() - arrival.toSecondOfDay();
+        return dwell < 0 ? dwell + SECONDS_PER_DAY : dwell;
+    }
+
+    /**
+     * 启动时从快照恢复当天的延误
+     */
+    @PostConstruct
+    public void restore() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        try {
+            List<TripDelay> saved = objectMapper.readValue(snapshotFile.toFile(), new TypeReference<>() {
+            });
+            LocalDate today = LocalDate.now();
+            for (TripDelay delay : saved) {
+                if (today.equals(delay.serviceDate())) {
+                    trips.put(delay.trainTripId(), delay);
+                }
+            }
+            log.info("已从快照恢复 {} 个行程的延误", trips.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取延误快照失败，忽略: {}", snapshotFile, e);
+        }
+    }
+
+    /**
+     * 定时清除过期延误，并在有变化时写入快照
+     */
+    @Scheduled(fixedDelayString = "${app.realtime.snapshot-interval-ms:5000}")
+    public void snapshot() {
+        LocalDate today = LocalDate.now();
+        if (trips.values().removeIf(delay -> !today.equals(delay.serviceDate()))) {
+            dirty.set(true);
+            // 跨日后旧的延误失效，通知依赖延误的响应缓存更新版本
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.DELAY, MetroDataChangedEvent.ChangeType.DELETE, null));
+        }
+        writeIfDirty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeIfDirty();
+    }
+
+    private void writeIfDirty() {
+        if (dirty.getAndSet(false)) {
+            try {
+                write(new ArrayList<>(trips.values()));
+            } catch (IOException e) {
+                dirty.set(true);
+                log.warn("写入延误快照失败: {}", snapshotFile, e);
+            }
+        }
+    }
+
+    /**
+     * 先写临时文件再替换，避免进程中途退出留下不完整的快照
+     */
+    private void write(List<TripDelay> delays) throws IOException {
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "delay-overlay", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                objectMapper.writeValue(out, delays);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 一个行程的延误，数组按行程内顺序与到站时刻一一对应
+     *
+     * @param trainTripId     列车行程ID
+     * @param serviceDate     上报日期，仅当天有效
+     * @param updatedAt       最后上报时间（毫秒）
+     * @param stopTimeIds     到站时刻ID
+     * @param arrivalDelays   到达延误（秒）
+     * @param departureDelays 发车延误（秒）
+     */
+    public record TripDelay(Long trainTripId, LocalDate serviceDate, long updatedAt, long[] stopTimeIds,
+                            int[] arrivalDelays, int[] departureDelays) {
+
+        public int arrivalDelay(Long stopTimeId) {
+            int i = indexOf(stopTimeId);
+            return i >= 0 ? arrivalDelays[i] : 0;
+        }
+
+        public int departureDelay(Long stopTimeId) {
+            int i = indexOf(stopTimeId);
+            return i >= 0 ? departureDelays[i] : 0;
+        }
+
+        private boolean isEmpty() {
+            for (int i = 0; i < stopTimeIds.length; i++) {
+                if (arrivalDelays[i] != 0 || departureDelays[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(Long stopTimeId) {
+            if (stopTimeId != null) {
+                for (int i = 0; i < stopTimeIds.length; i++) {
+                    if (stopTimeIds[i] == stopTimeId) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.scoding.metro.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器
+ * 判定"不存在"时一定不存在，判定"可能存在"时需再查精确集合。位数组使用 {@link AtomicLongArray}，
+ * 可在读取的同时并发添加；不支持删除，需要收缩时重新构建。
+ *
+ * @author scoheart
+ */
+public final class BloomFilter {
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计元素个数
+     * @param falsePositiveRate  期望误判率
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / LN2_SQUARED);
+        this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    public void put(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            long mask = 1L << bit;
+            int index = bit >>> 6;
+            long current;
+            do {
+                current = bits.get(index);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(index, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a 64 位哈希，再经 MurmurHash3 的 fmix64 打散
+     */
+    private static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
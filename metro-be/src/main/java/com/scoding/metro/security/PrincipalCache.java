@@ -0,0 +1,113 @@
+package com.scoding.metro.security;
+
+import com.scoding.metro.entity.User;
+import com.scoding.metro.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已认证用户缓存
+ * JWT 中携带用户ID，过滤器据此取得当前用户（含角色、启用状态），短时间内的重复请求不再访问数据库。
+ * 缓存有容量上限和过期时间；用户状态、信息、角色或密码被修改以及用户被删除时，调用 {@link #invalidate(Long)} 立即失效。
+ *
+ * @author scoheart
+ */
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final UserMapper userMapper;
+
+    @Value("${jwt.principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 每次失效操作递增，加载期间发生过失效的结果不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<Long, CachedPrincipal> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedPrincipal> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * 获取用户，未缓存或已过期时从数据库加载
+     *
+     * @param userId 用户ID
+     * @return 用户，不存在时返回null
+     */
+    public SecurityUser get(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedPrincipal cached = cache.get(userId);
+            if (cached != null && cached.expiresAt > now) {
+                return cached.principal;
+            }
+        }
+
+        long currentGeneration = generation.get();
+        User user = userMapper.getUserByIdWithRoles(userId);
+        if (user == null) {
+            return null;
+        }
+        if (user.getRoles() == null) {
+            user.setRoles(new ArrayList<>());
+        }
+        SecurityUser principal = new SecurityUser(user);
+        if (generation.get() == currentGeneration) {
+            synchronized (cache) {
+                cache.put(userId, new CachedPrincipal(principal, now + ttlSeconds * 1000));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * 使某个用户的缓存失效
+     * 处于事务中时，事务提交后会再失效一次，避免提交前被并发请求以旧数据重新加载
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        generation.incrementAndGet();
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    private static final class CachedPrincipal {
+        private final SecurityUser principal;
+        private final long expiresAt;
+
+        private CachedPrincipal(SecurityUser principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.scoding.metro.security;
+
+import com.scoding.metro.entity.RevokedTokenDO;
+import com.scoding.metro.mapper.RevokedTokenMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌吊销服务
+ * 吊销记录以令牌ID（jti）为键持久化到 revoked_token 表，并在进程内维护"布隆过滤器 + 精确集合"：
+ * 绝大多数未吊销的令牌由布隆过滤器直接放行，请求路径上不访问数据库。
+ * 各节点定时从数据库重新加载，从而在没有外部缓存的情况下互相同步；记录在令牌过期后自动清除。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    /**
+     * 布隆过滤器最小容量，以及相对当前记录数预留的余量倍数
+     */
+    private static final int MIN_CAPACITY = 1024;
+    private static final int CAPACITY_FACTOR = 2;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenMapper revokedTokenMapper;
+
+    private volatile RevocationSet current = RevocationSet.empty();
+
+    /**
+     * 判断令牌是否已被吊销
+     *
+     * @param jti 令牌ID，旧令牌没有ID时视为未吊销
+     * @return 是否已吊销
+     */
+    public boolean isRevoked(String jti) {
+        return jti != null && current.contains(jti, System.currentTimeMillis());
+    }
+
+    /**
+     * 吊销令牌
+     *
+     * @param jti       令牌ID
+     * @param userId    令牌所属用户ID
+     * @param expiresAt 令牌过期时间
+     */
+    public void revoke(String jti, Long userId, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        RevokedTokenDO revokedToken = new RevokedTokenDO();
+        revokedToken.setJti(jti);
+        revokedToken.setUserId(userId);
+        revokedToken.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        revokedToken.setRevokedAt(LocalDateTime.now());
+        revokedTokenMapper.saveRevokedToken(revokedToken);
+        current.add(jti, expiresAt.getTime());
+    }
+
+    /**
+     * 应用启动后加载吊销记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * 定时从数据库重新加载，合并其他节点的吊销记录并丢弃已过期的记录
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.reload-interval-ms:30000}",
+            initialDelayString = "${jwt.revocation.reload-interval-ms:30000}")
+    public void reload() {
+        long now = System.currentTimeMillis();
+        List<RevokedTokenDO> revokedTokens;
+        try {
+            revokedTokens = revokedTokenMapper.listActiveRevokedTokens(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("加载令牌吊销记录失败，继续使用现有数据", e);
+            return;
+        }
+
+        RevocationSet previous = current;
+        RevocationSet next = new RevocationSet(
+                Math.max(MIN_CAPACITY, (revokedTokens.size() + previous.size()) * CAPACITY_FACTOR));
+        for (RevokedTokenDO revokedToken : revokedTokens) {
+            long expiresAt = revokedToken.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            next.add(revokedToken.getJti(), expiresAt);
+        }
+        // 保留本节点尚未写入（或尚未被本次查询读到）的记录，吊销集合只会因过期而缩小
+        previous.copyUnexpiredTo(next, now);
+        current = next;
+        // 切换期间写入旧集合的记录
+        previous.copyUnexpiredTo(next, now);
+    }
+
+    /**
+     * 定时删除数据库中已过期的吊销记录
+     */
+    @Scheduled(cron = "${jwt.revocation.purge-cron:0 0 * * * *}")
+    public void purgeExpired() {
+        int removed = revokedTokenMapper.removeExpiredRevokedTokens(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("已清理过期的令牌吊销记录: {} 条", removed);
+        }
+    }
+
+    /**
+     * 吊销集合：布隆过滤器快速排除，精确集合（jti → 过期时间）最终确认
+     */
+    private static final class RevocationSet {
+        private final BloomFilter bloomFilter;
+        private final Map<String, Long> entries = new ConcurrentHashMap<>();
+
+        private RevocationSet(int capacity) {
+            this.bloomFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        }
+
+        private static RevocationSet empty() {
+            return new RevocationSet(MIN_CAPACITY);
+        }
+
+        private void add(String jti, long expiresAt) {
+            entries.put(jti, expiresAt);
+            bloomFilter.put(jti);
+        }
+
+        private boolean contains(String jti, long now) {
+            if (!bloomFilter.mightContain(jti)) {
+                return false;
+            }
+            Long expiresAt = entries.get(jti);
+            return expiresAt != null && expiresAt > now;
+        }
+
+        private void copyUnexpiredTo(RevocationSet target, long now) {
+            entries.forEach((jti, expiresAt) -> {
+                if (expiresAt > now && !target.entries.containsKey(jti)) {
+                    target.add(jti, expiresAt);
+                }
+            });
+        }
+
+        private int size() {
+            return entries.size();
+        }
+    }
+}
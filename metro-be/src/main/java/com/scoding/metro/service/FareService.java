@@ -0,0 +1,30 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.FareDto;
+
+import java.util.List;
+
+/**
+ * 票价服务接口
+ *
+ * @author scoheart
+ */
+public interface FareService {
+
+    /**
+     * 查询两站之间的票价
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId   到达站点ID
+     * @return 票价
+     */
+    FareDto getFare(Long fromStationId, Long toStationId);
+
+    /**
+     * 查询从某站出发到其余各可达站点的票价
+     *
+     * @param stationId 出发站点ID
+     * @return 各到达站点的票价，按到达站点ID升序
+     */
+    List<FareDto> getFaresFrom(Long stationId);
+}
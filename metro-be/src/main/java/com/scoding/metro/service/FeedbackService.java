@@ -1,19 +1,40 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.dto.FeedbackDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.FeedbackDO;
 import com.scoding.metro.entity.ReplyDO;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface FeedbackService {
     /**
      * 获取所有反馈
      *
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
      * @return 反馈列表
      */
-    List<FeedbackDO> listFeedbacks();
+    List<FeedbackDO> listFeedbacks(Integer latestReplies);
+
+    /**
+     * 游标分页获取反馈，按ID降序（新的在前）
+     *
+     * @param cursor 上一页返回的游标，为空时从最新一条开始
+     * @param limit 每页条数
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
+     * @return 反馈分页
+     */
+    CursorPage<FeedbackDO> listFeedbacksPage(Long cursor, Integer limit, Integer latestReplies);
+
+    /**
+     * 以 NDJSON 格式流式输出所有反馈（不含回复）
+     *
+     * @param out 输出流
+     */
+    void streamFeedbacks(OutputStream out) throws IOException;
 
     /**
      * 根据ID获取反馈
@@ -27,9 +48,10 @@ public interface FeedbackService {
      * 获取用户的所有反馈
      *
      * @param userId 用户ID
+     * @param latestReplies 每条反馈只返回最新的若干条回复，为空时返回全部
      * @return 反馈列表
      */
-    List<FeedbackDO> listUserFeedbacks(Long userId);
+    List<FeedbackDO> listUserFeedbacks(Long userId, Integer latestReplies);
 
     /**
      * 创建反馈
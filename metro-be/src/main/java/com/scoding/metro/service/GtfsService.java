@@ -0,0 +1,34 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.JobDto;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * GTFS 数据交换服务接口
+ *
+ * @author scoheart
+ */
+public interface GtfsService {
+
+    /**
+     * 提交 GTFS 导入任务
+     * 上传的压缩包先保存为临时文件，再由后台任务流式导入，进度通过任务接口查询
+     *
+     * @param file GTFS 压缩包
+     * @return 已提交的任务
+     */
+    JobDto submitImport(MultipartFile file);
+
+    /**
+     * 导出 GTFS 压缩包
+     * 参数在调用时校验，返回的响应体在写出时才查询数据，边查边写
+     *
+     * @param startDate 起始运行日期（含），为空时不限
+     * @param endDate   结束运行日期（含），为空时不限
+     * @return 流式响应体
+     */
+    StreamingResponseBody exportFeed(LocalDate startDate, LocalDate endDate);
+}
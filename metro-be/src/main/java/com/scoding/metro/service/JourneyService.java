@@ -0,0 +1,62 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.JourneyDto;
+import com.scoding.metro.dto.ReachabilityDto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public interface JourneyService {
+
+    /**
+     * 规划两站之间的出行方案
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId   到达站点ID
+     * @param date          运行日期
+     * @param departAt      最早出发时间
+     * @param maxTransfers  最多换乘次数
+     * @param pareto        是否同时以票价为准则搜索
+     * @return 不考虑票价时为各换乘次数下最早到达的出行方案，按换乘次数升序；
+     * 考虑票价时为（到达时间, 换乘次数, 票价）的帕累托最优方案，按到达时间升序
+     */
+    List<JourneyDto> planJourneys(Long fromStationId, Long toStationId, LocalDate date,
+                                  LocalTime departAt, Integer maxTransfers, boolean pareto);
+
+    /**
+     * 查询出发时间窗口内两站之间的全部出行方案
+     *
+     * @param fromStationId 出发站点ID
+     * @param toStationId   到达站点ID
+     * @param date          运行日期
+     * @param departFrom    窗口开始时间
+     * @param departTo      窗口结束时间，早于开始时间时视为次日
+     * @return 出发越晚到达越晚的出行方案，按出发时间升序
+     */
+    List<JourneyDto> planJourneyProfile(Long fromStationId, Long toStationId, LocalDate date,
+                                        LocalTime departFrom, LocalTime departTo);
+
+    /**
+     * 查询从某站点出发在时限内可到达的站点
+     *
+     * @param stationId  出发站点ID
+     * @param date       运行日期
+     * @param departAt   出发时间
+     * @param maxMinutes 最长出行时间（分钟）
+     * @return 可到达站点及其最早到达时间和换乘次数
+     */
+    ReachabilityDto getReachableStations(Long stationId, LocalDate date, LocalTime departAt, Integer maxMinutes);
+
+    /**
+     * 批量查询多个出发站点在时限内可到达的站点，各出发站点并行计算
+     *
+     * @param stationIds 出发站点ID列表
+     * @param date       运行日期
+     * @param departAt   出发时间
+     * @param maxMinutes 最长出行时间（分钟）
+     * @return 各出发站点的可达范围，顺序与请求一致
+     */
+    List<ReachabilityDto> getReachableStations(List<Long> stationIds, LocalDate date, LocalTime departAt,
+                                               Integer maxMinutes);
+}
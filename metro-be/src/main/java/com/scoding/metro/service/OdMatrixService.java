@@ -0,0 +1,46 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.OdMatrixDto;
+import com.scoding.metro.dto.OdMatrixRequest;
+import com.scoding.metro.dto.OdMatrixRowDto;
+
+import java.nio.file.Path;
+import java.time.LocalTime;
+
+public interface OdMatrixService {
+
+    /**
+     * 提交 OD 旅行时间矩阵计算任务
+     *
+     * @param request 运行日期和各时间片的出发时刻
+     * @return 已提交的任务，任务ID即矩阵ID
+     */
+    JobDto submitCompute(OdMatrixRequest request);
+
+    /**
+     * 获取矩阵信息
+     *
+     * @param id 矩阵ID
+     * @return 矩阵信息
+     */
+    OdMatrixDto getMatrix(String id);
+
+    /**
+     * 读取一个出发站点在某时间片到各站点的旅行时间
+     *
+     * @param id            矩阵ID
+     * @param fromStationId 出发站点ID
+     * @param departAt      时间片的出发时刻
+     * @return 旅行时间
+     */
+    OdMatrixRowDto getRow(String id, Long fromStationId, LocalTime departAt);
+
+    /**
+     * 获取矩阵文件
+     *
+     * @param id 矩阵ID
+     * @return 文件路径
+     */
+    Path getMatrixFile(String id);
+}
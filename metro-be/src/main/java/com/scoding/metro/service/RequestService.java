@@ -1,19 +1,40 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.dto.RequestDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.RequestDO;
 import com.scoding.metro.entity.ReplyDO;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface RequestService {
     /**
      * 获取所有需求
      *
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
      * @return 需求列表
      */
-    List<RequestDO> listRequests();
+    List<RequestDO> listRequests(Integer latestReplies);
+
+    /**
+     * 游标分页获取需求，按ID降序（新的在前）
+     *
+     * @param cursor 上一页返回的游标，为空时从最新一条开始
+     * @param limit 每页条数
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
+     * @return 需求分页
+     */
+    CursorPage<RequestDO> listRequestsPage(Long cursor, Integer limit, Integer latestReplies);
+
+    /**
+     * 以 NDJSON 格式流式输出所有需求（不含回复）
+     *
+     * @param out 输出流
+     */
+    void streamRequests(OutputStream out) throws IOException;
 
     /**
      * 根据ID获取需求
@@ -27,9 +48,10 @@ public interface RequestService {
      * 获取用户的所有需求
      *
      * @param userId 用户ID
+     * @param latestReplies 每条需求只返回最新的若干条回复，为空时返回全部
      * @return 需求列表
      */
-    List<RequestDO> listUserRequests(Long userId);
+    List<RequestDO> listUserRequests(Long userId, Integer latestReplies);
 
     /**
      * 创建需求
@@ -0,0 +1,47 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.ServiceCalendarDto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 运营日历服务接口
+ * 按日历运行的列车行程只存储一次，查询某天的时刻表时再按日历展开
+ *
+ * @author scoheart
+ */
+public interface ServiceCalendarService {
+
+    List<ServiceCalendarDto> getAllCalendars();
+
+    ServiceCalendarDto getCalendarById(Long id);
+
+    /**
+     * 展开运营日历在日期范围内的运行日期
+     *
+     * @param id        运营日历ID
+     * @param startDate 起始日期，为空时取日历的生效起始日期
+     * @param endDate   结束日期（含），为空时取日历的生效结束日期
+     * @return 按日期排序的运行日期
+     */
+    List<LocalDate> getServiceDates(Long id, LocalDate startDate, LocalDate endDate);
+
+    ServiceCalendarDto createCalendar(ServiceCalendarDto calendarDto);
+
+    ServiceCalendarDto updateCalendar(Long id, ServiceCalendarDto calendarDto);
+
+    /**
+     * 删除运营日历，仍有列车行程使用时不允许删除
+     */
+    Boolean deleteCalendar(Long id);
+
+    /**
+     * 提交合并任务
+     * 把路线、车次号和停靠时刻完全相同、仅运行日期不同的单日列车行程合并为一条按运营日历运行的行程
+     *
+     * @return 已提交的任务
+     */
+    JobDto submitFold();
+}
@@ -1,7 +1,10 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.dto.DepartureBoardDto;
 import com.scoding.metro.dto.StationDto;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 public interface StationService {
@@ -16,6 +19,8 @@ public interface StationService {
 
     List<StationDto> getStationsByRouteId(Long routeId);
 
+    DepartureBoardDto getStationDepartures(Long id, LocalDate date, LocalTime after, Integer limit);
+
     StationDto createStation(StationDto stationDto);
 
     StationDto updateStation(Long id, StationDto stationDto);
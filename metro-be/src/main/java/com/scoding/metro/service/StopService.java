@@ -1,14 +1,21 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.dto.StopDto;
 import com.scoding.metro.dto.UpdateStopSequencesRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface StopService {
     
     List<StopDto> getAllStops();
     
+    CursorPage<StopDto> getStopsPage(Long cursor, Integer limit);
+    
+    void streamAllStops(OutputStream out) throws IOException;
+    
     StopDto getStopById(Long id);
     
     List<StopDto> getStopsByRouteId(Long routeId);
@@ -26,8 +33,10 @@ public interface StopService {
     /**
      * 批量更新经停站序号
      * 
+     * 提交的序号表示经停站在路线中的位置，须覆盖路线的全部经停站；起始站和终点站始终位于首尾
+     * 
      * @param request 包含路线ID和经停站序号的请求
-     * @return 操作结果
+     * @return 按新顺序排列的经停站
      */
-    boolean updateStopSequences(UpdateStopSequencesRequest request);
+    List<StopDto> updateStopSequences(UpdateStopSequencesRequest request);
 } 
\ No newline at end of file
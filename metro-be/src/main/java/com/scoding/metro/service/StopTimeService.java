@@ -1,12 +1,19 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.dto.StopTimeDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface StopTimeService {
     List<StopTimeDto> getAllStopTimes();
     
+    CursorPage<StopTimeDto> getStopTimesPage(Long cursor, Integer limit);
+    
+    void streamAllStopTimes(OutputStream out) throws IOException;
+    
     StopTimeDto getStopTimeById(Long id);
     
     List<StopTimeDto> getStopTimesByTrainTripId(Long trainTripId);
@@ -18,4 +25,18 @@ public interface StopTimeService {
     StopTimeDto updateStopTime(Long id, StopTimeDto stopTimeDto);
     
     Boolean deleteStopTime(Long id);
+    
+    /**
+     * 在某个到站时刻上报延误，延误向该行程下游传播，只保存在内存中
+     *
+     * @param stopTimeId   上报的到站时刻ID
+     * @param delaySeconds 延误秒数，0 表示恢复正点
+     * @return 该行程合并延误后的到站时刻
+     */
+    List<StopTimeDto> reportDelay(Long stopTimeId, Integer delaySeconds);
+    
+    /**
+     * 清除列车行程的实时延误
+     */
+    Boolean clearDelay(Long trainTripId);
 } 
\ No newline at end of file
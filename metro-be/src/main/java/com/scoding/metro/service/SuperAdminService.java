@@ -1,7 +1,10 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.entity.User;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -17,6 +20,22 @@ public interface SuperAdminService {
      */
     List<User> listAllUsers();
     
+    /**
+     * 游标分页获取用户，按ID升序
+     * 
+     * @param cursor 上一页返回的游标，为空时从第一个用户开始
+     * @param limit 每页条数
+     * @return 用户分页
+     */
+    CursorPage<User> listUsersPage(Long cursor, Integer limit);
+    
+    /**
+     * 以 NDJSON 格式流式输出所有用户（不含密码等敏感信息）
+     * 
+     * @param out 输出流
+     */
+    void streamAllUsers(OutputStream out) throws IOException;
+    
     /**
      * 根据ID获取用户
      * 
@@ -0,0 +1,21 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.SyncDto;
+
+/**
+ * 路网数据增量同步服务
+ * 移动端和自助终端只下载上次同步之后变更的线路、站点、路线和停靠点
+ *
+ * @author scoheart
+ */
+public interface SyncService {
+
+    /**
+     * 获取指定版本之后的路网数据变更
+     * since 为空、版本无效或对应的变更日志已被压缩时返回全量数据
+     *
+     * @param since 客户端已同步到的版本
+     * @return 同步结果
+     */
+    SyncDto sync(Long since);
+}
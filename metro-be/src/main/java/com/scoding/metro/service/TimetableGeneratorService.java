@@ -0,0 +1,21 @@
+package com.scoding.metro.service;
+
+import com.scoding.metro.dto.TimetableGenerateRequest;
+import com.scoding.metro.dto.TimetableGenerateResultDto;
+
+/**
+ * 时刻表批量生成服务接口
+ *
+ * @author scoheart
+ */
+public interface TimetableGeneratorService {
+
+    /**
+     * 按发车间隔为路线生成一段日期内的列车行程和到站时刻
+     * 所有数据在一个事务内写入，任一日期已有该路线的行程时拒绝生成
+     *
+     * @param request 生成参数
+     * @return 生成结果及吞吐量
+     */
+    TimetableGenerateResultDto generate(TimetableGenerateRequest request);
+}
@@ -1,16 +1,29 @@
 package com.scoding.metro.service;
 
+import com.scoding.metro.common.CursorPage;
 import com.scoding.metro.dto.TrainTripDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface TrainTripService {
     List<TrainTripDto> getAllTrainTrips();
     
+    CursorPage<TrainTripDto> getTrainTripsPage(Long cursor, Integer limit);
+    
+    void streamAllTrainTrips(OutputStream out) throws IOException;
+    
     TrainTripDto getTrainTripById(Long id);
     
     List<TrainTripDto> getTrainTripsByRouteId(Long routeId);
     
+    /**
+     * 获取某运行日期的列车行程，按运营日历运行的行程展开到该日期
+     */
+    List<TrainTripDto> getTrainTripsByDate(LocalDate date);
+    
     TrainTripDto getTrainTripWithStopTimes(Long id);
     
     TrainTripDto createTrainTrip(TrainTripDto trainTripDto);
@@ -3,10 +3,13 @@ package com.scoding.metro.service.impl;
 import com.scoding.metro.common.RCode;
 import com.scoding.metro.dto.AnnouncementDto;
 import com.scoding.metro.entity.Announcement;
+import com.scoding.metro.event.AnnouncementChangedEvent;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.AnnouncementMapper;
 import com.scoding.metro.service.AnnouncementService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +20,7 @@ import java.util.List;
 public class AnnouncementServiceImpl implements AnnouncementService {
 
     private final AnnouncementMapper announcementMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<Announcement> getAllAnnouncements() {
@@ -41,7 +45,10 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         announcement.setAdminId(adminId);
 
         announcementMapper.saveAnnouncement(announcement);
-        return getAnnouncementById(announcement.getId());
+        Announcement created = getAnnouncementById(announcement.getId());
+        eventPublisher.publishEvent(new AnnouncementChangedEvent(
+                MetroDataChangedEvent.ChangeType.CREATE, created.getId(), created));
+        return created;
     }
 
     @Override
@@ -53,12 +60,18 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         announcement.setContent(announcementDto.getContent());
 
         announcementMapper.updateAnnouncement(announcement);
-        return getAnnouncementById(id);
+        Announcement updated = getAnnouncementById(id);
+        eventPublisher.publishEvent(new AnnouncementChangedEvent(
+                MetroDataChangedEvent.ChangeType.UPDATE, id, updated));
+        return updated;
     }
 
     @Override
     @Transactional
     public void deleteAnnouncement(Long id) {
-        announcementMapper.deleteAnnouncement(id);
+        if (announcementMapper.deleteAnnouncement(id) > 0) {
+            eventPublisher.publishEvent(new AnnouncementChangedEvent(
+                    MetroDataChangedEvent.ChangeType.DELETE, id, null));
+        }
     }
 }
\ No newline at end of file
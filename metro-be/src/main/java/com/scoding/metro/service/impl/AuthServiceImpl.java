@@ -11,8 +11,10 @@ import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.RoleMapper;
 import com.scoding.metro.mapper.UserMapper;
 import com.scoding.metro.security.SecurityUser;
+import com.scoding.metro.security.TokenRevocationService;
 import com.scoding.metro.service.AuthService;
 import com.scoding.metro.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -37,6 +39,7 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
     private final RoleMapper roleMapper;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     @Transactional
@@ -126,7 +129,15 @@ public class AuthServiceImpl implements AuthService {
             throw new BusinessException(RCode.UNAUTHORIZED, "无效的刷新令牌");
         }
 
-        String username = jwtUtil.extractUsername(refreshToken);
+        // 解析时一并校验签名和有效期
+        Claims claims = jwtUtil.parseToken(refreshToken);
+        if (claims == null) {
+            throw new BusinessException(RCode.UNAUTHORIZED, "刷新令牌无效或已过期");
+        }
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            throw new BusinessException(RCode.UNAUTHORIZED, "刷新令牌已失效，请重新登录");
+        }
+        String username = claims.getSubject();
         if (username == null) {
             throw new BusinessException(RCode.UNAUTHORIZED, "无效的刷新令牌");
         }
@@ -140,13 +151,13 @@ public class AuthServiceImpl implements AuthService {
         List<Role> roles = roleMapper.getRolesByUserId(user.getId());
         user.setRoles(roles);
 
+        if (!user.isEnabled()) {
+            throw new BusinessException(RCode.UNAUTHORIZED, "用户已被禁用");
+        }
+
         // 创建安全用户
         SecurityUser securityUser = new SecurityUser(user);
 
-        if (!jwtUtil.isTokenValid(refreshToken, securityUser)) {
-            throw new BusinessException(RCode.UNAUTHORIZED, "刷新令牌已过期");
-        }
-
         String newAccessToken = jwtUtil.generateToken(securityUser);
         String newRefreshToken = jwtUtil.generateRefreshToken(securityUser);
 
@@ -155,9 +166,22 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public void logout(HttpServletRequest request) {
+        // 吊销本次会话的访问令牌和刷新令牌，使其在过期前也无法再使用
+        revokeToken(jwtUtil.extractToken(request));
+        revokeToken(jwtUtil.extractRefreshToken(request));
         SecurityContextHolder.clearContext();
     }
 
+    private void revokeToken(String token) {
+        if (token == null) {
+            return;
+        }
+        Claims claims = jwtUtil.parseToken(token);
+        if (claims != null) {
+            tokenRevocationService.revoke(claims.getId(), jwtUtil.extractUserId(claims), claims.getExpiration());
+        }
+    }
+
     @Override
     public User getCurrentUser(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -165,7 +189,13 @@ public class AuthServiceImpl implements AuthService {
         }
 
         if (authentication.getPrincipal() instanceof SecurityUser) {
-            return ((SecurityUser) authentication.getPrincipal()).getUser();
+            // 认证信息中的用户可能来自缓存，返回数据库中的最新数据
+            Long userId = ((SecurityUser) authentication.getPrincipal()).getUser().getId();
+            User user = userMapper.getUserByIdWithRoles(userId);
+            if (user == null) {
+                throw new BusinessException(RCode.UNAUTHORIZED, "用户不存在");
+            }
+            return user;
         }
 
         throw new BusinessException(RCode.UNAUTHORIZED, "无效的用户认证信息");
@@ -0,0 +1,66 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.dto.FareDto;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.fare.FareMatrix;
+import com.scoding.metro.fare.FareMatrixHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.service.FareService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class FareServiceImpl implements FareService {
+
+    private final FareMatrixHolder fareMatrixHolder;
+
+    @Override
+    public FareDto getFare(Long fromStationId, Long toStationId) {
+        FareMatrix matrix = fareMatrixHolder.get();
+        int from = matrix.stationIndex(fromStationId);
+        int to = matrix.stationIndex(toStationId);
+        if (from < 0 || to < 0) {
+            throw new BusinessException("站点不存在");
+        }
+        if (from == to) {
+            throw new BusinessException("出发站点和到达站点不能相同");
+        }
+        int cents = matrix.fareCents(from, to);
+        if (cents == FareMatrix.UNREACHABLE) {
+            throw new BusinessException("两站之间没有可乘坐的线路");
+        }
+        return toDto(matrix.getNetwork(), fromStationId, toStationId, cents);
+    }
+
+    @Override
+    public List<FareDto> getFaresFrom(Long stationId) {
+        FareMatrix matrix = fareMatrixHolder.get();
+        int from = matrix.stationIndex(stationId);
+        if (from < 0) {
+            throw new BusinessException("站点不存在");
+        }
+        TransitNetworkSnapshot network = matrix.getNetwork();
+        List<FareDto> result = new ArrayList<>();
+        for (int to = 0; to < matrix.getStationCount(); to++) {
+            int cents = matrix.fareCents(from, to);
+            if (to != from && cents != FareMatrix.UNREACHABLE) {
+                result.add(toDto(network, stationId, matrix.stationId(to), cents));
+            }
+        }
+        return result;
+    }
+
+    private static FareDto toDto(TransitNetworkSnapshot network, Long fromStationId, Long toStationId, int cents) {
+        FareDto dto = new FareDto();
+        dto.setFromStationId(fromStationId);
+        dto.setFromStationName(network.getStationName(fromStationId));
+        dto.setToStationId(toStationId);
+        dto.setToStationName(network.getStationName(toStationId));
+        dto.setFare(cents / 100.0);
+        return dto;
+    }
+}
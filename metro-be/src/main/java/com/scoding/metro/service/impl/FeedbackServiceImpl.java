@@ -1,21 +1,31 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
 import com.scoding.metro.common.RCode;
 import com.scoding.metro.dto.FeedbackDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.FeedbackDO;
 import com.scoding.metro.entity.ReplyDO;
 import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.loader.ReplyLoader;
 import com.scoding.metro.mapper.FeedbackMapper;
 import com.scoding.metro.mapper.ReplyMapper;
 import com.scoding.metro.mapper.UserMapper;
 import com.scoding.metro.service.FeedbackService;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,20 +34,45 @@ public class FeedbackServiceImpl implements FeedbackService {
     private final FeedbackMapper feedbackMapper;
     private final ReplyMapper replyMapper;
     private final UserMapper userMapper;
+    private final ReplyLoader replyLoader;
+    private final ObjectMapper objectMapper;
 
     @Override
-    public List<FeedbackDO> listFeedbacks() {
+    public List<FeedbackDO> listFeedbacks(Integer latestReplies) {
         List<FeedbackDO> feedbacks = feedbackMapper.listFeedbacks();
         
-        // 为每个反馈加载回复
-        for (FeedbackDO feedback : feedbacks) {
-            List<ReplyDO> replies = replyMapper.listRepliesByParent(feedback.getId(), "FEEDBACK");
-            feedback.setReplies(replies);
-        }
+        // 批量加载回复
+        attachReplies(feedbacks, latestReplies);
         
         return feedbacks;
     }
 
+    @Override
+    public CursorPage<FeedbackDO> listFeedbacksPage(Long cursor, Integer limit, Integer latestReplies) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        // 多查一条用于判断是否还有下一页
+        CursorPage<FeedbackDO> page = CursorPage.of(
+                feedbackMapper.listFeedbacksPage(cursor, pageSize + 1), pageSize, FeedbackDO::getId);
+        
+        // 批量加载本页的回复
+        attachReplies(page.getItems(), latestReplies);
+        
+        return page;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamFeedbacks(OutputStream out) throws IOException {
+        // 流式读取期间连接被占用，无法再查询回复，导出只包含反馈本身
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Cursor<FeedbackDO> cursor = feedbackMapper.streamFeedbacks()) {
+            for (FeedbackDO feedback : cursor) {
+                writer.write(feedback);
+            }
+        }
+        writer.finish();
+    }
+
     @Override
     public FeedbackDO getFeedbackById(Long id) {
         FeedbackDO feedback = feedbackMapper.getFeedbackById(id);
@@ -48,19 +83,17 @@ public class FeedbackServiceImpl implements FeedbackService {
         // 加载回复
         List<ReplyDO> replies = replyMapper.listRepliesByParent(id, "FEEDBACK");
         feedback.setReplies(replies);
+        feedback.setReplyCount(replies.size());
         
         return feedback;
     }
     
     @Override
-    public List<FeedbackDO> listUserFeedbacks(Long userId) {
+    public List<FeedbackDO> listUserFeedbacks(Long userId, Integer latestReplies) {
         List<FeedbackDO> feedbacks = feedbackMapper.listFeedbacksByUserId(userId);
         
-        // 为每个反馈加载回复
-        for (FeedbackDO feedback : feedbacks) {
-            List<ReplyDO> replies = replyMapper.listRepliesByParent(feedback.getId(), "FEEDBACK");
-            feedback.setReplies(replies);
-        }
+        // 批量加载回复
+        attachReplies(feedbacks, latestReplies);
         
         return feedbacks;
     }
@@ -115,4 +148,21 @@ public class FeedbackServiceImpl implements FeedbackService {
         // 删除反馈
         feedbackMapper.removeFeedback(id);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批量加载反馈的回复和回复数：回复一次 IN 查询取回，只取最新若干条时再用一次分组计数查询
+     */
+    private void attachReplies(List<FeedbackDO> feedbacks, Integer latestReplies) {
+        if (feedbacks.isEmpty()) {
+            return;
+        }
+        List<Long> ids = feedbacks.stream().map(FeedbackDO::getId).collect(Collectors.toList());
+        Map<Long, List<ReplyDO>> replies = replyLoader.loadReplies(ids, "FEEDBACK", latestReplies);
+        Map<Long, Integer> counts = latestReplies == null ? null : replyLoader.countReplies(ids, "FEEDBACK");
+        for (FeedbackDO feedback : feedbacks) {
+            List<ReplyDO> feedbackReplies = replies.getOrDefault(feedback.getId(), new ArrayList<>());
+            feedback.setReplies(feedbackReplies);
+            feedback.setReplyCount(counts == null ? feedbackReplies.size() : counts.getOrDefault(feedback.getId(), 0));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.gtfs.GtfsFeedExporter;
+import com.scoding.metro.gtfs.GtfsFeedImporter;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.job.JobRegistry;
+import com.scoding.metro.service.GtfsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GtfsServiceImpl implements GtfsService {
+
+    private static final String IMPORT_JOB_TYPE = "GTFS_IMPORT";
+
+    private final GtfsFeedImporter feedImporter;
+    private final GtfsFeedExporter feedExporter;
+    private final JobRegistry jobRegistry;
+
+    @Override
+    public JobDto submitImport(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("请上传 GTFS 压缩包");
+        }
+
+        Path zipPath;
+        try {
+            zipPath = Files.createTempFile("gtfs-import-", ".zip");
+            file.transferTo(zipPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存上传文件失败", e);
+        }
+
+        try {
+            Job job = jobRegistry.submit(IMPORT_JOB_TYPE, current -> {
+                try {
+                    feedImporter.importFeed(current, zipPath);
+                    return current.getCounters();
+                } finally {
+                    deleteQuietly(zipPath);
+                }
+            });
+            log.info("GTFS 导入任务已提交: {}, 文件: {}", job.getId(), file.getOriginalFilename());
+            return JobDto.fromJob(job);
+        } catch (RuntimeException e) {
+            deleteQuietly(zipPath);
+            throw e;
+        }
+    }
+
+    @Override
+    public StreamingResponseBody exportFeed(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new BusinessException("起始日期不能晚于结束日期");
+        }
+        log.info("导出 GTFS 数据, 运行日期: {} ~ {}", startDate, endDate);
+        return out -> feedExporter.export(out, startDate, endDate);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", path, e);
+        }
+    }
+}
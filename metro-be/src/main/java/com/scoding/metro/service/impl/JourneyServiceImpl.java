@@ -0,0 +1,260 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.dto.JourneyDto;
+import com.scoding.metro.dto.JourneyLegDto;
+import com.scoding.metro.dto.ReachabilityDto;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.fare.FareMatrixHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.CsaProfileEngine;
+import com.scoding.metro.planner.FareModel;
+import com.scoding.metro.planner.McRaptorEngine;
+import com.scoding.metro.planner.RaptorEngine;
+import com.scoding.metro.planner.SearchPool;
+import com.scoding.metro.planner.TimetableHolder;
+import com.scoding.metro.planner.TimetableSnapshot;
+import com.scoding.metro.service.JourneyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class JourneyServiceImpl implements JourneyService {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final TimetableHolder timetableHolder;
+    private final FareMatrixHolder fareMatrixHolder;
+    private final SearchPool searchPool;
+
+    @Value("${app.planner.transfer-seconds:60}")
+    private int transferSeconds;
+
+    @Value("${app.planner.max-transfers:5}")
+    private int maxTransfersLimit;
+
+    @Value("${app.planner.profile-window-minutes:60}")
+    private int defaultWindowMinutes;
+
+    @Value("${app.planner.max-profile-window-minutes:240}")
+    private int maxWindowMinutes;
+
+    @Value("${app.planner.profile-horizon-minutes:180}")
+    private int horizonMinutes;
+
+    @Value("${app.planner.max-reachability-minutes:240}")
+    private int maxReachabilityMinutes;
+
+    @Value("${app.planner.max-reachability-origins:100}")
+    private int maxReachabilityOrigins;
+
+    @Override
+    public List<JourneyDto> planJourneys(Long fromStationId, Long toStationId, LocalDate date,
+                                         LocalTime departAt, Integer maxTransfers, boolean pareto) {
+        int transfers = maxTransfers == null ? maxTransfersLimit : maxTransfers;
+        if (transfers < 0 || transfers > maxTransfersLimit) {
+            throw new BusinessException("换乘次数需在0到" + maxTransfersLimit + "之间");
+        }
+
+        LocalDate runDate = date != null ? date : LocalDate.now();
+        int departSeconds = (departAt != null ? departAt : LocalTime.now()).toSecondOfDay();
+
+        TimetableSnapshot timetable = timetableHolder.get(runDate);
+        // 站点下标必须与时刻表构建时的路网快照一致
+        TransitNetworkSnapshot network = timetable.getNetwork();
+        int origin = network.stationIndex(fromStationId);
+        int target = network.stationIndex(toStationId);
+        validateStations(origin, target);
+
+        FareModel fareModel = fareMatrixHolder.get();
+        List<RaptorEngine.Journey> journeys = pareto
+                ? McRaptorEngine.paretoJourneys(timetable, fareModel, origin, target, departSeconds,
+                transfers + 1, transferSeconds)
+                : RaptorEngine.earliestArrival(timetable, origin, target, departSeconds, transfers + 1, transferSeconds);
+
+        List<JourneyDto> result = new ArrayList<>(journeys.size());
+        for (RaptorEngine.Journey journey : journeys) {
+            result.add(convertToDto(journey, runDate, departSeconds, timetable, network, fareModel));
+        }
+        return result;
+    }
+
+    @Override
+    public List<JourneyDto> planJourneyProfile(Long fromStationId, Long toStationId, LocalDate date,
+                                               LocalTime departFrom, LocalTime departTo) {
+        LocalDate runDate = date != null ? date : LocalDate.now();
+        int windowStart = (departFrom != null ? departFrom : LocalTime.now()).toSecondOfDay();
+        int windowEnd = departTo != null ? departTo.toSecondOfDay() : windowStart + defaultWindowMinutes * 60;
+        if (windowEnd < windowStart) {
+            windowEnd += SECONDS_PER_DAY;
+        }
+        if (windowEnd - windowStart > maxWindowMinutes * 60) {
+            throw new BusinessException("出发时间窗口不能超过" + maxWindowMinutes + "分钟");
+        }
+
+        TimetableSnapshot timetable = timetableHolder.get(runDate);
+        TransitNetworkSnapshot network = timetable.getNetwork();
+        int origin = network.stationIndex(fromStationId);
+        int target = network.stationIndex(toStationId);
+        validateStations(origin, target);
+
+        List<RaptorEngine.Journey> journeys = CsaProfileEngine.profile(timetable, origin, target,
+                windowStart, windowEnd, horizonMinutes * 60, transferSeconds);
+        FareModel fareModel = fareMatrixHolder.get();
+
+        List<JourneyDto> result = new ArrayList<>(journeys.size());
+        for (RaptorEngine.Journey journey : journeys) {
+            result.add(convertToDto(journey, runDate, journey.getDepartureTime(), timetable, network, fareModel));
+        }
+        return result;
+    }
+
+    @Override
+    public ReachabilityDto getReachableStations(Long stationId, LocalDate date, LocalTime departAt,
+                                                Integer maxMinutes) {
+        return getReachableStations(List.of(stationId), date, departAt, maxMinutes).get(0);
+    }
+
+    @Override
+    public List<ReachabilityDto> getReachableStations(List<Long> stationIds, LocalDate date, LocalTime departAt,
+                                                      Integer maxMinutes) {
+        if (stationIds == null || stationIds.isEmpty()) {
+            throw new BusinessException("出发站点不能为空");
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(stationIds));
+        if (ids.size() > maxReachabilityOrigins) {
+            throw new BusinessException("出发站点不能超过" + maxReachabilityOrigins + "个");
+        }
+        int minutes = maxMinutes == null ? 30 : maxMinutes;
+        if (minutes < 1 || minutes > maxReachabilityMinutes) {
+            throw new BusinessException("出行时间需在1到" + maxReachabilityMinutes + "分钟之间");
+        }
+
+        LocalDate runDate = date != null ? date : LocalDate.now();
+        LocalTime departTime = departAt != null ? departAt : LocalTime.now().withSecond(0).withNano(0);
+        TimetableSnapshot timetable = timetableHolder.get(runDate);
+        TransitNetworkSnapshot network = timetable.getNetwork();
+        int[] origins = new int[ids.size()];
+        for (int i = 0; i < origins.length; i++) {
+            origins[i] = network.stationIndex(ids.get(i));
+            if (origins[i] < 0) {
+                throw new BusinessException("站点不存在");
+            }
+        }
+
+        if (origins.length == 1) {
+            return List.of(reachability(network, timetable, origins[0], runDate, departTime, minutes));
+        }
+        return searchPool.map(origins.length,
+                i -> reachability(network, timetable, origins[i], runDate, departTime, minutes));
+    }
+
+    private ReachabilityDto reachability(TransitNetworkSnapshot network, TimetableSnapshot timetable, int origin,
+                                         LocalDate runDate, LocalTime departAt, int maxMinutes) {
+        int departSeconds = departAt.toSecondOfDay();
+        RaptorEngine.Reachability reachability = RaptorEngine.reachable(timetable, origin, departSeconds,
+                departSeconds + maxMinutes * 60, maxTransfersLimit + 1, transferSeconds);
+
+        List<ReachabilityDto.ReachableStation> stations = new ArrayList<>();
+        int[] arrivals = reachability.getArrivals();
+        for (int s = 0; s < arrivals.length; s++) {
+            if (s == origin || !reachability.isReachable(s)) {
+                continue;
+            }
+            ReachabilityDto.ReachableStation station = new ReachabilityDto.ReachableStation();
+            station.setStationId(network.stationId(s));
+            station.setStationName(network.stationNameAt(s));
+            station.setArrivalTime(toLocalTime(arrivals[s]));
+            station.setArrivesNextDay(arrivals[s] >= SECONDS_PER_DAY);
+            station.setTravelMinutes((arrivals[s] - departSeconds + 59) / 60);
+            station.setTransfers(reachability.getTransfers()[s]);
+            stations.add(station);
+        }
+        stations.sort(Comparator.comparing(ReachabilityDto.ReachableStation::getTravelMinutes)
+                .thenComparing(ReachabilityDto.ReachableStation::getStationId));
+
+        ReachabilityDto dto = new ReachabilityDto();
+        dto.setStationId(network.stationId(origin));
+        dto.setStationName(network.stationNameAt(origin));
+        dto.setRunDate(runDate);
+        dto.setDepartAt(departAt);
+        dto.setMaxMinutes(maxMinutes);
+        dto.setStations(stations);
+        return dto;
+    }
+
+    private static void validateStations(int origin, int target) {
+        if (origin < 0 || target < 0) {
+            throw new BusinessException("站点不存在");
+        }
+        if (origin == target) {
+            throw new BusinessException("出发站点和到达站点不能相同");
+        }
+    }
+
+    private JourneyDto convertToDto(RaptorEngine.Journey journey, LocalDate runDate, int departSeconds,
+                                    TimetableSnapshot timetable, TransitNetworkSnapshot network,
+                                    FareModel fareModel) {
+        JourneyDto dto = new JourneyDto();
+        dto.setRunDate(runDate);
+        dto.setDepartureTime(toLocalTime(journey.getDepartureTime()));
+        dto.setArrivalTime(toLocalTime(journey.getArrivalTime()));
+        dto.setArrivesNextDay(journey.getArrivalTime() >= SECONDS_PER_DAY);
+        dto.setDurationMinutes((journey.getArrivalTime() - departSeconds + 59) / 60);
+        dto.setTransfers(journey.getTransfers());
+
+        List<JourneyLegDto> legs = new ArrayList<>(journey.getLegs().size());
+        int fareUnits = 0;
+        for (RaptorEngine.Leg leg : journey.getLegs()) {
+            legs.add(convertToDto(leg, timetable, network));
+            fareUnits += fareModel.legUnits(timetable, leg.getPattern(), leg.getBoardPos(), leg.getAlightPos());
+        }
+        dto.setFare(fareModel.fare(fareUnits) / 100.0);
+        dto.setLegs(legs);
+        return dto;
+    }
+
+    private JourneyLegDto convertToDto(RaptorEngine.Leg leg, TimetableSnapshot timetable,
+                                       TransitNetworkSnapshot network) {
+        int pattern = leg.getPattern();
+        JourneyLegDto dto = new JourneyLegDto();
+        dto.setTrainTripId(timetable.tripId(pattern, leg.getTrip()));
+        dto.setTrainNumber(timetable.tripNumber(pattern, leg.getTrip()));
+
+        int routeIdx = timetable.patternRoute(pattern);
+        if (routeIdx >= 0) {
+            Route route = network.getRoute(network.routeId(routeIdx));
+            dto.setRouteId(route.getId());
+            dto.setRouteName(route.getName());
+            if (route.getLine() != null) {
+                dto.setLineId(route.getLine().getId());
+                dto.setLineName(route.getLine().getName());
+                dto.setLineColor(route.getLine().getColor());
+            }
+        }
+
+        int fromStation = timetable.patternStation(pattern, leg.getBoardPos());
+        int toStation = timetable.patternStation(pattern, leg.getAlightPos());
+        dto.setFromStationId(network.stationId(fromStation));
+        dto.setFromStationName(network.stationNameAt(fromStation));
+        dto.setToStationId(network.stationId(toStation));
+        dto.setToStationName(network.stationNameAt(toStation));
+        dto.setDepartureTime(toLocalTime(leg.getDepartureTime()));
+        dto.setArrivalTime(toLocalTime(leg.getArrivalTime()));
+        dto.setStopCount(leg.getAlightPos() - leg.getBoardPos());
+        return dto;
+    }
+
+    private static LocalTime toLocalTime(int seconds) {
+        return LocalTime.ofSecondOfDay(seconds % SECONDS_PER_DAY);
+    }
+}
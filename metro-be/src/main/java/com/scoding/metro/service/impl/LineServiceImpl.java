@@ -3,11 +3,15 @@ package com.scoding.metro.service.impl;
 import com.scoding.metro.dto.LineDto;
 import com.scoding.metro.entity.Line;
 import com.scoding.metro.entity.Route;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.LineMapper;
 import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
 import com.scoding.metro.service.LineService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,17 +24,19 @@ public class LineServiceImpl implements LineService {
     
     private final LineMapper lineMapper;
     private final RouteMapper routeMapper;
+    private final TransitNetworkHolder networkHolder;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Override
     public List<LineDto> getAllLines() {
-        return lineMapper.getAllLines().stream()
+        return networkHolder.get().getLines().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
     
     @Override
     public LineDto getLineById(Long id) {
-        Line line = lineMapper.getLineById(id);
+        Line line = networkHolder.get().getLine(id);
         if (line == null) {
             throw new BusinessException("线路不存在");
         }
@@ -39,7 +45,7 @@ public class LineServiceImpl implements LineService {
     
     @Override
     public LineDto getLineByCode(String code) {
-        Line line = lineMapper.getLineByCode(code);
+        Line line = networkHolder.get().getLineByCode(code);
         if (line == null) {
             throw new BusinessException("线路不存在");
         }
@@ -58,6 +64,8 @@ public class LineServiceImpl implements LineService {
         }
         
         lineMapper.insertLine(line);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.LINE, MetroDataChangedEvent.ChangeType.CREATE, line.getId()));
         return convertToDto(line);
     }
     
@@ -80,6 +88,8 @@ public class LineServiceImpl implements LineService {
         Line line = convertToEntity(lineDto);
         line.setId(id);
         lineMapper.updateLine(line);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.LINE, MetroDataChangedEvent.ChangeType.UPDATE, id));
         
         return convertToDto(line);
     }
@@ -98,18 +108,23 @@ public class LineServiceImpl implements LineService {
             throw new BusinessException("该线路有关联的路线，无法删除");
         }
         
-        return lineMapper.deleteLine(id) > 0;
+        boolean deleted = lineMapper.deleteLine(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.LINE, MetroDataChangedEvent.ChangeType.DELETE, id));
+        }
+        return deleted;
     }
     
     @Override
     public LineDto getLineWithRoutes(Long id) {
-        Line line = lineMapper.getLineById(id);
+        Line line = networkHolder.get().getLine(id);
         if (line == null) {
             throw new BusinessException("线路不存在");
         }
         
         // 获取线路的所有路线
-        List<Route> routes = routeMapper.getRoutesByLineId(id);
+        List<Route> routes = networkHolder.get().getRoutesByLine(id);
         line.setRoutes(routes);
         
         return convertToDto(line);
@@ -0,0 +1,122 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.analytics.OdMatrixComputer;
+import com.scoding.metro.analytics.OdMatrixFile;
+import com.scoding.metro.analytics.OdMatrixStore;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.OdMatrixDto;
+import com.scoding.metro.dto.OdMatrixRequest;
+import com.scoding.metro.dto.OdMatrixRowDto;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.job.JobRegistry;
+import com.scoding.metro.service.OdMatrixService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OdMatrixServiceImpl implements OdMatrixService {
+
+    private static final String COMPUTE_JOB_TYPE = "OD_MATRIX";
+
+    private final JobRegistry jobRegistry;
+    private final OdMatrixComputer matrixComputer;
+    private final OdMatrixStore matrixStore;
+
+    @Value("${app.analytics.max-slices:24}")
+    private int maxSlices;
+
+    @Override
+    public JobDto submitCompute(OdMatrixRequest request) {
+        if (request == null || request.getDepartureTimes() == null || request.getDepartureTimes().isEmpty()) {
+            throw new BusinessException("请指定至少一个出发时刻");
+        }
+        TreeSet<Integer> distinct = new TreeSet<>();
+        for (LocalTime time : request.getDepartureTimes()) {
+            if (time == null) {
+                throw new BusinessException("出发时刻不能为空");
+            }
+            distinct.add(time.withNano(0).toSecondOfDay());
+        }
+        if (distinct.size() > maxSlices) {
+            throw new BusinessException("出发时刻不能超过" + maxSlices + "个");
+        }
+        int[] sliceSeconds = distinct.stream().mapToInt(Integer::intValue).toArray();
+        LocalDate runDate = request.getDate() != null ? request.getDate() : LocalDate.now();
+
+        Job job = jobRegistry.submit(COMPUTE_JOB_TYPE,
+                current -> convertToDto(current.getId(), matrixComputer.compute(current, runDate, sliceSeconds)));
+        log.info("OD矩阵计算任务已提交: {}", job.getId());
+        return JobDto.fromJob(job);
+    }
+
+    @Override
+    public OdMatrixDto getMatrix(String id) {
+        return convertToDto(id, matrixStore.open(id));
+    }
+
+    @Override
+    public OdMatrixRowDto getRow(String id, Long fromStationId, LocalTime departAt) {
+        OdMatrixFile matrix = matrixStore.open(id);
+        int origin = matrix.stationIndex(fromStationId);
+        if (origin < 0) {
+            throw new BusinessException("矩阵中不存在该站点");
+        }
+        int slice = matrix.sliceIndex(departAt.withNano(0).toSecondOfDay());
+        if (slice < 0) {
+            throw new BusinessException("矩阵中不存在该出发时刻");
+        }
+
+        List<OdMatrixRowDto.Cell> cells = new ArrayList<>();
+        for (int d = 0; d < matrix.getStationCount(); d++) {
+            int minutes = matrix.travelMinutes(slice, origin, d);
+            if (d == origin || minutes < 0) {
+                continue;
+            }
+            OdMatrixRowDto.Cell cell = new OdMatrixRowDto.Cell();
+            cell.setToStationId(matrix.stationId(d));
+            cell.setTravelMinutes(minutes);
+            cell.setTransfers(matrix.transfers(slice, origin, d));
+            cells.add(cell);
+        }
+
+        OdMatrixRowDto dto = new OdMatrixRowDto();
+        dto.setFromStationId(fromStationId);
+        dto.setDepartAt(LocalTime.ofSecondOfDay(matrix.sliceSeconds(slice)));
+        dto.setCells(cells);
+        return dto;
+    }
+
+    @Override
+    public Path getMatrixFile(String id) {
+        // 先打开以校验文件存在且完整
+        matrixStore.open(id);
+        return matrixStore.pathOf(id);
+    }
+
+    private OdMatrixDto convertToDto(String id, OdMatrixFile matrix) {
+        OdMatrixDto dto = new OdMatrixDto();
+        dto.setId(id);
+        dto.setRunDate(matrix.getRunDate());
+        dto.setNetworkVersion(matrix.getNetworkVersion());
+        dto.setStationCount(matrix.getStationCount());
+        List<LocalTime> departureTimes = new ArrayList<>(matrix.getSliceCount());
+        for (int i = 0; i < matrix.getSliceCount(); i++) {
+            departureTimes.add(LocalTime.ofSecondOfDay(matrix.sliceSeconds(i)));
+        }
+        dto.setDepartureTimes(departureTimes);
+        dto.setFileSize(matrix.getSizeInBytes());
+        return dto;
+    }
+}
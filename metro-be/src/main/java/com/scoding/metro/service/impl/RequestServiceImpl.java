@@ -1,21 +1,31 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
 import com.scoding.metro.common.RCode;
 import com.scoding.metro.dto.RequestDTO;
 import com.scoding.metro.dto.ReplyDTO;
 import com.scoding.metro.entity.RequestDO;
 import com.scoding.metro.entity.ReplyDO;
 import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.loader.ReplyLoader;
 import com.scoding.metro.mapper.RequestMapper;
 import com.scoding.metro.mapper.ReplyMapper;
 import com.scoding.metro.mapper.UserMapper;
 import com.scoding.metro.service.RequestService;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,20 +34,45 @@ public class RequestServiceImpl implements RequestService {
     private final RequestMapper requestMapper;
     private final ReplyMapper replyMapper;
     private final UserMapper userMapper;
+    private final ReplyLoader replyLoader;
+    private final ObjectMapper objectMapper;
 
     @Override
-    public List<RequestDO> listRequests() {
+    public List<RequestDO> listRequests(Integer latestReplies) {
         List<RequestDO> requests = requestMapper.listRequests();
         
-        // 为每个需求加载回复
-        for (RequestDO request : requests) {
-            List<ReplyDO> replies = replyMapper.listRepliesByParent(request.getId(), "REQUEST");
-            request.setReplies(replies);
-        }
+        // 批量加载回复
+        attachReplies(requests, latestReplies);
         
         return requests;
     }
 
+    @Override
+    public CursorPage<RequestDO> listRequestsPage(Long cursor, Integer limit, Integer latestReplies) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        // 多查一条用于判断是否还有下一页
+        CursorPage<RequestDO> page = CursorPage.of(
+                requestMapper.listRequestsPage(cursor, pageSize + 1), pageSize, RequestDO::getId);
+        
+        // 批量加载本页的回复
+        attachReplies(page.getItems(), latestReplies);
+        
+        return page;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamRequests(OutputStream out) throws IOException {
+        // 流式读取期间连接被占用，无法再查询回复，导出只包含需求本身
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Cursor<RequestDO> cursor = requestMapper.streamRequests()) {
+            for (RequestDO request : cursor) {
+                writer.write(request);
+            }
+        }
+        writer.finish();
+    }
+
     @Override
     public RequestDO getRequestById(Long id) {
         RequestDO request = requestMapper.getRequestById(id);
@@ -48,19 +83,17 @@ public class RequestServiceImpl implements RequestService {
         // 加载回复
         List<ReplyDO> replies = replyMapper.listRepliesByParent(id, "REQUEST");
         request.setReplies(replies);
+        request.setReplyCount(replies.size());
         
         return request;
     }
     
     @Override
-    public List<RequestDO> listUserRequests(Long userId) {
+    public List<RequestDO> listUserRequests(Long userId, Integer latestReplies) {
         List<RequestDO> requests = requestMapper.listRequestsByUserId(userId);
         
-        // 为每个需求加载回复
-        for (RequestDO request : requests) {
-            List<ReplyDO> replies = replyMapper.listRepliesByParent(request.getId(), "REQUEST");
-            request.setReplies(replies);
-        }
+        // 批量加载回复
+        attachReplies(requests, latestReplies);
         
         return requests;
     }
@@ -133,4 +166,21 @@ public class RequestServiceImpl implements RequestService {
         // 删除需求
         requestMapper.removeRequest(id);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批量加载需求的回复和回复数：回复一次 IN 查询取回，只取最新若干条时再用一次分组计数查询
+     */
+    private void attachReplies(List<RequestDO> requests, Integer latestReplies) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<Long> ids = requests.stream().map(RequestDO::getId).collect(Collectors.toList());
+        Map<Long, List<ReplyDO>> replies = replyLoader.loadReplies(ids, "REQUEST", latestReplies);
+        Map<Long, Integer> counts = latestReplies == null ? null : replyLoader.countReplies(ids, "REQUEST");
+        for (RequestDO request : requests) {
+            List<ReplyDO> requestReplies = replies.getOrDefault(request.getId(), new ArrayList<>());
+            request.setReplies(requestReplies);
+            request.setReplyCount(counts == null ? requestReplies.size() : counts.getOrDefault(request.getId(), 0));
+        }
+    }
+}
@@ -6,17 +6,25 @@ import com.scoding.metro.entity.Line;
 import com.scoding.metro.entity.Route;
 import com.scoding.metro.entity.Station;
 import com.scoding.metro.entity.Stop;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.loader.BatchLoader;
+import com.scoding.metro.loader.MetroBatchLoaders;
 import com.scoding.metro.mapper.LineMapper;
 import com.scoding.metro.mapper.RouteMapper;
 import com.scoding.metro.mapper.StationMapper;
 import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
 import com.scoding.metro.service.RouteService;
 import com.scoding.metro.service.StationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,52 +37,51 @@ public class RouteServiceImpl implements RouteService {
     private final StationMapper stationMapper;
     private final StopMapper stopMapper;
     private final StationService stationService;
+    private final TransitNetworkHolder networkHolder;
+    private final MetroBatchLoaders batchLoaders;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<RouteDto> getAllRoutes() {
         // 获取所有路线
-        List<Route> routes = routeMapper.getAllRoutes();
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        List<Route> routes = snapshot.getRoutes();
 
         // 为每个路线填充关联数据并转换为DTO
-        return routes.stream()
-                .map(this::convertToBasicDto)
-                .collect(Collectors.toList());
+        return convertToBasicDtos(routes, snapshot);
     }
 
     @Override
     public RouteDto getRouteById(Long id) {
-        Route route = routeMapper.getRouteById(id);
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        Route route = snapshot.getRoute(id);
         if (route == null) {
             throw new BusinessException("路线不存在");
         }
-        return convertToBasicDto(route);
+        return convertToBasicDto(route, snapshot);
     }
 
     @Override
     public List<RouteDto> getRoutesByLineId(Long lineId) {
-        List<Route> routes = routeMapper.getRoutesByLineId(lineId);
-        return routes.stream()
-                .map(this::convertToBasicDto)
-                .collect(Collectors.toList());
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        List<Route> routes = snapshot.getRoutesByLine(lineId);
+        return convertToBasicDtos(routes, snapshot);
     }
 
     @Override
     public RouteDto getRouteWithStations(Long id) {
-        Route route = routeMapper.getRouteById(id);
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        Route route = snapshot.getRoute(id);
         if (route == null) {
             throw new BusinessException("路线不存在");
         }
 
         // 创建DTO并填充基本信息
-        RouteDto routeDto = convertToBasicDto(route);
-
-        // 获取沿线站点信息
-        List<Stop> stops = stopMapper.getStopsByRouteId(id);
+        RouteDto routeDto = convertToBasicDto(route, snapshot);
 
-        // 获取站点详情并添加到DTO
-        routeDto.setStations(stops.stream()
-                .map(stop -> {
-                    Station station = stationMapper.getStationById(stop.getStationId());
+        // 获取沿线站点详情并添加到DTO
+        routeDto.setStations(snapshot.getStationsByRoute(id).stream()
+                .map(station -> {
                     StationDto stationDto = new StationDto();
                     stationDto.setId(station.getId());
                     stationDto.setName(station.getName());
@@ -124,6 +131,8 @@ public class RouteServiceImpl implements RouteService {
         route.setEndStationId(routeDto.getEndStationId());
 
         routeMapper.insertRoute(route);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.ROUTE, MetroDataChangedEvent.ChangeType.CREATE, route.getId()));
 
         return convertToBasicDto(route);
     }
@@ -174,6 +183,8 @@ public class RouteServiceImpl implements RouteService {
         route.setEndStationId(routeDto.getEndStationId());
 
         routeMapper.updateRoute(route);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.ROUTE, MetroDataChangedEvent.ChangeType.UPDATE, id));
 
         return convertToBasicDto(route);
     }
@@ -192,30 +203,53 @@ public class RouteServiceImpl implements RouteService {
             throw new BusinessException("该路线有关联的站点停靠信息，请先删除这些信息");
         }
 
-        return routeMapper.deleteRoute(id) > 0;
+        boolean deleted = routeMapper.deleteRoute(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.ROUTE, MetroDataChangedEvent.ChangeType.DELETE, id));
+        }
+        return deleted;
     }
 
     @Override
     public List<RouteDto> findRoutesBetweenStations(Long stationId1, Long stationId2) {
-        // 验证站点是否存在
-        Station station1 = stationMapper.getStationById(stationId1);
-        Station station2 = stationMapper.getStationById(stationId2);
+        TransitNetworkSnapshot snapshot = networkHolder.get();
 
-        if (station1 == null || station2 == null) {
+        // 验证站点是否存在
+        if (snapshot.getStation(stationId1) == null || snapshot.getStation(stationId2) == null) {
             throw new BusinessException("站点不存在");
         }
 
-        List<Route> routes = routeMapper.findRoutesConnectingStations(stationId1, stationId2);
-        return routes.stream()
-                .map(this::convertToBasicDto)
-                .collect(Collectors.toList());
+        List<Route> routes = snapshot.findRoutesConnecting(stationId1, stationId2);
+        return convertToBasicDtos(routes, snapshot);
     }
 
     private RouteDto convertToBasicDto(Route route) {
+        return convertToBasicDto(route, networkHolder.get());
+    }
+
+    private RouteDto convertToBasicDto(Route route, TransitNetworkSnapshot snapshot) {
         if (route == null) {
             return null;
         }
+        return convertToBasicDtos(Collections.singletonList(route), snapshot).get(0);
+    }
+
+    private List<RouteDto> convertToBasicDtos(List<Route> routes, TransitNetworkSnapshot snapshot) {
+        // 先登记所有关联的线路和站点，快照中缺失的数据合并为一次批量查询
+        BatchLoader<Line> lines = batchLoaders.lines(snapshot);
+        BatchLoader<Station> stations = batchLoaders.stations(snapshot);
+        for (Route route : routes) {
+            lines.collect(route.getLineId());
+            stations.collect(route.getStartStationId()).collect(route.getEndStationId());
+        }
+
+        return routes.stream()
+                .map(route -> convertToBasicDto(route, lines, stations))
+                .collect(Collectors.toList());
+    }
 
+    private RouteDto convertToBasicDto(Route route, BatchLoader<Line> lines, BatchLoader<Station> stations) {
         RouteDto dto = new RouteDto();
         dto.setId(route.getId());
         dto.setName(route.getName());
@@ -223,7 +257,7 @@ public class RouteServiceImpl implements RouteService {
         // 设置线路信息
         if (route.getLineId() != null) {
             dto.setLineId(route.getLineId());
-            Line line = lineMapper.getLineById(route.getLineId());
+            Line line = lines.get(route.getLineId());
             if (line != null) {
                 dto.setLineName(line.getName());
             }
@@ -232,7 +266,7 @@ public class RouteServiceImpl implements RouteService {
         // 设置起始站点信息
         if (route.getStartStationId() != null) {
             dto.setStartStationId(route.getStartStationId());
-            Station startStation = stationMapper.getStationById(route.getStartStationId());
+            Station startStation = stations.get(route.getStartStationId());
             if (startStation != null) {
                 dto.setStartStationName(startStation.getName());
             }
@@ -241,7 +275,7 @@ public class RouteServiceImpl implements RouteService {
         // 设置终点站信息
         if (route.getEndStationId() != null) {
             dto.setEndStationId(route.getEndStationId());
-            Station endStation = stationMapper.getStationById(route.getEndStationId());
+            Station endStation = stations.get(route.getEndStationId());
             if (endStation != null) {
                 dto.setEndStationName(endStation.getName());
             }
@@ -249,4 +283,4 @@ public class RouteServiceImpl implements RouteService {
 
         return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,259 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.calendar.ServiceCalendarFolder;
+import com.scoding.metro.dto.JobDto;
+import com.scoding.metro.dto.ServiceCalendarDto;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.job.JobRegistry;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.service.ServiceCalendarService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ServiceCalendarServiceImpl implements ServiceCalendarService {
+
+    private static final String FOLD_JOB_TYPE = "SERVICE_CALENDAR_FOLD";
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final int MAX_EXPAND_DAYS = 366;
+
+    private final ServiceCalendarMapper serviceCalendarMapper;
+    private final TrainTripMapper trainTripMapper;
+    private final ServiceCalendarFolder calendarFolder;
+    private final JobRegistry jobRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public List<ServiceCalendarDto> getAllCalendars() {
+        List<ServiceCalendar> calendars = serviceCalendarMapper.selectAll();
+        Map<Long, List<ServiceCalendarDate>> exceptions = new HashMap<>();
+        for (ServiceCalendarDate date : serviceCalendarMapper.selectDatesBetween(null, null)) {
+            exceptions.computeIfAbsent(date.getCalendarId(), k -> new ArrayList<>()).add(date);
+        }
+        List<ServiceCalendarDto> result = new ArrayList<>(calendars.size());
+        for (ServiceCalendar calendar : calendars) {
+            calendar.setExceptions(exceptions.getOrDefault(calendar.getId(), List.of()));
+            result.add(convertToDto(calendar));
+        }
+        return result;
+    }
+
+    @Override
+    public ServiceCalendarDto getCalendarById(Long id) {
+        ServiceCalendarDto dto = convertToDto(loadCalendar(id));
+        dto.setTripCount(trainTripMapper.countByServiceId(id));
+        return dto;
+    }
+
+    @Override
+    public List<LocalDate> getServiceDates(Long id, LocalDate startDate, LocalDate endDate) {
+        ServiceCalendar calendar = loadCalendar(id);
+        LocalDate from = startDate != null ? startDate : calendar.getStartDate();
+        LocalDate to = endDate != null ? endDate : calendar.getEndDate();
+        // 额外运行的日期可能在生效范围之外
+        for (ServiceCalendarDate exception : calendar.getExceptions()) {
+            if (startDate == null && exception.getServiceDate().isBefore(from)) {
+                from = exception.getServiceDate();
+            }
+            if (endDate == null && exception.getServiceDate().isAfter(to)) {
+                to = exception.getServiceDate();
+            }
+        }
+        if (from.isAfter(to)) {
+            throw new BusinessException("起始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_EXPAND_DAYS) {
+            throw new BusinessException("单次最多展开" + MAX_EXPAND_DAYS + "天");
+        }
+
+        Map<LocalDate, Integer> exceptions = new HashMap<>();
+        for (ServiceCalendarDate exception : calendar.getExceptions()) {
+            exceptions.put(exception.getServiceDate(), exception.getExceptionType());
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Integer exceptionType = exceptions.get(date);
+            boolean running = exceptionType != null
+                    ? exceptionType == ServiceCalendarDate.ADDED
+                    : calendar.matchesPattern(date);
+            if (running) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    @Override
+    @Transactional
+    public ServiceCalendarDto createCalendar(ServiceCalendarDto calendarDto) {
+        ServiceCalendar calendar = convertToEntity(calendarDto);
+        serviceCalendarMapper.insert(calendar);
+        saveExceptions(calendar);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.SERVICE_CALENDAR, MetroDataChangedEvent.ChangeType.CREATE, calendar.getId()));
+        return convertToDto(calendar);
+    }
+
+    @Override
+    @Transactional
+    public ServiceCalendarDto updateCalendar(Long id, ServiceCalendarDto calendarDto) {
+        if (serviceCalendarMapper.selectById(id) == null) {
+            throw new BusinessException("运营日历不存在: " + id);
+        }
+        ServiceCalendar calendar = convertToEntity(calendarDto);
+        calendar.setId(id);
+        serviceCalendarMapper.update(calendar);
+        serviceCalendarMapper.deleteDatesByCalendarId(id);
+        saveExceptions(calendar);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.SERVICE_CALENDAR, MetroDataChangedEvent.ChangeType.UPDATE, id));
+        return convertToDto(calendar);
+    }
+
+    @Override
+    @Transactional
+    public Boolean deleteCalendar(Long id) {
+        if (serviceCalendarMapper.selectById(id) == null) {
+            throw new BusinessException("运营日历不存在: " + id);
+        }
+        int tripCount = trainTripMapper.countByServiceId(id);
+        if (tripCount > 0) {
+            throw new BusinessException("仍有" + tripCount + "个列车行程使用该运营日历，无法删除");
+        }
+        serviceCalendarMapper.deleteDatesByCalendarId(id);
+        boolean deleted = serviceCalendarMapper.delete(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.SERVICE_CALENDAR, MetroDataChangedEvent.ChangeType.DELETE, id));
+        }
+        return deleted;
+    }
+
+    @Override
+    public JobDto submitFold() {
+        Job job = jobRegistry.submit(FOLD_JOB_TYPE, current -> {
+            calendarFolder.fold(current);
+            return current.getCounters();
+        });
+        log.info("单日列车行程合并任务已提交: {}", job.getId());
+        return JobDto.fromJob(job);
+    }
+
+    private ServiceCalendar loadCalendar(Long id) {
+        ServiceCalendar calendar = serviceCalendarMapper.selectById(id);
+        if (calendar == null) {
+            throw new BusinessException("运营日历不存在: " + id);
+        }
+        calendar.setExceptions(serviceCalendarMapper.selectDatesByCalendarId(id));
+        return calendar;
+    }
+
+    private void saveExceptions(ServiceCalendar calendar) {
+        for (ServiceCalendarDate exception : calendar.getExceptions()) {
+            exception.setCalendarId(calendar.getId());
+        }
+        if (!calendar.getExceptions().isEmpty()) {
+            serviceCalendarMapper.insertDates(calendar.getExceptions());
+        }
+    }
+
+    private ServiceCalendarDto convertToDto(ServiceCalendar calendar) {
+        ServiceCalendarDto dto = new ServiceCalendarDto();
+        dto.setId(calendar.getId());
+        dto.setName(calendar.getName());
+        List<DayOfWeek> daysOfWeek = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((calendar.getWeekdays() & ServiceCalendar.weekdayBit(day)) != 0) {
+                daysOfWeek.add(day);
+            }
+        }
+        dto.setDaysOfWeek(daysOfWeek);
+        dto.setStartDate(calendar.getStartDate());
+        dto.setEndDate(calendar.getEndDate());
+        List<LocalDate> added = new ArrayList<>();
+        List<LocalDate> removed = new ArrayList<>();
+        for (ServiceCalendarDate exception : calendar.getExceptions()) {
+            (exception.getExceptionType() == ServiceCalendarDate.ADDED ? added : removed).add(exception.getServiceDate());
+        }
+        dto.setAddedDates(added);
+        dto.setRemovedDates(removed);
+        return dto;
+    }
+
+    private ServiceCalendar convertToEntity(ServiceCalendarDto dto) {
+        if (!StringUtils.hasText(dto.getName())) {
+            throw new BusinessException("日历名称不能为空");
+        }
+        if (dto.getName().length() > MAX_NAME_LENGTH) {
+            throw new BusinessException("日历名称不能超过" + MAX_NAME_LENGTH + "个字符");
+        }
+        if (dto.getStartDate() == null || dto.getEndDate() == null) {
+            throw new BusinessException("生效日期范围不能为空");
+        }
+        if (dto.getStartDate().isAfter(dto.getEndDate())) {
+            throw new BusinessException("起始日期不能晚于结束日期");
+        }
+
+        int weekdays = 0;
+        if (dto.getDaysOfWeek() != null) {
+            for (DayOfWeek day : dto.getDaysOfWeek()) {
+                weekdays |= ServiceCalendar.weekdayBit(day);
+            }
+        }
+        Set<LocalDate> added = dto.getAddedDates() != null ? new TreeSet<>(dto.getAddedDates()) : Set.of();
+        Set<LocalDate> removed = dto.getRemovedDates() != null ? new TreeSet<>(dto.getRemovedDates()) : Set.of();
+        Set<LocalDate> both = new HashSet<>(added);
+        both.retainAll(removed);
+        if (!both.isEmpty()) {
+            throw new BusinessException("日期不能同时增加和取消运行: " + new TreeSet<>(both));
+        }
+        if (weekdays == 0 && added.isEmpty()) {
+            throw new BusinessException("请至少选择一个运行的星期或日期");
+        }
+
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.setName(dto.getName().trim());
+        calendar.setWeekdays(weekdays);
+        calendar.setStartDate(dto.getStartDate());
+        calendar.setEndDate(dto.getEndDate());
+        List<ServiceCalendarDate> exceptions = new ArrayList<>(added.size() + removed.size());
+        for (LocalDate date : added) {
+            exceptions.add(newException(date, ServiceCalendarDate.ADDED));
+        }
+        for (LocalDate date : removed) {
+            exceptions.add(newException(date, ServiceCalendarDate.REMOVED));
+        }
+        calendar.setExceptions(exceptions);
+        return calendar;
+    }
+
+    private static ServiceCalendarDate newException(LocalDate date, int exceptionType) {
+        ServiceCalendarDate exception = new ServiceCalendarDate();
+        exception.setServiceDate(date);
+        exception.setExceptionType(exceptionType);
+        return exception;
+    }
+}
@@ -1,16 +1,29 @@
 package com.scoding.metro.service.impl;
 
+import com.scoding.metro.dto.DepartureBoardDto;
 import com.scoding.metro.dto.StationDto;
+import com.scoding.metro.entity.Route;
 import com.scoding.metro.entity.Station;
 import com.scoding.metro.entity.Stop;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.StationMapper;
 import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.DepartureIndex;
+import com.scoding.metro.planner.TimetableHolder;
+import com.scoding.metro.planner.TimetableSnapshot;
 import com.scoding.metro.service.StationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,19 +31,26 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class StationServiceImpl implements StationService {
 
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int DEFAULT_DEPARTURE_LIMIT = 3;
+    private static final int MAX_DEPARTURE_LIMIT = 20;
+
     private final StationMapper stationMapper;
     private final StopMapper stopMapper;
+    private final TransitNetworkHolder networkHolder;
+    private final TimetableHolder timetableHolder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<StationDto> getAllStations() {
-        return stationMapper.getAllStations().stream()
+        return networkHolder.get().getStations().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     public StationDto getStationById(Long id) {
-        Station station = stationMapper.getStationById(id);
+        Station station = networkHolder.get().getStation(id);
         if (station == null) {
             throw new BusinessException("站点不存在");
         }
@@ -39,7 +59,7 @@ public class StationServiceImpl implements StationService {
 
     @Override
     public StationDto getStationByCode(String code) {
-        Station station = stationMapper.getStationByCode(code);
+        Station station = networkHolder.get().getStationByCode(code);
         if (station == null) {
             throw new BusinessException("站点不存在");
         }
@@ -56,12 +76,79 @@ public class StationServiceImpl implements StationService {
 
     @Override
     public List<StationDto> getStationsByRouteId(Long routeId) {
-        List<Station> stations = stationMapper.getStationsByRouteId(routeId);
+        List<Station> stations = networkHolder.get().getStationsByRoute(routeId);
         return stations.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public DepartureBoardDto getStationDepartures(Long id, LocalDate date, LocalTime after, Integer limit) {
+        int count = limit == null ? DEFAULT_DEPARTURE_LIMIT : limit;
+        if (count < 1 || count > MAX_DEPARTURE_LIMIT) {
+            throw new BusinessException("班次数需在1到" + MAX_DEPARTURE_LIMIT + "之间");
+        }
+
+        LocalDate runDate = date != null ? date : LocalDate.now();
+        LocalTime afterTime = after != null ? after : LocalTime.now().withSecond(0).withNano(0);
+        TimetableSnapshot timetable = timetableHolder.get(runDate);
+        // 站点、路线下标必须与时刻表构建时的路网快照一致
+        TransitNetworkSnapshot network = timetable.getNetwork();
+        int station = network.stationIndex(id);
+        if (station < 0) {
+            throw new BusinessException("站点不存在");
+        }
+        DepartureIndex index = timetable.departureIndex();
+
+        List<DepartureBoardDto.RouteDepartures> routes = new ArrayList<>();
+        for (int group = index.groupStart(station); group < index.groupEnd(station); group++) {
+            int from = index.firstDepartureAfter(group, afterTime.toSecondOfDay());
+            int to = Math.min(from + count, index.groupLimit(group));
+            if (from >= to) {
+                continue;
+            }
+
+            DepartureBoardDto.RouteDepartures routeDepartures = new DepartureBoardDto.RouteDepartures();
+            int routeIdx = index.groupRoute(group);
+            if (routeIdx >= 0) {
+                Route route = network.getRoute(network.routeId(routeIdx));
+                routeDepartures.setRouteId(route.getId());
+                routeDepartures.setRouteName(route.getName());
+                if (route.getLine() != null) {
+                    routeDepartures.setLineId(route.getLine().getId());
+                    routeDepartures.setLineName(route.getLine().getName());
+                    routeDepartures.setLineColor(route.getLine().getColor());
+                }
+            }
+
+            List<DepartureBoardDto.Departure> departures = new ArrayList<>(to - from);
+            for (int entry = from; entry < to; entry++) {
+                int pattern = index.patternAt(entry);
+                int trip = index.tripAt(entry);
+                int terminal = timetable.patternStation(pattern, timetable.patternStopCount(pattern) - 1);
+
+                DepartureBoardDto.Departure departure = new DepartureBoardDto.Departure();
+                departure.setTrainTripId(timetable.tripId(pattern, trip));
+                departure.setTrainNumber(timetable.tripNumber(pattern, trip));
+                departure.setStopId(timetable.patternStopId(pattern, index.positionAt(entry)));
+                departure.setDepartureTime(LocalTime.ofSecondOfDay(index.departureAt(entry) % SECONDS_PER_DAY));
+                departure.setTerminalStationId(network.stationId(terminal));
+                departure.setTerminalStationName(network.stationNameAt(terminal));
+                departures.add(departure);
+            }
+            routeDepartures.setDepartures(departures);
+            routes.add(routeDepartures);
+        }
+
+        DepartureBoardDto dto = new DepartureBoardDto();
+        dto.setStationId(id);
+        dto.setStationName(network.stationNameAt(station));
+        dto.setRunDate(runDate);
+        dto.setAfter(afterTime);
+        dto.setRoutes(routes);
+        return dto;
+    }
+
     @Override
     @Transactional
     public StationDto createStation(StationDto stationDto) {
@@ -76,6 +163,8 @@ public class StationServiceImpl implements StationService {
         }
 
         stationMapper.insertStation(station);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.STATION, MetroDataChangedEvent.ChangeType.CREATE, station.getId()));
         return convertToDto(station);
     }
 
@@ -99,6 +188,8 @@ public class StationServiceImpl implements StationService {
         Station station = convertToEntity(stationDto);
         station.setId(id);
         stationMapper.updateStation(station);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.STATION, MetroDataChangedEvent.ChangeType.UPDATE, id));
 
         return convertToDto(station);
     }
@@ -117,7 +208,12 @@ public class StationServiceImpl implements StationService {
             throw new BusinessException("该站点有关联的线路停靠信息，无法删除");
         }
 
-        return stationMapper.deleteStation(id) > 0;
+        boolean deleted = stationMapper.deleteStation(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.STATION, MetroDataChangedEvent.ChangeType.DELETE, id));
+        }
+        return deleted;
     }
 
     private StationDto convertToDto(Station station) {
@@ -1,21 +1,39 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
 import com.scoding.metro.dto.StopDto;
 import com.scoding.metro.dto.UpdateStopSequencesRequest;
 import com.scoding.metro.entity.Route;
 import com.scoding.metro.entity.Station;
 import com.scoding.metro.entity.Stop;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.loader.BatchLoader;
+import com.scoding.metro.loader.MetroBatchLoaders;
 import com.scoding.metro.mapper.RouteMapper;
 import com.scoding.metro.mapper.StationMapper;
 import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
 import com.scoding.metro.service.StopService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,17 +43,43 @@ public class StopServiceImpl implements StopService {
     private final StopMapper stopMapper;
     private final RouteMapper routeMapper;
     private final StationMapper stationMapper;
+    private final TransitNetworkHolder networkHolder;
+    private final MetroBatchLoaders batchLoaders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
     
     @Override
     public List<StopDto> getAllStops() {
-        return stopMapper.getAllStops().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(networkHolder.get().getStops());
+    }
+    
+    @Override
+    public CursorPage<StopDto> getStopsPage(Long cursor, Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        // 多取一条用于判断是否还有下一页
+        List<Stop> stops = networkHolder.get().getStopsAfter(cursor, pageSize + 1);
+        return CursorPage.of(stops, pageSize, Stop::getId).mapAll(this::convertToDtos);
+    }
+    
+    @Override
+    public void streamAllStops(OutputStream out) throws IOException {
+        // 停靠点数据来自内存中的路网快照，按批取出转换后逐行写出，不必整表复制
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        Long cursor = null;
+        List<Stop> batch;
+        while (!(batch = snapshot.getStopsAfter(cursor, CursorPage.MAX_LIMIT)).isEmpty()) {
+            for (StopDto dto : convertToDtos(batch)) {
+                writer.write(dto);
+            }
+            cursor = batch.get(batch.size() - 1).getId();
+        }
+        writer.finish();
     }
     
     @Override
     public StopDto getStopById(Long id) {
-        Stop stop = stopMapper.getStopById(id);
+        Stop stop = networkHolder.get().getStop(id);
         if (stop == null) {
             throw new BusinessException("站点停靠信息不存在");
         }
@@ -44,23 +88,19 @@ public class StopServiceImpl implements StopService {
     
     @Override
     public List<StopDto> getStopsByRouteId(Long routeId) {
-        List<Stop> stops = stopMapper.getStopsByRouteId(routeId);
-        return stops.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<Stop> stops = networkHolder.get().getStopsByRoute(routeId);
+        return convertToDtos(stops);
     }
     
     @Override
     public List<StopDto> getStopsByStationId(Long stationId) {
-        List<Stop> stops = stopMapper.getStopsByStationId(stationId);
-        return stops.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<Stop> stops = networkHolder.get().getStopsByStation(stationId);
+        return convertToDtos(stops);
     }
     
     @Override
     public StopDto getStopByRouteAndStation(Long routeId, Long stationId) {
-        Stop stop = stopMapper.getStopByRouteAndStation(routeId, stationId);
+        Stop stop = networkHolder.get().getStopByRouteAndStation(routeId, stationId);
         if (stop == null) {
             throw new BusinessException("站点停靠信息不存在");
         }
@@ -91,112 +131,30 @@ public class StopServiceImpl implements StopService {
             throw new BusinessException("不能将终点站作为停靠点，终点站已经是路线的最后一站");
         }
         
+        // 锁定并获取当前路线上的所有停靠点（按顺序）
+        List<Stop> stops = stopMapper.getStopsByRouteIdForUpdate(route.getId());
+        
         // 检查该路线下是否已存在该站点
-        Stop existingStop = stopMapper.getStopByRouteAndStation(stopDto.getRouteId(), stopDto.getStationId());
-        if (existingStop != null) {
+        if (findByStation(stops, station.getId()) != null) {
             throw new BusinessException("该路线下已存在此站点");
         }
         
-        // 获取当前路线上的所有停靠点
-        List<Stop> stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        
-        // 初始化起始站和终点站的停靠点对象（如果不存在）
-        Stop startStop = null;
-        Stop endStop = null;
+        // 起始站和终点站停靠点不存在时自动补齐，并保证二者分别位于首尾
+        ensureTerminals(route, stops, true);
         
-        // 查找现有的起始站和终点站停靠点
-        for (Stop stop : stops) {
-            if (stop.getStationId().equals(route.getStartStationId())) {
-                startStop = stop;
-            } else if (stop.getStationId().equals(route.getEndStationId())) {
-                endStop = stop;
-            }
-        }
-        
-        // 如果起始站不存在，创建并插入起始站停靠点（seq=1）
-        if (startStop == null) {
-            startStop = new Stop();
-            startStop.setRouteId(route.getId());
-            startStop.setStationId(route.getStartStationId());
-            startStop.setSeq(1);
-            stopMapper.insertStop(startStop);
-            
-            // 更新stops集合
-            stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        }
+        // 新停靠点的位置限制在起始站之后、终点站之前
+        int index = clampIndex(stopDto.getSeq(), stops.size());
         
-        // 如果终点站不存在，创建并插入终点站停靠点（seq为最大值+1）
-        if (endStop == null) {
-            int maxSeq = stops.stream().mapToInt(Stop::getSeq).max().orElse(0);
-            endStop = new Stop();
-            endStop.setRouteId(route.getId());
-            endStop.setStationId(route.getEndStationId());
-            endStop.setSeq(maxSeq + 1);
-            stopMapper.insertStop(endStop);
-            
-            // 更新stops集合
-            stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        }
-        
-        // 确保终点站始终是最后一个
-        int maxSeq = stops.stream().mapToInt(Stop::getSeq).max().orElse(0);
-        if (endStop.getSeq() != maxSeq) {
-            // 如果终点站不是最后一个，调整其序号
-            endStop.setSeq(maxSeq + 1);
-            stopMapper.updateStop(endStop);
-            
-            // 更新stops集合
-            stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        }
-        
-        // 计算新停靠点的序号
-        // 如果用户指定了序号，但超过了终点站的序号，则自动调整为终点站前一位
-        int endStopSeq = endStop.getSeq();
-        if (stopDto.getSeq() >= endStopSeq) {
-            stopDto.setSeq(endStopSeq - 1);
-        }
-        
-        // 如果用户指定的序号小于起始站的序号，则自动调整为起始站后一位
-        int startStopSeq = startStop.getSeq();
-        if (stopDto.getSeq() <= startStopSeq) {
-            stopDto.setSeq(startStopSeq + 1);
-        }
-        
-        // 如果已存在相同序号的停靠点，需要将该序号及之后的所有停靠点（除终点站外）的序号+1
-        boolean seqExists = stops.stream()
-                .anyMatch(s -> s.getSeq().equals(stopDto.getSeq()) && !s.getStationId().equals(route.getEndStationId()));
-        
-        if (seqExists) {
-            // 找出需要调整序号的停靠点（序号大于等于新停靠点序号，并且不是终点站的）
-            List<Stop> stopsToUpdate = stops.stream()
-                    .filter(s -> s.getSeq() >= stopDto.getSeq() && !s.getStationId().equals(route.getEndStationId()))
-                    .collect(Collectors.toList());
-            
-            // 从后向前调整序号，避免序号冲突
-            stopsToUpdate.sort((s1, s2) -> Integer.compare(s2.getSeq(), s1.getSeq()));
-            for (Stop s : stopsToUpdate) {
-                s.setSeq(s.getSeq() + 1);
-                stopMapper.updateStop(s);
-            }
-        }
-        
-        // 创建新的停靠点
         Stop stop = new Stop();
-        stop.setRouteId(stopDto.getRouteId());
-        stop.setStationId(stopDto.getStationId());
-        stop.setSeq(stopDto.getSeq());
-        
+        stop.setRouteId(route.getId());
+        stop.setStationId(station.getId());
+        placeStop(route.getId(), stops, index, stop);
         stopMapper.insertStop(stop);
         
-        // 确保终点站仍然是最后一个
-        stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        int newMaxSeq = stops.stream().mapToInt(Stop::getSeq).max().orElse(0);
-        if (endStop.getSeq() != newMaxSeq) {
-            endStop.setSeq(newMaxSeq + 1);
-            stopMapper.updateStop(endStop);
-        }
+        publishStopChanged(MetroDataChangedEvent.ChangeType.CREATE, stop.getId());
         
-        return convertToDto(stop);
+        stop.setStation(station);
+        return convertWrittenStops(Collections.singletonList(stop), route, index).get(0);
     }
     
     @Override
@@ -228,94 +186,52 @@ public class StopServiceImpl implements StopService {
             throw new BusinessException("不能将终点站作为停靠点，终点站已经是路线的最后一站");
         }
         
-        // 如果路线或站点已更改，检查新的组合是否已存在
-        if (!existingStop.getRouteId().equals(stopDto.getRouteId()) || 
-                !existingStop.getStationId().equals(stopDto.getStationId())) {
-            Stop stopWithSameCombination = stopMapper.getStopByRouteAndStation(
-                    stopDto.getRouteId(), stopDto.getStationId());
-            if (stopWithSameCombination != null && !stopWithSameCombination.getId().equals(id)) {
-                throw new BusinessException("该路线下已存在此站点");
-            }
+        // 起始站和终点站停靠点不允许通过此接口修改
+        Route currentRoute = existingStop.getRouteId().equals(route.getId())
+                ? route : routeMapper.getRouteById(existingStop.getRouteId());
+        if (currentRoute != null && (existingStop.getStationId().equals(currentRoute.getStartStationId())
+                || existingStop.getStationId().equals(currentRoute.getEndStationId()))) {
+            throw new BusinessException("起始站和终点站停靠点不能修改");
         }
         
-        // 获取当前路线上的所有停靠点
-        List<Stop> stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        
-        // 查找起始站和终点站停靠点
-        Stop startStop = null;
-        Stop endStop = null;
+        // 锁定并获取目标路线上的所有停靠点（按顺序）
+        List<Stop> stops = stopMapper.getStopsByRouteIdForUpdate(route.getId());
         
-        for (Stop stop : stops) {
-            if (stop.getStationId().equals(route.getStartStationId())) {
-                startStop = stop;
-            } else if (stop.getStationId().equals(route.getEndStationId())) {
-                endStop = stop;
-            }
+        // 如果路线或站点已更改，检查新的组合是否已存在
+        Stop stopWithSameCombination = findByStation(stops, station.getId());
+        if (stopWithSameCombination != null && !stopWithSameCombination.getId().equals(id)) {
+            throw new BusinessException("该路线下已存在此站点");
         }
         
-        // 如果没有找到起始站和终点站停靠点，则抛出异常
-        if (startStop == null) {
-            throw new BusinessException("路线缺少起始站停靠点");
-        }
+        // 起始站和终点站停靠点必须存在，并保证二者分别位于首尾
+        ensureTerminals(route, stops, false);
         
-        if (endStop == null) {
-            throw new BusinessException("路线缺少终点站停靠点");
-        }
-        
-        // 确保序号在起始站和终点站之间
-        if (stopDto.getSeq() <= startStop.getSeq()) {
-            stopDto.setSeq(startStop.getSeq() + 1);
-        }
-        
-        if (stopDto.getSeq() >= endStop.getSeq()) {
-            stopDto.setSeq(endStop.getSeq() - 1);
-        }
-        
-        // 如果序号已更改，检查新序号是否已被使用
-        if (!existingStop.getSeq().equals(stopDto.getSeq())) {
-            // 检查是否存在使用相同序号的停靠点（不包括终点站和起始站）
-            boolean seqExists = stops.stream()
-                    .filter(s -> !s.getId().equals(id) && 
-                                !s.getStationId().equals(route.getStartStationId()) && 
-                                !s.getStationId().equals(route.getEndStationId()))
-                    .anyMatch(s -> s.getSeq().equals(stopDto.getSeq()));
-            
-            if (seqExists) {
-                // 找出需要调整序号的停靠点（序号大于等于新停靠点序号，并且不是终点站和起始站的）
-                List<Stop> stopsToUpdate = stops.stream()
-                        .filter(s -> !s.getId().equals(id) && 
-                                    s.getSeq() >= stopDto.getSeq() && 
-                                    !s.getStationId().equals(route.getEndStationId()) &&
-                                    !s.getStationId().equals(route.getStartStationId()))
-                        .collect(Collectors.toList());
-                
-                // 从后向前调整序号，避免序号冲突
-                stopsToUpdate.sort((s1, s2) -> Integer.compare(s2.getSeq(), s1.getSeq()));
-                for (Stop s : stopsToUpdate) {
-                    s.setSeq(s.getSeq() + 1);
-                    stopMapper.updateStop(s);
-                }
+        // 先把当前停靠点从序列中取出，再按目标位置放回
+        int currentIndex = -1;
+        for (int i = 0; i < stops.size(); i++) {
+            if (stops.get(i).getId().equals(id)) {
+                currentIndex = i;
+                break;
             }
         }
-        
-        // 更新停靠点
-        Stop stop = new Stop();
+        Stop stop = currentIndex >= 0 ? stops.remove(currentIndex) : new Stop();
         stop.setId(id);
-        stop.setRouteId(stopDto.getRouteId());
-        stop.setStationId(stopDto.getStationId());
-        stop.setSeq(stopDto.getSeq());
+        stop.setRouteId(route.getId());
+        stop.setStationId(station.getId());
         
+        int index = clampIndex(stopDto.getSeq(), stops.size());
+        if (index == currentIndex) {
+            // 位置未变，保留原序号
+            stops.add(index, stop);
+        } else {
+            placeStop(route.getId(), stops, index, stop);
+        }
         stopMapper.updateStop(stop);
         
-        // 确保终点站仍然是最后一个
-        stops = stopMapper.getStopsByRouteId(stopDto.getRouteId());
-        int maxSeq = stops.stream().mapToInt(Stop::getSeq).max().orElse(0);
-        if (endStop.getSeq() != maxSeq) {
-            endStop.setSeq(maxSeq + 1);
-            stopMapper.updateStop(endStop);
-        }
+        publishStopChanged(MetroDataChangedEvent.ChangeType.UPDATE, id);
         
-        return convertToDto(stop);
+        stop.setStation(station);
+        return convertWrittenStops(Collections.singletonList(stop), route, index).get(0);
     }
     
     @Override
@@ -326,90 +242,270 @@ public class StopServiceImpl implements StopService {
             throw new BusinessException("站点停靠信息不存在");
         }
         
-        return stopMapper.deleteStop(id) > 0;
+        boolean deleted = stopMapper.deleteStop(id) > 0;
+        if (deleted) {
+            publishStopChanged(MetroDataChangedEvent.ChangeType.DELETE, id);
+        }
+        return deleted;
     }
     
     @Override
     @Transactional
-    public boolean updateStopSequences(UpdateStopSequencesRequest request) {
+    public List<StopDto> updateStopSequences(UpdateStopSequencesRequest request) {
         // 验证路线是否存在
         Route route = routeMapper.getRouteById(request.getRouteId());
         if (route == null) {
             throw new BusinessException("路线不存在");
         }
         
-        // 获取该路线下所有经停站
-        List<Stop> stops = stopMapper.getStopsByRouteId(request.getRouteId());
+        // 锁定并获取该路线下所有经停站（按当前顺序）
+        List<Stop> stops = stopMapper.getStopsByRouteIdForUpdate(request.getRouteId());
         if (stops.isEmpty()) {
             throw new BusinessException("该路线下没有经停站");
         }
         
-        // 创建经停站ID到对象的映射，方便后续查找
-        Map<Long, Stop> stopMap = stops.stream()
-                .collect(Collectors.toMap(Stop::getId, stop -> stop));
-        
-        // 查找起始站和终点站
-        Stop startStop = stops.stream()
-                .filter(s -> s.getStationId().equals(route.getStartStationId()))
-                .findFirst()
-                .orElse(null);
-                
-        Stop endStop = stops.stream()
-                .filter(s -> s.getStationId().equals(route.getEndStationId()))
-                .findFirst()
-                .orElse(null);
+        Stop startStop = findByStation(stops, route.getStartStationId());
+        Stop endStop = findByStation(stops, route.getEndStationId());
         
         // 确保起始站和终点站存在
         if (startStop == null || endStop == null) {
             throw new BusinessException("路线缺少起始站或终点站");
         }
         
-        // 更新经停站序号
-        boolean success = true;
-        for (UpdateStopSequencesRequest.StopSequence seq : request.getStopSequences()) {
+        // 在内存中校验提交的是该路线经停站的一个排列：每站恰好出现一次，位置互不相同
+        List<UpdateStopSequencesRequest.StopSequence> sequences = request.getStopSequences();
+        if (sequences == null || sequences.size() != stops.size()) {
+            throw new BusinessException("提交的经停站与路线不一致");
+        }
+        Map<Long, Stop> stopMap = stops.stream()
+                .collect(Collectors.toMap(Stop::getId, stop -> stop));
+        Map<Long, Integer> positions = new HashMap<>();
+        Set<Integer> usedPositions = new HashSet<>();
+        for (UpdateStopSequencesRequest.StopSequence seq : sequences) {
             Stop stop = stopMap.get(seq.getId());
             if (stop == null) {
-                // 跳过不存在的经停站
-                continue;
+                throw new BusinessException("经停站不属于该路线: " + seq.getId());
+            }
+            if (seq.getSeq() == null) {
+                throw new BusinessException("经停站序号不能为空");
             }
-            
-            // 起始站和终点站的序号不允许修改
-            if (stop.getStationId().equals(route.getStartStationId()) || 
-                stop.getStationId().equals(route.getEndStationId())) {
-                continue;
+            if (positions.put(stop.getId(), seq.getSeq()) != null) {
+                throw new BusinessException("经停站重复: " + seq.getId());
             }
-            
-            // 设置新序号
-            stop.setSeq(seq.getSeq());
-            int result = stopMapper.updateStop(stop);
-            if (result <= 0) {
-                success = false;
+            // 起始站和终点站固定在首尾，提交的序号不参与校验
+            if (stop != startStop && stop != endStop && !usedPositions.add(seq.getSeq())) {
+                throw new BusinessException("经停站序号重复: " + seq.getSeq());
             }
         }
         
-        // 确保终点站仍然是最后一个
-        stops = stopMapper.getStopsByRouteId(request.getRouteId());
-        int maxSeq = stops.stream().mapToInt(Stop::getSeq).max().orElse(0);
-        if (endStop.getSeq() != maxSeq) {
-            endStop.setSeq(maxSeq + 1);
-            stopMapper.updateStop(endStop);
+        // 计算新顺序：起始站在首位、终点站在末位，其余按提交的序号排列
+        List<Stop> ordered = new ArrayList<>(stops.size());
+        ordered.add(startStop);
+        stops.stream()
+                .filter(stop -> stop != startStop && stop != endStop)
+                .sorted(Comparator.comparingInt(stop -> positions.get(stop.getId())))
+                .forEach(ordered::add);
+        ordered.add(endStop);
+        
+        // 重新编号，只把序号发生变化的经停站合并为一条 UPDATE 写回
+        List<Stop> changed = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Stop stop = ordered.get(i);
+            int seq = (i + 1) * Stop.SEQ_GAP;
+            if (stop.getSeq() != seq) {
+                stop.setSeq(seq);
+                changed.add(stop);
+            }
+        }
+        if (!changed.isEmpty()) {
+            stopMapper.updateStopSeqs(route.getId(), changed);
+            for (Stop stop : changed) {
+                publishStopChanged(MetroDataChangedEvent.ChangeType.UPDATE, stop.getId());
+            }
+        }
+        
+        // 直接返回新顺序，无需重新查询
+        return convertWrittenStops(ordered, route, 0);
+    }
+    
+    /**
+     * 保证起始站停靠点位于首位、终点站停靠点位于末位
+     *
+     * @param route  路线
+     * @param stops  路线的停靠点（按顺序），会被就地调整
+     * @param create 缺少起始站或终点站停靠点时是否自动创建，否则抛出异常
+     */
+    private void ensureTerminals(Route route, List<Stop> stops, boolean create) {
+        Stop startStop = findByStation(stops, route.getStartStationId());
+        Stop endStop = findByStation(stops, route.getEndStationId());
+        if (!create) {
+            if (startStop == null) {
+                throw new BusinessException("路线缺少起始站停靠点");
+            }
+            if (endStop == null) {
+                throw new BusinessException("路线缺少终点站停靠点");
+            }
         }
         
-        return success;
+        if (startStop == null) {
+            startStop = new Stop();
+            startStop.setRouteId(route.getId());
+            startStop.setStationId(route.getStartStationId());
+            placeStop(route.getId(), stops, 0, startStop);
+            stopMapper.insertStop(startStop);
+            publishStopChanged(MetroDataChangedEvent.ChangeType.CREATE, startStop.getId());
+        } else if (stops.get(0) != startStop) {
+            stops.remove(startStop);
+            placeStop(route.getId(), stops, 0, startStop);
+            stopMapper.updateStop(startStop);
+            publishStopChanged(MetroDataChangedEvent.ChangeType.UPDATE, startStop.getId());
+        }
+        
+        if (endStop == null) {
+            endStop = new Stop();
+            endStop.setRouteId(route.getId());
+            endStop.setStationId(route.getEndStationId());
+            placeStop(route.getId(), stops, stops.size(), endStop);
+            stopMapper.insertStop(endStop);
+            publishStopChanged(MetroDataChangedEvent.ChangeType.CREATE, endStop.getId());
+        } else if (stops.get(stops.size() - 1) != endStop) {
+            stops.remove(endStop);
+            placeStop(route.getId(), stops, stops.size(), endStop);
+            stopMapper.updateStop(endStop);
+            publishStopChanged(MetroDataChangedEvent.ChangeType.UPDATE, endStop.getId());
+        }
+    }
+    
+    /**
+     * 把停靠点放到序列的指定位置并为其分配序号
+     * 前后两站之间还有空位时取中点；否则整条路线按 {@link Stop#SEQ_GAP} 重新编号，
+     * 其余停靠点的新序号用一条语句批量写回。被放置的停靠点本身由调用方负责插入或更新。
+     *
+     * @param routeId 路线ID
+     * @param stops   路线的停靠点（按顺序），会被就地插入
+     * @param index   目标下标
+     * @param stop    被放置的停靠点
+     */
+    private void placeStop(Long routeId, List<Stop> stops, int index, Stop stop) {
+        long lo = index > 0 ? stops.get(index - 1).getSeq() : 0;
+        long hi = index < stops.size() ? stops.get(index).getSeq() : lo + 2L * Stop.SEQ_GAP;
+        stops.add(index, stop);
+        if (hi - lo >= 2 && hi <= Integer.MAX_VALUE) {
+            stop.setSeq((int) (lo + (hi - lo) / 2));
+            return;
+        }
+        
+        // 没有空位，重新编号
+        List<Stop> changed = new ArrayList<>();
+        for (int i = 0; i < stops.size(); i++) {
+            Stop s = stops.get(i);
+            int seq = (i + 1) * Stop.SEQ_GAP;
+            if (s != stop && s.getId() != null && s.getSeq() != seq) {
+                changed.add(s);
+            }
+            s.setSeq(seq);
+        }
+        if (!changed.isEmpty()) {
+            stopMapper.updateStopSeqs(routeId, changed);
+            for (Stop s : changed) {
+                publishStopChanged(MetroDataChangedEvent.ChangeType.UPDATE, s.getId());
+            }
+        }
+    }
+    
+    /**
+     * 把用户提交的位置（从1开始）换算为序列下标，并限制在起始站之后、终点站之前
+     */
+    private static int clampIndex(Integer seq, int size) {
+        int index = seq != null ? seq - 1 : size - 1;
+        return Math.max(1, Math.min(index, size - 1));
+    }
+    
+    private static Stop findByStation(List<Stop> stops, Long stationId) {
+        for (Stop stop : stops) {
+            if (stop.getStationId().equals(stationId)) {
+                return stop;
+            }
+        }
+        return null;
+    }
+    
+    private void publishStopChanged(MetroDataChangedEvent.ChangeType changeType, Long stopId) {
+        eventPublisher.publishEvent(new MetroDataChangedEvent(MetroAggregate.STOP, changeType, stopId));
     }
     
     private StopDto convertToDto(Stop stop) {
+        return convertToDtos(Collections.singletonList(stop)).get(0);
+    }
+    
+    /**
+     * 转换本事务中写入的停靠点，只使用已从数据库加载的行，不读取路网快照：
+     * 此时快照尚未刷新，在事务内触发重建会把未提交的数据发布给所有读请求。位置由调用方给出
+     *
+     * @param stops      同一路线上连续的停靠点
+     * @param route      停靠点所属路线
+     * @param firstIndex 第一个停靠点在路线中的下标
+     */
+    private List<StopDto> convertWrittenStops(List<Stop> stops, Route route, int firstIndex) {
+        BatchLoader<Station> stations = new BatchLoader<>(stationMapper::getStationsByIds, Station::getId, null);
+        for (Stop stop : stops) {
+            if (stop.getStation() == null) {
+                stations.collect(stop.getStationId());
+            }
+        }
+        
+        List<StopDto> result = new ArrayList<>(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            Stop stop = stops.get(i);
+            StopDto dto = new StopDto();
+            dto.setId(stop.getId());
+            dto.setRouteId(stop.getRouteId());
+            dto.setStationId(stop.getStationId());
+            dto.setSeq(firstIndex + i + 1);
+            dto.setRouteName(route.getName());
+            Station station = stop.getStation() != null ? stop.getStation() : stations.get(stop.getStationId());
+            if (station != null) {
+                dto.setStationName(station.getName());
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+    
+    private List<StopDto> convertToDtos(List<Stop> stops) {
+        // 未关联路线或站点的停靠点，先登记ID，再合并为一次批量查询（优先从路网快照取数）
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        BatchLoader<Route> routes = batchLoaders.routes(snapshot);
+        BatchLoader<Station> stations = batchLoaders.stations(snapshot);
+        for (Stop stop : stops) {
+            if (stop.getRoute() == null) {
+                routes.collect(stop.getRouteId());
+            }
+            if (stop.getStation() == null) {
+                stations.collect(stop.getStationId());
+            }
+        }
+        
+        return stops.stream()
+                .map(stop -> convertToDto(stop, snapshot, routes, stations))
+                .collect(Collectors.toList());
+    }
+    
+    private StopDto convertToDto(Stop stop, TransitNetworkSnapshot snapshot,
+                                 BatchLoader<Route> routes, BatchLoader<Station> stations) {
         StopDto dto = new StopDto();
         dto.setId(stop.getId());
         dto.setRouteId(stop.getRouteId());
         dto.setStationId(stop.getStationId());
-        dto.setSeq(stop.getSeq());
+        // 数据库中的序号是稀疏的，对外返回停靠点在路线中的位置
+        int ordinal = snapshot.stopOrdinal(stop.getId());
+        dto.setSeq(ordinal > 0 ? ordinal : stop.getSeq());
         
         // 获取路线名称
         if (stop.getRoute() != null) {
             dto.setRouteName(stop.getRoute().getName());
         } else if (stop.getRouteId() != null) {
-            Route route = routeMapper.getRouteById(stop.getRouteId());
+            Route route = routes.get(stop.getRouteId());
             if (route != null) {
                 dto.setRouteName(route.getName());
             }
@@ -419,7 +515,7 @@ public class StopServiceImpl implements StopService {
         if (stop.getStation() != null) {
             dto.setStationName(stop.getStation().getName());
         } else if (stop.getStationId() != null) {
-            Station station = stationMapper.getStationById(stop.getStationId());
+            Station station = stations.get(stop.getStationId());
             if (station != null) {
                 dto.setStationName(station.getName());
             }
@@ -427,4 +523,4 @@ public class StopServiceImpl implements StopService {
         
         return dto;
     }
-} 
\ No newline at end of file
+}
@@ -1,13 +1,26 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
 import com.scoding.metro.dto.StopTimeDto;
 import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.realtime.DelayOverlay;
 import com.scoding.metro.service.StopTimeService;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,6 +29,10 @@ import java.util.stream.Collectors;
 public class StopTimeServiceImpl implements StopTimeService {
     
     private final StopTimeMapper stopTimeMapper;
+    private final TrainTripMapper trainTripMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final DelayOverlay delayOverlay;
     
     @Override
     public List<StopTimeDto> getAllStopTimes() {
@@ -24,6 +41,26 @@ public class StopTimeServiceImpl implements StopTimeService {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public CursorPage<StopTimeDto> getStopTimesPage(Long cursor, Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        // 多查一条用于判断是否还有下一页
+        return CursorPage.of(stopTimeMapper.selectPage(cursor, pageSize + 1), pageSize, StopTime::getId)
+                .map(this::convertToDto);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllStopTimes(OutputStream out) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Cursor<StopTime> cursor = stopTimeMapper.streamAll()) {
+            for (StopTime stopTime : cursor) {
+                writer.write(convertToDto(stopTime));
+            }
+        }
+        writer.finish();
+    }
+    
     @Override
     public StopTimeDto getStopTimeById(Long id) {
         StopTime stopTime = stopTimeMapper.selectById(id);
@@ -32,8 +69,9 @@ public class StopTimeServiceImpl implements StopTimeService {
     
     @Override
     public List<StopTimeDto> getStopTimesByTrainTripId(Long trainTripId) {
+        DelayOverlay.TripDelay delay = delayOverlay.get(trainTripId);
         return stopTimeMapper.selectByTrainTripId(trainTripId).stream()
-                .map(this::convertToDto)
+                .map(stopTime -> convertToDto(stopTime, delay))
                 .collect(Collectors.toList());
     }
     
@@ -49,6 +87,9 @@ public class StopTimeServiceImpl implements StopTimeService {
     public StopTimeDto createStopTime(StopTimeDto stopTimeDto) {
         StopTime stopTime = convertToEntity(stopTimeDto);
         stopTimeMapper.insert(stopTime);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.STOP_TIME, MetroDataChangedEvent.ChangeType.CREATE, stopTime.getId(),
+                routeIdOf(stopTime.getTrainTripId())));
         
         return convertToDto(stopTime);
     }
@@ -64,6 +105,9 @@ public class StopTimeServiceImpl implements StopTimeService {
         StopTime stopTime = convertToEntity(stopTimeDto);
         stopTime.setId(id);
         stopTimeMapper.update(stopTime);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.STOP_TIME, MetroDataChangedEvent.ChangeType.UPDATE, id,
+                routeIdOf(existing.getTrainTripId())));
         
         return convertToDto(stopTime);
     }
@@ -71,11 +115,68 @@ public class StopTimeServiceImpl implements StopTimeService {
     @Override
     @Transactional
     public Boolean deleteStopTime(Long id) {
-        return stopTimeMapper.delete(id) > 0;
+        StopTime existing = stopTimeMapper.selectById(id);
+        boolean deleted = existing != null && stopTimeMapper.delete(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.STOP_TIME, MetroDataChangedEvent.ChangeType.DELETE, id,
+                    routeIdOf(existing.getTrainTripId())));
+        }
+        return deleted;
+    }
+    
+    @Override
+    public List<StopTimeDto> reportDelay(Long stopTimeId, Integer delaySeconds) {
+        if (delaySeconds == null || delaySeconds < 0) {
+            throw new BusinessException("延误时间不能为负数");
+        }
+        StopTime reported = stopTimeMapper.selectById(stopTimeId);
+        if (reported == null) {
+            throw new BusinessException("到站时刻不存在: " + stopTimeId);
+        }
+        List<StopTime> stopTimes = stopTimeMapper.selectByTrainTripId(reported.getTrainTripId());
+        int index = 0;
+        while (!stopTimes.get(index).getId().equals(stopTimeId)) {
+            index++;
+        }
+        
+        DelayOverlay.TripDelay delay = delayOverlay.report(stopTimes, index, delaySeconds);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.DELAY, MetroDataChangedEvent.ChangeType.UPDATE, reported.getTrainTripId(),
+                routeIdOf(reported.getTrainTripId())));
+        return stopTimes.stream()
+                .map(stopTime -> convertToDto(stopTime, delay))
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public Boolean clearDelay(Long trainTripId) {
+        boolean cleared = delayOverlay.clear(trainTripId);
+        if (cleared) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.DELAY, MetroDataChangedEvent.ChangeType.DELETE, trainTripId,
+                    routeIdOf(trainTripId)));
+        }
+        return cleared;
     }
     
     // Helper methods
+    /**
+     * 列车行程所属的路线ID，随变更事件发布，推送时据此确定受影响的线路
+     */
+    private Long routeIdOf(Long trainTripId) {
+        TrainTrip trainTrip = trainTripId != null ? trainTripMapper.selectById(trainTripId) : null;
+        return trainTrip != null ? trainTrip.getRouteId() : null;
+    }
+    
     private StopTimeDto convertToDto(StopTime stopTime) {
+        return stopTime != null ? convertToDto(stopTime, delayOverlay.get(stopTime.getTrainTripId())) : null;
+    }
+    
+    /**
+     * 转换为DTO并合并实时延误，delay 为null时返回计划时刻
+     */
+    private StopTimeDto convertToDto(StopTime stopTime, DelayOverlay.TripDelay delay) {
         if (stopTime == null) {
             return null;
         }
@@ -88,6 +189,19 @@ public class StopTimeServiceImpl implements StopTimeService {
         dto.setDepartureTime(stopTime.getDepartureTime());
         dto.setStopSeq(stopTime.getStopSeq());
         
+        if (delay != null) {
+            int arrivalDelay = delay.arrivalDelay(stopTime.getId());
+            int departureDelay = delay.departureDelay(stopTime.getId());
+            if (arrivalDelay != 0 || departureDelay != 0) {
+                dto.setScheduledArrivalTime(stopTime.getArrivalTime());
+                dto.setScheduledDepartureTime(stopTime.getDepartureTime());
+                dto.setArrivalDelay(arrivalDelay);
+                dto.setDepartureDelay(departureDelay);
+                dto.setArrivalTime(DelayOverlay.arrival(stopTime, delay));
+                dto.setDepartureTime(DelayOverlay.departure(stopTime, delay));
+            }
+        }
+        
         return dto;
     }
     
@@ -1,18 +1,26 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
+import com.scoding.metro.dto.UserResponseDto;
 import com.scoding.metro.entity.User;
 import com.scoding.metro.entity.Role;
 import com.scoding.metro.exception.BusinessException;
 import com.scoding.metro.mapper.UserMapper;
 import com.scoding.metro.mapper.RoleMapper;
+import com.scoding.metro.security.PrincipalCache;
 import com.scoding.metro.service.SuperAdminService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,6 +35,8 @@ public class SuperAdminServiceImpl implements SuperAdminService {
     private final UserMapper userMapper;
     private final RoleMapper roleMapper;
     private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final PrincipalCache principalCache;
     private static final String DEFAULT_ROLE = "ROLE_USER";
 
     @Override
@@ -35,6 +45,27 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         return userMapper.listAllWithRoles();
     }
 
+    @Override
+    public CursorPage<User> listUsersPage(Long cursor, Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        log.info("分页获取用户信息, cursor: {}, limit: {}", cursor, pageSize);
+        // 多查一条用于判断是否还有下一页
+        return CursorPage.of(userMapper.listPageWithRoles(cursor, pageSize + 1), pageSize, User::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllUsers(OutputStream out) throws IOException {
+        log.info("流式导出所有用户信息");
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Cursor<User> cursor = userMapper.streamAllWithRoles()) {
+            for (User user : cursor) {
+                writer.write(UserResponseDto.fromEntity(user));
+            }
+        }
+        log.info("用户信息导出完成, 共 {} 条", writer.finish());
+    }
+
     @Override
     public User getUserById(Long id) {
         log.info("获取用户 ID:{} 的信息", id);
@@ -139,6 +170,8 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         // 更新用户信息
         userMapper.updateUserProfile(userUpdate);
 
+        principalCache.invalidate(id);
+
         // 更新用户角色关系（如果提供了新的角色列表）
         if (userUpdate.getRoles() != null && !userUpdate.getRoles().isEmpty()) {
             // 先删除现有角色关系
@@ -167,6 +200,7 @@ public class SuperAdminServiceImpl implements SuperAdminService {
 
         // 更新用户状态
         userMapper.updateUserStatus(id, newStatus);
+        principalCache.invalidate(id);
 
         return getUserById(id);
     }
@@ -184,6 +218,7 @@ public class SuperAdminServiceImpl implements SuperAdminService {
 
         // 更新密码
         userMapper.updatePassword(id, encodedPassword);
+        principalCache.invalidate(id);
     }
 
     @Override
@@ -199,5 +234,6 @@ public class SuperAdminServiceImpl implements SuperAdminService {
 
         // 删除用户
         userMapper.removeById(id);
+        principalCache.invalidate(id);
     }
 }
\ No newline at end of file
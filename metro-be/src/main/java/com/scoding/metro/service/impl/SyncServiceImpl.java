@@ -0,0 +1,147 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.dto.SyncDto;
+import com.scoding.metro.entity.ChangeLogDO;
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.mapper.ChangeLogMapper;
+import com.scoding.metro.mapper.LineMapper;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.StationMapper;
+import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.service.SyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncServiceImpl implements SyncService {
+
+    /**
+     * 单条 IN 查询最多包含的ID数
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final ChangeLogMapper changeLogMapper;
+    private final LineMapper lineMapper;
+    private final StationMapper stationMapper;
+    private final RouteMapper routeMapper;
+    private final StopMapper stopMapper;
+
+    /**
+     * 增量超过该条数时改为全量，避免逐条合并比直接下载全部数据更慢
+     */
+    @Value("${app.sync.max-delta-changes:5000}")
+    private int maxDeltaChanges;
+
+    /**
+     * 版本和数据在同一个只读事务中读取（一致性快照），返回的数据与版本严格对应
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SyncDto sync(Long since) {
+        Long current = changeLogMapper.getVersion();
+        long version = current != null ? current : 0L;
+        if (since == null || since < 0 || since > version) {
+            return fullSnapshot(version);
+        }
+
+        SyncDto dto = new SyncDto();
+        dto.setVersion(version);
+        dto.setFull(false);
+        if (since == version) {
+            return dto;
+        }
+
+        // 日志被压缩后 since 之后的部分变更已丢失
+        Long oldest = changeLogMapper.getOldestVersion();
+        if (oldest == null || since < oldest - 1) {
+            log.info("路网变更日志已压缩, since={}, oldest={}, 返回全量数据", since, oldest);
+            return fullSnapshot(version);
+        }
+        List<ChangeLogDO> changes = changeLogMapper.listChangeLogs(since, version, maxDeltaChanges + 1);
+        if (changes.size() > maxDeltaChanges) {
+            return fullSnapshot(version);
+        }
+
+        // 同一记录的多次变更只需要当前状态：存在即为新增或修改，不存在即已删除
+        Map<MetroAggregate, Set<Long>> changedIds = new EnumMap<>(MetroAggregate.class);
+        for (ChangeLogDO change : changes) {
+            if (change.getEntityId() == null) {
+                // 批量变更无法逐条确定
+                return fullSnapshot(version);
+            }
+            changedIds.computeIfAbsent(change.getAggregate(), aggregate -> new LinkedHashSet<>())
+                    .add(change.getEntityId());
+        }
+
+        dto.setLines(load(changedIds.get(MetroAggregate.LINE), lineMapper::getLinesByIds, Line::getId,
+                dto.getDeletedLineIds()));
+        dto.setStations(load(changedIds.get(MetroAggregate.STATION), stationMapper::getStationsByIds,
+                Station::getId, dto.getDeletedStationIds()));
+        dto.setRoutes(load(changedIds.get(MetroAggregate.ROUTE), routeMapper::getRoutesByIds, Route::getId,
+                dto.getDeletedRouteIds()));
+        dto.setStops(load(changedIds.get(MetroAggregate.STOP), stopMapper::getStopsByIds, Stop::getId,
+                dto.getDeletedStopIds()));
+        return dto;
+    }
+
+    private SyncDto fullSnapshot(long version) {
+        SyncDto dto = new SyncDto();
+        dto.setVersion(version);
+        dto.setFull(true);
+        dto.setLines(lineMapper.getAllLines());
+        dto.setStations(stationMapper.getAllStations());
+        dto.setRoutes(routeMapper.getAllRoutes());
+        List<Stop> stops = stopMapper.getAllStops();
+        for (Stop stop : stops) {
+            // 关联的站点、路线已单独下发
+            stop.setStation(null);
+            stop.setRoute(null);
+        }
+        dto.setStops(stops);
+        return dto;
+    }
+
+    /**
+     * 批量查询变更记录的当前状态，查不到的ID记为已删除
+     */
+    private static <V> List<V> load(Collection<Long> ids, Function<Collection<Long>, List<V>> batchQuery,
+                                    Function<V, Long> idGetter, List<Long> deletedIds) {
+        List<V> result = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < idList.size(); from += MAX_BATCH_SIZE) {
+            for (V value : batchQuery.apply(idList.subList(from, Math.min(from + MAX_BATCH_SIZE, idList.size())))) {
+                result.add(value);
+                found.add(idGetter.apply(value));
+            }
+        }
+        for (Long id : idList) {
+            if (!found.contains(id)) {
+                deletedIds.add(id);
+            }
+        }
+        return result;
+    }
+}
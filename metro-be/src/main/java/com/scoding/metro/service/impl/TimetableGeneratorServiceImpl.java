@@ -0,0 +1,307 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.common.TrainTripBatchWriter;
+import com.scoding.metro.dto.TimetableGenerateRequest;
+import com.scoding.metro.dto.TimetableGenerateResultDto;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.service.TimetableGeneratorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimetableGeneratorServiceImpl implements TimetableGeneratorService {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_TRAIN_NUMBER_LENGTH = 20;
+
+    private final RouteMapper routeMapper;
+    private final StopMapper stopMapper;
+    private final TrainTripMapper trainTripMapper;
+    private final StopTimeMapper stopTimeMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.timetable-generator.max-stop-times:1000000}")
+    private int maxStopTimes;
+
+    @Value("${app.timetable-generator.default-dwell-seconds:30}")
+    private int defaultDwellSeconds;
+
+    @Override
+    @Transactional
+    public TimetableGenerateResultDto generate(TimetableGenerateRequest request) {
+        Route route = routeMapper.getRouteById(request.getRouteId());
+        if (route == null) {
+            throw new BusinessException("路线不存在");
+        }
+        List<Stop> stops = stopMapper.getStopsByRouteId(route.getId());
+        if (stops.size() < 2) {
+            throw new BusinessException("路线至少需要两个停靠点");
+        }
+
+        List<LocalDate> dates = expandDates(request);
+        int[] departures = expandDepartures(request);
+        TripTemplate template = buildTemplate(request, stops);
+        String prefix = StringUtils.hasText(request.getTrainNumberPrefix())
+                ? request.getTrainNumberPrefix() : String.valueOf(route.getId());
+        if (prefix.length() + Math.max(3, String.valueOf(departures.length).length()) > MAX_TRAIN_NUMBER_LENGTH) {
+            throw new BusinessException("车次号前缀过长");
+        }
+
+        long stopTimeCount = (long) dates.size() * departures.length * stops.size();
+        if (stopTimeCount > maxStopTimes) {
+            throw new BusinessException("单次最多生成" + maxStopTimes + "条到站时刻，请缩小日期范围或增大发车间隔");
+        }
+
+        TreeSet<LocalDate> existingDates = new TreeSet<>(trainTripMapper.selectRunDatesByRoute(
+                route.getId(), request.getStartDate(), request.getEndDate()));
+        existingDates.addAll(calendarCoveredDates(route.getId(), dates));
+        if (!existingDates.isEmpty()) {
+            throw new BusinessException("以下日期该路线已有列车行程: " + existingDates);
+        }
+
+        // 各日期互不依赖，并行展开；写库仍在当前事务的同一连接上顺序执行
+        long start = System.nanoTime();
+        List<List<TrainTrip>> days = dates.parallelStream()
+                .map(date -> buildDay(route.getId(), date, departures, template, prefix))
+                .collect(Collectors.toList());
+        long generated = System.nanoTime();
+
+        TrainTripBatchWriter writer = new TrainTripBatchWriter(trainTripMapper, stopTimeMapper);
+        days.forEach(trips -> trips.forEach(writer::write));
+        writer.flush();
+        int tripCount = writer.getTripCount();
+        int insertedStopTimes = writer.getStopTimeCount();
+        long inserted = System.nanoTime();
+
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.CREATE, null, route.getId()));
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.STOP_TIME, MetroDataChangedEvent.ChangeType.CREATE, null, route.getId()));
+
+        long insertMillis = (inserted - generated) / 1_000_000;
+        long rows = (long) tripCount + insertedStopTimes;
+        TimetableGenerateResultDto result = new TimetableGenerateResultDto();
+        result.setRouteId(route.getId());
+        result.setStartDate(request.getStartDate());
+        result.setEndDate(request.getEndDate());
+        result.setDayCount(dates.size());
+        result.setTripsPerDay(departures.length);
+        result.setTrainTripCount(tripCount);
+        result.setStopTimeCount(insertedStopTimes);
+        result.setGenerateMillis((generated - start) / 1_000_000);
+        result.setInsertMillis(insertMillis);
+        result.setRowsPerSecond(rows * 1_000_000_000L / Math.max(1, inserted - generated));
+        log.info("路线 {} 生成时刻表: {} 天, 行程 {} 条, 到站时刻 {} 条, 写入耗时 {} ms, {} 行/秒",
+                route.getId(), dates.size(), tripCount, insertedStopTimes, insertMillis, result.getRowsPerSecond());
+        return result;
+    }
+
+    private static List<LocalDate> expandDates(TimetableGenerateRequest request) {
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            throw new BusinessException("运行日期范围不能为空");
+        }
+        long days = ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1;
+        if (days < 1) {
+            throw new BusinessException("结束日期不能早于起始日期");
+        }
+        if (days > MAX_DAYS) {
+            throw new BusinessException("单次最多生成" + MAX_DAYS + "天的时刻表");
+        }
+        List<LocalDate> dates = new ArrayList<>((int) days);
+        for (LocalDate date = request.getStartDate(); !date.isAfter(request.getEndDate()); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    /**
+     * 路线上按运营日历运行的行程在给定日期中实际生效的日期
+     * 例外日期优先：增加的日期运行、取消的日期不运行，其余按日历的星期规律和有效期判断
+     */
+    private List<LocalDate> calendarCoveredDates(Long routeId, List<LocalDate> dates) {
+        List<LocalDate> covered = new ArrayList<>();
+        for (Long serviceId : trainTripMapper.selectServiceIdsByRoute(routeId)) {
+            ServiceCalendar calendar = serviceCalendarMapper.selectById(serviceId);
+            if (calendar == null) {
+                continue;
+            }
+            Map<LocalDate, Integer> exceptions = new HashMap<>();
+            for (ServiceCalendarDate exception : serviceCalendarMapper.selectDatesByCalendarId(serviceId)) {
+                exceptions.put(exception.getServiceDate(), exception.getExceptionType());
+            }
+            for (LocalDate date : dates) {
+                Integer exceptionType = exceptions.get(date);
+                boolean running = exceptionType != null
+                        ? exceptionType == ServiceCalendarDate.ADDED
+                        : calendar.matchesPattern(date);
+                if (running) {
+                    covered.add(date);
+                }
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * 按发车间隔时段展开起始站的发车时刻（当日秒数）
+     */
+    private static int[] expandDepartures(TimetableGenerateRequest request) {
+        if (request.getFirstDeparture() == null || request.getLastDeparture() == null) {
+            throw new BusinessException("首末班车时间不能为空");
+        }
+        int first = request.getFirstDeparture().toSecondOfDay();
+        int last = request.getLastDeparture().toSecondOfDay();
+        if (last < first) {
+            throw new BusinessException("末班车时间不能早于首班车时间");
+        }
+
+        List<TimetableGenerateRequest.HeadwayBand> bands = request.getHeadways();
+        if (bands == null || bands.isEmpty()) {
+            throw new BusinessException("发车间隔不能为空");
+        }
+        for (TimetableGenerateRequest.HeadwayBand band : bands) {
+            if (band.getStartTime() == null || band.getHeadwaySeconds() == null || band.getHeadwaySeconds() <= 0) {
+                throw new BusinessException("发车间隔时段的开始时间和间隔须为有效值");
+            }
+        }
+        bands = new ArrayList<>(bands);
+        bands.sort(Comparator.comparing(TimetableGenerateRequest.HeadwayBand::getStartTime));
+        if (bands.get(0).getStartTime().toSecondOfDay() > first) {
+            throw new BusinessException("发车间隔时段须覆盖首班车时间");
+        }
+
+        List<Integer> departures = new ArrayList<>();
+        int band = 0;
+        for (int t = first; t <= last; t += bands.get(band).getHeadwaySeconds()) {
+            while (band + 1 < bands.size() && bands.get(band + 1).getStartTime().toSecondOfDay() <= t) {
+                band++;
+            }
+            departures.add(t);
+        }
+        return departures.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 根据区间运行时间和停站时间计算各站相对于始发时刻的到达、离开偏移量
+     */
+    private TripTemplate buildTemplate(TimetableGenerateRequest request, List<Stop> stops) {
+        int stopCount = stops.size();
+        List<Integer> running = request.getRunningSeconds();
+        if (running == null || running.size() != stopCount - 1) {
+            throw new BusinessException("区间运行时间的数量应为" + (stopCount - 1));
+        }
+        List<Integer> dwell = request.getDwellSeconds();
+        if (dwell != null && !dwell.isEmpty() && dwell.size() != stopCount) {
+            throw new BusinessException("停站时间的数量应为" + stopCount);
+        }
+        int fallbackDwell = request.getDefaultDwellSeconds() != null ? request.getDefaultDwellSeconds() : defaultDwellSeconds;
+
+        long[] stopIds = new long[stopCount];
+        int[] arrivals = new int[stopCount];
+        int[] departures = new int[stopCount];
+        for (int i = 0; i < stopCount; i++) {
+            stopIds[i] = stops.get(i).getId();
+            if (i > 0) {
+                Integer seconds = running.get(i - 1);
+                if (seconds == null || seconds <= 0) {
+                    throw new BusinessException("区间运行时间须大于0");
+                }
+                arrivals[i] = departures[i - 1] + seconds;
+                Integer stay = dwell != null && !dwell.isEmpty() ? dwell.get(i) : null;
+                int dwellSeconds = stay != null ? stay : fallbackDwell;
+                if (dwellSeconds < 0) {
+                    throw new BusinessException("停站时间不能为负数");
+                }
+                departures[i] = i < stopCount - 1 ? arrivals[i] + dwellSeconds : arrivals[i];
+            }
+        }
+        if (arrivals[stopCount - 1] >= SECONDS_PER_DAY) {
+            throw new BusinessException("单个车次的运行时间不能超过24小时");
+        }
+        return new TripTemplate(stopIds, arrivals, departures);
+    }
+
+    private static List<TrainTrip> buildDay(Long routeId, LocalDate date, int[] departures,
+                                            TripTemplate template, String prefix) {
+        int stopCount = template.stopIds.length;
+        List<TrainTrip> trips = new ArrayList<>(departures.length);
+        for (int k = 0; k < departures.length; k++) {
+            TrainTrip trip = new TrainTrip();
+            trip.setRouteId(routeId);
+            trip.setRunDate(date);
+            trip.setTrainNumber(prefix + String.format("%03d", k + 1));
+
+            int origin = departures[k];
+            List<StopTime> stopTimes = new ArrayList<>(stopCount);
+            for (int i = 0; i < stopCount; i++) {
+                StopTime stopTime = new StopTime();
+                stopTime.setStopId(template.stopIds[i]);
+                stopTime.setStopSeq(i + 1);
+                // 始发站没有到达时间，终点站没有离开时间；跨零点的时刻按当日时间回绕
+                if (i > 0) {
+                    stopTime.setArrivalTime(toLocalTime(origin + template.arrivals[i]));
+                }
+                if (i < stopCount - 1) {
+                    stopTime.setDepartureTime(toLocalTime(origin + template.departures[i]));
+                }
+                stopTimes.add(stopTime);
+            }
+            trip.setStopTimes(stopTimes);
+            trips.add(trip);
+        }
+        return trips;
+    }
+
+    private static LocalTime toLocalTime(int seconds) {
+        return LocalTime.ofSecondOfDay(seconds % SECONDS_PER_DAY);
+    }
+
+    /**
+     * 单个车次的时刻模板，偏移量以秒为单位，相对于始发站发车时刻
+     */
+    private static final class TripTemplate {
+        private final long[] stopIds;
+        private final int[] arrivals;
+        private final int[] departures;
+
+        private TripTemplate(long[] stopIds, int[] arrivals, int[] departures) {
+            this.stopIds = stopIds;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+    }
+}
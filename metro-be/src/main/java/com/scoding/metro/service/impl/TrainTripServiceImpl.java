@@ -1,19 +1,35 @@
 package com.scoding.metro.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.common.CursorPage;
+import com.scoding.metro.common.NdjsonWriter;
 import com.scoding.metro.dto.TrainTripDto;
 import com.scoding.metro.entity.Line;
 import com.scoding.metro.entity.Route;
 import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
 import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.loader.BatchLoader;
+import com.scoding.metro.loader.MetroBatchLoaders;
 import com.scoding.metro.mapper.LineMapper;
 import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
 import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import com.scoding.metro.network.TransitNetworkSnapshot;
 import com.scoding.metro.service.StopTimeService;
 import com.scoding.metro.service.TrainTripService;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,65 +41,42 @@ public class TrainTripServiceImpl implements TrainTripService {
     private final TrainTripMapper trainTripMapper;
     private final RouteMapper routeMapper;
     private final LineMapper lineMapper;
+    private final ServiceCalendarMapper serviceCalendarMapper;
     private final StopTimeService stopTimeService;
+    private final TransitNetworkHolder networkHolder;
+    private final MetroBatchLoaders batchLoaders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
     
     @Override
     public List<TrainTripDto> getAllTrainTrips() {
-        List<TrainTrip> trainTrips = trainTripMapper.selectAll();
-        
-        // 预加载所有涉及到的路线信息，提高性能
-        List<Long> routeIds = trainTrips.stream()
-                .map(TrainTrip::getRouteId)
-                .filter(routeId -> routeId != null) // 确保只处理非空的routeId
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // 获取所有相关路线
-        Map<Long, Route> routeMap = new java.util.HashMap<>();
-        if (!routeIds.isEmpty()) {
-            List<Route> routes = routeIds.stream()
-                    .map(routeMapper::getRouteById)
-                    .filter(route -> route != null)
-                    .collect(Collectors.toList());
-            
-            // 预加载所有涉及到的线路信息
-            List<Long> lineIds = routes.stream()
-                    .map(Route::getLineId)
-                    .filter(lineId -> lineId != null) // 确保只处理非空的lineId
-                    .distinct()
-                    .collect(Collectors.toList());
-            
-            // 获取所有相关线路并创建映射
-            Map<Long, Line> lineMap = new java.util.HashMap<>();
-            if (!lineIds.isEmpty()) {
-                lineMap = lineIds.stream()
-                        .map(lineMapper::getLineById)
-                        .filter(line -> line != null)
-                        .collect(Collectors.toMap(Line::getId, line -> line));
-            }
-            
-            // 将线路信息加载到路线中
-            for (Route route : routes) {
-                if (route.getLineId() != null) {
-                    route.setLine(lineMap.get(route.getLineId()));
+        return convertToDtos(trainTripMapper.selectAll());
+    }
+    
+    @Override
+    public CursorPage<TrainTripDto> getTrainTripsPage(Long cursor, Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        // 多查一条用于判断是否还有下一页
+        return CursorPage.of(trainTripMapper.selectPage(cursor, pageSize + 1), pageSize, TrainTrip::getId)
+                .mapAll(this::convertToDtos);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllTrainTrips(OutputStream out) throws IOException {
+        // 流式读取期间连接被占用，路线信息只从路网快照获取，且须在打开游标前取得快照
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        Map<Long, Route> routes = new HashMap<>();
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Cursor<TrainTrip> cursor = trainTripMapper.streamAll()) {
+            for (TrainTrip trainTrip : cursor) {
+                if (trainTrip.getRouteId() != null) {
+                    trainTrip.setRoute(routes.computeIfAbsent(trainTrip.getRouteId(), snapshot::getRoute));
                 }
+                writer.write(convertToDto(trainTrip));
             }
-            
-            // 创建路线ID到路线的映射
-            routeMap = routes.stream()
-                    .collect(Collectors.toMap(Route::getId, route -> route));
         }
-        
-        // 将路线信息加载到列车行程实体中
-        for (TrainTrip trainTrip : trainTrips) {
-            if (trainTrip.getRouteId() != null) {
-                trainTrip.setRoute(routeMap.get(trainTrip.getRouteId()));
-            }
-        }
-        
-        return trainTrips.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        writer.finish();
     }
     
     @Override
@@ -93,17 +86,9 @@ public class TrainTripServiceImpl implements TrainTripService {
             throw new BusinessException("列车行程不存在: " + id);
         }
         
-        // 如果有路线ID，则加载路线信息
+        // 如果有路线ID，则加载路线及线路信息
         if (trainTrip.getRouteId() != null) {
-            Route route = routeMapper.getRouteById(trainTrip.getRouteId());
-            if (route != null) {
-                // 如果路线有线路ID，则加载线路信息
-                if (route.getLineId() != null) {
-                    Line line = lineMapper.getLineById(route.getLineId());
-                    route.setLine(line);
-                }
-                trainTrip.setRoute(route);
-            }
+            trainTrip.setRoute(loadRoute(trainTrip.getRouteId(), networkHolder.get()));
         }
         
         return convertToDto(trainTrip);
@@ -111,18 +96,12 @@ public class TrainTripServiceImpl implements TrainTripService {
     
     @Override
     public List<TrainTripDto> getTrainTripsByRouteId(Long routeId) {
-        // 验证路线是否存在
-        Route route = routeMapper.getRouteById(routeId);
+        // 验证路线是否存在（路线已填充线路信息）
+        Route route = loadRoute(routeId, networkHolder.get());
         if (route == null) {
             throw new BusinessException("路线不存在: " + routeId);
         }
         
-        // 如果路线有线路ID，则加载线路信息
-        if (route.getLineId() != null) {
-            Line line = lineMapper.getLineById(route.getLineId());
-            route.setLine(line);
-        }
-        
         List<TrainTrip> trainTrips = trainTripMapper.selectByRouteId(routeId);
         
         // 将路线信息加载到每个列车行程中
@@ -135,6 +114,14 @@ public class TrainTripServiceImpl implements TrainTripService {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public List<TrainTripDto> getTrainTripsByDate(LocalDate date) {
+        if (date == null) {
+            throw new BusinessException("运行日期不能为空");
+        }
+        return convertToDtos(trainTripMapper.selectByRunDate(date));
+    }
+    
     @Override
     public TrainTripDto getTrainTripWithStopTimes(Long id) {
         TrainTrip trainTrip = trainTripMapper.selectById(id);
@@ -142,12 +129,9 @@ public class TrainTripServiceImpl implements TrainTripService {
             throw new BusinessException("列车行程不存在: " + id);
         }
         
-        // 加载路线信息
-        Route route = routeMapper.getRouteById(trainTrip.getRouteId());
+        // 加载路线及线路信息
+        Route route = loadRoute(trainTrip.getRouteId(), networkHolder.get());
         if (route != null) {
-            // 加载线路信息
-            Line line = lineMapper.getLineById(route.getLineId());
-            route.setLine(line);
             trainTrip.setRoute(route);
         }
         
@@ -167,6 +151,7 @@ public class TrainTripServiceImpl implements TrainTripService {
     @Transactional
     public TrainTripDto createTrainTrip(TrainTripDto trainTripDto) {
         TrainTrip trainTrip = convertToEntity(trainTripDto);
+        validateSchedule(trainTrip);
         
         // 如果提供了routeId，验证路线是否存在
         if (trainTripDto.getRouteId() != null) {
@@ -186,6 +171,9 @@ public class TrainTripServiceImpl implements TrainTripService {
         }
         
         trainTripMapper.insert(trainTrip);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.CREATE, trainTrip.getId(),
+                trainTrip.getRouteId()));
         return convertToDto(trainTrip);
     }
     
@@ -199,6 +187,7 @@ public class TrainTripServiceImpl implements TrainTripService {
         
         TrainTrip trainTrip = convertToEntity(trainTripDto);
         trainTrip.setId(id);
+        validateSchedule(trainTrip);
         
         // 如果提供了routeId，验证路线是否存在
         if (trainTripDto.getRouteId() != null) {
@@ -218,6 +207,9 @@ public class TrainTripServiceImpl implements TrainTripService {
         }
         
         trainTripMapper.update(trainTrip);
+        eventPublisher.publishEvent(new MetroDataChangedEvent(
+                MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.UPDATE, id,
+                trainTrip.getRouteId() != null ? trainTrip.getRouteId() : existing.getRouteId()));
         return convertToDto(trainTrip);
     }
     
@@ -229,10 +221,70 @@ public class TrainTripServiceImpl implements TrainTripService {
             throw new BusinessException("列车行程不存在: " + id);
         }
         
-        return trainTripMapper.delete(id) > 0;
+        boolean deleted = trainTripMapper.delete(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new MetroDataChangedEvent(
+                    MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.DELETE, id, existing.getRouteId()));
+        }
+        return deleted;
     }
     
     // Helper methods
+    /**
+     * 列车行程要么只在某一天运行，要么按运营日历运行
+     */
+    private void validateSchedule(TrainTrip trainTrip) {
+        if ((trainTrip.getRunDate() == null) == (trainTrip.getServiceId() == null)) {
+            throw new BusinessException("运行日期和运营日历须且只能设置一项");
+        }
+        if (trainTrip.getServiceId() != null && serviceCalendarMapper.selectById(trainTrip.getServiceId()) == null) {
+            throw new BusinessException("运营日历不存在: " + trainTrip.getServiceId());
+        }
+    }
+    
+    /**
+     * 批量转换列车行程为DTO，路线及线路信息合并加载
+     */
+    private List<TrainTripDto> convertToDtos(List<TrainTrip> trainTrips) {
+        // 路线及线路信息优先从路网快照中获取，缺失的部分合并为批量查询
+        TransitNetworkSnapshot snapshot = networkHolder.get();
+        BatchLoader<Route> routes = batchLoaders.routes(snapshot);
+        BatchLoader<Line> lines = batchLoaders.lines(snapshot);
+        for (TrainTrip trainTrip : trainTrips) {
+            routes.collect(trainTrip.getRouteId());
+        }
+        for (TrainTrip trainTrip : trainTrips) {
+            Route route = routes.get(trainTrip.getRouteId());
+            if (route != null && route.getLine() == null) {
+                lines.collect(route.getLineId());
+            }
+        }
+        
+        // 将路线信息加载到列车行程实体中
+        for (TrainTrip trainTrip : trainTrips) {
+            Route route = routes.get(trainTrip.getRouteId());
+            if (route != null && route.getLine() == null && route.getLineId() != null) {
+                route.setLine(lines.get(route.getLineId()));
+            }
+            trainTrip.setRoute(route);
+        }
+        
+        return trainTrips.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 加载路线并填充线路信息，优先使用路网快照，快照中不存在时回退到数据库
+     */
+    private Route loadRoute(Long routeId, TransitNetworkSnapshot snapshot) {
+        Route route = batchLoaders.routes(snapshot).get(routeId);
+        if (route != null && route.getLine() == null && route.getLineId() != null) {
+            route.setLine(batchLoaders.lines(snapshot).get(route.getLineId()));
+        }
+        return route;
+    }
+    
     private TrainTripDto convertToDto(TrainTrip trainTrip) {
         if (trainTrip == null) {
             return null;
@@ -243,6 +295,7 @@ public class TrainTripServiceImpl implements TrainTripService {
         dto.setRouteId(trainTrip.getRouteId());
         dto.setTrainNumber(trainTrip.getTrainNumber());
         dto.setRunDate(trainTrip.getRunDate());
+        dto.setServiceId(trainTrip.getServiceId());
         
         // 添加路线信息，如果存在的话
         if (trainTrip.getRoute() != null) {
@@ -275,6 +328,7 @@ public class TrainTripServiceImpl implements TrainTripService {
         entity.setRouteId(dto.getRouteId());
         entity.setTrainNumber(dto.getTrainNumber());
         entity.setRunDate(dto.getRunDate());
+        entity.setServiceId(dto.getServiceId());
         
         return entity;
     }
@@ -13,6 +13,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.scoding.metro.security.PrincipalCache;
 import com.scoding.metro.security.SecurityUser;
 
 @Service
@@ -21,6 +22,7 @@ public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     // 充值满100元送10元
     private static final double BONUS_THRESHOLD = 100.0;
@@ -56,6 +58,7 @@ public class UserServiceImpl implements UserService {
         user.setBio(profileDto.getBio());
 
         userMapper.updateUserProfile(user);
+        principalCache.invalidate(userId);
 
         return getUserById(userId);
     }
@@ -78,13 +81,15 @@ public class UserServiceImpl implements UserService {
         // 更新密码
         String encodedPassword = passwordEncoder.encode(passwordDto.getNewPassword());
         userMapper.updatePassword(userId, encodedPassword);
+        principalCache.invalidate(userId);
     }
 
     @Override
     @Transactional
     public void recharge(RechargeDto rechargeDto, Authentication authentication) {
         SecurityUser securityUser = (SecurityUser) authentication.getPrincipal();
-        User user = securityUser.getUser();
+        // 认证信息中的用户可能来自缓存，余额以数据库为准
+        User user = getUserById(securityUser.getUser().getId());
         Double amount = rechargeDto.getAmount();
 
         // 计算赠送金额
@@ -0,0 +1,119 @@
+package com.scoding.metro.sync;
+
+import com.scoding.metro.entity.ChangeLogDO;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.mapper.ChangeLogMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路网数据变更日志记录器
+ * 线路、站点、路线、停靠点的写操作发布变更事件时，变更先缓存在当前事务中，同一记录只保留最后一次；
+ * 事务提交前一次推进同步版本并批量写入，写操作回滚时变更记录一并丢弃。
+ * 变更日志超过保留期后压缩删除，落后太多的客户端改为全量同步。
+ *
+ * @author scoheart
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChangeLogRecorder {
+
+    private final ChangeLogMapper changeLogMapper;
+
+    @Value("${app.sync.retention-days:30}")
+    private long retentionDays;
+
+    /**
+     * 在发布事件的事务中同步执行，不是 {@code @TransactionalEventListener}；
+     * 事务内首个变更注册提交前回调，之后的变更只加入缓存，不访问数据库
+     */
+    @EventListener
+    @Transactional
+    public void onMetroDataChanged(MetroDataChangedEvent event) {
+        if (!event.getAggregate().isTopology()) {
+            return;
+        }
+        ChangeLogDO changeLogDO = new ChangeLogDO();
+        changeLogDO.setAggregate(event.getAggregate());
+        changeLogDO.setEntityId(event.getEntityId());
+        changeLogDO.setChangeType(event.getChangeType());
+        changeLogDO.setChangedAt(LocalDateTime.now());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            save(List.of(changeLogDO));
+            return;
+        }
+        PendingChangeLogs pending = (PendingChangeLogs) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChangeLogs();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.add(changeLogDO);
+    }
+
+    /**
+     * 定时压缩变更日志
+     */
+    @Scheduled(cron = "${app.sync.compact-cron:0 30 3 * * *}")
+    public void compact() {
+        int removed = changeLogMapper.removeChangeLogsBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            log.info("已压缩路网变更日志: {} 条", removed);
+        }
+    }
+
+    /**
+     * 同步版本一次前进变更条数，变更记录依次取得区间内的版本号后一条语句写入
+     */
+    private void save(List<ChangeLogDO> changeLogs) {
+        changeLogMapper.incrementVersion(changeLogs.size());
+        long version = changeLogMapper.getVersion() - changeLogs.size();
+        for (ChangeLogDO changeLogDO : changeLogs) {
+            changeLogDO.setVersion(++version);
+        }
+        changeLogMapper.saveChangeLogs(changeLogs);
+    }
+
+    /**
+     * 当前事务中尚未写入的变更，按数据类型和记录ID去重
+     */
+    private final class PendingChangeLogs implements TransactionSynchronization {
+
+        private final Map<String, ChangeLogDO> changeLogs = new LinkedHashMap<>();
+
+        void add(ChangeLogDO changeLogDO) {
+            String key = changeLogDO.getAggregate() + ":" + changeLogDO.getEntityId();
+            // 先移除再放入，保持按最后一次变更的顺序
+            changeLogs.remove(key);
+            changeLogs.put(key, changeLogDO);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!changeLogs.isEmpty()) {
+                save(new ArrayList<>(changeLogs.values()));
+                changeLogs.clear();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLogRecorder.this);
+        }
+    }
+}
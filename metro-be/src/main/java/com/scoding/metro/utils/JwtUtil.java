@@ -1,5 +1,6 @@
 package com.scoding.metro.utils;
 
+import com.scoding.metro.security.SecurityUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,6 +12,7 @@ import jakarta.annotation.PostConstruct;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -24,28 +26,62 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration-milliseconds}")
     private int jwtRefreshExpirationInMs;
 
+    /**
+     * 用户ID声明
+     */
+    public static final String CLAIM_USER_ID = "uid";
+
     private Key key;
 
+    private JwtParser parser;
+
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateTokenFromUsername(userDetails.getUsername(), jwtExpirationInMs);
+        return generateToken(userDetails, jwtExpirationInMs);
     }
 
     public String generateRefreshToken(UserDetails userDetails) {
-        return generateTokenFromUsername(userDetails.getUsername(), jwtRefreshExpirationInMs);
+        return generateToken(userDetails, jwtRefreshExpirationInMs);
     }
 
-    private String generateTokenFromUsername(String username, int expiration) {
-        return Jwts.builder()
-                .setSubject(username)
+    private String generateToken(UserDetails userDetails, int expiration) {
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key)
-                .compact();
+                .setExpiration(new Date(System.currentTimeMillis() + expiration));
+        if (userDetails instanceof SecurityUser securityUser) {
+            builder.claim(CLAIM_USER_ID, securityUser.getUser().getId());
+        }
+        return builder.signWith(key).compact();
+    }
+
+    /**
+     * 解析并验证令牌，签名与有效期只校验一次
+     *
+     * @param token 令牌
+     * @return 令牌声明，签名错误、格式错误或已过期时返回null
+     */
+    public Claims parseToken(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从令牌声明中取出用户ID，旧令牌没有该声明时返回null
+     */
+    public Long extractUserId(Claims claims) {
+        return claims.get(CLAIM_USER_ID, Long.class);
     }
 
     public String extractUsername(String token) {
@@ -57,20 +93,13 @@ public class JwtUtil {
     }
 
     private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        // 解析时已校验有效期
+        Claims claims = parseToken(token);
+        return claims != null && userDetails.getUsername().equals(claims.getSubject());
     }
 
     public String extractToken(HttpServletRequest request) {
@@ -0,0 +1,50 @@
+package com.scoding.metro.common;
+
+import com.scoding.metro.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamLimiterTest {
+
+    private final StreamLimiter limiter = new StreamLimiter(1);
+
+    @Test
+    void rejectsWhenAllPermitsAreHeld() {
+        limiter.limit(out -> {
+        });
+
+        assertThatThrownBy(() -> limiter.limit(out -> {
+        }))
+                .isInstanceOf(BusinessException.class)
+                .extracting(e -> ((BusinessException) e).getCode())
+                .isEqualTo(RCode.SERVICE_UNAVAILABLE.getCode());
+    }
+
+    @Test
+    void releasesPermitAfterBodyIsWritten() throws IOException {
+        StreamingResponseBody body = limiter.limit(out -> out.write('x'));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        assertThat(out.toByteArray()).containsExactly('x');
+        assertThat(limiter.limit(o -> {
+        })).isNotNull();
+    }
+
+    @Test
+    void releasesPermitWhenBodyFails() {
+        StreamingResponseBody body = limiter.limit(out -> {
+            throw new IOException("client disconnected");
+        });
+
+        assertThatThrownBy(() -> body.writeTo(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+        assertThat(limiter.limit(out -> {
+        })).isNotNull();
+    }
+}
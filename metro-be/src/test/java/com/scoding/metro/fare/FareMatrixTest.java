@@ -0,0 +1,154 @@
+package com.scoding.metro.fare;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+import com.scoding.metro.planner.SearchPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 测试路网（均为单向）：
+ * <pre>
+ * 10: S1 - S2 - S3 - S4
+ * 20: S2 - S5 - S4
+ * 30: S6 - S1，扩展后为 S7 - S6 - S1
+ * </pre>
+ */
+class FareMatrixTest {
+
+    private final FareRules stops = new FareRules(FareRules.Mode.STOPS, "1:100,2:200,3:300", 1, 100, "", 1);
+    private final SearchPool pool = new SearchPool(2);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void faresFollowFewestStopsAlongDirectedRoutes() {
+        FareMatrix matrix = FareMatrix.build(network(1, false, true), stops, null, pool);
+
+        assertThat(fare(matrix, 1, 1)).isEqualTo(100);
+        assertThat(fare(matrix, 1, 2)).isEqualTo(100);
+        assertThat(fare(matrix, 1, 3)).isEqualTo(200);
+        assertThat(fare(matrix, 1, 4)).isEqualTo(300);
+        assertThat(fare(matrix, 1, 5)).isEqualTo(200);
+        // 超出最高阶梯后每 1 站加 100
+        assertThat(fare(matrix, 6, 4)).isEqualTo(400);
+        assertThat(fare(matrix, 4, 1)).isEqualTo(FareMatrix.UNREACHABLE);
+        assertThat(fare(matrix, 1, 6)).isEqualTo(FareMatrix.UNREACHABLE);
+    }
+
+    @Test
+    void zoneModeCountsOnlyZoneCrossings() {
+        FareRules zones = new FareRules(FareRules.Mode.ZONES, "0:200,1:300", 1, 100, "C3=2,C4=2,C5=2", 1);
+        FareMatrix matrix = FareMatrix.build(network(1, false, true), zones, null, pool);
+
+        assertThat(fare(matrix, 1, 2)).isEqualTo(200);
+        assertThat(fare(matrix, 1, 3)).isEqualTo(300);
+        assertThat(fare(matrix, 1, 4)).isEqualTo(300);
+        assertThat(fare(matrix, 3, 4)).isEqualTo(200);
+        assertThat(fare(matrix, 6, 5)).isEqualTo(300);
+    }
+
+    @Test
+    void addedStationRecomputesOnlyItsOwnRow() {
+        FareMatrix previous = FareMatrix.build(network(1, false, true), stops, null, pool);
+        TransitNetworkSnapshot extended = network(2, true, true);
+
+        FareMatrix incremental = FareMatrix.build(extended, stops, previous, pool);
+
+        assertThat(incremental.getRecomputedRows()).isEqualTo(1);
+        assertSameFares(incremental, FareMatrix.build(extended, stops, null, pool));
+        assertThat(fare(incremental, 7, 4)).isEqualTo(500);
+    }
+
+    @Test
+    void removedEdgesRecomputeRowsThatReachedThem() {
+        FareMatrix previous = FareMatrix.build(network(1, false, true), stops, null, pool);
+        TransitNetworkSnapshot withoutRoute20 = network(2, false, false);
+
+        FareMatrix incremental = FareMatrix.build(withoutRoute20, stops, previous, pool);
+
+        // S2、S5 的出边变化，旧图中能到达二者的是 S1、S2、S5、S6，S3、S4 原样复制
+        assertThat(incremental.getRecomputedRows()).isEqualTo(4);
+        assertSameFares(incremental, FareMatrix.build(withoutRoute20, stops, null, pool));
+        assertThat(fare(incremental, 2, 5)).isEqualTo(FareMatrix.UNREACHABLE);
+    }
+
+    @Test
+    void changedRulesRebuildEveryRow() {
+        FareMatrix previous = FareMatrix.build(network(1, false, true), stops, null, pool);
+        FareRules dearer = new FareRules(FareRules.Mode.STOPS, "1:200,2:300", 1, 100, "", 1);
+
+        FareMatrix rebuilt = FareMatrix.build(network(2, false, true), dearer, previous, pool);
+
+        assertThat(rebuilt.getRecomputedRows()).isEqualTo(rebuilt.getStationCount());
+        assertThat(fare(rebuilt, 1, 2)).isEqualTo(200);
+    }
+
+    private static int fare(FareMatrix matrix, long fromStationId, long toStationId) {
+        return matrix.fareCents(matrix.stationIndex(fromStationId), matrix.stationIndex(toStationId));
+    }
+
+    private static void assertSameFares(FareMatrix actual, FareMatrix expected) {
+        assertThat(actual.getStationCount()).isEqualTo(expected.getStationCount());
+        for (int from = 0; from < expected.getStationCount(); from++) {
+            for (int to = 0; to < expected.getStationCount(); to++) {
+                assertThat(actual.fareCents(from, to)).as("%d -> %d", from, to)
+                        .isEqualTo(expected.fareCents(from, to));
+            }
+        }
+    }
+
+    private static TransitNetworkSnapshot network(long version, boolean withStation7, boolean withRoute20) {
+        List<Station> stations = new ArrayList<>();
+        for (long id = 1; id <= (withStation7 ? 7 : 6); id++) {
+            Station station = new Station();
+            station.setId(id);
+            station.setName("S" + id);
+            station.setCode("C" + id);
+            stations.add(station);
+        }
+        Line line = new Line();
+        line.setId(1L);
+        line.setName("L1");
+
+        List<Route> routes = new ArrayList<>();
+        List<Stop> stops = new ArrayList<>();
+        addRoute(routes, stops, 10L, 1, 2, 3, 4);
+        if (withRoute20) {
+            addRoute(routes, stops, 20L, 2, 5, 4);
+        }
+        if (withStation7) {
+            addRoute(routes, stops, 30L, 7, 6, 1);
+        } else {
+            addRoute(routes, stops, 30L, 6, 1);
+        }
+        return TransitNetworkSnapshot.build(version, List.of(line), stations, routes, stops);
+    }
+
+    private static void addRoute(List<Route> routes, List<Stop> stops, long routeId, long... stationIds) {
+        Route route = new Route();
+        route.setId(routeId);
+        route.setLineId(1L);
+        route.setName("R" + routeId);
+        routes.add(route);
+        for (int i = 0; i < stationIds.length; i++) {
+            Stop stop = new Stop();
+            stop.setId(routeId * 10 + stationIds[i]);
+            stop.setRouteId(routeId);
+            stop.setStationId(stationIds[i]);
+            stop.setSeq(i + 1);
+            stops.add(stop);
+        }
+    }
+}
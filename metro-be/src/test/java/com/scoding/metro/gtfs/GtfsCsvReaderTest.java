@@ -0,0 +1,98 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GtfsCsvReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithCommasEscapedQuotesAndNewlines() throws IOException {
+        try (GtfsCsvReader reader = reader("stop_id,stop_name\n"
+                + "1,\"Main St, North\"\n"
+                + "2,\"The \"\"Loop\"\"\"\n"
+                + "3,\"Line\nBreak\"\n")) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.get("stop_name")).isEqualTo("Main St, North");
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.get("stop_name")).isEqualTo("The \"Loop\"");
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.get("stop_name")).isEqualTo("Line\nBreak");
+            assertThat(reader.get("stop_id")).isEqualTo("3");
+            assertThat(reader.next()).isFalse();
+        }
+    }
+
+    @Test
+    void stripsBomAndCarriageReturnsAndSkipsBlankLines() throws IOException {
+        try (GtfsCsvReader reader = reader("\uFEFFstop_id,stop_code\r\n\r\n10,A1\r\n")) {
+            assertThat(reader.hasColumn("stop_id")).isTrue();
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.get("stop_id")).isEqualTo("10");
+            assertThat(reader.get("stop_code")).isEqualTo("A1");
+            assertThat(reader.next()).isFalse();
+        }
+    }
+
+    @Test
+    void blankOrMissingValuesAreNull() throws IOException {
+        try (GtfsCsvReader reader = reader("stop_id,stop_code,location_type\n7,  \n")) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.get("stop_code")).isNull();
+            assertThat(reader.get("location_type")).isNull();
+            assertThat(reader.get("parent_station")).isNull();
+            assertThat(reader.getInt("location_type", 0)).isZero();
+        }
+    }
+
+    @Test
+    void requireReportsFileAndRow() throws IOException {
+        try (GtfsCsvReader reader = reader("stop_id,stop_name\n1,A\n,B\n")) {
+            reader.next();
+            reader.next();
+            assertThatThrownBy(() -> reader.require("stop_id"))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessage("stops.txt 第2行缺少 stop_id");
+        }
+    }
+
+    @Test
+    void malformedIntegerReportsFileRowAndColumn() throws IOException {
+        try (GtfsCsvReader reader = reader("stop_id,location_type\n1,x\n")) {
+            reader.next();
+            assertThatThrownBy(() -> reader.getInt("location_type", 0))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessage("stops.txt 第1行的 location_type 不是整数: x");
+        }
+    }
+
+    @Test
+    void parsesServiceDatesAndRejectsMalformedOnes() throws IOException {
+        try (GtfsCsvReader reader = reader("service_id,date\nWK,20240131\nWK,2024-01-31\n")) {
+            reader.next();
+            assertThat(reader.requireDate("date")).isEqualTo(LocalDate.of(2024, 1, 31));
+            reader.next();
+            assertThatThrownBy(() -> reader.requireDate("date"))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessage("stops.txt 第2行的 date 不是有效日期: 2024-01-31");
+        }
+    }
+
+    @Test
+    void emptyFileIsRejected() {
+        assertThatThrownBy(() -> reader(""))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("stops.txt 为空");
+    }
+
+    private static GtfsCsvReader reader(String content) throws IOException {
+        return new GtfsCsvReader("stops.txt", new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,210 @@
+package com.scoding.metro.gtfs;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.job.Job;
+import com.scoding.metro.mapper.LineMapper;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StationMapper;
+import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * GTFS 导入：服务对应运营日历，已有路线按线路和站点序列复用，复用的路线在服务运行日期上已有行程时拒绝导入
+ */
+class GtfsFeedImporterTest {
+
+    private static final long LINE_ID = 1L;
+    private static final long ROUTE_ID = 100L;
+    private static final long CALENDAR_ID = 7L;
+
+    private final LineMapper lineMapper = mock(LineMapper.class);
+    private final StationMapper stationMapper = mock(StationMapper.class);
+    private final RouteMapper routeMapper = mock(RouteMapper.class);
+    private final StopMapper stopMapper = mock(StopMapper.class);
+    private final TrainTripMapper trainTripMapper = mock(TrainTripMapper.class);
+    private final StopTimeMapper stopTimeMapper = mock(StopTimeMapper.class);
+    private final ServiceCalendarMapper serviceCalendarMapper = mock(ServiceCalendarMapper.class);
+    private final GtfsFeedImporter importer = new GtfsFeedImporter(lineMapper, stationMapper, routeMapper, stopMapper,
+            trainTripMapper, stopTimeMapper, serviceCalendarMapper, mock(ApplicationEventPublisher.class));
+
+    private final List<TrainTrip> insertedTrips = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Line line = new Line();
+        line.setId(LINE_ID);
+        line.setCode("1");
+        when(lineMapper.getAllLines()).thenReturn(List.of(line));
+        when(stationMapper.getAllStations()).thenReturn(List.of(station(10L, "A"), station(11L, "B"), station(12L, "C")));
+
+        // 已有路线 A → B → C
+        Route route = new Route();
+        route.setId(ROUTE_ID);
+        route.setLineId(LINE_ID);
+        when(routeMapper.getRoutesByLineId(LINE_ID)).thenReturn(List.of(route));
+        when(stopMapper.getStopsByRouteId(ROUTE_ID)).thenReturn(List.of(
+                stop(1000L, 10L), stop(1001L, 11L), stop(1002L, 12L)));
+
+        when(trainTripMapper.selectRunDatesByRoute(any(), any(), any())).thenReturn(List.of());
+        when(trainTripMapper.selectServiceIdsByRoute(ROUTE_ID)).thenReturn(List.of());
+        doAnswer(invocation -> {
+            invocation.<ServiceCalendar>getArgument(0).setId(CALENDAR_ID);
+            return 1;
+        }).when(serviceCalendarMapper).insert(any());
+        // 写入器在写出后清空缓冲，须在调用时复制
+        doAnswer(invocation -> {
+            insertedTrips.addAll(invocation.<List<TrainTrip>>getArgument(0));
+            return insertedTrips.size();
+        }).when(trainTripMapper).insertBatch(anyList());
+    }
+
+    @Test
+    void reusesMatchingRouteAndAttachesTripsToServiceCalendar() throws IOException {
+        importer.importFeed(mock(Job.class), feed("A,B,C"));
+
+        verify(routeMapper, never()).insertRoute(any());
+        verify(stopMapper, never()).insertStops(anyList());
+        verify(serviceCalendarMapper).insert(argThat(calendar ->
+                calendar.getWeekdays() == 0b11111
+                        && calendar.getStartDate().equals(LocalDate.of(2024, 1, 1))
+                        && calendar.getEndDate().equals(LocalDate.of(2024, 1, 31))));
+        verify(serviceCalendarMapper).insertDates(argThat(dates -> dates.size() == 1
+                && dates.get(0).getCalendarId() == CALENDAR_ID
+                && dates.get(0).getServiceDate().equals(LocalDate.of(2024, 1, 3))
+                && dates.get(0).getExceptionType() == ServiceCalendarDate.REMOVED));
+
+        assertThat(insertedTrips).hasSize(1);
+        TrainTrip trip = insertedTrips.get(0);
+        assertThat(trip.getRouteId()).isEqualTo(ROUTE_ID);
+        assertThat(trip.getServiceId()).isEqualTo(CALENDAR_ID);
+        assertThat(trip.getRunDate()).isNull();
+        assertThat(trip.getStopTimes()).extracting(StopTime::getStopId).containsExactly(1000L, 1001L, 1002L);
+    }
+
+    @Test
+    void rejectsServiceOverlappingExistingTripsOnReusedRoute() throws IOException {
+        // 已有日历每周一运行；已有单日行程的 1 月 3 日在导入的服务中停运，不算冲突
+        ServiceCalendar existing = new ServiceCalendar();
+        existing.setId(5L);
+        existing.setWeekdays(0b1);
+        existing.setStartDate(LocalDate.of(2024, 1, 1));
+        existing.setEndDate(LocalDate.of(2024, 1, 31));
+        when(trainTripMapper.selectServiceIdsByRoute(ROUTE_ID)).thenReturn(List.of(5L));
+        when(serviceCalendarMapper.selectById(5L)).thenReturn(existing);
+        when(serviceCalendarMapper.selectDatesByCalendarId(5L)).thenReturn(List.of());
+        when(trainTripMapper.selectRunDatesByRoute(ROUTE_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(List.of(LocalDate.of(2024, 1, 3)));
+
+        Path zip = feed("A,B,C");
+        assertThatThrownBy(() -> importer.importFeed(mock(Job.class), zip))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("路线 100 在服务 WK 的以下运行日期已有列车行程: "
+                        + "[2024-01-01, 2024-01-08, 2024-01-15, 2024-01-22, 2024-01-29]");
+    }
+
+    @Test
+    void createsRouteForNewStationSequence() throws IOException {
+        when(trainTripMapper.selectServiceIdsByRoute(ROUTE_ID)).thenReturn(List.of(5L));
+        doAnswer(invocation -> {
+            invocation.<Route>getArgument(0).setId(101L);
+            return 1;
+        }).when(routeMapper).insertRoute(any());
+        doAnswer(invocation -> {
+            long id = 2000L;
+            for (Stop stop : invocation.<List<Stop>>getArgument(0)) {
+                stop.setId(id++);
+            }
+            return 3;
+        }).when(stopMapper).insertStops(anyList());
+
+        importer.importFeed(mock(Job.class), feed("C,B,A"));
+
+        verify(routeMapper).insertRoute(any());
+        verify(serviceCalendarMapper, never()).selectById(any());
+        assertThat(insertedTrips).extracting(TrainTrip::getRouteId).containsExactly(101L);
+    }
+
+    private Path feed(String stationSequence) throws IOException {
+        StringBuilder stopTimes = new StringBuilder("trip_id,arrival_time,departure_time,stop_id,stop_sequence\n");
+        String[] stations = stationSequence.split(",");
+        for (int i = 0; i < stations.length; i++) {
+            String time = String.format("08:%02d:00", i * 2);
+            stopTimes.append("T1,").append(time).append(',').append(time).append(',')
+                    .append(stations[i]).append(',').append(i + 1).append('\n');
+        }
+        Map<String, String> files = Map.of(
+                "routes.txt", "route_id,route_short_name,route_type\nR1,1,1\n",
+                "stops.txt", "stop_id,stop_name\nA,A\nB,B\nC,C\n",
+                "calendar.txt", "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date\n"
+                        + "WK,1,1,1,1,1,0,0,20240101,20240131\n",
+                "calendar_dates.txt", "service_id,date,exception_type\nWK,20240103,2\n",
+                "trips.txt", "route_id,service_id,trip_id\nR1,WK,T1\n",
+                "stop_times.txt", stopTimes.toString());
+
+        Path zip = tempDir.resolve("feed.zip");
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(file.getKey()));
+                zipOut.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static Station station(Long id, String code) {
+        Station station = new Station();
+        station.setId(id);
+        station.setCode(code);
+        station.setName(code);
+        return station;
+    }
+
+    private static Stop stop(Long id, Long stationId) {
+        Stop stop = new Stop();
+        stop.setId(id);
+        stop.setRouteId(ROUTE_ID);
+        stop.setStationId(stationId);
+        return stop;
+    }
+}
@@ -0,0 +1,82 @@
+package com.scoding.metro.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.scoding.metro.planner.PlannerFixtures.TRIPS_PER_ROUTE;
+import static com.scoding.metro.planner.PlannerFixtures.seconds;
+import static com.scoding.metro.planner.PlannerFixtures.station;
+import static com.scoding.metro.planner.PlannerFixtures.trainNumbers;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsaProfileEngineTest {
+
+    private final TimetableSnapshot timetable = PlannerFixtures.timetable(false);
+    private final int s1 = station(timetable, 1L);
+    private final int s4 = station(timetable, 4L);
+
+    @Test
+    void profileListsParetoJourneysAcrossWindow() {
+        List<RaptorEngine.Journey> journeys =
+                CsaProfileEngine.profile(timetable, s1, s4, seconds(8, 0), seconds(8, 30), 3 * 3600, 60);
+
+        assertThat(journeys).extracting(RaptorEngine.Journey::getDepartureTime)
+                .containsExactly(seconds(8, 0), seconds(8, 10), seconds(8, 20), seconds(8, 30));
+        assertThat(journeys).extracting(RaptorEngine.Journey::getArrivalTime)
+                .containsExactly(seconds(8, 11), seconds(8, 21), seconds(8, 31), seconds(8, 41));
+        assertThat(trainNumbers(timetable, journeys.get(0))).containsExactly("A0", "B0");
+    }
+
+    @Test
+    void profileRespectsTransferSlack() {
+        // 换乘需 3 分钟时赶不上同一轮的 B 线车次，各时刻直达更早
+        List<RaptorEngine.Journey> journeys =
+                CsaProfileEngine.profile(timetable, s1, s4, seconds(8, 0), seconds(8, 30), 3 * 3600, 180);
+
+        assertThat(journeys).extracting(RaptorEngine.Journey::getArrivalTime)
+                .containsExactly(seconds(8, 15), seconds(8, 25), seconds(8, 35), seconds(8, 45));
+        assertThat(journeys).allMatch(j -> j.getTransfers() == 0);
+    }
+
+    @Test
+    void profileAgreesWithRaptorAtEachDeparture() {
+        for (RaptorEngine.Journey journey
+                : CsaProfileEngine.profile(timetable, s1, s4, seconds(8, 0), seconds(8, 30), 3 * 3600, 60)) {
+            List<RaptorEngine.Journey> raptor =
+                    RaptorEngine.earliestArrival(timetable, s1, s4, journey.getDepartureTime(), 5, 60);
+            assertThat(journey.getArrivalTime()).isEqualTo(raptor.get(raptor.size() - 1).getArrivalTime());
+        }
+    }
+
+    @Test
+    void connectionIndexIsSortedByDeparture() {
+        ConnectionIndex connections = timetable.connectionIndex();
+
+        // A 线 3 段、B 线 2 段，各 TRIPS_PER_ROUTE 个车次
+        assertThat(connections.size()).isEqualTo(5 * TRIPS_PER_ROUTE);
+        assertThat(connections.tripCount()).isEqualTo(2 * TRIPS_PER_ROUTE);
+        for (int c = 1; c < connections.size(); c++) {
+            assertThat(connections.get(c, ConnectionIndex.DEP_TIME))
+                    .isGreaterThanOrEqualTo(connections.get(c - 1, ConnectionIndex.DEP_TIME));
+        }
+        for (int c = 0; c < connections.size(); c++) {
+            int pattern = connections.get(c, ConnectionIndex.PATTERN);
+            int trip = connections.get(c, ConnectionIndex.PATTERN_TRIP);
+            int pos = connections.get(c, ConnectionIndex.POSITION);
+            assertThat(connections.get(c, ConnectionIndex.DEP_STATION)).isEqualTo(timetable.patternStation(pattern, pos));
+            assertThat(connections.get(c, ConnectionIndex.ARR_TIME)).isEqualTo(timetable.arrival(pattern, trip, pos + 1));
+        }
+    }
+
+    @Test
+    void connectionIndexFindsFirstDeparture() {
+        ConnectionIndex connections = timetable.connectionIndex();
+
+        int first = connections.firstDepartingAt(seconds(8, 6));
+        assertThat(connections.get(first, ConnectionIndex.DEP_TIME)).isEqualTo(seconds(8, 7));
+        assertThat(connections.get(first - 1, ConnectionIndex.DEP_TIME)).isLessThan(seconds(8, 6));
+        assertThat(connections.firstDepartingAt(0)).isZero();
+        assertThat(connections.firstDepartingAt(seconds(23, 0))).isEqualTo(connections.size());
+    }
+}
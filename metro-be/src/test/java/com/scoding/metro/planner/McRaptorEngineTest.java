@@ -0,0 +1,84 @@
+package com.scoding.metro.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import static com.scoding.metro.planner.PlannerFixtures.ROUTE_A;
+import static com.scoding.metro.planner.PlannerFixtures.ROUTE_B;
+import static com.scoding.metro.planner.PlannerFixtures.ROUTE_C;
+import static com.scoding.metro.planner.PlannerFixtures.seconds;
+import static com.scoding.metro.planner.PlannerFixtures.station;
+import static com.scoding.metro.planner.PlannerFixtures.trainNumbers;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class McRaptorEngineTest {
+
+    private final TimetableSnapshot timetable = PlannerFixtures.timetable(true);
+    private final int s1 = station(timetable, 1L);
+    private final int s4 = station(timetable, 4L);
+
+    @Test
+    void keepsFasterJourneyWithMoreTransfersAlongsideDirectOne() {
+        List<RaptorEngine.Journey> journeys = search(fareModel(5, units -> units * 100));
+
+        assertThat(journeys).extracting(j -> trainNumbers(timetable, j))
+                .containsExactly(List.of("A0", "B0"), List.of("A0"));
+    }
+
+    @Test
+    void dropsSlowerAndDearerDirectJourney() {
+        // C0 08:20 到达、5 个计费单位，到达时间、换乘次数、票价都不优于 A0
+        List<RaptorEngine.Journey> journeys = search(fareModel(5, units -> units * 100));
+
+        assertThat(journeys).noneMatch(j -> trainNumbers(timetable, j).equals(List.of("C0")));
+    }
+
+    @Test
+    void keepsSlowerJourneyWhenItIsCheaper() {
+        List<RaptorEngine.Journey> journeys = search(fareModel(1, units -> units * 100));
+
+        assertThat(journeys).extracting(j -> trainNumbers(timetable, j))
+                .containsExactly(List.of("A0", "B0"), List.of("A0"), List.of("C0"));
+    }
+
+    @Test
+    void dropsJourneyWhoseFewerUnitsFallInSameFareTier() {
+        // C0 计费单位更少，但票价与 A0 相同且到达更晚，按票价比较时被支配
+        List<RaptorEngine.Journey> journeys = search(fareModel(1, units -> 300));
+
+        assertThat(journeys).extracting(j -> trainNumbers(timetable, j))
+                .containsExactly(List.of("A0", "B0"), List.of("A0"));
+    }
+
+    @Test
+    void returnsNothingForSameOriginAndTarget() {
+        assertThat(McRaptorEngine.paretoJourneys(timetable, fareModel(1, units -> units), s1, s1,
+                seconds(8, 0), 3, 60)).isEmpty();
+    }
+
+    private List<RaptorEngine.Journey> search(FareModel fareModel) {
+        return McRaptorEngine.paretoJourneys(timetable, fareModel, s1, s4, seconds(8, 0), 3, 60);
+    }
+
+    /**
+     * A、B 线每站 1 个计费单位，C 线每站 routeCUnits 个
+     */
+    private FareModel fareModel(int routeCUnits, IntUnaryOperator fare) {
+        Map<Long, Integer> unitsPerStop = Map.of(ROUTE_A, 1, ROUTE_B, 1, ROUTE_C, routeCUnits);
+        return new FareModel() {
+            @Override
+            public int legUnits(TimetableSnapshot timetable, int pattern, int boardPos, int alightPos) {
+                long routeId = timetable.getNetwork().routeId(timetable.patternRoute(pattern));
+                return unitsPerStop.get(routeId) * (alightPos - boardPos);
+            }
+
+            @Override
+            public int fare(int units) {
+                return fare.applyAsInt(units);
+            }
+        };
+    }
+}
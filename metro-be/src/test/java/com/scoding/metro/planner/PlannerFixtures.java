@@ -0,0 +1,126 @@
+package com.scoding.metro.planner;
+
+import com.scoding.metro.entity.Line;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.Station;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.entity.StopTime;
+import com.scoding.metro.entity.TrainTrip;
+import com.scoding.metro.network.TransitNetworkSnapshot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 规划算法测试使用的小型路网
+ * <pre>
+ * A 线 S1 - S2 - S3 - S4，08:00 起每 10 分钟一班，站间 5 分钟
+ * B 线 S2 - S5 - S4，08:07 起每 10 分钟一班，站间 2 分钟
+ * C 线 S1 - S4（可选），仅 08:01 一班，08:20 到达
+ * </pre>
+ * 从 S1 08:00 出发：A 线直达 08:15 到 S4；在 S2 换乘 B 线 08:11 到 S4（换乘时间不超过 2 分钟时可赶上）。
+ */
+final class PlannerFixtures {
+
+    static final long ROUTE_A = 10L;
+    static final long ROUTE_B = 20L;
+    static final long ROUTE_C = 30L;
+
+    static final int TRIPS_PER_ROUTE = 6;
+
+    private PlannerFixtures() {
+    }
+
+    static TimetableSnapshot timetable(boolean withRouteC) {
+        List<Line> lines = new ArrayList<>();
+        List<Route> routes = new ArrayList<>();
+        List<Stop> stops = new ArrayList<>();
+        List<Station> stations = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Station station = new Station();
+            station.setId(id);
+            station.setName("S" + id);
+            station.setCode("C" + id);
+            stations.add(station);
+        }
+        addRoute(lines, routes, stops, ROUTE_A, 1L, 1, 2, 3, 4);
+        addRoute(lines, routes, stops, ROUTE_B, 2L, 2, 5, 4);
+        if (withRouteC) {
+            addRoute(lines, routes, stops, ROUTE_C, 3L, 1, 4);
+        }
+        TransitNetworkSnapshot network = TransitNetworkSnapshot.build(1, lines, stations, routes, stops);
+
+        List<TrainTrip> trips = new ArrayList<>();
+        List<StopTime> stopTimes = new ArrayList<>();
+        for (int k = 0; k < TRIPS_PER_ROUTE; k++) {
+            addTrip(trips, stopTimes, ROUTE_A, "A" + k, LocalTime.of(8, 10 * k), 5, 4);
+            addTrip(trips, stopTimes, ROUTE_B, "B" + k, LocalTime.of(8, 7 + 10 * k), 2, 3);
+        }
+        if (withRouteC) {
+            addTrip(trips, stopTimes, ROUTE_C, "C0", LocalTime.of(8, 1), 19, 2);
+        }
+        return TimetableSnapshot.build(LocalDate.of(2024, 1, 1), network, trips, stopTimes);
+    }
+
+    static int station(TimetableSnapshot timetable, long stationId) {
+        return timetable.getNetwork().stationIndex(stationId);
+    }
+
+    static int seconds(int hour, int minute) {
+        return hour * 3600 + minute * 60;
+    }
+
+    /**
+     * 行程各段的车次号，按乘车顺序
+     */
+    static List<String> trainNumbers(TimetableSnapshot timetable, RaptorEngine.Journey journey) {
+        List<String> numbers = new ArrayList<>();
+        for (RaptorEngine.Leg leg : journey.getLegs()) {
+            numbers.add(timetable.tripNumber(leg.getPattern(), leg.getTrip()));
+        }
+        return numbers;
+    }
+
+    private static void addRoute(List<Line> lines, List<Route> routes, List<Stop> stops,
+                                 long routeId, long lineId, long... stationIds) {
+        Line line = new Line();
+        line.setId(lineId);
+        line.setName("L" + lineId);
+        lines.add(line);
+        Route route = new Route();
+        route.setId(routeId);
+        route.setLineId(lineId);
+        route.setName("R" + routeId);
+        routes.add(route);
+        for (int i = 0; i < stationIds.length; i++) {
+            Stop stop = new Stop();
+            stop.setId(routeId * 10 + i);
+            stop.setRouteId(routeId);
+            stop.setStationId(stationIds[i]);
+            stop.setSeq(i + 1);
+            stops.add(stop);
+        }
+    }
+
+    private static void addTrip(List<TrainTrip> trips, List<StopTime> stopTimes, long routeId, String trainNumber,
+                                LocalTime start, int minutesBetweenStops, int stopCount) {
+        TrainTrip trip = new TrainTrip();
+        trip.setId((long) trips.size() + 1);
+        trip.setRouteId(routeId);
+        trip.setTrainNumber(trainNumber);
+        trips.add(trip);
+        for (int i = 0; i < stopCount; i++) {
+            LocalTime time = start.plusMinutes((long) minutesBetweenStops * i);
+            StopTime stopTime = new StopTime();
+            stopTime.setId((long) stopTimes.size() + 1);
+            stopTime.setTrainTripId(trip.getId());
+            stopTime.setStopId(routeId * 10 + i);
+            stopTime.setArrivalTime(time);
+            stopTime.setDepartureTime(time);
+            stopTime.setStopSeq(i + 1);
+            stopTimes.add(stopTime);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.scoding.metro.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.scoding.metro.planner.PlannerFixtures.seconds;
+import static com.scoding.metro.planner.PlannerFixtures.station;
+import static com.scoding.metro.planner.PlannerFixtures.trainNumbers;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RaptorEngineTest {
+
+    private final TimetableSnapshot timetable = PlannerFixtures.timetable(false);
+    private final int s1 = station(timetable, 1L);
+    private final int s2 = station(timetable, 2L);
+    private final int s3 = station(timetable, 3L);
+    private final int s4 = station(timetable, 4L);
+
+    @Test
+    void returnsOneJourneyPerRoundThatImprovesArrival() {
+        List<RaptorEngine.Journey> journeys = RaptorEngine.earliestArrival(timetable, s1, s4, seconds(8, 0), 3, 60);
+
+        assertThat(journeys).hasSize(2);
+        assertThat(journeys.get(0).getTransfers()).isZero();
+        assertThat(journeys.get(0).getArrivalTime()).isEqualTo(seconds(8, 15));
+        assertThat(trainNumbers(timetable, journeys.get(0))).containsExactly("A0");
+        assertThat(journeys.get(1).getTransfers()).isEqualTo(1);
+        assertThat(journeys.get(1).getArrivalTime()).isEqualTo(seconds(8, 11));
+        assertThat(trainNumbers(timetable, journeys.get(1))).containsExactly("A0", "B0");
+    }
+
+    @Test
+    void reconstructsBoardingAndAlightingOfEachLeg() {
+        RaptorEngine.Journey journey = RaptorEngine.earliestArrival(timetable, s1, s4, seconds(8, 0), 3, 60).get(1);
+
+        RaptorEngine.Leg first = journey.getLegs().get(0);
+        RaptorEngine.Leg second = journey.getLegs().get(1);
+        assertThat(timetable.patternStation(first.getPattern(), first.getBoardPos())).isEqualTo(s1);
+        assertThat(timetable.patternStation(first.getPattern(), first.getAlightPos())).isEqualTo(s2);
+        assertThat(timetable.patternStation(second.getPattern(), second.getBoardPos())).isEqualTo(s2);
+        assertThat(timetable.patternStation(second.getPattern(), second.getAlightPos())).isEqualTo(s4);
+        assertThat(first.getArrivalTime()).isEqualTo(seconds(8, 5));
+        assertThat(second.getDepartureTime()).isEqualTo(seconds(8, 7));
+        assertThat(journey.getDepartureTime()).isEqualTo(seconds(8, 0));
+    }
+
+    @Test
+    void transferSlackMissesTightConnection() {
+        // 08:05 到 S2，换乘需 3 分钟，赶不上 08:07 的 B0，改乘 B1 08:21 到达，不如直达
+        List<RaptorEngine.Journey> journeys = RaptorEngine.earliestArrival(timetable, s1, s4, seconds(8, 0), 3, 180);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(trainNumbers(timetable, journeys.get(0))).containsExactly("A0");
+    }
+
+    @Test
+    void originIsExemptFromTransferSlack() {
+        List<RaptorEngine.Journey> journeys = RaptorEngine.earliestArrival(timetable, s2, s4, seconds(8, 7), 3, 600);
+
+        assertThat(journeys).isNotEmpty();
+        assertThat(trainNumbers(timetable, journeys.get(0))).containsExactly("B0");
+        assertThat(journeys.get(0).getArrivalTime()).isEqualTo(seconds(8, 11));
+    }
+
+    @Test
+    void singleRoundLimitsToDirectJourneys() {
+        List<RaptorEngine.Journey> journeys = RaptorEngine.earliestArrival(timetable, s1, s4, seconds(8, 0), 1, 60);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).getTransfers()).isZero();
+    }
+
+    @Test
+    void targetPruningSkipsLabelsLaterThanTarget() {
+        RaptorEngine.Labels pruned = RaptorEngine.scan(timetable, s1, s2, seconds(8, 0), Integer.MAX_VALUE, 3, 60);
+        RaptorEngine.Labels unpruned = RaptorEngine.scan(timetable, s1, -1, seconds(8, 0), Integer.MAX_VALUE, 3, 60);
+
+        assertThat(pruned.bestArrivals()[s2]).isEqualTo(seconds(8, 5));
+        assertThat(pruned.bestArrivals()[s3]).isEqualTo(Integer.MAX_VALUE);
+        assertThat(unpruned.bestArrivals()[s3]).isEqualTo(seconds(8, 10));
+    }
+
+    @Test
+    void earliestArrivalAgreesWithOneToManySearch() {
+        RaptorEngine.Reachability reachability =
+                RaptorEngine.reachable(timetable, s1, seconds(8, 0), Integer.MAX_VALUE, 3, 60);
+
+        for (int s = 0; s < timetable.stationCount(); s++) {
+            if (s == s1) {
+                continue;
+            }
+            List<RaptorEngine.Journey> journeys = RaptorEngine.earliestArrival(timetable, s1, s, seconds(8, 0), 3, 60);
+            RaptorEngine.Journey fastest = journeys.get(journeys.size() - 1);
+            assertThat(fastest.getArrivalTime()).isEqualTo(reachability.getArrivals()[s]);
+            assertThat(fastest.getTransfers()).isEqualTo(reachability.getTransfers()[s]);
+        }
+    }
+
+    @Test
+    void reachableHonoursArriveBy() {
+        RaptorEngine.Reachability reachability =
+                RaptorEngine.reachable(timetable, s1, seconds(8, 0), seconds(8, 8), 3, 60);
+
+        assertThat(reachability.isReachable(s2)).isTrue();
+        assertThat(reachability.isReachable(s3)).isFalse();
+        assertThat(reachability.isReachable(s4)).isFalse();
+        assertThat(reachability.getArrivals()[s1]).isEqualTo(seconds(8, 0));
+    }
+}
@@ -0,0 +1,91 @@
+package com.scoding.metro.planner;
+
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import com.scoding.metro.network.TransitNetworkHolder;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TimetableHolderTest {
+
+    private static final LocalDate RUN_DATE = LocalDate.of(2024, 1, 1);
+
+    private final TrainTripMapper trainTripMapper = mock(TrainTripMapper.class);
+    private final StopTimeMapper stopTimeMapper = mock(StopTimeMapper.class);
+    private final TransitNetworkHolder networkHolder = mock(TransitNetworkHolder.class);
+    private final TimetableHolder holder = new TimetableHolder(trainTripMapper, stopTimeMapper, networkHolder);
+
+    @Test
+    void concurrentMissesShareOneBuild() throws Exception {
+        when(networkHolder.get()).thenReturn(PlannerFixtures.timetable(false).getNetwork());
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(trainTripMapper.selectByRunDate(RUN_DATE)).thenAnswer(invocation -> {
+            querying.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TimetableSnapshot>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> holder.get(RUN_DATE)));
+            assertThat(querying.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() -> holder.get(RUN_DATE)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            TimetableSnapshot first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<TimetableSnapshot> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(trainTripMapper, times(1)).selectByRunDate(RUN_DATE);
+    }
+
+    @Test
+    void dataChangeForcesRebuild() {
+        when(networkHolder.get()).thenReturn(PlannerFixtures.timetable(false).getNetwork());
+
+        TimetableSnapshot first = holder.get(RUN_DATE);
+        assertThat(holder.get(RUN_DATE)).isSameAs(first);
+        holder.onMetroDataChanged(new MetroDataChangedEvent(
+                MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.UPDATE, 1L));
+
+        assertThat(holder.get(RUN_DATE)).isNotSameAs(first);
+        verify(trainTripMapper, times(2)).selectByRunDate(RUN_DATE);
+    }
+
+    @Test
+    void failedBuildIsNotCached() {
+        when(networkHolder.get()).thenReturn(PlannerFixtures.timetable(false).getNetwork());
+        when(stopTimeMapper.selectByRunDate(any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(List.of());
+
+        assertThatThrownBy(() -> holder.get(RUN_DATE)).isInstanceOf(IllegalStateException.class);
+        assertThat(holder.get(RUN_DATE)).isNotNull();
+    }
+}
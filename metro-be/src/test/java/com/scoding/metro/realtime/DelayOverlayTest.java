@@ -0,0 +1,110 @@
+package com.scoding.metro.realtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scoding.metro.entity.StopTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelayOverlayTest {
+
+    private static final int MIN_DWELL_SECONDS = 20;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 停站时间依次为 0、60、30、0 秒，扣除最短停站时间后可吸收 0、40、10、0 秒延误
+     */
+    private final List<StopTime> stopTimes = List.of(
+            stopTime(1L, LocalTime.of(8, 0), LocalTime.of(8, 0)),
+            stopTime(2L, LocalTime.of(8, 5), LocalTime.of(8, 6)),
+            stopTime(3L, LocalTime.of(8, 10), LocalTime.of(8, 10, 30)),
+            stopTime(4L, LocalTime.of(8, 15), LocalTime.of(8, 15)));
+
+    @Test
+    void delayIsAbsorbedByDwellSlackDownstream() {
+        DelayOverlay.TripDelay delay = overlay().report(stopTimes, 0, 120);
+
+        assertThat(delay.arrivalDelays()).containsExactly(120, 120, 80, 70);
+        assertThat(delay.departureDelays()).containsExactly(120, 80, 70, 70);
+    }
+
+    @Test
+    void reportKeepsUpstreamDelaysAndRecomputesDownstream() {
+        DelayOverlay overlay = overlay();
+        overlay.report(stopTimes, 0, 120);
+
+        DelayOverlay.TripDelay delay = overlay.report(stopTimes, 2, 300);
+
+        assertThat(delay.arrivalDelays()).containsExactly(120, 120, 300, 290);
+        assertThat(delay.departureDelays()).containsExactly(120, 80, 290, 290);
+    }
+
+    @Test
+    void changedStopTimesDiscardPreviousUpstreamDelays() {
+        DelayOverlay overlay = overlay();
+        overlay.report(stopTimes, 0, 120);
+        List<StopTime> rescheduled = new ArrayList<>(stopTimes);
+        rescheduled.set(1, stopTime(20L, LocalTime.of(8, 5), LocalTime.of(8, 6)));
+
+        DelayOverlay.TripDelay delay = overlay.report(rescheduled, 2, 300);
+
+        assertThat(delay.arrivalDelays()).containsExactly(0, 0, 300, 290);
+    }
+
+    @Test
+    void reportingOnTimeEverywhereClearsTrip() {
+        DelayOverlay overlay = overlay();
+        overlay.report(stopTimes, 1, 60);
+
+        assertThat(overlay.report(stopTimes, 0, 0)).isNull();
+        assertThat(overlay.get(100L)).isNull();
+        assertThat(overlay.size()).isZero();
+    }
+
+    @Test
+    void mergesDelaysIntoScheduledTimes() {
+        DelayOverlay.TripDelay delay = overlay().report(stopTimes, 0, 120);
+
+        assertThat(DelayOverlay.arrival(stopTimes.get(1), delay)).isEqualTo(LocalTime.of(8, 7));
+        assertThat(DelayOverlay.departure(stopTimes.get(1), delay)).isEqualTo(LocalTime.of(8, 7, 20));
+        assertThat(DelayOverlay.arrival(stopTime(99L, LocalTime.of(9, 0), null), delay)).isEqualTo(LocalTime.of(9, 0));
+        assertThat(DelayOverlay.departure(stopTimes.get(1), null)).isEqualTo(LocalTime.of(8, 6));
+    }
+
+    @Test
+    void snapshotRestoresTodaysDelays() {
+        DelayOverlay overlay = overlay();
+        overlay.report(stopTimes, 0, 120);
+        overlay.snapshot();
+
+        DelayOverlay restored = overlay();
+        restored.restore();
+
+        DelayOverlay.TripDelay delay = restored.get(100L);
+        assertThat(delay).isNotNull();
+        assertThat(delay.stopTimeIds()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(delay.departureDelays()).containsExactly(120, 80, 70, 70);
+    }
+
+    private DelayOverlay overlay() {
+        return new DelayOverlay(new ObjectMapper().findAndRegisterModules(), event -> {
+        }, MIN_DWELL_SECONDS, dir.resolve("delay-overlay.json").toString());
+    }
+
+    private static StopTime stopTime(Long id, LocalTime arrival, LocalTime departure) {
+        StopTime stopTime = new StopTime();
+        stopTime.setId(id);
+        stopTime.setTrainTripId(100L);
+        stopTime.setArrivalTime(arrival);
+        stopTime.setDepartureTime(departure);
+        return stopTime;
+    }
+}
@@ -0,0 +1,80 @@
+package com.scoding.metro.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAddedValueAsAbsent() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(UUID.randomUUID().toString());
+        }
+        values.forEach(filter::put);
+
+        assertThat(values).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("active-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / probes).isLessThan(0.03);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertThat(filter.mightContain("")).isFalse();
+        assertThat(filter.mightContain("token")).isFalse();
+    }
+
+    @Test
+    void concurrentPutsAreAllVisible() throws Exception {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        filter.put(thread + "-" + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 10_000; i++) {
+                assertThat(filter.mightContain(t + "-" + i)).isTrue();
+            }
+        }
+    }
+}
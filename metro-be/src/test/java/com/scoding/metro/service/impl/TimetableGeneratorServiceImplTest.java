@@ -0,0 +1,125 @@
+package com.scoding.metro.service.impl;
+
+import com.scoding.metro.dto.TimetableGenerateRequest;
+import com.scoding.metro.entity.Route;
+import com.scoding.metro.entity.ServiceCalendar;
+import com.scoding.metro.entity.ServiceCalendarDate;
+import com.scoding.metro.entity.Stop;
+import com.scoding.metro.exception.BusinessException;
+import com.scoding.metro.mapper.RouteMapper;
+import com.scoding.metro.mapper.ServiceCalendarMapper;
+import com.scoding.metro.mapper.StopMapper;
+import com.scoding.metro.mapper.StopTimeMapper;
+import com.scoding.metro.mapper.TrainTripMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 生成时刻表前的重复检查：路线上按运营日历运行的行程与单日行程一样占用日期。
+ * 日历的生效规则与 ServiceCalendarMapper.activeCalendarIds 一致（该 SQL 依赖 MySQL 函数，此处只验证 Java 侧的判断）。
+ */
+class TimetableGeneratorServiceImplTest {
+
+    private static final long ROUTE_ID = 1L;
+    private static final long CALENDAR_ID = 7L;
+
+    private final RouteMapper routeMapper = mock(RouteMapper.class);
+    private final StopMapper stopMapper = mock(StopMapper.class);
+    private final TrainTripMapper trainTripMapper = mock(TrainTripMapper.class);
+    private final StopTimeMapper stopTimeMapper = mock(StopTimeMapper.class);
+    private final ServiceCalendarMapper serviceCalendarMapper = mock(ServiceCalendarMapper.class);
+    private final TimetableGeneratorServiceImpl service = new TimetableGeneratorServiceImpl(routeMapper, stopMapper,
+            trainTripMapper, stopTimeMapper, serviceCalendarMapper, mock(ApplicationEventPublisher.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxStopTimes", 1_000_000);
+        ReflectionTestUtils.setField(service, "defaultDwellSeconds", 30);
+
+        Route route = new Route();
+        route.setId(ROUTE_ID);
+        when(routeMapper.getRouteById(ROUTE_ID)).thenReturn(route);
+        when(stopMapper.getStopsByRouteId(ROUTE_ID)).thenReturn(List.of(stop(11L), stop(12L)));
+        when(trainTripMapper.selectRunDatesByRoute(any(), any(), any())).thenReturn(List.of());
+        when(trainTripMapper.insertBatch(anyList())).thenReturn(0);
+
+        // 1 月的周一、周三运行，1 月 3 日（周三）停运，2 月 3 日（周六）加开
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.setId(CALENDAR_ID);
+        calendar.setWeekdays(0b101);
+        calendar.setStartDate(LocalDate.of(2024, 1, 1));
+        calendar.setEndDate(LocalDate.of(2024, 1, 31));
+        when(serviceCalendarMapper.selectById(CALENDAR_ID)).thenReturn(calendar);
+        when(serviceCalendarMapper.selectDatesByCalendarId(CALENDAR_ID)).thenReturn(List.of(
+                exception(LocalDate.of(2024, 1, 3), ServiceCalendarDate.REMOVED),
+                exception(LocalDate.of(2024, 2, 3), ServiceCalendarDate.ADDED)));
+        when(trainTripMapper.selectServiceIdsByRoute(ROUTE_ID)).thenReturn(List.of(CALENDAR_ID));
+    }
+
+    @Test
+    void rejectsDatesCoveredByCalendarWeekdays() {
+        assertThatThrownBy(() -> service.generate(request(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 4))))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("以下日期该路线已有列车行程: [2024-01-01]");
+    }
+
+    @Test
+    void rejectsAddedDatesAlongsideDatedTrips() {
+        when(trainTripMapper.selectRunDatesByRoute(ROUTE_ID, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 5)))
+                .thenReturn(List.of(LocalDate.of(2024, 2, 5)));
+
+        assertThatThrownBy(() -> service.generate(request(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 5))))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("以下日期该路线已有列车行程: [2024-02-03, 2024-02-05]");
+    }
+
+    @Test
+    void allowsRemovedAndUncoveredDates() {
+        // 1 月 3 日停运，1 月 4 日为周四，均不被日历占用
+        assertThatCode(() -> service.generate(request(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 4))))
+                .doesNotThrowAnyException();
+    }
+
+    private static TimetableGenerateRequest request(LocalDate startDate, LocalDate endDate) {
+        TimetableGenerateRequest.HeadwayBand band = new TimetableGenerateRequest.HeadwayBand();
+        band.setStartTime(LocalTime.of(6, 0));
+        band.setHeadwaySeconds(600);
+        TimetableGenerateRequest request = new TimetableGenerateRequest();
+        request.setRouteId(ROUTE_ID);
+        request.setStartDate(startDate);
+        request.setEndDate(endDate);
+        request.setFirstDeparture(LocalTime.of(6, 0));
+        request.setLastDeparture(LocalTime.of(6, 30));
+        request.setHeadways(List.of(band));
+        request.setRunningSeconds(List.of(120));
+        return request;
+    }
+
+    private static Stop stop(Long id) {
+        Stop stop = new Stop();
+        stop.setId(id);
+        stop.setRouteId(ROUTE_ID);
+        return stop;
+    }
+
+    private static ServiceCalendarDate exception(LocalDate date, int exceptionType) {
+        ServiceCalendarDate exception = new ServiceCalendarDate();
+        exception.setCalendarId(CALENDAR_ID);
+        exception.setServiceDate(date);
+        exception.setExceptionType(exceptionType);
+        return exception;
+    }
+}
@@ -0,0 +1,95 @@
+package com.scoding.metro.sync;
+
+import com.scoding.metro.entity.ChangeLogDO;
+import com.scoding.metro.event.MetroAggregate;
+import com.scoding.metro.event.MetroDataChangedEvent;
+import com.scoding.metro.mapper.ChangeLogMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 同一事务中的变更在提交前一次推进版本并批量写入
+ */
+class ChangeLogRecorderTest {
+
+    private final ChangeLogMapper changeLogMapper = mock(ChangeLogMapper.class);
+    private final ChangeLogRecorder recorder = new ChangeLogRecorder(changeLogMapper);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(recorder);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void buffersChangesUntilCommit() {
+        when(changeLogMapper.getVersion()).thenReturn(13L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        recorder.onMetroDataChanged(event(MetroAggregate.STOP, MetroDataChangedEvent.ChangeType.UPDATE, 1L));
+        recorder.onMetroDataChanged(event(MetroAggregate.STOP, MetroDataChangedEvent.ChangeType.UPDATE, 2L));
+        recorder.onMetroDataChanged(event(MetroAggregate.STOP, MetroDataChangedEvent.ChangeType.DELETE, 1L));
+        recorder.onMetroDataChanged(event(MetroAggregate.ROUTE, MetroDataChangedEvent.ChangeType.UPDATE, 1L));
+        verify(changeLogMapper, never()).incrementVersion(anyInt());
+        verify(changeLogMapper, never()).saveChangeLogs(anyList());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(changeLogMapper, times(1)).incrementVersion(3);
+        ArgumentCaptor<List<ChangeLogDO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(changeLogMapper, times(1)).saveChangeLogs(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(ChangeLogDO::getVersion, ChangeLogDO::getAggregate, ChangeLogDO::getEntityId,
+                        ChangeLogDO::getChangeType)
+                .containsExactly(
+                        tuple(11L, MetroAggregate.STOP, 2L, MetroDataChangedEvent.ChangeType.UPDATE),
+                        tuple(12L, MetroAggregate.STOP, 1L, MetroDataChangedEvent.ChangeType.DELETE),
+                        tuple(13L, MetroAggregate.ROUTE, 1L, MetroDataChangedEvent.ChangeType.UPDATE));
+        assertThat(TransactionSynchronizationManager.getResource(recorder)).isNull();
+    }
+
+    @Test
+    void writesImmediatelyWithoutTransaction() {
+        when(changeLogMapper.getVersion()).thenReturn(5L);
+
+        recorder.onMetroDataChanged(event(MetroAggregate.LINE, MetroDataChangedEvent.ChangeType.CREATE, 3L));
+
+        verify(changeLogMapper, times(1)).incrementVersion(1);
+        verify(changeLogMapper, times(1)).saveChangeLogs(anyList());
+    }
+
+    @Test
+    void ignoresNonTopologyChanges() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        recorder.onMetroDataChanged(event(MetroAggregate.TRAIN_TRIP, MetroDataChangedEvent.ChangeType.UPDATE, 1L));
+
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    private static MetroDataChangedEvent event(MetroAggregate aggregate, MetroDataChangedEvent.ChangeType changeType,
+                                               Long entityId) {
+        return new MetroDataChangedEvent(aggregate, changeType, entityId);
+    }
+}
@@ -12,12 +12,18 @@ TRUNCATE TABLE roles;
 TRUNCATE TABLE users;
 TRUNCATE TABLE stop_time;
 TRUNCATE TABLE train_trip;
+TRUNCATE TABLE service_calendar_date;
+TRUNCATE TABLE service_calendar;
 TRUNCATE TABLE stop;
 TRUNCATE TABLE route;
 TRUNCATE TABLE station;
 TRUNCATE TABLE line;
 SET FOREIGN_KEY_CHECKS = 1;
 
+-- 路网数据整体替换：清空变更日志并推进同步版本，已同步过的客户端下次会得到全量数据
+TRUNCATE TABLE metro_change_log;
+UPDATE metro_sync_version SET version = version + 1 WHERE id = 1;
+
 -- 角色数据
 INSERT INTO roles (id, name, description) VALUES
 (1, 'ROLE_SUPER_ADMIN', '超级管理员'),
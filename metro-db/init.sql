@@ -77,7 +77,17 @@ CREATE TABLE IF NOT EXISTS reply (
     parent_type VARCHAR(20) NOT NULL,
     content TEXT NOT NULL,
     created_at TIMESTAMP NOT NULL,
-    is_admin BOOLEAN NOT NULL DEFAULT FALSE
+    is_admin BOOLEAN NOT NULL DEFAULT FALSE,
+    INDEX idx_reply_parent (parent_type, parent_id, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 已吊销令牌表（登出后仍在有效期内的令牌）
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti VARCHAR(64) PRIMARY KEY COMMENT '令牌ID',
+    user_id BIGINT COMMENT '令牌所属用户ID',
+    expires_at DATETIME NOT NULL COMMENT '令牌过期时间，过期后记录可删除',
+    revoked_at DATETIME NOT NULL COMMENT '吊销时间',
+    INDEX idx_revoked_token_expires (expires_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 地铁线路表
@@ -109,15 +119,57 @@ CREATE TABLE IF NOT EXISTS stop (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     route_id BIGINT NOT NULL COMMENT '所属路线ID',
     station_id BIGINT NOT NULL COMMENT '站点ID',
-    seq INT NOT NULL COMMENT '序号'
+    seq INT NOT NULL COMMENT '序号（稀疏编号，仅表示先后顺序）',
+    INDEX idx_stop_route_seq (route_id, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 路网数据同步版本（单行计数器）
+-- 线路、站点、路线、停靠点的每次写操作在同一事务中加一，行锁保证版本号按提交顺序递增
+CREATE TABLE IF NOT EXISTS metro_sync_version (
+    id TINYINT PRIMARY KEY,
+    version BIGINT NOT NULL COMMENT '当前版本'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO metro_sync_version (id, version) VALUES (1, 0);
+
+-- 路网数据变更日志，供客户端增量同步；超过保留期的记录会被压缩删除
+CREATE TABLE IF NOT EXISTS metro_change_log (
+    version BIGINT PRIMARY KEY COMMENT '变更后的同步版本',
+    aggregate VARCHAR(20) NOT NULL COMMENT '数据类型：LINE、STATION、ROUTE、STOP',
+    entity_id BIGINT COMMENT '变更记录ID，为空表示批量变更（客户端需全量同步）',
+    change_type VARCHAR(10) NOT NULL COMMENT 'CREATE、UPDATE、DELETE',
+    changed_at DATETIME NOT NULL COMMENT '变更时间',
+    INDEX idx_metro_change_log_time (changed_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 运营日历表（按星期规律运行的日期集合）
+CREATE TABLE IF NOT EXISTS service_calendar (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(50) NOT NULL COMMENT '日历名称',
+    weekdays TINYINT NOT NULL COMMENT '运行的星期，第0位为周一，第6位为周日',
+    start_date DATE NOT NULL COMMENT '生效起始日期',
+    end_date DATE NOT NULL COMMENT '生效结束日期（含）'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 运营日历例外日期表
+CREATE TABLE IF NOT EXISTS service_calendar_date (
+    calendar_id BIGINT NOT NULL COMMENT '所属运营日历ID',
+    service_date DATE NOT NULL COMMENT '例外日期',
+    exception_type TINYINT NOT NULL COMMENT '1: 增加运行 2: 停止运行',
+    PRIMARY KEY (calendar_id, service_date),
+    INDEX idx_service_calendar_date (service_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 列车行程表
+-- 单日行程设置 run_date；按日历重复运行的行程设置 service_id，run_date 为空
 CREATE TABLE IF NOT EXISTS train_trip (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     route_id BIGINT NOT NULL COMMENT '所属路线ID',
     train_number VARCHAR(20) NOT NULL COMMENT '列车车次号',
-    run_date DATE NOT NULL COMMENT '运行日期'
+    run_date DATE COMMENT '运行日期',
+    service_id BIGINT COMMENT '运营日历ID',
+    INDEX idx_train_trip_run_date (run_date),
+    INDEX idx_train_trip_service (service_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 到站时刻表
@@ -127,5 +179,6 @@ CREATE TABLE IF NOT EXISTS stop_time (
     stop_id BIGINT NOT NULL COMMENT '所属停靠点ID',
     arrival_time TIME COMMENT '到达时间',
     departure_time TIME COMMENT '离开时间',
-    stop_seq INT COMMENT '在当前行程中的顺序'
+    stop_seq INT COMMENT '在当前行程中的顺序',
+    INDEX idx_stop_time_trip (train_trip_id, stop_seq)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
\ No newline at end of file
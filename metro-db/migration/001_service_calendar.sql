@@ -0,0 +1,25 @@
+-- 为已有数据库增加运营日历
+-- 执行后调用 POST /api/metro/service-calendars/fold，把车次号、停靠时刻完全相同、仅运行日期不同的列车行程
+-- 合并为一条按运营日历运行的行程
+USE metro;
+
+CREATE TABLE IF NOT EXISTS service_calendar (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(50) NOT NULL COMMENT '日历名称',
+    weekdays TINYINT NOT NULL COMMENT '运行的星期，第0位为周一，第6位为周日',
+    start_date DATE NOT NULL COMMENT '生效起始日期',
+    end_date DATE NOT NULL COMMENT '生效结束日期（含）'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS service_calendar_date (
+    calendar_id BIGINT NOT NULL COMMENT '所属运营日历ID',
+    service_date DATE NOT NULL COMMENT '例外日期',
+    exception_type TINYINT NOT NULL COMMENT '1: 增加运行 2: 停止运行',
+    PRIMARY KEY (calendar_id, service_date),
+    INDEX idx_service_calendar_date (service_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+ALTER TABLE train_trip
+    MODIFY run_date DATE COMMENT '运行日期',
+    ADD COLUMN service_id BIGINT COMMENT '运营日历ID' AFTER run_date,
+    ADD INDEX idx_train_trip_service (service_id);
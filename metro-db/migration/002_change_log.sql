@@ -0,0 +1,22 @@
+-- 为已有数据库增加路网数据变更日志
+-- 执行前已下载过路网数据的客户端没有同步版本，首次调用 GET /api/metro/sync 时会得到全量数据
+USE metro;
+
+-- 路网数据同步版本（单行计数器）
+-- 线路、站点、路线、停靠点的每次写操作在同一事务中加一，行锁保证版本号按提交顺序递增
+CREATE TABLE IF NOT EXISTS metro_sync_version (
+    id TINYINT PRIMARY KEY,
+    version BIGINT NOT NULL COMMENT '当前版本'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO metro_sync_version (id, version) VALUES (1, 0);
+
+-- 路网数据变更日志，供客户端增量同步；超过保留期的记录会被压缩删除
+CREATE TABLE IF NOT EXISTS metro_change_log (
+    version BIGINT PRIMARY KEY COMMENT '变更后的同步版本',
+    aggregate VARCHAR(20) NOT NULL COMMENT '数据类型：LINE、STATION、ROUTE、STOP',
+    entity_id BIGINT COMMENT '变更记录ID，为空表示批量变更（客户端需全量同步）',
+    change_type VARCHAR(10) NOT NULL COMMENT 'CREATE、UPDATE、DELETE',
+    changed_at DATETIME NOT NULL COMMENT '变更时间',
+    INDEX idx_metro_change_log_time (changed_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
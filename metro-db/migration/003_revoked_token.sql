@@ -0,0 +1,12 @@
+-- 为已有数据库增加已吊销令牌表，登出和刷新令牌依赖此表
+-- 通过 init.sql 新建的数据库已包含此表，无需执行
+USE metro;
+
+-- 已吊销令牌表（登出后仍在有效期内的令牌）
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti VARCHAR(64) PRIMARY KEY COMMENT '令牌ID',
+    user_id BIGINT COMMENT '令牌所属用户ID',
+    expires_at DATETIME NOT NULL COMMENT '令牌过期时间，过期后记录可删除',
+    revoked_at DATETIME NOT NULL COMMENT '吊销时间',
+    INDEX idx_revoked_token_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
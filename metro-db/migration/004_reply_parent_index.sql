@@ -0,0 +1,6 @@
+-- 为已有数据库增加回复表的父记录索引，反馈和请求列表按父记录批量加载回复
+-- 通过 init.sql 新建的数据库已包含此索引，无需执行
+USE metro;
+
+ALTER TABLE reply
+    ADD INDEX idx_reply_parent (parent_type, parent_id, created_at);
@@ -0,0 +1,10 @@
+-- 为已有数据库增加停靠点的 (route_id, seq) 索引，并把连续的序号改为稀疏编号
+-- 序号只表示先后顺序，按 1024 的间隔编号后，在两站之间插入停靠点只需写一行
+-- 通过 init.sql 新建的数据库已包含此索引，无需执行
+USE metro;
+
+ALTER TABLE stop
+    MODIFY seq INT NOT NULL COMMENT '序号（稀疏编号，仅表示先后顺序）',
+    ADD INDEX idx_stop_route_seq (route_id, seq);
+
+UPDATE stop SET seq = seq * 1024;
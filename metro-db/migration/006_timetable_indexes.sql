@@ -0,0 +1,9 @@
+-- 为已有数据库增加时刻表快照加载所需的索引：按运行日期查询列车行程、按行程读取到站时刻
+-- 通过 init.sql 新建的数据库已包含这些索引，无需执行
+USE metro;
+
+ALTER TABLE train_trip
+    ADD INDEX idx_train_trip_run_date (run_date);
+
+ALTER TABLE stop_time
+    ADD INDEX idx_stop_time_trip (train_trip_id, stop_seq);
@@ -14,6 +14,7 @@ export interface Feedback {
   rating: number
   createdAt: string
   replies: Reply[]
+  replyCount?: number
 }
 
 // Request interfaces
@@ -31,6 +32,7 @@ export interface Request {
   status: 'pending' | 'processing' | 'resolved' | 'rejected'
   createdAt: string
   replies: Reply[]
+  replyCount?: number
 }
 
 // Reply interface
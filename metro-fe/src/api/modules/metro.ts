@@ -84,6 +84,7 @@ export interface TrainTripDto {
   routeId: number
   trainNumber: string
   runDate: string
+  serviceId?: number | null
   stopTimeIds?: number[]
 }
 
@@ -101,6 +102,11 @@ export interface StopTimeDto {
   arrivalTime?: string | null
   departureTime?: string | null
   stopSeq: number
+  // 存在实时延误时返回，此时 arrivalTime / departureTime 为预计时刻
+  scheduledArrivalTime?: string | null
+  scheduledDepartureTime?: string | null
+  arrivalDelay?: number | null
+  departureDelay?: number | null
 }
 
 export interface StopTime extends StopTimeDto {
@@ -252,7 +258,7 @@ export const metroApi = {
 
   // New method for updating stop sequences
   updateStopSequences: (updateDto: UpdateStopSequencesDto) => {
-    return request.put<boolean>('/metro/stops/sequences', updateDto)
+    return request.put<Stop[]>('/metro/stops/sequences', updateDto)
   },
 
   // TrainTrip methods
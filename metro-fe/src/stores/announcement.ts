@@ -1,6 +1,15 @@
 import { defineStore } from 'pinia'
 import { announcementApi, type Announcement, type AnnouncementDto } from '../api'
 
+interface AnnouncementPushEvent {
+  changeType: 'CREATE' | 'UPDATE' | 'DELETE'
+  entityId: number
+  announcement?: Announcement | null
+}
+
+// 变更推送连接，不放入 state 以免被转换为响应式对象
+let eventSource: EventSource | null = null
+
 interface AnnouncementState {
   announcements: Announcement[]
   loading: boolean
@@ -91,6 +100,37 @@ export const useAnnouncementStore = defineStore('announcement', {
       }
     },
     
+    // 订阅服务端推送的公告变更，替代轮询
+    subscribeChanges() {
+      if (eventSource) {
+        return
+      }
+      eventSource = new EventSource('/api/metro/events')
+      eventSource.addEventListener('announcement', (event) => {
+        this.applyPushEvent(JSON.parse((event as MessageEvent).data) as AnnouncementPushEvent)
+      })
+    },
+    
+    unsubscribeChanges() {
+      eventSource?.close()
+      eventSource = null
+    },
+    
+    applyPushEvent(event: AnnouncementPushEvent) {
+      const index = this.announcements.findIndex(announcement => announcement.id === event.entityId)
+      if (event.changeType === 'DELETE') {
+        if (index !== -1) {
+          this.announcements.splice(index, 1)
+        }
+      } else if (event.announcement) {
+        if (index !== -1) {
+          this.announcements[index] = event.announcement
+        } else {
+          this.announcements.unshift(event.announcement)
+        }
+      }
+    },
+    
     async deleteAnnouncement(id: number) {
       this.loading = true
       this.error = null